@@ -0,0 +1,134 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.common.chronicle;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+import com.ericsson.bss.cassandra.ecaudit.common.chronicle.FieldSelector.Field;
+import com.ericsson.bss.cassandra.ecaudit.common.record.AuditRecord;
+import net.openhft.chronicle.wire.WireOut;
+import net.openhft.chronicle.wire.WriteMarshallable;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Write the records of a batch as one compact record.
+ * <p>
+ * The fields which are shared by all statements of the batch are written once, followed by the list of operations.
+ */
+public class AuditBatchWriteMarshallable implements WriteMarshallable
+{
+    private final List<? extends AuditRecord> auditRecords;
+    private final FieldSelector actualFields;
+    private final WriteDictionary dictionary;
+
+    /**
+     * @param auditRecords     the records of the batch, see {@link #isCompactable(List)}
+     * @param configuredFields the fields to write
+     */
+    public AuditBatchWriteMarshallable(List<? extends AuditRecord> auditRecords, FieldSelector configuredFields)
+    {
+        this(auditRecords, configuredFields, null);
+    }
+
+    /**
+     * @param auditRecords     the records of the batch, see {@link #isCompactable(List)}
+     * @param configuredFields the fields to write
+     * @param dictionary       the dictionary to refer to when written to a cycle file, or {@code null} to write the
+     *                         record self-contained
+     */
+    public AuditBatchWriteMarshallable(List<? extends AuditRecord> auditRecords, FieldSelector configuredFields, WriteDictionary dictionary)
+    {
+        if (auditRecords.isEmpty())
+        {
+            throw new IllegalArgumentException("A batch record must contain at least one audit record");
+        }
+
+        this.auditRecords = auditRecords;
+        this.actualFields = FieldFilterFlavorAdapter.getFieldsAvailableInBatch(auditRecords, configuredFields);
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * Check if records can be written as one compact batch record.
+     * <p>
+     * This is the case for two or more records of the same batch which only differ in their operation.
+     *
+     * @param auditRecords the records to check
+     * @return {@code true} if the records can be written as a compact batch record, otherwise {@code false}
+     */
+    public static boolean isCompactable(List<? extends AuditRecord> auditRecords)
+    {
+        if (auditRecords.size() < 2 || !auditRecords.get(0).getBatchId().isPresent())
+        {
+            return false;
+        }
+
+        AuditRecord first = auditRecords.get(0);
+        return auditRecords.stream().allMatch(auditRecord -> haveSharedFields(first, auditRecord));
+    }
+
+    private static boolean haveSharedFields(AuditRecord first, AuditRecord other)
+    {
+        return Objects.equals(first.getTimestamp(), other.getTimestamp())
+               && Objects.equals(first.getClientAddress(), other.getClientAddress())
+               && Objects.equals(first.getCoordinatorAddress(), other.getCoordinatorAddress())
+               && Objects.equals(first.getUser(), other.getUser())
+               && Objects.equals(first.getBatchId(), other.getBatchId())
+               && first.getStatus() == other.getStatus();
+    }
+
+    @Override
+    public void writeMarshallable(@NotNull WireOut wire)
+    {
+        if (dictionary != null && dictionary.beginRecord(wire))
+        {
+            writeWithDictionary(wire);
+            dictionary.endRecord();
+            return;
+        }
+
+        // Mandatory fields
+        wire.write(WireTags.KEY_VERSION).int16(WireTags.VALUE_VERSION_CURRENT);
+        wire.write(WireTags.KEY_TYPE).text(WireTags.VALUE_TYPE_COMPACT_BATCH);
+        wire.write(WireTags.KEY_FIELDS).int32(actualFields.getBitmap());
+        wire.write(WireTags.KEY_BATCH_SIZE).int32(auditRecords.size());
+        // Configurable fields
+        AuditRecordWriteMarshallable.writeSharedFields(wire, auditRecords.get(0), actualFields);
+        actualFields.ifSelectedRun(Field.OPERATION, () -> wire.write(WireTags.KEY_OPERATION).sequence(auditRecords, (records, out) ->
+            records.forEach(auditRecord -> out.text(BoundValueWire.operationText(auditRecord.getOperation(), actualFields)))));
+        actualFields.ifSelectedRun(Field.BOUND_VALUES, () -> wire.write(WireTags.KEY_BOUND_VALUES).sequence(auditRecords, (records, out) ->
+            records.forEach(auditRecord -> BoundValueWire.write(out, BoundValueWire.boundValues(auditRecord.getOperation(), actualFields)))));
+        actualFields.ifSelectedRun(Field.OPERATION_NAKED, () -> wire.write(WireTags.KEY_NAKED_OPERATION).sequence(auditRecords, (records, out) ->
+            records.forEach(auditRecord -> out.text(auditRecord.getOperation().getNakedOperationString()))));
+    }
+
+    private void writeWithDictionary(WireOut wire)
+    {
+        AuditRecord sharedRecord = auditRecords.get(0);
+        DictionaryEncoder encoder = new DictionaryEncoder(dictionary, sharedRecord, actualFields);
+        List<DictionaryEncoder.OperationReference> operations = auditRecords.stream()
+                                                                            .map(auditRecord -> encoder.referenceOperation(auditRecord.getOperation()))
+                                                                            .collect(Collectors.toList());
+
+        encoder.writeHeader(wire, WireTags.VALUE_TYPE_COMPACT_BATCH);
+        encoder.writeBatchSize(wire, auditRecords.size());
+        encoder.writeDefinitions(wire);
+        encoder.writeSharedFields(wire, sharedRecord);
+        encoder.writeOperations(wire, operations);
+    }
+}
@@ -17,7 +17,12 @@ package com.ericsson.bss.cassandra.ecaudit.common.chronicle;
 
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Predicate;
 
 import com.ericsson.bss.cassandra.ecaudit.common.chronicle.FieldSelector.Field;
 import com.ericsson.bss.cassandra.ecaudit.common.record.Status;
@@ -27,14 +32,60 @@ import net.openhft.chronicle.wire.ReadMarshallable;
 import net.openhft.chronicle.wire.WireIn;
 import org.jetbrains.annotations.NotNull;
 
+/**
+ * Read audit records from the wire.
+ * <p>
+ * A single wire record holds one audit record, or all the audit records of a batch if it was written as a compact
+ * batch record. Records of version 2 and 3 refer to values in a dictionary, see {@link ReadDictionary}.
+ * <p>
+ * Records written to a sharded log are followed by a sequence number, see {@link SequencedWriteMarshallable}.
+ * <p>
+ * Records of version 1 and later can be filtered on their shared fields through a {@link RecordView}, in which case
+ * the operations of records which do not match are not decoded.
+ */
 public class AuditRecordReadMarshallable implements ReadMarshallable
 {
-    private StoredAuditRecord auditRecord;
+    private static final Predicate<RecordView> ALL_RECORDS = view -> true;
+
+    private final ReadDictionary dictionary;
+    private final RecordView view;
+    private final Predicate<RecordView> filter;
+    private List<StoredAuditRecord> auditRecords;
+    private Long sequence;
+
+    /**
+     * Create a marshallable for records which are self-contained, i.e. records which do not refer to a dictionary
+     * defined by earlier records.
+     */
+    public AuditRecordReadMarshallable()
+    {
+        this(new ReadDictionary());
+    }
+
+    /**
+     * @param dictionary the dictionary to resolve references to values defined by earlier records
+     */
+    public AuditRecordReadMarshallable(ReadDictionary dictionary)
+    {
+        this(dictionary, new RecordView(), ALL_RECORDS);
+    }
+
+    /**
+     * @param dictionary the dictionary to resolve references to values defined by earlier records
+     * @param view       the view to read the shared fields of the record into, which may be reused between records
+     * @param filter     the filter of the records to decode, records which do not match are read as no records
+     */
+    public AuditRecordReadMarshallable(ReadDictionary dictionary, RecordView view, Predicate<RecordView> filter)
+    {
+        this.dictionary = dictionary;
+        this.view = view;
+        this.filter = filter;
+    }
 
     @Override
     public void readMarshallable(@NotNull WireIn wire) throws IORuntimeException
     {
-        if (auditRecord != null)
+        if (auditRecords != null)
         {
             throw new IORuntimeException("Tried to read from wire with used marshallable");
         }
@@ -43,14 +94,29 @@ public class AuditRecordReadMarshallable implements ReadMarshallable
         switch (version)
         {
             case WireTags.VALUE_VERSION_0:
-                auditRecord = readV0(wire);
+                auditRecords = Collections.singletonList(readV0(wire));
+                break;
+            case WireTags.VALUE_VERSION_1:
+                auditRecords = readV1(wire);
                 break;
-            case WireTags.VALUE_VERSION_CURRENT:
-                auditRecord = readV1(wire);
+            case WireTags.VALUE_VERSION_2:
+            case WireTags.VALUE_VERSION_3:
+                auditRecords = DictionaryDecoder.read(wire, dictionary, version, view, filter);
                 break;
             default:
                 throw new IORuntimeException("Unsupported record version: " + version);
         }
+
+        readSequence(wire);
+    }
+
+    private void readSequence(WireIn wire)
+    {
+        // The rest of a record which does not match the filter is not read
+        if (!auditRecords.isEmpty() && wire.hasMore())
+        {
+            sequence = wire.read(WireTags.KEY_SEQUENCE).int64();
+        }
     }
 
     private StoredAuditRecord readV0(WireIn wire)
@@ -75,49 +141,127 @@ public class AuditRecordReadMarshallable implements ReadMarshallable
                       .build();
     }
 
-    private StoredAuditRecord readV1(WireIn wire)
+    private List<StoredAuditRecord> readV1(WireIn wire)
+    {
+        String type = wire.read(WireTags.KEY_TYPE).text();
+        if (WireTags.VALUE_TYPE_AUDIT.equals(type))
+        {
+            return readV1Single(wire);
+        }
+        if (WireTags.VALUE_TYPE_COMPACT_BATCH.equals(type))
+        {
+            return readV1CompactBatch(wire);
+        }
+
+        throw new IORuntimeException("Unsupported record type field: " + type);
+    }
+
+    private List<StoredAuditRecord> readV1Single(WireIn wire)
     {
-        checkV1Type(wire);
         int bitmap = wire.read(WireTags.KEY_FIELDS).int32();
 
         FieldSelector fields = FieldSelector.fromBitmap(bitmap);
         StoredAuditRecord.Builder recordBuilder = StoredAuditRecord.builder();
 
         // Read configurable fields
-        fields.ifSelectedRun(Field.TIMESTAMP, () -> recordBuilder.withTimestamp(wire.read(WireTags.KEY_TIMESTAMP).int64()));
-        fields.ifSelectedRun(Field.CLIENT_IP, () -> recordBuilder.withClientAddress(readInetAddress(wire, WireTags.KEY_CLIENT_IP)));
-        fields.ifSelectedRun(Field.CLIENT_PORT, () -> recordBuilder.withClientPort(wire.read(WireTags.KEY_CLIENT_PORT).int32()));
-        fields.ifSelectedRun(Field.COORDINATOR_IP, () -> recordBuilder.withCoordinatorAddress(readInetAddress(wire, WireTags.KEY_COORDINATOR_IP)));
-        fields.ifSelectedRun(Field.USER, () -> recordBuilder.withUser(wire.read(WireTags.KEY_USER).text()));
-        fields.ifSelectedRun(Field.BATCH_ID, () -> recordBuilder.withBatchId(readBatchId(wire)));
-        fields.ifSelectedRun(Field.STATUS, () -> recordBuilder.withStatus(readStatus(wire)));
-        fields.ifSelectedRun(Field.OPERATION, () -> recordBuilder.withOperation(wire.read(WireTags.KEY_OPERATION).text()));
+        if (!readV1SharedFields(wire, fields, recordBuilder))
+        {
+            return Collections.emptyList();
+        }
+        fields.ifSelectedRun(Field.OPERATION, () -> recordBuilder.withOperation(readV1Operation(wire, fields)));
         fields.ifSelectedRun(Field.OPERATION_NAKED, () -> recordBuilder.withNakedOperation(wire.read(WireTags.KEY_NAKED_OPERATION).text()));
 
-        return recordBuilder.build();
+        return Collections.singletonList(recordBuilder.build());
     }
 
-    private String readV0Type(WireIn wire) throws IORuntimeException
+    private List<StoredAuditRecord> readV1CompactBatch(WireIn wire)
     {
-        String type = wire.read(WireTags.KEY_TYPE).text();
-        if (!WireTags.VALUE_TYPE_BATCH_ENTRY.equals(type) && !WireTags.VALUE_TYPE_SINGLE_ENTRY.equals(type))
+        int bitmap = wire.read(WireTags.KEY_FIELDS).int32();
+        int batchSize = wire.read(WireTags.KEY_BATCH_SIZE).int32(); // NOPMD precedes the shared fields on the wire
+
+        FieldSelector fields = FieldSelector.fromBitmap(bitmap);
+        StoredAuditRecord.Builder recordBuilder = StoredAuditRecord.builder();
+
+        // Read configurable fields
+        if (!readV1SharedFields(wire, fields, recordBuilder))
         {
-            throw new IORuntimeException("Unsupported record type field: " + type);
+            return Collections.emptyList();
+        }
+        List<String> operations = readOperations(wire, fields, Field.OPERATION, WireTags.KEY_OPERATION, batchSize);
+        if (fields.isSelected(Field.BOUND_VALUES))
+        {
+            operations = BoundValueWire.readRendered(wire.read(WireTags.KEY_BOUND_VALUES), operations);
         }
+        List<String> nakedOperations = readOperations(wire, fields, Field.OPERATION_NAKED, WireTags.KEY_NAKED_OPERATION, batchSize);
 
-        return type;
+        List<StoredAuditRecord> records = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++)
+        {
+            records.add(recordBuilder.withOperation(operations.get(i))
+                                     .withNakedOperation(nakedOperations.get(i))
+                                     .build());
+        }
+
+        return records;
+    }
+
+    private static String readV1Operation(WireIn wire, FieldSelector fields)
+    {
+        String operation = wire.read(WireTags.KEY_OPERATION).text();
+        return fields.isSelected(Field.BOUND_VALUES)
+               ? operation + BoundValueWire.readRendered(wire.read(WireTags.KEY_BOUND_VALUES))
+               : operation;
+    }
+
+    /**
+     * @return {@code true} if the record matches the filter and its shared fields were decoded, otherwise {@code false}
+     */
+    private boolean readV1SharedFields(WireIn wire, FieldSelector fields, StoredAuditRecord.Builder recordBuilder)
+    {
+        view.readNamedFields(wire, fields);
+        if (!filter.test(view))
+        {
+            return false;
+        }
+        view.copyTo(recordBuilder);
+        return true;
+    }
+
+    private List<String> readOperations(WireIn wire, FieldSelector fields, Field field, String key, int batchSize) throws IORuntimeException
+    {
+        if (!fields.isSelected(field))
+        {
+            return Collections.nCopies(batchSize, null);
+        }
+
+        List<String> operations = new ArrayList<>(batchSize);
+        wire.read(key).sequence(operations, (list, valueIn) -> {
+            while (valueIn.hasNextSequenceItem())
+            {
+                list.add(valueIn.text());
+            }
+        });
+
+        if (operations.size() != batchSize)
+        {
+            throw new IORuntimeException("Corrupt " + key + " field, expected " + batchSize + " operations but got " + operations.size());
+        }
+
+        return operations;
     }
 
-    private void checkV1Type(WireIn wire) throws IORuntimeException
+    private String readV0Type(WireIn wire) throws IORuntimeException
     {
         String type = wire.read(WireTags.KEY_TYPE).text();
-        if (!WireTags.VALUE_TYPE_AUDIT.equals(type))
+        if (!WireTags.VALUE_TYPE_BATCH_ENTRY.equals(type) && !WireTags.VALUE_TYPE_SINGLE_ENTRY.equals(type))
         {
             throw new IORuntimeException("Unsupported record type field: " + type);
         }
+
+        return type;
     }
 
-    private InetAddress readInetAddress(WireIn wire, String key) throws IORuntimeException
+    static InetAddress readInetAddress(WireIn wire, String key) throws IORuntimeException
     {
         try
         {
@@ -129,12 +273,12 @@ public class AuditRecordReadMarshallable implements ReadMarshallable
         }
     }
 
-    private UUID readBatchId(WireIn wire) throws IORuntimeException
+    static UUID readBatchId(WireIn wire) throws IORuntimeException
     {
         return wire.read(WireTags.KEY_BATCH_ID).uuid();
     }
 
-    private Status readStatus(WireIn wire) throws IORuntimeException
+    static Status readStatus(WireIn wire) throws IORuntimeException
     {
         try
         {
@@ -146,13 +290,54 @@ public class AuditRecordReadMarshallable implements ReadMarshallable
         }
     }
 
+    /**
+     * Get the audit record read from the wire.
+     *
+     * @return the audit record
+     * @throws IllegalStateException if no record has been read, or if a compact batch record was read
+     * @see #getAuditRecords()
+     */
     public StoredAuditRecord getAuditRecord()
     {
-        if (auditRecord == null)
+        List<StoredAuditRecord> records = getAuditRecords();
+        if (records.size() != 1)
+        {
+            throw new IllegalStateException("A batch of " + records.size() + " records has been read from the wire");
+        }
+
+        return records.get(0);
+    }
+
+    /**
+     * Get the audit records read from the wire.
+     *
+     * @return the single audit record, or all records of a compact batch record
+     * @throws IllegalStateException if no record has been read
+     */
+    public List<StoredAuditRecord> getAuditRecords()
+    {
+        if (auditRecords == null)
+        {
+            throw new IllegalStateException("No record has been read from the wire");
+        }
+
+        return auditRecords;
+    }
+
+    /**
+     * Get the sequence number of the wire record, which orders records with the same timestamp across the shards of a
+     * sharded log.
+     *
+     * @return the sequence number, or empty if the record was not written to a sharded log
+     * @throws IllegalStateException if no record has been read
+     */
+    public Optional<Long> getSequence()
+    {
+        if (auditRecords == null)
         {
             throw new IllegalStateException("No record has been read from the wire");
         }
 
-        return auditRecord;
+        return Optional.ofNullable(sequence);
     }
 }
@@ -25,29 +25,73 @@ public class AuditRecordWriteMarshallable implements WriteMarshallable
 {
     private final AuditRecord auditRecord;
     private final FieldSelector actualFields;
+    private final WriteDictionary dictionary;
 
     public AuditRecordWriteMarshallable(AuditRecord auditRecord, FieldSelector configuredFields)
+    {
+        this(auditRecord, configuredFields, null);
+    }
+
+    /**
+     * @param auditRecord      the record to write
+     * @param configuredFields the fields to write
+     * @param dictionary       the dictionary to refer to when written to a cycle file, or {@code null} to write the
+     *                         record self-contained
+     */
+    public AuditRecordWriteMarshallable(AuditRecord auditRecord, FieldSelector configuredFields, WriteDictionary dictionary)
     {
         this.auditRecord = auditRecord;
         this.actualFields = FieldFilterFlavorAdapter.getFieldsAvailableInRecord(auditRecord, configuredFields);
+        this.dictionary = dictionary;
     }
 
     @Override
     public void writeMarshallable(@NotNull WireOut wire)
     {
+        if (dictionary != null && dictionary.beginRecord(wire))
+        {
+            writeWithDictionary(wire);
+            dictionary.endRecord();
+            return;
+        }
+
         // Mandatory fields
         wire.write(WireTags.KEY_VERSION).int16(WireTags.VALUE_VERSION_CURRENT);
         wire.write(WireTags.KEY_TYPE).text(WireTags.VALUE_TYPE_AUDIT);
         wire.write(WireTags.KEY_FIELDS).int32(actualFields.getBitmap());
         // Configurable fields
-        actualFields.ifSelectedRun(Field.TIMESTAMP, () -> wire.write(WireTags.KEY_TIMESTAMP).int64(auditRecord.getTimestamp()));
-        actualFields.ifSelectedRun(Field.CLIENT_IP, () -> wire.write(WireTags.KEY_CLIENT_IP).bytes(auditRecord.getClientAddress().getAddress().getAddress()));
-        actualFields.ifSelectedRun(Field.CLIENT_PORT, () -> wire.write(WireTags.KEY_CLIENT_PORT).int32(auditRecord.getClientAddress().getPort()));
-        actualFields.ifSelectedRun(Field.COORDINATOR_IP, () -> wire.write(WireTags.KEY_COORDINATOR_IP).bytes(auditRecord.getCoordinatorAddress().getAddress()));
-        actualFields.ifSelectedRun(Field.USER, () -> wire.write(WireTags.KEY_USER).text(auditRecord.getUser()));
-        actualFields.ifSelectedRun(Field.BATCH_ID, () -> wire.write(WireTags.KEY_BATCH_ID).uuid(auditRecord.getBatchId().get()));
-        actualFields.ifSelectedRun(Field.STATUS, () -> wire.write(WireTags.KEY_STATUS).text(auditRecord.getStatus().name()));
-        actualFields.ifSelectedRun(Field.OPERATION, () -> wire.write(WireTags.KEY_OPERATION).text(auditRecord.getOperation().getOperationString()));
+        writeSharedFields(wire, auditRecord, actualFields);
+        actualFields.ifSelectedRun(Field.OPERATION, () -> wire.write(WireTags.KEY_OPERATION).text(BoundValueWire.operationText(auditRecord.getOperation(), actualFields)));
+        actualFields.ifSelectedRun(Field.BOUND_VALUES, () -> BoundValueWire.write(wire.write(WireTags.KEY_BOUND_VALUES), auditRecord.getOperation().getBoundValues()));
         actualFields.ifSelectedRun(Field.OPERATION_NAKED, () -> wire.write(WireTags.KEY_NAKED_OPERATION).text(auditRecord.getOperation().getNakedOperationString()));
     }
+
+    private void writeWithDictionary(WireOut wire)
+    {
+        DictionaryEncoder encoder = new DictionaryEncoder(dictionary, auditRecord, actualFields);
+        DictionaryEncoder.OperationReference operation = encoder.referenceOperation(auditRecord.getOperation());
+
+        encoder.writeHeader(wire, WireTags.VALUE_TYPE_AUDIT);
+        encoder.writeDefinitions(wire);
+        encoder.writeSharedFields(wire, auditRecord);
+        encoder.writeOperation(wire, operation);
+    }
+
+    /**
+     * Write the selected fields of a record, except the operation.
+     *
+     * @param wire        the wire to write to
+     * @param auditRecord the record to write
+     * @param fields      the fields to write
+     */
+    static void writeSharedFields(WireOut wire, AuditRecord auditRecord, FieldSelector fields)
+    {
+        fields.ifSelectedRun(Field.TIMESTAMP, () -> wire.write(WireTags.KEY_TIMESTAMP).int64(auditRecord.getTimestamp()));
+        fields.ifSelectedRun(Field.CLIENT_IP, () -> wire.write(WireTags.KEY_CLIENT_IP).bytes(auditRecord.getClientAddress().getAddress().getAddress()));
+        fields.ifSelectedRun(Field.CLIENT_PORT, () -> wire.write(WireTags.KEY_CLIENT_PORT).int32(auditRecord.getClientAddress().getPort()));
+        fields.ifSelectedRun(Field.COORDINATOR_IP, () -> wire.write(WireTags.KEY_COORDINATOR_IP).bytes(auditRecord.getCoordinatorAddress().getAddress()));
+        fields.ifSelectedRun(Field.USER, () -> wire.write(WireTags.KEY_USER).text(auditRecord.getUser()));
+        fields.ifSelectedRun(Field.BATCH_ID, () -> wire.write(WireTags.KEY_BATCH_ID).uuid(auditRecord.getBatchId().get()));
+        fields.ifSelectedRun(Field.STATUS, () -> wire.write(WireTags.KEY_STATUS).text(auditRecord.getStatus().name()));
+    }
 }
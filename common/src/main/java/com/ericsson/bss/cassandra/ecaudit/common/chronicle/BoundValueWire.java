@@ -0,0 +1,163 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.common.chronicle;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.ericsson.bss.cassandra.ecaudit.common.chronicle.FieldSelector.Field;
+import com.ericsson.bss.cassandra.ecaudit.common.record.AuditOperation;
+import com.ericsson.bss.cassandra.ecaudit.common.record.BoundValue;
+import com.ericsson.bss.cassandra.ecaudit.common.record.BoundValueType;
+import net.openhft.chronicle.core.io.IORuntimeException;
+import net.openhft.chronicle.wire.ValueIn;
+import net.openhft.chronicle.wire.ValueOut;
+
+/**
+ * Writes and reads the {@link Field#BOUND_VALUES} field of a record.
+ * <p>
+ * With the field selected the operation of a prepared statement is written as its naked statement, followed by the
+ * bound values in serialized form. The bound values are rendered as CQL literals and appended to the statement when
+ * the record is read, which gives the same operation as if it had been written as text.
+ */
+final class BoundValueWire
+{
+    private BoundValueWire()
+    {
+        // Utility class
+    }
+
+    /**
+     * @param operation the operation to write
+     * @param fields    the fields of the record
+     * @return the bound values to write with the operation, or an empty list if the operation is written as text
+     */
+    static List<BoundValue> boundValues(AuditOperation operation, FieldSelector fields)
+    {
+        return fields.isSelected(Field.BOUND_VALUES)
+               ? operation.getBoundValues()
+               : Collections.emptyList();
+    }
+
+    /**
+     * @param operation the operation to write
+     * @param fields    the fields of the record
+     * @return the operation text to write, without the bound values if they are written separately
+     */
+    static String operationText(AuditOperation operation, FieldSelector fields)
+    {
+        return boundValues(operation, fields).isEmpty()
+               ? operation.getOperationString()
+               : operation.getNakedOperationString();
+    }
+
+    /**
+     * Write the bound values of an operation as a sequence.
+     *
+     * @param out    the value to write to
+     * @param values the bound values
+     */
+    static void write(ValueOut out, List<BoundValue> values)
+    {
+        out.sequence(values, (list, items) -> list.forEach(value -> {
+            if (value.getType().isPresent())
+            {
+                items.int8(value.getType().get().getCode());
+                items.bytes(toArray(value.getSerializedValue()));
+            }
+            else
+            {
+                items.int8(WireTags.VALUE_BOUND_LITERAL);
+                items.text(value.toCqlLiteral());
+            }
+        }));
+    }
+
+    private static byte[] toArray(ByteBuffer value)
+    {
+        byte[] bytes = new byte[value.remaining()];
+        value.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Read the bound values of an operation and render them.
+     *
+     * @param in the value to read from
+     * @return the rendered bound values to append to the operation text
+     */
+    static String readRendered(ValueIn in)
+    {
+        List<String> literals = new ArrayList<>();
+        in.sequence(literals, (list, items) -> {
+            while (items.hasNextSequenceItem())
+            {
+                list.add(readLiteral(items));
+            }
+        });
+        return BoundValue.toCqlLiterals(literals);
+    }
+
+    /**
+     * Read the bound values of each operation of a compact batch and append them to the operations.
+     *
+     * @param in         the value to read from
+     * @param operations the operation texts of the batch
+     * @return the operations with bound values
+     */
+    static List<String> readRendered(ValueIn in, List<String> operations)
+    {
+        List<String> rendered = new ArrayList<>(operations.size());
+        in.sequence(rendered, (list, items) -> {
+            while (items.hasNextSequenceItem())
+            {
+                list.add(readRendered(items));
+            }
+        });
+        if (rendered.size() != operations.size())
+        {
+            throw new IORuntimeException("Corrupt " + WireTags.KEY_BOUND_VALUES + " field, expected " + operations.size() + " operations but got " + rendered.size());
+        }
+
+        List<String> result = new ArrayList<>(operations.size());
+        for (int i = 0; i < operations.size(); i++)
+        {
+            result.add(operations.get(i) + rendered.get(i));
+        }
+        return result;
+    }
+
+    private static String readLiteral(ValueIn in)
+    {
+        byte code = in.int8();
+        if (code == WireTags.VALUE_BOUND_LITERAL)
+        {
+            return in.text();
+        }
+
+        try
+        {
+            return BoundValueType.fromCode(code).render(ByteBuffer.wrap(in.bytes()));
+        }
+        catch (IllegalArgumentException | IndexOutOfBoundsException | BufferUnderflowException e)
+        {
+            throw new IORuntimeException("Corrupt " + WireTags.KEY_BOUND_VALUES + " field", e);
+        }
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.common.chronicle;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import net.openhft.chronicle.queue.impl.single.SingleChronicleQueue;
+
+/**
+ * Compressed archives of released Chronicle cycle files.
+ * <p>
+ * A cycle file is archived in GZIP format next to the cycle file, named like the cycle file with a ".gz" extension
+ * added, see {@link #SUFFIX}. The archive is written to a temporary file first and then renamed, so an archive with
+ * the final name is always complete and durable. Since archive names sort like cycle file names, archives can be
+ * ordered chronologically along with the cycle files.
+ */
+public final class CycleArchive
+{
+    private static final String ARCHIVE_EXTENSION = ".gz";
+
+    public static final String SUFFIX = SingleChronicleQueue.SUFFIX + ARCHIVE_EXTENSION;
+
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private CycleArchive()
+    {
+        // Utility class
+    }
+
+    /**
+     * @param file the file to check
+     * @return {@code true} if the file is a cycle archive, otherwise {@code false}
+     */
+    public static boolean isArchive(Path file)
+    {
+        return file.getFileName().toString().endsWith(SUFFIX);
+    }
+
+    /**
+     * @param cycleFile the cycle file
+     * @return the path of the archive of the cycle file
+     */
+    public static Path archiveOf(Path cycleFile)
+    {
+        return cycleFile.resolveSibling(cycleFile.getFileName() + ARCHIVE_EXTENSION);
+    }
+
+    /**
+     * @param archive the cycle archive
+     * @return the name of the cycle file in the archive
+     */
+    public static String cycleFileNameOf(Path archive)
+    {
+        String archiveName = archive.getFileName().toString();
+        return archiveName.substring(0, archiveName.length() - ARCHIVE_EXTENSION.length());
+    }
+
+    /**
+     * List the archives in a directory in chronological order.
+     * <p>
+     * Archives of cycle files which still exist are not listed, since the cycle file may have been archived partly.
+     *
+     * @param directory the directory to list
+     * @return the archives of the directory
+     * @throws IOException if the directory could not be listed
+     */
+    public static List<Path> listArchives(Path directory) throws IOException
+    {
+        try (Stream<Path> files = Files.list(directory))
+        {
+            return files.filter(Files::isRegularFile)
+                        .filter(CycleArchive::isArchive)
+                        .filter(archive -> !Files.exists(archive.resolveSibling(cycleFileNameOf(archive))))
+                        .sorted()
+                        .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Compress a cycle file into an archive next to it. The cycle file is left in place.
+     * <p>
+     * The archive is forced to disk before it is renamed, and the directory is forced after the rename. Once this
+     * method returns the archive is durable, and the cycle file may be deleted.
+     *
+     * @param cycleFile the cycle file to compress
+     * @return the archive
+     * @throws IOException if the cycle file could not be compressed
+     */
+    public static Path compress(Path cycleFile) throws IOException
+    {
+        Path archive = archiveOf(cycleFile);
+        Path tempArchive = archive.resolveSibling(archive.getFileName() + TEMP_SUFFIX);
+        try
+        {
+            writeArchive(cycleFile, tempArchive);
+            Files.move(tempArchive, archive, StandardCopyOption.ATOMIC_MOVE);
+        }
+        finally
+        {
+            Files.deleteIfExists(tempArchive);
+        }
+
+        try
+        {
+            forceDirectory(archive.toAbsolutePath().getParent());
+        }
+        catch (IOException e)
+        {
+            Files.deleteIfExists(archive);
+            throw e;
+        }
+        return archive;
+    }
+
+    private static void writeArchive(Path cycleFile, Path tempArchive) throws IOException
+    {
+        try (InputStream in = Files.newInputStream(cycleFile);
+             FileChannel channel = FileChannel.open(tempArchive, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+             GZIPOutputStream out = new GZIPOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE))
+        {
+            copy(in, out);
+            out.finish();
+            channel.force(true);
+        }
+    }
+
+    private static void forceDirectory(Path directory) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ))
+        {
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Extract the cycle file of an archive.
+     *
+     * @param archive   the archive to extract
+     * @param directory the directory to extract the cycle file to
+     * @return the extracted cycle file
+     * @throws IOException if the archive could not be extracted
+     */
+    public static Path extract(Path archive, Path directory) throws IOException
+    {
+        Path cycleFile = directory.resolve(cycleFileNameOf(archive));
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(archive), BUFFER_SIZE))
+        {
+            Files.copy(in, cycleFile, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return cycleFile;
+    }
+
+    private static void copy(InputStream in, OutputStream out) throws IOException
+    {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int read = in.read(buffer);
+        while (read >= 0)
+        {
+            out.write(buffer, 0, read);
+            read = in.read(buffer);
+        }
+    }
+}
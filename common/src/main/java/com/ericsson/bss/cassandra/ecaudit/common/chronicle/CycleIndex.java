@@ -0,0 +1,538 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.common.chronicle;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.ericsson.bss.cassandra.ecaudit.common.record.StoredAuditRecord;
+import net.openhft.chronicle.queue.RollCycle;
+import net.openhft.chronicle.queue.impl.RollingResourcesCache;
+import net.openhft.chronicle.queue.impl.single.SingleChronicleQueue;
+
+/**
+ * An index of the records in a released Chronicle cycle file, which lets readers find the records of a user or a table,
+ * or the records of a time range, without reading the whole cycle.
+ * <p>
+ * The index is written next to the cycle file, named like the cycle file with a ".idx" extension added, see
+ * {@link #SUFFIX}. The index is kept when the cycle file is compressed into a {@link CycleArchive}. Records are
+ * identified by their Chronicle index, and the index maps:
+ * <ul>
+ * <li>time buckets of {@link #BUCKET_MILLIS} to the first record with a timestamp in the bucket</li>
+ * <li>users to the records of the user</li>
+ * <li>tables to the records with statements on the table, see {@link #tablesOf(String)}</li>
+ * </ul>
+ * The index also lists the records which define dictionary values, so that a reader which jumps between records can
+ * read the definitions it skipped, see {@link ReadDictionary}.
+ * <p>
+ * The index is written to a temporary file first and then renamed, so an index with the final name is always complete.
+ */
+public final class CycleIndex
+{
+    public static final String SUFFIX = ".idx";
+
+    public static final long BUCKET_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private static final int MAGIC = 0x45434958;
+    private static final byte FORMAT_VERSION = 1;
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final long[] NO_RECORDS = new long[0];
+
+    private static final String IDENTIFIER = "(\"(?:[^\"]|\"\")+\"|\\w+)";
+    private static final Pattern TABLE_PATTERN = Pattern.compile("(?i)\\b(?:FROM|INTO|UPDATE|TABLE|TRUNCATE(?:\\s+TABLE)?)\\s+"
+                                                                 + "(?:IF\\s+(?:NOT\\s+)?EXISTS\\s+)?"
+                                                                 + IDENTIFIER + "(?:\\s*\\.\\s*" + IDENTIFIER + ")?");
+    private static final Pattern TABLE_NAME_PATTERN = Pattern.compile("\\s*" + IDENTIFIER + "(?:\\s*\\.\\s*" + IDENTIFIER + ")?\\s*");
+
+    private final int cycle;
+    private final long recordCount;
+    private final long lastIndex;
+    private final long minTimestamp;
+    private final long maxTimestamp;
+    private final NavigableMap<Long, Long> buckets;
+    private final Map<String, long[]> users;
+    private final Map<String, long[]> tables;
+    private final long[] definitions;
+
+    private CycleIndex(int cycle, long recordCount, long lastIndex, long minTimestamp, long maxTimestamp, long[] definitions,
+                       NavigableMap<Long, Long> buckets, Map<String, long[]> users, Map<String, long[]> tables)
+    {
+        this.cycle = cycle;
+        this.recordCount = recordCount;
+        this.lastIndex = lastIndex;
+        this.minTimestamp = minTimestamp;
+        this.maxTimestamp = maxTimestamp;
+        this.buckets = buckets;
+        this.users = users;
+        this.tables = tables;
+        this.definitions = definitions.clone();
+    }
+
+    /**
+     * @param cycleFile the cycle file, or the archive of the cycle file
+     * @return the path of the index of the cycle file
+     */
+    public static Path indexOf(Path cycleFile)
+    {
+        String cycleFileName = CycleArchive.isArchive(cycleFile)
+                               ? CycleArchive.cycleFileNameOf(cycleFile)
+                               : cycleFile.getFileName().toString();
+        return cycleFile.resolveSibling(cycleFileName + SUFFIX);
+    }
+
+    /**
+     * @param directory the directory of the Chronicle queue
+     * @param rollCycle the roll cycle of the Chronicle queue
+     * @param cycle     the cycle
+     * @return the path of the index of the cycle file
+     */
+    public static Path indexOf(Path directory, RollCycle rollCycle, int cycle)
+    {
+        return indexOf(resourcesOf(directory.toFile(), rollCycle).resourceFor(cycle).path.toPath());
+    }
+
+    /**
+     * @param cycleFile the cycle file
+     * @param rollCycle the roll cycle of the Chronicle queue
+     * @return the cycle of the cycle file
+     */
+    public static int cycleOf(File cycleFile, RollCycle rollCycle)
+    {
+        String fileName = cycleFile.getName();
+        String cycleName = fileName.substring(0, fileName.length() - SingleChronicleQueue.SUFFIX.length());
+        return resourcesOf(cycleFile.getParentFile(), rollCycle).parseCount(cycleName);
+    }
+
+    private static RollingResourcesCache resourcesOf(File directory, RollCycle rollCycle)
+    {
+        return new RollingResourcesCache(rollCycle, 0, name -> new File(directory, name + SingleChronicleQueue.SUFFIX),
+                                         file -> file.getName().substring(0, file.getName().length() - SingleChronicleQueue.SUFFIX.length()));
+    }
+
+    /**
+     * Get the tables of the statements in an operation, as they are written in the statements. A table is named
+     * "keyspace.table" if the keyspace is given in the statement, otherwise by the name of the table only. Quoted
+     * names are unquoted, other names are in lower case.
+     * <p>
+     * The tables are found by the keywords which precede them, e.g. {@code FROM} and {@code INTO}, so a name following
+     * such a keyword in a literal may be included as well.
+     *
+     * @param operation the operation of an audit record
+     * @return the tables of the operation
+     */
+    public static Set<String> tablesOf(String operation)
+    {
+        Set<String> result = new LinkedHashSet<>();
+        Matcher matcher = TABLE_PATTERN.matcher(operation);
+        while (matcher.find())
+        {
+            result.add(tableOf(matcher));
+        }
+        return result;
+    }
+
+    /**
+     * Name a table like in {@link #tablesOf(String)}, e.g. to look up a table given by a user.
+     *
+     * @param table the table, as it would be written in a statement
+     * @return the name of the table
+     */
+    public static String tableNameOf(String table)
+    {
+        Matcher matcher = TABLE_NAME_PATTERN.matcher(table);
+        return matcher.matches() ? tableOf(matcher) : table;
+    }
+
+    private static String tableOf(Matcher matcher)
+    {
+        return matcher.group(2) == null
+               ? identifierOf(matcher.group(1))
+               : identifierOf(matcher.group(1)) + '.' + identifierOf(matcher.group(2));
+    }
+
+    /**
+     * @param record the audit record
+     * @return the tables of the operation of the record, or of the naked operation if the operation is not logged
+     * @see #tablesOf(String)
+     */
+    public static Set<String> tablesOf(StoredAuditRecord record)
+    {
+        Optional<String> operation = record.getOperation().isPresent() ? record.getOperation() : record.getNakedOperation();
+        return operation.map(CycleIndex::tablesOf).orElse(Collections.emptySet());
+    }
+
+    private static String identifierOf(String name)
+    {
+        if (name.startsWith("\""))
+        {
+            return name.substring(1, name.length() - 1).replace("\"\"", "\"");
+        }
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * @param cycle the cycle to index
+     * @return a builder of the index of the cycle
+     */
+    public static Builder builder(int cycle)
+    {
+        return new Builder(cycle);
+    }
+
+    /**
+     * @return the cycle of the index
+     */
+    public int cycle()
+    {
+        return cycle;
+    }
+
+    /**
+     * @return the number of records in the cycle
+     */
+    public long recordCount()
+    {
+        return recordCount;
+    }
+
+    /**
+     * @return the index of the last record in the cycle, or -1 if the cycle has no records
+     */
+    public long lastIndex()
+    {
+        return lastIndex;
+    }
+
+    /**
+     * @return the earliest timestamp in the cycle, or {@link Long#MAX_VALUE} if no record has a timestamp
+     */
+    public long minTimestamp()
+    {
+        return minTimestamp;
+    }
+
+    /**
+     * @return the latest timestamp in the cycle, or {@link Long#MIN_VALUE} if no record has a timestamp
+     */
+    public long maxTimestamp()
+    {
+        return maxTimestamp;
+    }
+
+    /**
+     * Records are not strictly ordered by timestamp, so the first record in the bucket of the timestamp or any later
+     * bucket is returned.
+     *
+     * @param timestamp the timestamp in milliseconds
+     * @return the index of the first record which may have the timestamp or a later one, or empty if there is none
+     */
+    public OptionalLong firstIndexFrom(long timestamp)
+    {
+        return buckets.tailMap(Math.floorDiv(timestamp, BUCKET_MILLIS), true)
+                      .values()
+                      .stream()
+                      .mapToLong(Long::longValue)
+                      .min();
+    }
+
+    /**
+     * @param user the user
+     * @return the indices of the records of the user in ascending order
+     */
+    public long[] recordsOfUser(String user)
+    {
+        return users.getOrDefault(user, NO_RECORDS).clone();
+    }
+
+    /**
+     * @param table the table, named like in {@link #tablesOf(String)}
+     * @return the indices of the records with statements on the table in ascending order
+     */
+    public long[] recordsOfTable(String table)
+    {
+        return tables.getOrDefault(table, NO_RECORDS).clone();
+    }
+
+    /**
+     * @return the indices of the records which define dictionary values in ascending order
+     */
+    public long[] recordsWithDefinitions()
+    {
+        return definitions.clone();
+    }
+
+    /**
+     * Read an index from a file.
+     *
+     * @param file the index file
+     * @return the index
+     * @throws IOException if the index could not be read
+     */
+    public static CycleIndex read(Path file) throws IOException
+    {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file))))
+        {
+            if (in.readInt() != MAGIC || in.readByte() != FORMAT_VERSION)
+            {
+                throw new IOException("Unsupported cycle index format in " + file);
+            }
+
+            int cycle = in.readInt();
+            long recordCount = in.readLong();
+            long lastIndex = in.readLong();
+            long minTimestamp = in.readLong();
+            long maxTimestamp = in.readLong();
+
+            NavigableMap<Long, Long> buckets = new TreeMap<>();
+            long[] bucketNumbers = readIndices(in);
+            long[] firstIndices = readIndices(in);
+            for (int i = 0; i < bucketNumbers.length; i++)
+            {
+                buckets.put(bucketNumbers[i], firstIndices[i]);
+            }
+
+            Map<String, long[]> users = readPostings(in);
+            Map<String, long[]> tables = readPostings(in);
+            return new CycleIndex(cycle, recordCount, lastIndex, minTimestamp, maxTimestamp, readIndices(in), buckets, users, tables);
+        }
+    }
+
+    /**
+     * Write the index to a file.
+     *
+     * @param file the index file
+     * @throws IOException if the index could not be written
+     */
+    public void write(Path file) throws IOException
+    {
+        Path tempFile = file.resolveSibling(file.getFileName() + TEMP_SUFFIX);
+        try
+        {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile))))
+            {
+                out.writeInt(MAGIC);
+                out.writeByte(FORMAT_VERSION);
+                out.writeInt(cycle);
+                out.writeLong(recordCount);
+                out.writeLong(lastIndex);
+                out.writeLong(minTimestamp);
+                out.writeLong(maxTimestamp);
+                writeIndices(buckets.keySet().stream().mapToLong(Long::longValue).toArray(), out);
+                writeIndices(buckets.values().stream().mapToLong(Long::longValue).toArray(), out);
+                writePostings(out, users);
+                writePostings(out, tables);
+                writeIndices(definitions, out);
+            }
+            Files.move(tempFile, file, StandardCopyOption.ATOMIC_MOVE);
+        }
+        finally
+        {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    private static void writePostings(DataOutput out, Map<String, long[]> postings) throws IOException
+    {
+        writeVarLong(out, postings.size());
+        for (Map.Entry<String, long[]> entry : postings.entrySet())
+        {
+            out.writeUTF(entry.getKey());
+            writeIndices(entry.getValue(), out);
+        }
+    }
+
+    private static Map<String, long[]> readPostings(DataInput in) throws IOException
+    {
+        Map<String, long[]> postings = new TreeMap<>();
+        long size = readVarLong(in);
+        for (long i = 0; i < size; i++)
+        {
+            postings.put(in.readUTF(), readIndices(in));
+        }
+        return postings;
+    }
+
+    /**
+     * Indices are written in ascending order as variable length deltas, which keeps long posting lists small.
+     */
+    private static void writeIndices(long[] indices, DataOutput out) throws IOException
+    {
+        writeVarLong(out, indices.length);
+        long previous = 0;
+        for (long index : indices)
+        {
+            writeVarLong(out, index - previous);
+            previous = index;
+        }
+    }
+
+    private static long[] readIndices(DataInput in) throws IOException
+    {
+        long[] indices = new long[Math.toIntExact(readVarLong(in))];
+        long previous = 0;
+        for (int i = 0; i < indices.length; i++)
+        {
+            previous += readVarLong(in);
+            indices[i] = previous;
+        }
+        return indices;
+    }
+
+    private static void writeVarLong(DataOutput out, long value) throws IOException
+    {
+        long remaining = value;
+        while ((remaining & ~0x7FL) != 0)
+        {
+            out.writeByte((int) (remaining & 0x7F) | 0x80);
+            remaining >>>= 7;
+        }
+        out.writeByte((int) remaining);
+    }
+
+    private static long readVarLong(DataInput in) throws IOException
+    {
+        long value = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += 7)
+        {
+            byte b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+            {
+                return value;
+            }
+        }
+        throw new IOException("Corrupt cycle index");
+    }
+
+    /**
+     * Builds the index of a cycle from its records, which must be added in the order of the cycle.
+     */
+    public static final class Builder
+    {
+        private final int cycle;
+        private final NavigableMap<Long, Long> buckets = new TreeMap<>();
+        private final Map<String, Postings> users = new TreeMap<>();
+        private final Map<String, Postings> tables = new TreeMap<>();
+        private final Postings definitions = new Postings();
+
+        private long recordCount;
+        private long lastIndex = -1;
+        private long minTimestamp = Long.MAX_VALUE;
+        private long maxTimestamp = Long.MIN_VALUE;
+
+        private Builder(int cycle)
+        {
+            this.cycle = cycle;
+        }
+
+        /**
+         * Add a wire record to the index.
+         *
+         * @param index         the Chronicle index of the wire record
+         * @param records       the audit records of the wire record
+         * @param definesValues {@code true} if the wire record defines dictionary values
+         * @return this builder
+         */
+        public Builder add(long index, List<StoredAuditRecord> records, boolean definesValues)
+        {
+            recordCount++;
+            lastIndex = index;
+            if (definesValues)
+            {
+                definitions.add(index);
+            }
+
+            for (StoredAuditRecord record : records)
+            {
+                record.getTimestamp().ifPresent(timestamp -> addTimestamp(index, timestamp));
+                record.getUser().ifPresent(user -> users.computeIfAbsent(user, key -> new Postings()).add(index));
+                tablesOf(record).forEach(table -> tables.computeIfAbsent(table, key -> new Postings()).add(index));
+            }
+            return this;
+        }
+
+        private void addTimestamp(long index, long timestamp)
+        {
+            buckets.putIfAbsent(Math.floorDiv(timestamp, BUCKET_MILLIS), index);
+            minTimestamp = Math.min(minTimestamp, timestamp);
+            maxTimestamp = Math.max(maxTimestamp, timestamp);
+        }
+
+        public CycleIndex build()
+        {
+            return new CycleIndex(cycle, recordCount, lastIndex, minTimestamp, maxTimestamp, definitions.toArray(),
+                                  new TreeMap<>(buckets), toArrays(users), toArrays(tables));
+        }
+
+        private static Map<String, long[]> toArrays(Map<String, Postings> postings)
+        {
+            Map<String, long[]> result = new TreeMap<>();
+            postings.forEach((key, value) -> result.put(key, value.toArray()));
+            return result;
+        }
+    }
+
+    /**
+     * The indices of the records with a key, in the order they are added.
+     */
+    private static final class Postings
+    {
+        private long[] indices = new long[4];
+        private int size;
+
+        void add(long index)
+        {
+            if (size > 0 && indices[size - 1] == index)
+            {
+                return; // Several records of a batch may share the key
+            }
+
+            if (size == indices.length)
+            {
+                indices = Arrays.copyOf(indices, size * 2);
+            }
+            indices[size++] = index;
+        }
+
+        long[] toArray()
+        {
+            return Arrays.copyOf(indices, size);
+        }
+    }
+}
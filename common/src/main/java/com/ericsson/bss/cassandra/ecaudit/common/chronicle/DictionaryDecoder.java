@@ -0,0 +1,397 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.common.chronicle;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import com.ericsson.bss.cassandra.ecaudit.common.chronicle.FieldSelector.Field;
+import com.ericsson.bss.cassandra.ecaudit.common.record.Status;
+import com.ericsson.bss.cassandra.ecaudit.common.record.StoredAuditRecord;
+import net.openhft.chronicle.core.io.IORuntimeException;
+import net.openhft.chronicle.wire.ValueIn;
+import net.openhft.chronicle.wire.WireIn;
+
+/**
+ * Reads records written by {@link DictionaryEncoder}, resolving their references through a {@link ReadDictionary}.
+ * <p>
+ * Records of version 2 identify their fields by name, records of version 3 use the compact layout where fields are
+ * identified by their position.
+ */
+@SuppressWarnings("PMD.GodClass")
+final class DictionaryDecoder
+{
+    private final ReadDictionary dictionary;
+    private final RecordView view;
+    private final Map<Integer, Object> definitions;
+    private final boolean compact;
+    private final boolean compactBatch;
+
+    private DictionaryDecoder(ReadDictionary dictionary, RecordView view, Map<Integer, Object> definitions, boolean compact, boolean compactBatch)
+    {
+        this.dictionary = dictionary;
+        this.view = view;
+        this.definitions = definitions;
+        this.compact = compact;
+        this.compactBatch = compactBatch;
+        dictionary.beginRecord();
+        dictionary.define(definitions);
+    }
+
+    /**
+     * Read a version 2 or version 3 record, after its version field.
+     *
+     * @param wire       the wire to read from
+     * @param dictionary the dictionary to resolve references with
+     * @param version    the version of the record
+     * @param view       the view to read the shared fields of the record into
+     * @param filter     the filter of the records to decode
+     * @return the single audit record, or all records of a compact batch record, or no records if the record does not
+     *         match the filter
+     */
+    static List<StoredAuditRecord> read(WireIn wire, ReadDictionary dictionary, short version, RecordView view, Predicate<RecordView> filter)
+    {
+        boolean compact = version == WireTags.VALUE_VERSION_3;
+        boolean compactBatch = readCompactBatchType(wire, compact);
+        FieldSelector fields = FieldSelector.fromBitmap(read(wire, WireTags.KEY_FIELDS, compact).int32());
+        int batchSize = compactBatch ? read(wire, WireTags.KEY_BATCH_SIZE, compact).int32() : 1; // NOPMD precedes the shared fields on the wire
+
+        DictionaryDecoder decoder = new DictionaryDecoder(dictionary, view, readDefinitions(wire, compact), compact, compactBatch);
+        decoder.readSharedFields(wire, fields);
+        if (!filter.test(view))
+        {
+            return Collections.emptyList();
+        }
+
+        StoredAuditRecord.Builder recordBuilder = StoredAuditRecord.builder();
+        view.copyTo(recordBuilder);
+        List<String> operations = decoder.readOperations(wire, fields, batchSize);
+        List<String> nakedOperations = decoder.readNakedOperations(wire, fields, batchSize);
+
+        List<StoredAuditRecord> records = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++)
+        {
+            records.add(recordBuilder.withOperation(operations.get(i))
+                                     .withNakedOperation(nakedOperations.get(i))
+                                     .build());
+        }
+        return records;
+    }
+
+    /**
+     * Read the dictionary definitions of a record into the dictionary, skipping the rest of the record. The dictionary
+     * starts over if the record is in a new cycle.
+     *
+     * @param wire       the wire to read from
+     * @param dictionary the dictionary to define the values in
+     */
+    static void readDefinitionsOnly(WireIn wire, ReadDictionary dictionary)
+    {
+        short version = wire.read(WireTags.KEY_VERSION).int16();
+        if (version != WireTags.VALUE_VERSION_2 && version != WireTags.VALUE_VERSION_3)
+        {
+            return;
+        }
+
+        boolean compact = version == WireTags.VALUE_VERSION_3;
+        boolean compactBatch = readCompactBatchType(wire, compact);
+        read(wire, WireTags.KEY_FIELDS, compact).int32();
+        if (compactBatch)
+        {
+            read(wire, WireTags.KEY_BATCH_SIZE, compact).int32();
+        }
+        dictionary.beginRecord();
+        dictionary.define(readDefinitions(wire, compact));
+    }
+
+    /**
+     * Read the timestamp of a record, skipping the rest of the record. The dictionary is not used, a compact record
+     * passes its base timestamp on if it defines one.
+     *
+     * @param wire    the wire to read from, after the version field
+     * @param version the version of the record
+     * @param target  the marshallable to pass the timestamp on to
+     */
+    static void readTimestampOnly(WireIn wire, short version, TimestampReadMarshallable target)
+    {
+        boolean compact = version == WireTags.VALUE_VERSION_3;
+        boolean compactBatch = readCompactBatchType(wire, compact);
+        FieldSelector fields = FieldSelector.fromBitmap(read(wire, WireTags.KEY_FIELDS, compact).int32());
+        if (compactBatch)
+        {
+            read(wire, WireTags.KEY_BATCH_SIZE, compact).int32();
+        }
+        Object base = readDefinitions(wire, compact).get(WireTags.VALUE_BASE_TIMESTAMP_ID);
+        if (fields.isSelected(Field.TIMESTAMP))
+        {
+            readTimestampOnly(wire, compact, base, target);
+        }
+    }
+
+    private static void readTimestampOnly(WireIn wire, boolean compact, Object base, TimestampReadMarshallable target)
+    {
+        if (!compact)
+        {
+            target.absolute(wire.read(WireTags.KEY_TIMESTAMP).int64());
+            return;
+        }
+
+        if (base instanceof Long)
+        {
+            target.defineBaseTimestamp((Long) base);
+        }
+        target.relative(wire.getValueIn().int64());
+    }
+
+    /**
+     * Start reading a field, by name unless the record uses the compact layout.
+     */
+    private static ValueIn read(WireIn wire, String key, boolean compact)
+    {
+        return compact
+               ? wire.getValueIn()
+               : wire.read(key);
+    }
+
+    private ValueIn read(WireIn wire, String key)
+    {
+        return read(wire, key, compact);
+    }
+
+    /**
+     * Read the type of record.
+     *
+     * @return {@code true} for a compact batch record, {@code false} for a single record
+     */
+    private static boolean readCompactBatchType(WireIn wire, boolean compact)
+    {
+        if (compact)
+        {
+            byte typeCode = wire.getValueIn().int8();
+            if (typeCode == WireTags.VALUE_TYPE_CODE_AUDIT || typeCode == WireTags.VALUE_TYPE_CODE_COMPACT_BATCH)
+            {
+                return typeCode == WireTags.VALUE_TYPE_CODE_COMPACT_BATCH;
+            }
+            throw new IORuntimeException("Unsupported record type code: " + typeCode);
+        }
+
+        String type = wire.read(WireTags.KEY_TYPE).text();
+        if (WireTags.VALUE_TYPE_AUDIT.equals(type))
+        {
+            return false;
+        }
+        if (WireTags.VALUE_TYPE_COMPACT_BATCH.equals(type))
+        {
+            return true;
+        }
+
+        throw new IORuntimeException("Unsupported record type field: " + type);
+    }
+
+    private static Map<Integer, Object> readDefinitions(WireIn wire, boolean compact)
+    {
+        Map<Integer, Object> definitions = new HashMap<>();
+        read(wire, WireTags.KEY_DICTIONARY, compact).sequence(definitions, (values, in) -> {
+            while (in.hasNextSequenceItem())
+            {
+                int id = in.int32();
+                values.put(id, readDefinition(in));
+            }
+        });
+        return definitions;
+    }
+
+    private static Object readDefinition(ValueIn in)
+    {
+        byte kind = in.int8();
+        if (kind == WireTags.VALUE_DEFINITION_TEXT)
+        {
+            return in.text();
+        }
+        if (kind == WireTags.VALUE_DEFINITION_ADDRESS)
+        {
+            try
+            {
+                return InetAddress.getByAddress(in.bytes());
+            }
+            catch (UnknownHostException e)
+            {
+                throw new IORuntimeException("Corrupt dictionary address definition", e);
+            }
+        }
+        if (kind == WireTags.VALUE_DEFINITION_TIMESTAMP)
+        {
+            return in.int64();
+        }
+
+        throw new IORuntimeException("Corrupt dictionary definition of kind " + kind);
+    }
+
+    private void readSharedFields(WireIn wire, FieldSelector fields)
+    {
+        view.begin(fields);
+        fields.ifSelectedRun(Field.TIMESTAMP, () -> view.setTimestamp(readTimestamp(wire)));
+        fields.ifSelectedRun(Field.CLIENT_IP, () -> view.setClientAddress(resolve(read(wire, WireTags.KEY_CLIENT_IP).int32(), InetAddress.class, WireTags.KEY_CLIENT_IP)));
+        fields.ifSelectedRun(Field.CLIENT_PORT, () -> view.setClientPort(read(wire, WireTags.KEY_CLIENT_PORT).int32()));
+        fields.ifSelectedRun(Field.COORDINATOR_IP, () -> view.setCoordinatorAddress(readCoordinatorAddress(wire)));
+        fields.ifSelectedRun(Field.USER, () -> view.setUser(resolve(read(wire, WireTags.KEY_USER).int32(), String.class, WireTags.KEY_USER)));
+        fields.ifSelectedRun(Field.BATCH_ID, () -> view.setBatchId(read(wire, WireTags.KEY_BATCH_ID).uuid()));
+        fields.ifSelectedRun(Field.STATUS, () -> view.setStatus(readStatus(wire)));
+    }
+
+    private long readTimestamp(WireIn wire)
+    {
+        if (compact)
+        {
+            long delta = wire.getValueIn().int64();
+            return resolve(WireTags.VALUE_BASE_TIMESTAMP_ID, Long.class, WireTags.KEY_TIMESTAMP) + delta;
+        }
+        return wire.read(WireTags.KEY_TIMESTAMP).int64();
+    }
+
+    private InetAddress readCoordinatorAddress(WireIn wire)
+    {
+        return compact
+               ? resolve(wire.getValueIn().int32(), InetAddress.class, WireTags.KEY_COORDINATOR_IP)
+               : AuditRecordReadMarshallable.readInetAddress(wire, WireTags.KEY_COORDINATOR_IP);
+    }
+
+    private Status readStatus(WireIn wire)
+    {
+        if (!compact)
+        {
+            return AuditRecordReadMarshallable.readStatus(wire);
+        }
+
+        byte statusCode = wire.getValueIn().int8();
+        switch (statusCode)
+        {
+            case WireTags.VALUE_STATUS_ATTEMPT:
+                return Status.ATTEMPT;
+            case WireTags.VALUE_STATUS_FAILED:
+                return Status.FAILED;
+            case WireTags.VALUE_STATUS_SUCCEEDED:
+                return Status.SUCCEEDED;
+            default:
+                throw new IORuntimeException("Corrupt record status code " + statusCode);
+        }
+    }
+
+    private List<String> readOperations(WireIn wire, FieldSelector fields, int batchSize)
+    {
+        if (!fields.isSelected(Field.OPERATION))
+        {
+            return Collections.nCopies(batchSize, null);
+        }
+
+        List<String> statements = readStatements(wire, WireTags.KEY_OPERATION, batchSize);
+        List<String> suffixes = compactBatch
+                                ? readSuffixes(wire, batchSize)
+                                : Collections.singletonList(read(wire, WireTags.KEY_OPERATION_SUFFIX).text());
+
+        List<String> operations = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++)
+        {
+            operations.add(statements.get(i) + suffixes.get(i));
+        }
+
+        if (!fields.isSelected(Field.BOUND_VALUES))
+        {
+            return operations;
+        }
+        return compactBatch
+               ? BoundValueWire.readRendered(read(wire, WireTags.KEY_BOUND_VALUES), operations)
+               : Collections.singletonList(operations.get(0) + BoundValueWire.readRendered(read(wire, WireTags.KEY_BOUND_VALUES)));
+    }
+
+    private List<String> readSuffixes(WireIn wire, int batchSize)
+    {
+        List<String> suffixes = new ArrayList<>(batchSize);
+        read(wire, WireTags.KEY_OPERATION_SUFFIX).sequence(suffixes, (list, in) -> {
+            while (in.hasNextSequenceItem())
+            {
+                list.add(in.text());
+            }
+        });
+        checkSize(WireTags.KEY_OPERATION_SUFFIX, suffixes, batchSize);
+        return suffixes;
+    }
+
+    private List<String> readNakedOperations(WireIn wire, FieldSelector fields, int batchSize)
+    {
+        return fields.isSelected(Field.OPERATION_NAKED)
+               ? readStatements(wire, WireTags.KEY_NAKED_OPERATION, batchSize)
+               : Collections.nCopies(batchSize, null);
+    }
+
+    private List<String> readStatements(WireIn wire, String key, int batchSize)
+    {
+        List<Integer> ids = compactBatch
+                            ? readReferences(wire, key, batchSize)
+                            : Collections.singletonList(read(wire, key).int32());
+
+        List<String> statements = new ArrayList<>(batchSize);
+        for (int id : ids)
+        {
+            statements.add(resolve(id, String.class, key));
+        }
+        return statements;
+    }
+
+    private List<Integer> readReferences(WireIn wire, String key, int batchSize)
+    {
+        List<Integer> ids = new ArrayList<>(batchSize);
+        read(wire, key).sequence(ids, (list, in) -> {
+            while (in.hasNextSequenceItem())
+            {
+                list.add(in.int32());
+            }
+        });
+        checkSize(key, ids, batchSize);
+        return ids;
+    }
+
+    private static void checkSize(String key, List<?> values, int batchSize)
+    {
+        if (values.size() != batchSize)
+        {
+            throw new IORuntimeException("Corrupt " + key + " field, expected " + batchSize + " operations but got " + values.size());
+        }
+    }
+
+    private <T> T resolve(int id, Class<T> type, String key)
+    {
+        Object value = dictionary.lookup(id);
+        if (value == null && dictionary.recover())
+        {
+            // The definitions of this record take precedence over the ones recovered from earlier records
+            dictionary.define(definitions);
+            value = dictionary.lookup(id);
+        }
+
+        if (!type.isInstance(value))
+        {
+            throw new IORuntimeException("Corrupt " + key + " field, unknown dictionary reference " + id);
+        }
+        return type.cast(value);
+    }
+}
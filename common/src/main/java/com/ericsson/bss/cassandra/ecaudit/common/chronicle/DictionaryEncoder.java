@@ -0,0 +1,296 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.common.chronicle;
+
+import java.net.InetAddress;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.ericsson.bss.cassandra.ecaudit.common.chronicle.FieldSelector.Field;
+import com.ericsson.bss.cassandra.ecaudit.common.record.AuditOperation;
+import com.ericsson.bss.cassandra.ecaudit.common.record.AuditRecord;
+import com.ericsson.bss.cassandra.ecaudit.common.record.BoundValue;
+import com.ericsson.bss.cassandra.ecaudit.common.record.Status;
+import net.openhft.chronicle.wire.ValueOut;
+import net.openhft.chronicle.wire.WireOut;
+
+/**
+ * Writes the fields of a record as references to a {@link WriteDictionary}, using record version 2.
+ * <p>
+ * If the dictionary uses the compact layout, record version 3 is used instead. Apart from the version, the fields are
+ * then written without names in the order of their version 2 counterparts, as given by the field bitmap. The record
+ * type and status are written as codes, the coordinator address is referred to in the dictionary and the timestamp is
+ * written relative to the base timestamp of the dictionary.
+ * <p>
+ * All references of a record must be created before the record is written, since the values which are new to the
+ * dictionary are defined at the start of the record.
+ * <p>
+ * An operation is written as a reference to its naked statement, followed by the remainder of the operation such as
+ * its bound values. This way the statement text is written once per cycle no matter which values it is executed with.
+ */
+final class DictionaryEncoder
+{
+    private static final int NO_REFERENCE = -1;
+
+    private final WriteDictionary dictionary;
+    private final FieldSelector fields;
+    private final boolean compact;
+    private final Map<Integer, Object> definitions = new LinkedHashMap<>();
+    private final int clientAddress;
+    private final int coordinatorAddress;
+    private final int user;
+    private final long baseTimestamp;
+
+    /**
+     * @param dictionary   the dictionary to refer to, prepared for the current record
+     * @param sharedRecord the record holding the fields shared by all operations of the record
+     * @param fields       the fields to write
+     */
+    DictionaryEncoder(WriteDictionary dictionary, AuditRecord sharedRecord, FieldSelector fields)
+    {
+        this.dictionary = dictionary;
+        this.fields = fields;
+        compact = dictionary.isCompactLayout();
+        clientAddress = fields.isSelected(Field.CLIENT_IP)
+                        ? reference(sharedRecord.getClientAddress().getAddress())
+                        : NO_REFERENCE;
+        coordinatorAddress = compact && fields.isSelected(Field.COORDINATOR_IP)
+                             ? reference(sharedRecord.getCoordinatorAddress())
+                             : NO_REFERENCE;
+        user = fields.isSelected(Field.USER)
+               ? reference(sharedRecord.getUser())
+               : NO_REFERENCE;
+        baseTimestamp = compact && fields.isSelected(Field.TIMESTAMP)
+                        ? dictionary.baseTimestamp(sharedRecord.getTimestamp(), definitions)
+                        : 0L;
+    }
+
+    /**
+     * Create the references of an operation.
+     *
+     * @param operation the operation to refer to
+     * @return the references of the operation
+     */
+    OperationReference referenceOperation(AuditOperation operation)
+    {
+        int statement = NO_REFERENCE;
+        String suffix = "";
+        if (fields.isSelected(Field.OPERATION))
+        {
+            String operationString = BoundValueWire.operationText(operation, fields);
+            String nakedOperationString = operation.getNakedOperationString();
+            if (operationString.startsWith(nakedOperationString))
+            {
+                statement = reference(nakedOperationString);
+                suffix = operationString.substring(nakedOperationString.length());
+            }
+            else
+            {
+                statement = reference(operationString);
+            }
+        }
+
+        int nakedStatement = fields.isSelected(Field.OPERATION_NAKED)
+                             ? reference(operation.getNakedOperationString())
+                             : NO_REFERENCE;
+
+        return new OperationReference(statement, suffix, nakedStatement, BoundValueWire.boundValues(operation, fields));
+    }
+
+    private int reference(Object value)
+    {
+        return dictionary.reference(value, definitions);
+    }
+
+    /**
+     * Start writing a field, by name unless the compact layout is used.
+     */
+    private ValueOut write(WireOut wire, String key)
+    {
+        return compact
+               ? wire.getValueOut()
+               : wire.write(key);
+    }
+
+    /**
+     * Write the mandatory fields of a record.
+     *
+     * @param wire the wire to write to
+     * @param type the type of record
+     */
+    void writeHeader(WireOut wire, String type)
+    {
+        if (compact)
+        {
+            wire.write(WireTags.KEY_VERSION).int16(WireTags.VALUE_VERSION_3);
+            wire.getValueOut().int8(WireTags.VALUE_TYPE_COMPACT_BATCH.equals(type) ? WireTags.VALUE_TYPE_CODE_COMPACT_BATCH : WireTags.VALUE_TYPE_CODE_AUDIT);
+        }
+        else
+        {
+            wire.write(WireTags.KEY_VERSION).int16(WireTags.VALUE_VERSION_2);
+            wire.write(WireTags.KEY_TYPE).text(type);
+        }
+        write(wire, WireTags.KEY_FIELDS).int32(fields.getBitmap());
+    }
+
+    /**
+     * Write the number of operations of a compact batch record.
+     *
+     * @param wire      the wire to write to
+     * @param batchSize the number of operations
+     */
+    void writeBatchSize(WireOut wire, int batchSize)
+    {
+        write(wire, WireTags.KEY_BATCH_SIZE).int32(batchSize);
+    }
+
+    /**
+     * Write the values which are new to the dictionary.
+     *
+     * @param wire the wire to write to
+     */
+    void writeDefinitions(WireOut wire)
+    {
+        write(wire, WireTags.KEY_DICTIONARY).sequence(definitions, (values, out) -> values.forEach((id, value) -> {
+            out.int32(id);
+            if (value instanceof InetAddress)
+            {
+                out.int8(WireTags.VALUE_DEFINITION_ADDRESS);
+                out.bytes(((InetAddress) value).getAddress());
+            }
+            else if (value instanceof Long)
+            {
+                out.int8(WireTags.VALUE_DEFINITION_TIMESTAMP);
+                out.int64((Long) value);
+            }
+            else
+            {
+                out.int8(WireTags.VALUE_DEFINITION_TEXT);
+                out.text((String) value);
+            }
+        }));
+    }
+
+    /**
+     * Write the selected fields of a record, except the operations.
+     *
+     * @param wire         the wire to write to
+     * @param sharedRecord the record holding the fields shared by all operations of the record
+     */
+    void writeSharedFields(WireOut wire, AuditRecord sharedRecord)
+    {
+        fields.ifSelectedRun(Field.TIMESTAMP, () -> write(wire, WireTags.KEY_TIMESTAMP).int64(sharedRecord.getTimestamp() - baseTimestamp));
+        fields.ifSelectedRun(Field.CLIENT_IP, () -> write(wire, WireTags.KEY_CLIENT_IP).int32(clientAddress));
+        fields.ifSelectedRun(Field.CLIENT_PORT, () -> write(wire, WireTags.KEY_CLIENT_PORT).int32(sharedRecord.getClientAddress().getPort()));
+        fields.ifSelectedRun(Field.COORDINATOR_IP, () -> writeCoordinatorAddress(wire, sharedRecord));
+        fields.ifSelectedRun(Field.USER, () -> write(wire, WireTags.KEY_USER).int32(user));
+        fields.ifSelectedRun(Field.BATCH_ID, () -> write(wire, WireTags.KEY_BATCH_ID).uuid(sharedRecord.getBatchId().get()));
+        fields.ifSelectedRun(Field.STATUS, () -> writeStatus(wire, sharedRecord.getStatus()));
+    }
+
+    private void writeCoordinatorAddress(WireOut wire, AuditRecord sharedRecord)
+    {
+        if (compact)
+        {
+            wire.getValueOut().int32(coordinatorAddress);
+        }
+        else
+        {
+            wire.write(WireTags.KEY_COORDINATOR_IP).bytes(sharedRecord.getCoordinatorAddress().getAddress());
+        }
+    }
+
+    private void writeStatus(WireOut wire, Status status)
+    {
+        if (compact)
+        {
+            wire.getValueOut().int8(statusCode(status));
+        }
+        else
+        {
+            wire.write(WireTags.KEY_STATUS).text(status.name());
+        }
+    }
+
+    private static byte statusCode(Status status)
+    {
+        switch (status)
+        {
+            case ATTEMPT:
+                return WireTags.VALUE_STATUS_ATTEMPT;
+            case FAILED:
+                return WireTags.VALUE_STATUS_FAILED;
+            case SUCCEEDED:
+                return WireTags.VALUE_STATUS_SUCCEEDED;
+            default:
+                throw new IllegalArgumentException("Unknown status " + status);
+        }
+    }
+
+    /**
+     * Write the selected operation fields of a single record.
+     *
+     * @param wire      the wire to write to
+     * @param operation the references of the operation
+     */
+    void writeOperation(WireOut wire, OperationReference operation)
+    {
+        fields.ifSelectedRun(Field.OPERATION, () -> {
+            write(wire, WireTags.KEY_OPERATION).int32(operation.statement);
+            write(wire, WireTags.KEY_OPERATION_SUFFIX).text(operation.suffix);
+        });
+        fields.ifSelectedRun(Field.BOUND_VALUES, () -> BoundValueWire.write(write(wire, WireTags.KEY_BOUND_VALUES), operation.boundValues));
+        fields.ifSelectedRun(Field.OPERATION_NAKED, () -> write(wire, WireTags.KEY_NAKED_OPERATION).int32(operation.nakedStatement));
+    }
+
+    /**
+     * Write the selected operation fields of a compact batch record, one entry per operation of the batch.
+     *
+     * @param wire       the wire to write to
+     * @param operations the references of the operations
+     */
+    void writeOperations(WireOut wire, List<OperationReference> operations)
+    {
+        fields.ifSelectedRun(Field.OPERATION, () -> {
+            write(wire, WireTags.KEY_OPERATION).sequence(operations, (list, out) -> list.forEach(operation -> out.int32(operation.statement)));
+            write(wire, WireTags.KEY_OPERATION_SUFFIX).sequence(operations, (list, out) -> list.forEach(operation -> out.text(operation.suffix)));
+        });
+        fields.ifSelectedRun(Field.BOUND_VALUES, () ->
+            write(wire, WireTags.KEY_BOUND_VALUES).sequence(operations, (list, out) -> list.forEach(operation -> BoundValueWire.write(out, operation.boundValues))));
+        fields.ifSelectedRun(Field.OPERATION_NAKED, () ->
+            write(wire, WireTags.KEY_NAKED_OPERATION).sequence(operations, (list, out) -> list.forEach(operation -> out.int32(operation.nakedStatement))));
+    }
+
+    /**
+     * The dictionary references of an operation.
+     */
+    static final class OperationReference
+    {
+        private final int statement;
+        private final String suffix;
+        private final int nakedStatement;
+        private final List<BoundValue> boundValues;
+
+        private OperationReference(int statement, String suffix, int nakedStatement, List<BoundValue> boundValues)
+        {
+            this.statement = statement;
+            this.suffix = suffix;
+            this.nakedStatement = nakedStatement;
+            this.boundValues = boundValues;
+        }
+    }
+}
@@ -15,6 +15,9 @@
  */
 package com.ericsson.bss.cassandra.ecaudit.common.chronicle;
 
+import java.util.Collections;
+import java.util.List;
+
 import com.ericsson.bss.cassandra.ecaudit.common.record.AuditRecord;
 
 /**
@@ -31,6 +34,23 @@ final class FieldFilterFlavorAdapter
     }
 
     static FieldSelector getFieldsAvailableInRecord(AuditRecord auditRecord, FieldSelector configuredFields)
+    {
+        return withBoundValuesIfAvailable(getSharedFieldsAvailableInRecord(auditRecord, configuredFields), Collections.singletonList(auditRecord));
+    }
+
+    /**
+     * Get the fields available in a compact batch record, where the shared fields are taken from the first record.
+     *
+     * @param auditRecords     the records of the batch
+     * @param configuredFields the configured fields
+     * @return the fields available in the batch
+     */
+    static FieldSelector getFieldsAvailableInBatch(List<? extends AuditRecord> auditRecords, FieldSelector configuredFields)
+    {
+        return withBoundValuesIfAvailable(getSharedFieldsAvailableInRecord(auditRecords.get(0), configuredFields), auditRecords);
+    }
+
+    private static FieldSelector getSharedFieldsAvailableInRecord(AuditRecord auditRecord, FieldSelector configuredFields)
     {
         FieldSelector fields = auditRecord.getBatchId().isPresent()
                                ? configuredFields
@@ -40,4 +60,16 @@ final class FieldFilterFlavorAdapter
                ? fields.withoutField(FieldSelector.Field.CLIENT_IP).withoutField(FieldSelector.Field.CLIENT_PORT)
                : fields;
     }
+
+    /**
+     * Bound values are written next to the operation, and only if there are any.
+     */
+    private static FieldSelector withBoundValuesIfAvailable(FieldSelector fields, List<? extends AuditRecord> auditRecords)
+    {
+        boolean available = fields.isSelected(FieldSelector.Field.OPERATION)
+                            && auditRecords.stream().anyMatch(auditRecord -> !auditRecord.getOperation().getBoundValues().isEmpty());
+        return available
+               ? fields
+               : fields.withoutField(FieldSelector.Field.BOUND_VALUES);
+    }
 }
@@ -36,7 +36,8 @@ public final class FieldSelector
         STATUS(1 << 5),
         OPERATION(1 << 6),
         OPERATION_NAKED(1 << 7),
-        TIMESTAMP(1 << 8);
+        TIMESTAMP(1 << 8),
+        BOUND_VALUES(1 << 9);
 
         private final int bit;
 
@@ -89,6 +90,17 @@ public final class FieldSelector
         return (bitmap & field.getBit()) > 0;
     }
 
+    /**
+     * Copies this field selector, but with the provided field selected.
+     *
+     * @param field the field to select
+     * @return a new field selector with the provided field selected
+     */
+    public FieldSelector withField(Field field)
+    {
+        return new FieldSelector(bitmap | field.getBit());
+    }
+
     /**
      * Copies this field selector, but without the provided field selected.
      *
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.common.chronicle;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * The shards of a sharded Chronicle audit log.
+ * <p>
+ * Each shard is a Chronicle queue of its own, in a sub-directory of the log directory named by its shard number, see
+ * {@link #shardPath(Path, int)}. A log with a single shard is written directly to the log directory.
+ */
+public final class QueueShards
+{
+    private static final String SHARD_PREFIX = "shard-";
+    private static final Pattern SHARD_NAME = Pattern.compile(SHARD_PREFIX + "(\\d+)");
+
+    private QueueShards()
+    {
+        // Utility class
+    }
+
+    /**
+     * @param directory the log directory
+     * @param shard     the shard number, starting at zero
+     * @return the directory of the shard
+     */
+    public static Path shardPath(Path directory, int shard)
+    {
+        return directory.resolve(SHARD_PREFIX + shard);
+    }
+
+    /**
+     * List the shard directories of a log directory, ordered by shard number.
+     *
+     * @param directory the log directory
+     * @return the shard directories, or an empty list if the log is not sharded
+     * @throws IOException if the directory could not be listed
+     */
+    public static List<Path> listShards(Path directory) throws IOException
+    {
+        try (Stream<Path> files = Files.list(directory))
+        {
+            return files.filter(Files::isDirectory)
+                        .filter(path -> shardNumberOf(path) >= 0)
+                        .sorted(Comparator.comparingInt(QueueShards::shardNumberOf))
+                        .collect(Collectors.toList());
+        }
+    }
+
+    private static int shardNumberOf(Path path)
+    {
+        Matcher matcher = SHARD_NAME.matcher(path.getFileName().toString());
+        return matcher.matches() ? Integer.parseInt(matcher.group(1)) : -1;
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.common.chronicle;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntSupplier;
+
+import net.openhft.chronicle.wire.ReadMarshallable;
+
+/**
+ * Resolves the dictionary references of records read from a Chronicle queue.
+ * <p>
+ * References are scoped to the roll cycle of the record, see {@link WriteDictionary}. Values defined by earlier records
+ * are remembered until the reader moves to a new cycle. If a record refers to a value which was defined before the
+ * reader started, the dictionary is recovered from the records at the start of the cycle.
+ * <p>
+ * This class is not thread safe.
+ */
+public class ReadDictionary
+{
+    private static final int NO_CYCLE = Integer.MIN_VALUE;
+
+    private final IntSupplier currentCycle;
+    private final Recovery recovery;
+    private final Map<Integer, Object> values = new HashMap<>();
+
+    private int cycle = NO_CYCLE;
+    private int recoveredCycle = NO_CYCLE;
+    private long definitionCount;
+
+    /**
+     * Reads the dictionary definitions of the records in a cycle.
+     */
+    @FunctionalInterface
+    public interface Recovery
+    {
+        /**
+         * Read the dictionary definitions of the records from the start of the cycle up to the record currently read,
+         * typically using {@link ReadDictionary#definitionReader()}.
+         *
+         * @param dictionary the dictionary to recover
+         * @param cycle      the cycle of the record currently read
+         */
+        void recover(ReadDictionary dictionary, int cycle);
+    }
+
+    /**
+     * Create a dictionary for records of a single cycle, read from its start.
+     */
+    public ReadDictionary()
+    {
+        this(() -> 0, (dictionary, recoveryCycle) -> {});
+    }
+
+    /**
+     * @param currentCycle supplies the cycle of the record currently read
+     * @param recovery     recovers the dictionary if a record refers to a value defined before the reader started
+     */
+    public ReadDictionary(IntSupplier currentCycle, Recovery recovery)
+    {
+        this.currentCycle = currentCycle;
+        this.recovery = recovery;
+    }
+
+    /**
+     * @return a marshallable which only reads the dictionary definitions of a record into this dictionary
+     */
+    public ReadMarshallable definitionReader()
+    {
+        return wire -> DictionaryDecoder.readDefinitionsOnly(wire, this);
+    }
+
+    void beginRecord()
+    {
+        int recordCycle = currentCycle.getAsInt();
+        if (recordCycle != cycle)
+        {
+            values.clear();
+            cycle = recordCycle;
+        }
+    }
+
+    void define(Map<Integer, Object> definitions)
+    {
+        values.putAll(definitions);
+        definitionCount += definitions.size();
+    }
+
+    /**
+     * The number of values defined grows whenever a record defines values, which tells the records with definitions
+     * apart from the records which only refer to earlier definitions.
+     *
+     * @return the total number of values defined in this dictionary
+     */
+    public long definitionCount()
+    {
+        return definitionCount;
+    }
+
+    Object lookup(int id)
+    {
+        return values.get(id);
+    }
+
+    /**
+     * Recover the dictionary from the start of the current cycle, once per cycle.
+     *
+     * @return {@code true} if the dictionary was recovered, {@code false} if it was already recovered in this cycle
+     */
+    boolean recover()
+    {
+        if (recoveredCycle == cycle)
+        {
+            return false;
+        }
+
+        recoveredCycle = cycle;
+        values.clear();
+        recovery.recover(this, cycle);
+        return true;
+    }
+}
@@ -0,0 +1,258 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.common.chronicle;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.UUID;
+
+import com.ericsson.bss.cassandra.ecaudit.common.chronicle.FieldSelector.Field;
+import com.ericsson.bss.cassandra.ecaudit.common.record.Status;
+import com.ericsson.bss.cassandra.ecaudit.common.record.StoredAuditRecord;
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.core.io.IORuntimeException;
+import net.openhft.chronicle.wire.WireIn;
+
+/**
+ * A view of the fields shared by the audit records of a wire record, i.e. all fields but the operations.
+ * <p>
+ * The view is filled as a record is read, before its operations are read, so that a record can be matched against a
+ * filter before it is decoded. Text and addresses are kept in buffers which are reused from record to record, and
+ * values of dictionary encoded records refer to the values in the dictionary, so no strings or addresses are created
+ * for records which do not match. The matching records are then decoded by {@link #copyTo(StoredAuditRecord.Builder)}.
+ * <p>
+ * This class is not thread safe.
+ */
+@SuppressWarnings("PMD.AvoidStringBufferField")
+public final class RecordView
+{
+    private final Bytes<?> clientAddressBytes = Bytes.elasticHeapByteBuffer(16);
+    private final Bytes<?> coordinatorAddressBytes = Bytes.elasticHeapByteBuffer(16);
+    private final StringBuilder userText = new StringBuilder();
+    private final StringBuilder statusText = new StringBuilder();
+
+    private FieldSelector fields = FieldSelector.NO_FIELDS;
+    private long timestamp;
+    private InetAddress clientAddress;
+    private int clientPort;
+    private InetAddress coordinatorAddress;
+    private String user;
+    private UUID batchId;
+    private Status status;
+
+    /**
+     * Read the shared fields of a record which identifies its fields by name.
+     *
+     * @param wire           the wire to read from, positioned at the shared fields
+     * @param selectedFields the fields of the record
+     */
+    void readNamedFields(WireIn wire, FieldSelector selectedFields)
+    {
+        begin(selectedFields);
+        fields.ifSelectedRun(Field.TIMESTAMP, () -> timestamp = wire.read(WireTags.KEY_TIMESTAMP).int64());
+        fields.ifSelectedRun(Field.CLIENT_IP, () -> readAddress(wire, WireTags.KEY_CLIENT_IP, clientAddressBytes));
+        fields.ifSelectedRun(Field.CLIENT_PORT, () -> clientPort = wire.read(WireTags.KEY_CLIENT_PORT).int32());
+        fields.ifSelectedRun(Field.COORDINATOR_IP, () -> readAddress(wire, WireTags.KEY_COORDINATOR_IP, coordinatorAddressBytes));
+        fields.ifSelectedRun(Field.USER, () -> wire.read(WireTags.KEY_USER).textTo(userText));
+        fields.ifSelectedRun(Field.BATCH_ID, () -> batchId = AuditRecordReadMarshallable.readBatchId(wire));
+        fields.ifSelectedRun(Field.STATUS, () -> status = statusOf(wire.read(WireTags.KEY_STATUS).textTo(statusText)));
+    }
+
+    private static void readAddress(WireIn wire, String key, Bytes<?> addressBytes)
+    {
+        addressBytes.clear();
+        wire.read(key).bytes(addressBytes);
+    }
+
+    /**
+     * Resolve the status from its name without creating a string.
+     */
+    static Status statusOf(CharSequence name)
+    {
+        if (name != null)
+        {
+            for (Status candidate : Status.values())
+            {
+                if (candidate.name().contentEquals(name))
+                {
+                    return candidate;
+                }
+            }
+        }
+        throw new IORuntimeException("Corrupt record status field");
+    }
+
+    /**
+     * Start a record whose field values are set one by one, see {@link #setTimestamp(long)} and the other setters.
+     *
+     * @param selectedFields the fields of the record
+     */
+    void begin(FieldSelector selectedFields)
+    {
+        fields = selectedFields;
+        clientAddress = null; // NOPMD
+        coordinatorAddress = null; // NOPMD
+        user = null; // NOPMD
+        userText.setLength(0);
+        batchId = null; // NOPMD
+    }
+
+    void setTimestamp(long timestamp)
+    {
+        this.timestamp = timestamp;
+    }
+
+    void setClientAddress(InetAddress clientAddress)
+    {
+        this.clientAddress = clientAddress;
+    }
+
+    void setClientPort(int clientPort)
+    {
+        this.clientPort = clientPort;
+    }
+
+    void setCoordinatorAddress(InetAddress coordinatorAddress)
+    {
+        this.coordinatorAddress = coordinatorAddress;
+    }
+
+    void setUser(String user)
+    {
+        this.user = user;
+    }
+
+    void setBatchId(UUID batchId)
+    {
+        this.batchId = batchId;
+    }
+
+    void setStatus(Status status)
+    {
+        this.status = status;
+    }
+
+    /**
+     * @return {@code true} if the record has a timestamp, otherwise {@code false}
+     */
+    public boolean hasTimestamp()
+    {
+        return fields.isSelected(Field.TIMESTAMP);
+    }
+
+    /**
+     * @return the timestamp of the record, only valid if the record has a timestamp
+     */
+    public long timestamp()
+    {
+        return timestamp;
+    }
+
+    /**
+     * @param expectedUser the user to compare with
+     * @return {@code true} if the record is of the user, otherwise {@code false}
+     */
+    public boolean isUser(String expectedUser)
+    {
+        if (!fields.isSelected(Field.USER))
+        {
+            return false;
+        }
+        return user == null ? expectedUser.contentEquals(userText) : expectedUser.equals(user);
+    }
+
+    /**
+     * @param expectedStatus the status to compare with
+     * @return {@code true} if the record has the status, otherwise {@code false}
+     */
+    public boolean isStatus(Status expectedStatus)
+    {
+        return fields.isSelected(Field.STATUS) && status == expectedStatus;
+    }
+
+    /**
+     * @param expectedAddress the client address to compare with
+     * @return {@code true} if the record is from a client with the address, otherwise {@code false}
+     */
+    public boolean isClientAddress(InetAddress expectedAddress)
+    {
+        if (!fields.isSelected(Field.CLIENT_IP))
+        {
+            return false;
+        }
+        if (clientAddress != null)
+        {
+            return expectedAddress.equals(clientAddress);
+        }
+
+        byte[] expectedBytes = expectedAddress.getAddress();
+        if (clientAddressBytes.readRemaining() != expectedBytes.length)
+        {
+            return false;
+        }
+        long position = clientAddressBytes.readPosition();
+        for (int i = 0; i < expectedBytes.length; i++)
+        {
+            if (clientAddressBytes.readByte(position + i) != expectedBytes[i])
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param expectedBatchId the batch id to compare with
+     * @return {@code true} if the record is part of the batch, otherwise {@code false}
+     */
+    public boolean isBatch(UUID expectedBatchId)
+    {
+        return fields.isSelected(Field.BATCH_ID) && expectedBatchId.equals(batchId);
+    }
+
+    /**
+     * Decode the fields of the record into an audit record.
+     *
+     * @param builder the builder of the audit record
+     */
+    void copyTo(StoredAuditRecord.Builder builder)
+    {
+        fields.ifSelectedRun(Field.TIMESTAMP, () -> builder.withTimestamp(timestamp));
+        fields.ifSelectedRun(Field.CLIENT_IP, () -> builder.withClientAddress(addressOf(clientAddress, clientAddressBytes, WireTags.KEY_CLIENT_IP)));
+        fields.ifSelectedRun(Field.CLIENT_PORT, () -> builder.withClientPort(clientPort));
+        fields.ifSelectedRun(Field.COORDINATOR_IP, () -> builder.withCoordinatorAddress(addressOf(coordinatorAddress, coordinatorAddressBytes, WireTags.KEY_COORDINATOR_IP)));
+        fields.ifSelectedRun(Field.USER, () -> builder.withUser(user == null ? userText.toString() : user));
+        fields.ifSelectedRun(Field.BATCH_ID, () -> builder.withBatchId(batchId));
+        fields.ifSelectedRun(Field.STATUS, () -> builder.withStatus(status));
+    }
+
+    private static InetAddress addressOf(InetAddress address, Bytes<?> addressBytes, String key)
+    {
+        if (address != null)
+        {
+            return address;
+        }
+
+        try
+        {
+            return InetAddress.getByAddress(addressBytes.toByteArray());
+        }
+        catch (UnknownHostException e)
+        {
+            throw new IORuntimeException("Corrupt " + key + " field", e);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.common.chronicle;
+
+import net.openhft.chronicle.wire.WireOut;
+import net.openhft.chronicle.wire.WriteMarshallable;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Writes a record followed by its sequence number.
+ * <p>
+ * Records which are written to different shards carry a sequence number, which orders records with the same timestamp
+ * when the shards are merged by a reader. The sequence number is written after the fields of the record, where it is
+ * skipped by readers which do not know about it.
+ */
+public class SequencedWriteMarshallable implements WriteMarshallable
+{
+    private final WriteMarshallable record;
+    private final long sequence;
+
+    /**
+     * @param record   the record to write
+     * @param sequence the sequence number of the record
+     */
+    public SequencedWriteMarshallable(WriteMarshallable record, long sequence)
+    {
+        this.record = record;
+        this.sequence = sequence;
+    }
+
+    @Override
+    public void writeMarshallable(@NotNull WireOut wire)
+    {
+        record.writeMarshallable(wire);
+        wire.write(WireTags.KEY_SEQUENCE).int64(sequence);
+    }
+}
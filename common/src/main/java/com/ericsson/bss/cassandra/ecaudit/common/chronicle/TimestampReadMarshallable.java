@@ -0,0 +1,137 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.common.chronicle;
+
+import java.util.OptionalLong;
+import java.util.function.LongSupplier;
+
+import com.ericsson.bss.cassandra.ecaudit.common.chronicle.FieldSelector.Field;
+import net.openhft.chronicle.core.io.IORuntimeException;
+import net.openhft.chronicle.wire.ReadMarshallable;
+import net.openhft.chronicle.wire.WireIn;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Read the timestamp of a record from the wire, skipping the rest of the record.
+ * <p>
+ * Records written with the compact layout hold their timestamp relative to a base timestamp, which is defined by the
+ * first record of each dictionary, see {@link WriteDictionary}. The base timestamp of such a record is taken from the
+ * record itself if it defines the base timestamp, otherwise it is supplied by the caller.
+ * <p>
+ * The marshallable may be reused for several records, its state is replaced by each record read.
+ */
+public class TimestampReadMarshallable implements ReadMarshallable
+{
+    private final LongSupplier baseTimestamp;
+
+    private boolean hasTimestamp;
+    private boolean relative;
+    private long timestamp;
+    private OptionalLong definedBaseTimestamp = OptionalLong.empty();
+
+    /**
+     * @param baseTimestamp supplies the base timestamp of a compact record which does not define the base timestamp
+     *                      itself, only invoked when the timestamp of such a record is requested
+     */
+    public TimestampReadMarshallable(LongSupplier baseTimestamp)
+    {
+        this.baseTimestamp = baseTimestamp;
+    }
+
+    @Override
+    public void readMarshallable(@NotNull WireIn wire) throws IORuntimeException
+    {
+        hasTimestamp = false;
+        relative = false;
+        definedBaseTimestamp = OptionalLong.empty();
+
+        short version = wire.read(WireTags.KEY_VERSION).int16();
+        switch (version)
+        {
+            case WireTags.VALUE_VERSION_0:
+                wire.read(WireTags.KEY_TYPE).text();
+                absolute(wire.read(WireTags.KEY_TIMESTAMP).int64());
+                break;
+            case WireTags.VALUE_VERSION_1:
+                readV1(wire);
+                break;
+            case WireTags.VALUE_VERSION_2:
+            case WireTags.VALUE_VERSION_3:
+                DictionaryDecoder.readTimestampOnly(wire, version, this);
+                break;
+            default:
+                throw new IORuntimeException("Unsupported record version: " + version);
+        }
+    }
+
+    private void readV1(WireIn wire)
+    {
+        String type = wire.read(WireTags.KEY_TYPE).text();
+        FieldSelector fields = FieldSelector.fromBitmap(wire.read(WireTags.KEY_FIELDS).int32());
+        if (WireTags.VALUE_TYPE_COMPACT_BATCH.equals(type))
+        {
+            wire.read(WireTags.KEY_BATCH_SIZE).int32();
+        }
+        if (fields.isSelected(Field.TIMESTAMP))
+        {
+            absolute(wire.read(WireTags.KEY_TIMESTAMP).int64());
+        }
+    }
+
+    void absolute(long absoluteTimestamp)
+    {
+        hasTimestamp = true;
+        timestamp = absoluteTimestamp;
+    }
+
+    void relative(long delta)
+    {
+        hasTimestamp = true;
+        relative = true;
+        timestamp = delta;
+    }
+
+    void defineBaseTimestamp(long base)
+    {
+        definedBaseTimestamp = OptionalLong.of(base);
+    }
+
+    /**
+     * @return the timestamp of the record read, or empty if the record has no timestamp
+     */
+    public OptionalLong getTimestamp()
+    {
+        if (!hasTimestamp)
+        {
+            return OptionalLong.empty();
+        }
+
+        if (!relative)
+        {
+            return OptionalLong.of(timestamp);
+        }
+        long base = definedBaseTimestamp.isPresent() ? definedBaseTimestamp.getAsLong() : baseTimestamp.getAsLong();
+        return OptionalLong.of(base + timestamp);
+    }
+
+    /**
+     * @return the base timestamp defined by the record read, or empty if the record does not define one
+     */
+    public OptionalLong getDefinedBaseTimestamp()
+    {
+        return definedBaseTimestamp;
+    }
+}
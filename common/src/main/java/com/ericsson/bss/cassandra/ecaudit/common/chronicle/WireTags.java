@@ -29,11 +29,29 @@ class WireTags
     static final String KEY_STATUS = "status";
     static final String KEY_OPERATION = "operation";
     static final String KEY_NAKED_OPERATION = "naked_operation";
+    static final String KEY_BATCH_SIZE = "batch_size";
+    static final String KEY_DICTIONARY = "dictionary";
+    static final String KEY_OPERATION_SUFFIX = "operation_suffix";
+    static final String KEY_BOUND_VALUES = "bound_values";
+    static final String KEY_SEQUENCE = "sequence";
 
     static final short VALUE_VERSION_0 = 0;
     static final short VALUE_VERSION_1 = 1;
+    static final short VALUE_VERSION_2 = 2;
+    static final short VALUE_VERSION_3 = 3;
     static final short VALUE_VERSION_CURRENT = VALUE_VERSION_1;
     static final String VALUE_TYPE_BATCH_ENTRY = "ecaudit-batch";
     static final String VALUE_TYPE_SINGLE_ENTRY = "ecaudit-single";
     static final String VALUE_TYPE_AUDIT = "ecaudit";
+    static final String VALUE_TYPE_COMPACT_BATCH = "ecaudit-compact-batch";
+    static final byte VALUE_DEFINITION_TEXT = 0;
+    static final byte VALUE_DEFINITION_ADDRESS = 1;
+    static final byte VALUE_DEFINITION_TIMESTAMP = 2;
+    static final int VALUE_BASE_TIMESTAMP_ID = -1;
+    static final byte VALUE_TYPE_CODE_AUDIT = 0;
+    static final byte VALUE_TYPE_CODE_COMPACT_BATCH = 1;
+    static final byte VALUE_STATUS_ATTEMPT = 0;
+    static final byte VALUE_STATUS_FAILED = 1;
+    static final byte VALUE_STATUS_SUCCEEDED = 2;
+    static final byte VALUE_BOUND_LITERAL = 0;
 }
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.common.chronicle;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.bytes.MappedBytes;
+import net.openhft.chronicle.wire.WireOut;
+
+/**
+ * Assigns compact ids to values which are repeated in many records, such as statements, users and client addresses.
+ * <p>
+ * The ids are scoped to the roll cycle file which is written. A value is defined in the first record of a cycle which
+ * refers to it, and later records in the same cycle refer to it by id only. The dictionary starts over when records are
+ * written to a new cycle file, or once it has reached its maximum size.
+ * <p>
+ * Records which are not written to a cycle file, e.g. records serialized to a buffer, can not refer to the dictionary.
+ * <p>
+ * Values which are new to the dictionary are pending until the record defining them is completed with
+ * {@link #endRecord()}. If writing a record fails before that, its pending values are discarded when the next record
+ * begins, so that later records define them again rather than referring to a definition which was never written.
+ * <p>
+ * With the compact layout, records are written using record version 3, where fields are identified by their position
+ * rather than by name. The coordinator address is then referred to like other repeated values, and timestamps are
+ * written relative to the timestamp of the first record in the scope of the dictionary.
+ * <p>
+ * This class is thread safe, but records referring to the dictionary must be written to the cycle file in the order
+ * they refer to it. This is the case when records are written by a single writer thread or under the write lock of the
+ * Chronicle queue.
+ */
+public final class WriteDictionary
+{
+    public static final int DEFAULT_MAX_SIZE = 10_000;
+
+    private final int maxSize;
+    private final boolean compactLayout;
+    private final Map<Object, Integer> ids = new HashMap<>();
+    private final Map<Object, Integer> pendingIds = new HashMap<>();
+
+    private File cycleFile;
+    private boolean hasBaseTimestamp;
+    private boolean pendingBaseTimestamp;
+    private long baseTimestamp;
+
+    public WriteDictionary()
+    {
+        this(DEFAULT_MAX_SIZE, false);
+    }
+
+    /**
+     * @param maxSize       the number of values after which the dictionary starts over
+     * @param compactLayout {@code true} to write records using the compact layout of record version 3
+     */
+    public WriteDictionary(int maxSize, boolean compactLayout)
+    {
+        this.maxSize = maxSize;
+        this.compactLayout = compactLayout;
+    }
+
+    boolean isCompactLayout()
+    {
+        return compactLayout;
+    }
+
+    /**
+     * Prepare the dictionary for a record written to the given wire.
+     * <p>
+     * Values which are still pending from a record that was never completed are discarded.
+     *
+     * @param wire the wire the record is written to
+     * @return {@code true} if the record can refer to the dictionary, otherwise {@code false}
+     */
+    synchronized boolean beginRecord(WireOut wire)
+    {
+        File file = cycleFile(wire);
+        if (file == null)
+        {
+            return false;
+        }
+
+        discardPending();
+        if (!file.equals(cycleFile) || ids.size() >= maxSize)
+        {
+            ids.clear();
+            hasBaseTimestamp = false;
+            cycleFile = file;
+        }
+        return true;
+    }
+
+    /**
+     * Complete the current record, once all of it has been written. The values it defines are then referred to by id
+     * only in later records.
+     */
+    synchronized void endRecord()
+    {
+        ids.putAll(pendingIds);
+        pendingIds.clear();
+        pendingBaseTimestamp = false;
+    }
+
+    private void discardPending()
+    {
+        pendingIds.clear();
+        if (pendingBaseTimestamp)
+        {
+            hasBaseTimestamp = false;
+            pendingBaseTimestamp = false;
+        }
+    }
+
+    /**
+     * Get the id of a value, assigning a new id if the value is not in the dictionary.
+     *
+     * @param value       the value to refer to
+     * @param definitions the values which the current record must define, new values are added to it
+     * @return the id of the value
+     */
+    synchronized int reference(Object value, Map<Integer, Object> definitions)
+    {
+        Integer id = ids.get(value);
+        if (id == null)
+        {
+            id = pendingIds.get(value);
+        }
+        if (id == null)
+        {
+            id = ids.size() + pendingIds.size();
+            pendingIds.put(value, id);
+            definitions.put(id, value);
+        }
+        return id;
+    }
+
+    /**
+     * Get the timestamp which timestamps are written relative to, using the given timestamp if there is none yet.
+     *
+     * @param timestamp   the timestamp of the current record
+     * @param definitions the values which the current record must define, a new base timestamp is added to it
+     * @return the base timestamp
+     */
+    synchronized long baseTimestamp(long timestamp, Map<Integer, Object> definitions)
+    {
+        if (!hasBaseTimestamp)
+        {
+            hasBaseTimestamp = true;
+            pendingBaseTimestamp = true;
+            baseTimestamp = timestamp;
+            definitions.put(WireTags.VALUE_BASE_TIMESTAMP_ID, baseTimestamp);
+        }
+        return baseTimestamp;
+    }
+
+    private static File cycleFile(WireOut wire)
+    {
+        Bytes<?> bytes = wire.bytes();
+        return bytes instanceof MappedBytes
+               ? ((MappedBytes) bytes).mappedFile().file()
+               : null;
+    }
+}
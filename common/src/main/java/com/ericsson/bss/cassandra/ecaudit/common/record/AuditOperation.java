@@ -15,6 +15,9 @@
  */
 package com.ericsson.bss.cassandra.ecaudit.common.record;
 
+import java.util.Collections;
+import java.util.List;
+
 /**
  * An interface for audit operations.
  *
@@ -36,4 +39,17 @@ public interface AuditOperation
      * @return the operation without bound values as a string
      */
     String getNakedOperationString();
+
+    /**
+     * Provide the bound values of this operation. This applies to prepared statement operations.
+     * <p>
+     * If there are bound values the operation string is the naked operation string followed by the bound values
+     * rendered as {@link BoundValue#toCqlLiterals(List) CQL literals}.
+     *
+     * @return the bound values, or an empty list if the operation has no bound values
+     */
+    default List<BoundValue> getBoundValues()
+    {
+        return Collections.emptyList();
+    }
 }
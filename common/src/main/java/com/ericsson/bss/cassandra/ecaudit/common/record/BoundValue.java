@@ -0,0 +1,104 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.common.record;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * A value bound to a prepared statement, either in serialized form with its type, or already rendered as a CQL literal.
+ * <p>
+ * Serialized values are cheap to create and store, and are rendered as CQL literals when needed.
+ */
+public final class BoundValue
+{
+    private final BoundValueType type;
+    private final ByteBuffer serializedValue;
+    private final String literal;
+
+    private BoundValue(BoundValueType type, ByteBuffer serializedValue, String literal)
+    {
+        this.type = type;
+        this.serializedValue = serializedValue;
+        this.literal = literal;
+    }
+
+    /**
+     * Create a bound value in serialized form.
+     *
+     * @param type            the type of the value
+     * @param serializedValue the serialized value, which must not be modified afterwards
+     * @return a new bound value
+     */
+    public static BoundValue serialized(BoundValueType type, ByteBuffer serializedValue)
+    {
+        return new BoundValue(type, serializedValue, null);
+    }
+
+    /**
+     * Create a bound value which is already rendered, such as a suppressed value or a value of a type which can not be
+     * rendered from its serialized form.
+     *
+     * @param literal the value as a CQL literal
+     * @return a new bound value
+     */
+    public static BoundValue literal(String literal)
+    {
+        return new BoundValue(null, null, literal);
+    }
+
+    /**
+     * @return the type of a serialized value, or empty if the value is already rendered
+     */
+    public Optional<BoundValueType> getType()
+    {
+        return Optional.ofNullable(type);
+    }
+
+    /**
+     * @return a read-only view of the serialized value
+     * @throws IllegalStateException if the value is already rendered
+     */
+    public ByteBuffer getSerializedValue()
+    {
+        if (serializedValue == null)
+        {
+            throw new IllegalStateException("Bound value is already rendered");
+        }
+        return serializedValue.asReadOnlyBuffer();
+    }
+
+    /**
+     * @return the value as a CQL literal
+     */
+    public String toCqlLiteral()
+    {
+        return type == null ? literal : type.render(serializedValue);
+    }
+
+    /**
+     * Render bound values the way they are appended to a prepared statement.
+     *
+     * @param literals the bound values as CQL literals
+     * @return the bound values within brackets, or an empty string if there are no bound values
+     */
+    public static String toCqlLiterals(List<String> literals)
+    {
+        return literals.isEmpty() ? "" : literals.stream().collect(Collectors.joining(", ", "[", "]"));
+    }
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.common.record;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.UUID;
+
+/**
+ * The CQL types of bound values which can be stored in serialized form and rendered as CQL literals when read.
+ * <p>
+ * Values are rendered exactly like the Cassandra type of the bound column would render them.
+ */
+public enum BoundValueType
+{
+    ASCII(1)
+    {
+        @Override
+        String renderValue(ByteBuffer value)
+        {
+            return "'" + StandardCharsets.US_ASCII.decode(value) + "'";
+        }
+    },
+    TEXT(2)
+    {
+        @Override
+        String renderValue(ByteBuffer value)
+        {
+            return "'" + StandardCharsets.UTF_8.decode(value) + "'";
+        }
+    },
+    BIGINT(3)
+    {
+        @Override
+        String renderValue(ByteBuffer value)
+        {
+            return Long.toString(value.getLong(value.position()));
+        }
+    },
+    BLOB(4)
+    {
+        @Override
+        String renderValue(ByteBuffer value)
+        {
+            StringBuilder hex = new StringBuilder(2 + value.remaining() * 2).append("0x");
+            for (int i = value.position(); i < value.limit(); i++)
+            {
+                hex.append(Character.forDigit((value.get(i) >> 4) & 0xF, 16))
+                   .append(Character.forDigit(value.get(i) & 0xF, 16));
+            }
+            return hex.toString();
+        }
+    },
+    BOOLEAN(5)
+    {
+        @Override
+        String renderValue(ByteBuffer value)
+        {
+            return Boolean.toString(value.get(value.position()) != 0);
+        }
+    },
+    DECIMAL(6)
+    {
+        @Override
+        String renderValue(ByteBuffer value)
+        {
+            int scale = value.getInt();
+            return new BigDecimal(new BigInteger(remainingBytes(value)), scale).toPlainString();
+        }
+    },
+    DOUBLE(7)
+    {
+        @Override
+        String renderValue(ByteBuffer value)
+        {
+            return Double.toString(value.getDouble(value.position()));
+        }
+    },
+    FLOAT(8)
+    {
+        @Override
+        String renderValue(ByteBuffer value)
+        {
+            return Float.toString(value.getFloat(value.position()));
+        }
+    },
+    INET(9)
+    {
+        @Override
+        String renderValue(ByteBuffer value)
+        {
+            try
+            {
+                return InetAddress.getByAddress(remainingBytes(value)).getHostAddress();
+            }
+            catch (UnknownHostException e)
+            {
+                throw new IllegalArgumentException("Invalid inet value of " + value.remaining() + " bytes", e);
+            }
+        }
+    },
+    INT(10)
+    {
+        @Override
+        String renderValue(ByteBuffer value)
+        {
+            return Integer.toString(value.getInt(value.position()));
+        }
+    },
+    SMALLINT(11)
+    {
+        @Override
+        String renderValue(ByteBuffer value)
+        {
+            return Short.toString(value.getShort(value.position()));
+        }
+    },
+    TINYINT(12)
+    {
+        @Override
+        String renderValue(ByteBuffer value)
+        {
+            return Byte.toString(value.get(value.position()));
+        }
+    },
+    TIMESTAMP(13)
+    {
+        @Override
+        String renderValue(ByteBuffer value)
+        {
+            return DATE_FORMAT.get().format(new Date(value.getLong(value.position())));
+        }
+    },
+    UUID(14)
+    {
+        @Override
+        String renderValue(ByteBuffer value)
+        {
+            return new UUID(value.getLong(value.position()), value.getLong(value.position() + 8)).toString();
+        }
+    },
+    VARINT(15)
+    {
+        @Override
+        String renderValue(ByteBuffer value)
+        {
+            return new BigInteger(remainingBytes(value)).toString();
+        }
+    };
+
+    private static final ThreadLocal<DateFormat> DATE_FORMAT = ThreadLocal.withInitial(BoundValueType::createDateFormat);
+    private static final BoundValueType[] BY_CODE = createCodeLookup();
+
+    private final byte code;
+
+    BoundValueType(int code)
+    {
+        this.code = (byte) code;
+    }
+
+    /**
+     * @return the code identifying this type in serialized records
+     */
+    public byte getCode()
+    {
+        return code;
+    }
+
+    /**
+     * Render a serialized value of this type as a CQL literal.
+     *
+     * @param serializedValue the serialized value
+     * @return the value as a CQL literal
+     */
+    public String render(ByteBuffer serializedValue)
+    {
+        if (!serializedValue.hasRemaining())
+        {
+            return this == ASCII || this == TEXT ? "''" : "null";
+        }
+
+        return renderValue(serializedValue.duplicate());
+    }
+
+    abstract String renderValue(ByteBuffer value);
+
+    /**
+     * Get the type identified by a code.
+     *
+     * @param code the code of the type
+     * @return the type
+     * @throws IllegalArgumentException if the code is unknown
+     */
+    public static BoundValueType fromCode(byte code)
+    {
+        if (code <= 0 || code >= BY_CODE.length || BY_CODE[code] == null)
+        {
+            throw new IllegalArgumentException("Unknown bound value type " + code);
+        }
+        return BY_CODE[code];
+    }
+
+    private static byte[] remainingBytes(ByteBuffer value)
+    {
+        byte[] bytes = new byte[value.remaining()];
+        value.get(bytes);
+        return bytes;
+    }
+
+    private static BoundValueType[] createCodeLookup()
+    {
+        BoundValueType[] lookup = new BoundValueType[Byte.MAX_VALUE + 1];
+        for (BoundValueType type : values())
+        {
+            lookup[type.code] = type;
+        }
+        return lookup;
+    }
+
+    private static DateFormat createDateFormat()
+    {
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", Locale.getDefault(Locale.Category.FORMAT));
+        dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return dateFormat;
+    }
+}
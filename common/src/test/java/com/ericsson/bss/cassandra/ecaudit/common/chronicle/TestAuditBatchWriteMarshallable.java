@@ -0,0 +1,90 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.common.chronicle;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import com.ericsson.bss.cassandra.ecaudit.common.record.AuditRecord;
+import com.ericsson.bss.cassandra.ecaudit.common.record.SimpleAuditOperation;
+import com.ericsson.bss.cassandra.ecaudit.common.record.SimpleAuditRecord;
+import com.ericsson.bss.cassandra.ecaudit.common.record.Status;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+public class TestAuditBatchWriteMarshallable
+{
+    private static final UUID BATCH_ID = UUID.randomUUID();
+
+    @Test
+    public void testRecordsOfSameBatchAreCompactable() throws Exception
+    {
+        AuditRecord first = likeBatchRecord().build();
+        AuditRecord second = likeBatchRecord().withOperation(new SimpleAuditOperation("INSERT SOMETHING")).build();
+
+        assertThat(AuditBatchWriteMarshallable.isCompactable(Arrays.asList(first, second))).isTrue();
+    }
+
+    @Test
+    public void testSingleRecordIsNotCompactable() throws Exception
+    {
+        assertThat(AuditBatchWriteMarshallable.isCompactable(Collections.singletonList(likeBatchRecord().build()))).isFalse();
+    }
+
+    @Test
+    public void testRecordsWithoutBatchIdAreNotCompactable() throws Exception
+    {
+        AuditRecord record = likeBatchRecord().withBatchId(null).build();
+
+        assertThat(AuditBatchWriteMarshallable.isCompactable(Arrays.asList(record, record))).isFalse();
+    }
+
+    @Test
+    public void testRecordsWithDifferentSharedFieldsAreNotCompactable() throws Exception
+    {
+        AuditRecord first = likeBatchRecord().build();
+        AuditRecord second = likeBatchRecord().withStatus(Status.FAILED).build();
+
+        assertThat(AuditBatchWriteMarshallable.isCompactable(Arrays.asList(first, second))).isFalse();
+    }
+
+    @Test
+    public void testEmptyBatchIsRejected()
+    {
+        assertThatExceptionOfType(IllegalArgumentException.class)
+        .isThrownBy(() -> new AuditBatchWriteMarshallable(Collections.emptyList(), FieldSelector.DEFAULT_FIELDS));
+    }
+
+    private SimpleAuditRecord.Builder likeBatchRecord() throws UnknownHostException
+    {
+        return SimpleAuditRecord
+        .builder()
+        .withClientAddress(new InetSocketAddress(InetAddress.getByName("0.1.2.3"), 876))
+        .withCoordinatorAddress(InetAddress.getByName("4.5.6.7"))
+        .withStatus(Status.ATTEMPT)
+        .withOperation(new SimpleAuditOperation("SELECT SOMETHING"))
+        .withUser("bob")
+        .withBatchId(BATCH_ID)
+        .withTimestamp(42L);
+    }
+}
@@ -29,6 +29,7 @@ import com.ericsson.bss.cassandra.ecaudit.common.chronicle.FieldSelector.Field;
 import com.ericsson.bss.cassandra.ecaudit.common.record.Status;
 import com.ericsson.bss.cassandra.ecaudit.common.record.StoredAuditRecord;
 import com.ericsson.bss.cassandra.ecaudit.test.chronicle.RecordValues;
+import net.openhft.chronicle.bytes.BytesOut;
 import net.openhft.chronicle.core.io.IORuntimeException;
 import net.openhft.chronicle.wire.ValueIn;
 import net.openhft.chronicle.wire.WireIn;
@@ -38,6 +39,7 @@ import org.mockito.junit.MockitoJUnitRunner;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -176,7 +178,7 @@ public class TestAuditRecordReadMarshallable
         when(wireInMock.read(eq("timestamp"))).thenReturn(timestampValueMock);
 
         ValueIn clientIpValueMock = mock(ValueIn.class);
-        when(clientIpValueMock.bytes()).thenReturn(values.getClientAddress());
+        givenBytes(clientIpValueMock, values.getClientAddress());
         when(wireInMock.read(eq("client_ip"))).thenReturn(clientIpValueMock);
 
         ValueIn clientPortValueMock = mock(ValueIn.class);
@@ -184,11 +186,11 @@ public class TestAuditRecordReadMarshallable
         when(wireInMock.read(eq("client_port"))).thenReturn(clientPortValueMock);
 
         ValueIn coordinatorValueMock = mock(ValueIn.class);
-        when(coordinatorValueMock.bytes()).thenReturn(values.getCoordinatorAddress());
+        givenBytes(coordinatorValueMock, values.getCoordinatorAddress());
         when(wireInMock.read(eq("coordinator_ip"))).thenReturn(coordinatorValueMock);
 
         ValueIn userValueMock = mock(ValueIn.class);
-        when(userValueMock.text()).thenReturn(values.gethUser());
+        givenText(userValueMock, values.gethUser());
         when(wireInMock.read(eq("user"))).thenReturn(userValueMock);
 
         if (values.getBatchId() != null)
@@ -199,7 +201,7 @@ public class TestAuditRecordReadMarshallable
         }
 
         ValueIn statusValueMock = mock(ValueIn.class);
-        when(statusValueMock.text()).thenReturn(values.getStatus());
+        givenText(statusValueMock, values.getStatus());
         when(wireInMock.read(eq("status"))).thenReturn(statusValueMock);
 
         ValueIn operationValueMock = mock(ValueIn.class);
@@ -207,6 +209,19 @@ public class TestAuditRecordReadMarshallable
         when(wireInMock.read(eq("operation"))).thenReturn(operationValueMock);
     }
 
+    private static void givenBytes(ValueIn valueMock, byte[] bytes)
+    {
+        when(valueMock.bytes(any(BytesOut.class))).thenAnswer(invocation -> {
+            invocation.<BytesOut<?>>getArgument(0).write(bytes);
+            return null;
+        });
+    }
+
+    private static void givenText(ValueIn valueMock, String text)
+    {
+        when(valueMock.textTo(any(StringBuilder.class))).thenAnswer(invocation -> invocation.<StringBuilder>getArgument(0).append(text));
+    }
+
     private void assertThatRecordIsSame(StoredAuditRecord actualAuditRecord, RecordValues expectedValues) throws UnknownHostException
     {
         assertThat(actualAuditRecord.getBatchId()).isEqualTo(Optional.ofNullable(expectedValues.getBatchId()));
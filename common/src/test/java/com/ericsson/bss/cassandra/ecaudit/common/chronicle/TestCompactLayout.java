@@ -0,0 +1,249 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.common.chronicle;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.ericsson.bss.cassandra.ecaudit.common.record.AuditRecord;
+import com.ericsson.bss.cassandra.ecaudit.common.record.BoundValue;
+import com.ericsson.bss.cassandra.ecaudit.common.record.BoundValueType;
+import com.ericsson.bss.cassandra.ecaudit.common.record.SimpleAuditOperation;
+import com.ericsson.bss.cassandra.ecaudit.common.record.SimpleAuditRecord;
+import com.ericsson.bss.cassandra.ecaudit.common.record.SimplePreparedAuditOperation;
+import com.ericsson.bss.cassandra.ecaudit.common.record.Status;
+import com.ericsson.bss.cassandra.ecaudit.common.record.StoredAuditRecord;
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.queue.ChronicleQueue;
+import net.openhft.chronicle.queue.ChronicleQueueBuilder;
+import net.openhft.chronicle.queue.ExcerptAppender;
+import net.openhft.chronicle.queue.ExcerptTailer;
+import net.openhft.chronicle.wire.DocumentContext;
+import net.openhft.chronicle.wire.Wire;
+import net.openhft.chronicle.wire.WireType;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TestCompactLayout
+{
+    private static final String PREPARED_STATEMENT = "INSERT INTO ks.tbl (key, value) VALUES (?, ?)";
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private ChronicleQueue chronicleQueue;
+    private ExcerptAppender appender;
+
+    @Before
+    public void before()
+    {
+        chronicleQueue = ChronicleQueueBuilder.single(temporaryFolder.getRoot()).blockSize(1024).build();
+        appender = chronicleQueue.acquireAppender();
+    }
+
+    @After
+    public void after()
+    {
+        chronicleQueue.close();
+    }
+
+    @Test
+    public void writeReadAllFields() throws Exception
+    {
+        WriteDictionary dictionary = new WriteDictionary(WriteDictionary.DEFAULT_MAX_SIZE, true);
+        List<AuditRecord> expectedAuditRecords = new ArrayList<>();
+        for (Status status : Status.values())
+        {
+            expectedAuditRecords.add(likeGenericRecord().withStatus(status).withBatchId(UUID.randomUUID()).build());
+        }
+
+        for (AuditRecord auditRecord : expectedAuditRecords)
+        {
+            appender.writeDocument(new AuditRecordWriteMarshallable(auditRecord, FieldSelector.ALL_FIELDS, dictionary));
+        }
+
+        List<StoredAuditRecord> actualAuditRecords = readAll(new ReadDictionary(), expectedAuditRecords.size());
+        for (int i = 0; i < expectedAuditRecords.size(); i++)
+        {
+            assertThatRecordsMatch(actualAuditRecords.get(i), expectedAuditRecords.get(i));
+            assertThat(actualAuditRecords.get(i).getNakedOperation()).contains("SELECT SOMETHING");
+        }
+    }
+
+    @Test
+    public void writeReadTimestampBeforeBaseTimestamp() throws Exception
+    {
+        WriteDictionary dictionary = new WriteDictionary(WriteDictionary.DEFAULT_MAX_SIZE, true);
+        long timestamp = System.currentTimeMillis();
+        AuditRecord firstAuditRecord = likeGenericRecord().withTimestamp(timestamp).build();
+        AuditRecord secondAuditRecord = likeGenericRecord().withTimestamp(timestamp - 5).build();
+
+        appender.writeDocument(new AuditRecordWriteMarshallable(firstAuditRecord, FieldSelector.DEFAULT_FIELDS, dictionary));
+        appender.writeDocument(new AuditRecordWriteMarshallable(secondAuditRecord, FieldSelector.DEFAULT_FIELDS, dictionary));
+
+        List<StoredAuditRecord> actualAuditRecords = readAll(new ReadDictionary(), 2);
+        assertThatRecordsMatch(actualAuditRecords.get(0), firstAuditRecord);
+        assertThatRecordsMatch(actualAuditRecords.get(1), secondAuditRecord);
+    }
+
+    @Test
+    public void writeReadCompactBatchWithBoundValues() throws Exception
+    {
+        WriteDictionary dictionary = new WriteDictionary(WriteDictionary.DEFAULT_MAX_SIZE, true);
+        FieldSelector fields = FieldSelector.ALL_FIELDS;
+        UUID batchId = UUID.randomUUID();
+        long timestamp = System.currentTimeMillis();
+        List<AuditRecord> expectedAuditRecords = Arrays.asList(likeGenericRecord().withBatchId(batchId).withTimestamp(timestamp).withOperation(likeBoundOperation(1)).build(),
+                                                               likeGenericRecord().withBatchId(batchId).withTimestamp(timestamp).withOperation(new SimpleAuditOperation("INSERT SOMETHING")).build(),
+                                                               likeGenericRecord().withBatchId(batchId).withTimestamp(timestamp).withOperation(likeBoundOperation(2)).build());
+
+        appender.writeDocument(new AuditBatchWriteMarshallable(expectedAuditRecords, fields, dictionary));
+
+        List<StoredAuditRecord> actualAuditRecords = readAll(new ReadDictionary(), 3);
+        for (int i = 0; i < expectedAuditRecords.size(); i++)
+        {
+            assertThatRecordsMatch(actualAuditRecords.get(i), expectedAuditRecords.get(i));
+        }
+        assertThat(actualAuditRecords.get(0).getOperation()).contains(PREPARED_STATEMENT + "[1, 'a']");
+        assertThat(actualAuditRecords.get(2).getNakedOperation()).contains(PREPARED_STATEMENT);
+    }
+
+    @Test
+    public void compactRecordIsSmallerThanNamedFields() throws Exception
+    {
+        WriteDictionary compactDictionary = new WriteDictionary(WriteDictionary.DEFAULT_MAX_SIZE, true);
+        WriteDictionary namedDictionary = new WriteDictionary();
+        AuditRecord auditRecord = likeGenericRecord().build();
+
+        appender.writeDocument(new AuditRecordWriteMarshallable(auditRecord, FieldSelector.DEFAULT_FIELDS, compactDictionary));
+        appender.writeDocument(new AuditRecordWriteMarshallable(auditRecord, FieldSelector.DEFAULT_FIELDS, compactDictionary));
+        appender.writeDocument(new AuditRecordWriteMarshallable(auditRecord, FieldSelector.DEFAULT_FIELDS, namedDictionary));
+        appender.writeDocument(new AuditRecordWriteMarshallable(auditRecord, FieldSelector.DEFAULT_FIELDS, namedDictionary));
+
+        ExcerptTailer tailer = chronicleQueue.createTailer();
+        recordSize(tailer);
+        long compactSize = recordSize(tailer);
+        recordSize(tailer);
+        long namedSize = recordSize(tailer);
+
+        assertThat(compactSize).isLessThan(namedSize / 2);
+    }
+
+    @Test
+    public void selfContainedOutsideOfCycleFile() throws Exception
+    {
+        AuditRecord expectedAuditRecord = likeGenericRecord().build();
+        Wire wire = WireType.BINARY_LIGHT.apply(Bytes.elasticHeapByteBuffer(256));
+
+        new AuditRecordWriteMarshallable(expectedAuditRecord, FieldSelector.DEFAULT_FIELDS, new WriteDictionary(WriteDictionary.DEFAULT_MAX_SIZE, true)).writeMarshallable(wire);
+
+        AuditRecordReadMarshallable readMarshallable = new AuditRecordReadMarshallable();
+        readMarshallable.readMarshallable(wire);
+        assertThatRecordsMatch(readMarshallable.getAuditRecord(), expectedAuditRecord);
+    }
+
+    @Test
+    public void recoverDefinitionsWhenStartingMidCycle() throws Exception
+    {
+        WriteDictionary dictionary = new WriteDictionary(WriteDictionary.DEFAULT_MAX_SIZE, true);
+        AuditRecord firstAuditRecord = likeGenericRecord().build();
+        AuditRecord secondAuditRecord = likeGenericRecord().withTimestamp(firstAuditRecord.getTimestamp() + 1000).build();
+        appender.writeDocument(new AuditRecordWriteMarshallable(firstAuditRecord, FieldSelector.ALL_FIELDS, dictionary));
+        appender.writeDocument(new AuditRecordWriteMarshallable(secondAuditRecord, FieldSelector.ALL_FIELDS, dictionary));
+
+        ExcerptTailer tailer = chronicleQueue.createTailer();
+        tailer.readingDocument().close();
+        AtomicInteger recoveries = new AtomicInteger();
+        ReadDictionary readDictionary = new ReadDictionary(tailer::cycle, (recovering, cycle) -> {
+            recoveries.incrementAndGet();
+            chronicleQueue.createTailer().readDocument(recovering.definitionReader());
+        });
+
+        AuditRecordReadMarshallable readMarshallable = new AuditRecordReadMarshallable(readDictionary);
+        tailer.readDocument(readMarshallable);
+
+        assertThatRecordsMatch(readMarshallable.getAuditRecord(), secondAuditRecord);
+        assertThat(recoveries).hasValue(1);
+    }
+
+    private List<StoredAuditRecord> readAll(ReadDictionary dictionary, int expectedCount)
+    {
+        ExcerptTailer tailer = chronicleQueue.createTailer();
+        List<StoredAuditRecord> auditRecords = new ArrayList<>();
+        AuditRecordReadMarshallable readMarshallable = new AuditRecordReadMarshallable(dictionary);
+        while (tailer.readDocument(readMarshallable))
+        {
+            auditRecords.addAll(readMarshallable.getAuditRecords());
+            readMarshallable = new AuditRecordReadMarshallable(dictionary);
+        }
+
+        assertThat(auditRecords).hasSize(expectedCount);
+        return auditRecords;
+    }
+
+    private static long recordSize(ExcerptTailer tailer)
+    {
+        try (DocumentContext documentContext = tailer.readingDocument())
+        {
+            assertThat(documentContext.isPresent()).isTrue();
+            return documentContext.wire().bytes().readRemaining();
+        }
+    }
+
+    private SimpleAuditRecord.Builder likeGenericRecord() throws UnknownHostException
+    {
+        return SimpleAuditRecord
+        .builder()
+        .withClientAddress(new InetSocketAddress(InetAddress.getByName("0.1.2.3"), 876))
+        .withCoordinatorAddress(InetAddress.getByName("4.5.6.7"))
+        .withStatus(Status.ATTEMPT)
+        .withOperation(new SimpleAuditOperation("SELECT SOMETHING"))
+        .withUser("bob")
+        .withTimestamp(System.currentTimeMillis());
+    }
+
+    private void assertThatRecordsMatch(StoredAuditRecord actualAuditRecord, AuditRecord expectedAuditRecord)
+    {
+        assertThat(actualAuditRecord.getBatchId()).isEqualTo(expectedAuditRecord.getBatchId());
+        assertThat(actualAuditRecord.getClientAddress()).contains(expectedAuditRecord.getClientAddress().getAddress());
+        assertThat(actualAuditRecord.getClientPort()).contains(expectedAuditRecord.getClientAddress().getPort());
+        assertThat(actualAuditRecord.getCoordinatorAddress()).contains(expectedAuditRecord.getCoordinatorAddress());
+        assertThat(actualAuditRecord.getStatus()).contains(expectedAuditRecord.getStatus());
+        assertThat(actualAuditRecord.getOperation()).contains(expectedAuditRecord.getOperation().getOperationString());
+        assertThat(actualAuditRecord.getUser()).contains(expectedAuditRecord.getUser());
+        assertThat(actualAuditRecord.getTimestamp()).contains(expectedAuditRecord.getTimestamp());
+    }
+
+    private static SimplePreparedAuditOperation likeBoundOperation(int key)
+    {
+        return new SimplePreparedAuditOperation(PREPARED_STATEMENT,
+                                                BoundValue.serialized(BoundValueType.INT, ByteBuffer.allocate(4).putInt(0, key)),
+                                                BoundValue.literal("'a'"));
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.common.chronicle;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TestCycleArchive
+{
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testArchiveNames()
+    {
+        Path cycleFile = temporaryFolder.getRoot().toPath().resolve("20200101-12.cq4");
+
+        Path archive = CycleArchive.archiveOf(cycleFile);
+
+        assertThat(archive).hasFileName("20200101-12.cq4.gz");
+        assertThat(CycleArchive.isArchive(archive)).isTrue();
+        assertThat(CycleArchive.isArchive(cycleFile)).isFalse();
+        assertThat(CycleArchive.cycleFileNameOf(archive)).isEqualTo("20200101-12.cq4");
+    }
+
+    @Test
+    public void testCompressAndExtract() throws Exception
+    {
+        byte[] content = new byte[256 * 1024];
+        new Random(42).nextBytes(content);
+        Path cycleFile = Files.write(temporaryFolder.getRoot().toPath().resolve("20200101-12.cq4"), content);
+
+        Path archive = CycleArchive.compress(cycleFile);
+        Path extracted = CycleArchive.extract(archive, temporaryFolder.newFolder().toPath());
+
+        assertThat(archive).exists().hasFileName("20200101-12.cq4.gz");
+        assertThat(cycleFile).exists();
+        assertThat(extracted).hasFileName("20200101-12.cq4").hasBinaryContent(content);
+        assertThat(temporaryFolder.getRoot().list()).containsOnly("20200101-12.cq4", "20200101-12.cq4.gz", extracted.getParent().getFileName().toString());
+    }
+
+    @Test
+    public void testStaleTemporaryArchiveIsReplaced() throws Exception
+    {
+        byte[] content = new byte[64 * 1024];
+        new Random(42).nextBytes(content);
+        Path cycleFile = Files.write(temporaryFolder.getRoot().toPath().resolve("20200101-12.cq4"), content);
+        Files.write(temporaryFolder.getRoot().toPath().resolve("20200101-12.cq4.gz.tmp"), new byte[1024 * 1024]);
+
+        Path archive = CycleArchive.compress(cycleFile);
+        Path extracted = CycleArchive.extract(archive, temporaryFolder.newFolder().toPath());
+
+        assertThat(extracted).hasBinaryContent(content);
+        assertThat(temporaryFolder.getRoot().toPath().resolve("20200101-12.cq4.gz.tmp")).doesNotExist();
+    }
+
+    @Test
+    public void testSparseFileIsCompressed() throws Exception
+    {
+        Path cycleFile = Files.write(temporaryFolder.getRoot().toPath().resolve("20200101-12.cq4"), new byte[1024 * 1024]);
+
+        Path archive = CycleArchive.compress(cycleFile);
+
+        assertThat(Files.size(archive)).isLessThan(Files.size(cycleFile) / 100);
+    }
+
+    @Test
+    public void testListArchivesInOrder() throws Exception
+    {
+        Path directory = temporaryFolder.getRoot().toPath();
+        Path second = Files.createFile(directory.resolve("20200101-13.cq4.gz"));
+        Path first = Files.createFile(directory.resolve("20200101-12.cq4.gz"));
+        Files.createFile(directory.resolve("20200101-14.cq4"));
+        Files.createFile(directory.resolve("20200101-14.cq4.gz"));
+        Files.createFile(directory.resolve("20200101-15.cq4.gz.tmp"));
+        Files.createDirectory(directory.resolve("20200101-16.cq4.gz"));
+
+        assertThat(CycleArchive.listArchives(directory)).containsExactly(first, second);
+    }
+}
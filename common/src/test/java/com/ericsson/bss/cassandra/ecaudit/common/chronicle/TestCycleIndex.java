@@ -0,0 +1,140 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.common.chronicle;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.ericsson.bss.cassandra.ecaudit.common.record.StoredAuditRecord;
+import net.openhft.chronicle.queue.RollCycles;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TestCycleIndex
+{
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testIndexNames()
+    {
+        Path cycleFile = temporaryFolder.getRoot().toPath().resolve("20200101-12.cq4");
+
+        assertThat(CycleIndex.indexOf(cycleFile)).hasFileName("20200101-12.cq4.idx");
+        assertThat(CycleIndex.indexOf(CycleArchive.archiveOf(cycleFile))).isEqualTo(CycleIndex.indexOf(cycleFile));
+    }
+
+    @Test
+    public void testCycleOfFile()
+    {
+        File directory = temporaryFolder.getRoot();
+        int cycle = CycleIndex.cycleOf(new File(directory, "20200101-12.cq4"), RollCycles.HOURLY);
+
+        assertThat(CycleIndex.indexOf(directory.toPath(), RollCycles.HOURLY, cycle)).hasFileName("20200101-12.cq4.idx");
+        assertThat(CycleIndex.cycleOf(new File(directory, "20200101-13.cq4"), RollCycles.HOURLY)).isEqualTo(cycle + 1);
+    }
+
+    @Test
+    public void testTablesOfStatements()
+    {
+        assertThat(CycleIndex.tablesOf("SELECT * FROM ks.tbl WHERE key = 1")).containsExactly("ks.tbl");
+        assertThat(CycleIndex.tablesOf("insert into KS.Tbl (key) values (1)")).containsExactly("ks.tbl");
+        assertThat(CycleIndex.tablesOf("UPDATE \"Ks\".\"My\"\"Tbl\" SET value = 1")).containsExactly("Ks.My\"Tbl");
+        assertThat(CycleIndex.tablesOf("CREATE TABLE IF NOT EXISTS ks.tbl (key int PRIMARY KEY)")).containsExactly("ks.tbl");
+        assertThat(CycleIndex.tablesOf("TRUNCATE TABLE ks.tbl")).containsExactly("ks.tbl");
+        assertThat(CycleIndex.tablesOf("DELETE FROM tbl WHERE key = 1")).containsExactly("tbl");
+        assertThat(CycleIndex.tablesOf("BEGIN BATCH INSERT INTO ks.a (key) VALUES (1); UPDATE ks.b SET value = 1 WHERE key = 1; APPLY BATCH;"))
+        .containsExactly("ks.a", "ks.b");
+        assertThat(CycleIndex.tablesOf("Authentication attempt")).isEmpty();
+    }
+
+    @Test
+    public void testTableNames()
+    {
+        assertThat(CycleIndex.tableNameOf("KS.Tbl")).isEqualTo("ks.tbl");
+        assertThat(CycleIndex.tableNameOf("\"Ks\".tbl")).isEqualTo("Ks.tbl");
+        assertThat(CycleIndex.tableNameOf("tbl")).isEqualTo("tbl");
+        assertThat(CycleIndex.tableNameOf("not a table")).isEqualTo("not a table");
+    }
+
+    @Test
+    public void testTablesOfRecordFallsBackToNakedOperation()
+    {
+        StoredAuditRecord record = StoredAuditRecord.builder().withNakedOperation("SELECT * FROM ks.tbl").build();
+
+        assertThat(CycleIndex.tablesOf(record)).containsExactly("ks.tbl");
+        assertThat(CycleIndex.tablesOf(StoredAuditRecord.builder().build())).isEmpty();
+    }
+
+    @Test
+    public void testWriteAndRead() throws Exception
+    {
+        CycleIndex index = CycleIndex.builder(42)
+                                     .add(100, Collections.singletonList(record("john", 60_000, "SELECT * FROM ks.a")), true)
+                                     .add(101, Collections.singletonList(record("jane", 60_500, "SELECT * FROM ks.b")), false)
+                                     .add(102, Arrays.asList(record("john", 180_000, "INSERT INTO ks.a (key) VALUES (1)"),
+                                                             record("john", 180_000, "INSERT INTO ks.b (key) VALUES (1)")), true)
+                                     .build();
+        Path file = temporaryFolder.getRoot().toPath().resolve("20200101-12.cq4.idx");
+
+        index.write(file);
+        CycleIndex read = CycleIndex.read(file);
+
+        assertThat(temporaryFolder.getRoot().list()).containsOnly("20200101-12.cq4.idx");
+        assertThat(read.cycle()).isEqualTo(42);
+        assertThat(read.recordCount()).isEqualTo(3);
+        assertThat(read.lastIndex()).isEqualTo(102);
+        assertThat(read.minTimestamp()).isEqualTo(60_000);
+        assertThat(read.maxTimestamp()).isEqualTo(180_000);
+        assertThat(read.recordsOfUser("john")).containsExactly(100, 102);
+        assertThat(read.recordsOfUser("jane")).containsExactly(101);
+        assertThat(read.recordsOfUser("other")).isEmpty();
+        assertThat(read.recordsOfTable("ks.a")).containsExactly(100, 102);
+        assertThat(read.recordsOfTable("ks.b")).containsExactly(101, 102);
+        assertThat(read.recordsWithDefinitions()).containsExactly(100, 102);
+    }
+
+    @Test
+    public void testFirstIndexFromTimestamp()
+    {
+        CycleIndex index = CycleIndex.builder(42)
+                                     .add(100, Collections.singletonList(record("john", 60_000, "op")), false)
+                                     .add(101, Collections.singletonList(record("john", 185_000, "op")), false)
+                                     .add(102, Collections.singletonList(record("john", 125_000, "op")), false)
+                                     .build();
+
+        assertThat(index.firstIndexFrom(0)).hasValue(100);
+        assertThat(index.firstIndexFrom(90_000)).hasValue(100);
+        assertThat(index.firstIndexFrom(120_000)).hasValue(101);
+        assertThat(index.firstIndexFrom(180_000)).hasValue(101);
+        assertThat(index.firstIndexFrom(240_000)).isEmpty();
+    }
+
+    private static StoredAuditRecord record(String user, long timestamp, String operation)
+    {
+        return StoredAuditRecord.builder()
+                                .withUser(user)
+                                .withTimestamp(timestamp)
+                                .withOperation(operation)
+                                .build();
+    }
+}
@@ -0,0 +1,374 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.common.chronicle;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.ericsson.bss.cassandra.ecaudit.common.record.AuditOperation;
+import com.ericsson.bss.cassandra.ecaudit.common.record.AuditRecord;
+import com.ericsson.bss.cassandra.ecaudit.common.record.BoundValue;
+import com.ericsson.bss.cassandra.ecaudit.common.record.BoundValueType;
+import com.ericsson.bss.cassandra.ecaudit.common.record.SimpleAuditOperation;
+import com.ericsson.bss.cassandra.ecaudit.common.record.SimpleAuditRecord;
+import com.ericsson.bss.cassandra.ecaudit.common.record.SimplePreparedAuditOperation;
+import com.ericsson.bss.cassandra.ecaudit.common.record.Status;
+import com.ericsson.bss.cassandra.ecaudit.common.record.StoredAuditRecord;
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.core.io.IORuntimeException;
+import net.openhft.chronicle.queue.ChronicleQueue;
+import net.openhft.chronicle.queue.ChronicleQueueBuilder;
+import net.openhft.chronicle.queue.ExcerptAppender;
+import net.openhft.chronicle.queue.ExcerptTailer;
+import net.openhft.chronicle.wire.DocumentContext;
+import net.openhft.chronicle.wire.Wire;
+import net.openhft.chronicle.wire.WireType;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+public class TestDictionaryEncoding
+{
+    private static final String PREPARED_STATEMENT = "INSERT INTO ks.tbl (key, value) VALUES (?, ?)";
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private ChronicleQueue chronicleQueue;
+    private ExcerptAppender appender;
+
+    @Before
+    public void before()
+    {
+        chronicleQueue = ChronicleQueueBuilder.single(temporaryFolder.getRoot()).blockSize(1024).build();
+        appender = chronicleQueue.acquireAppender();
+    }
+
+    @After
+    public void after()
+    {
+        chronicleQueue.close();
+    }
+
+    @Test
+    public void writeReadSingle() throws Exception
+    {
+        AuditRecord expectedAuditRecord = likeGenericRecord().withStatus(Status.FAILED).build();
+
+        appender.writeDocument(new AuditRecordWriteMarshallable(expectedAuditRecord, FieldSelector.DEFAULT_FIELDS, new WriteDictionary()));
+
+        List<StoredAuditRecord> actualAuditRecords = readAll(new ReadDictionary(), 1);
+        assertThatRecordsMatch(actualAuditRecords.get(0), expectedAuditRecord);
+    }
+
+    @Test
+    public void writeReadPreparedOperation() throws Exception
+    {
+        WriteDictionary dictionary = new WriteDictionary();
+        AuditRecord firstAuditRecord = likeGenericRecord().withOperation(new PreparedOperation("['1', 'a']")).build();
+        AuditRecord secondAuditRecord = likeGenericRecord().withOperation(new PreparedOperation("['2', 'b']")).build();
+
+        appender.writeDocument(new AuditRecordWriteMarshallable(firstAuditRecord, FieldSelector.ALL_FIELDS, dictionary));
+        appender.writeDocument(new AuditRecordWriteMarshallable(secondAuditRecord, FieldSelector.ALL_FIELDS, dictionary));
+
+        List<StoredAuditRecord> actualAuditRecords = readAll(new ReadDictionary(), 2);
+        assertThatRecordsMatch(actualAuditRecords.get(0), firstAuditRecord);
+        assertThat(actualAuditRecords.get(0).getNakedOperation()).contains(PREPARED_STATEMENT);
+        assertThatRecordsMatch(actualAuditRecords.get(1), secondAuditRecord);
+        assertThat(actualAuditRecords.get(1).getNakedOperation()).contains(PREPARED_STATEMENT);
+    }
+
+    @Test
+    public void writeReadOperationNotStartingWithNakedOperation() throws Exception
+    {
+        AuditRecord expectedAuditRecord = likeGenericRecord().withOperation(new AuditOperation()
+        {
+            @Override
+            public String getOperationString()
+            {
+                return "CREATE ROLE bob WITH PASSWORD '*****'";
+            }
+
+            @Override
+            public String getNakedOperationString()
+            {
+                return "CREATE ROLE";
+            }
+        }).build();
+
+        appender.writeDocument(new AuditRecordWriteMarshallable(expectedAuditRecord, FieldSelector.ALL_FIELDS, new WriteDictionary()));
+
+        StoredAuditRecord actualAuditRecord = readAll(new ReadDictionary(), 1).get(0);
+        assertThatRecordsMatch(actualAuditRecord, expectedAuditRecord);
+        assertThat(actualAuditRecord.getNakedOperation()).contains("CREATE ROLE");
+    }
+
+    @Test
+    public void writeReadCompactBatch() throws Exception
+    {
+        WriteDictionary dictionary = new WriteDictionary();
+        UUID batchId = UUID.randomUUID();
+        long timestamp = System.currentTimeMillis();
+        List<AuditRecord> expectedAuditRecords = Arrays.asList(likeGenericRecord().withBatchId(batchId).withTimestamp(timestamp).build(),
+                                                               likeGenericRecord().withBatchId(batchId).withTimestamp(timestamp).withOperation(new SimpleAuditOperation("INSERT SOMETHING")).build(),
+                                                               likeGenericRecord().withBatchId(batchId).withTimestamp(timestamp).build());
+
+        appender.writeDocument(new AuditBatchWriteMarshallable(expectedAuditRecords, FieldSelector.DEFAULT_FIELDS, dictionary));
+
+        List<StoredAuditRecord> actualAuditRecords = readAll(new ReadDictionary(), 3);
+        for (int i = 0; i < expectedAuditRecords.size(); i++)
+        {
+            assertThatRecordsMatch(actualAuditRecords.get(i), expectedAuditRecords.get(i));
+        }
+    }
+
+    @Test
+    public void writeReadBoundValues() throws Exception
+    {
+        WriteDictionary dictionary = new WriteDictionary();
+        FieldSelector fields = FieldSelector.DEFAULT_FIELDS.withField(FieldSelector.Field.BOUND_VALUES);
+        UUID batchId = UUID.randomUUID();
+        long timestamp = System.currentTimeMillis();
+        AuditRecord expectedAuditRecord = likeGenericRecord().withOperation(likeBoundOperation(1)).build();
+        List<AuditRecord> expectedBatchRecords = Arrays.asList(likeGenericRecord().withBatchId(batchId).withTimestamp(timestamp).withOperation(likeBoundOperation(2)).build(),
+                                                               likeGenericRecord().withBatchId(batchId).withTimestamp(timestamp).build());
+
+        appender.writeDocument(new AuditRecordWriteMarshallable(expectedAuditRecord, fields, dictionary));
+        appender.writeDocument(new AuditBatchWriteMarshallable(expectedBatchRecords, fields, dictionary));
+
+        List<StoredAuditRecord> actualAuditRecords = readAll(new ReadDictionary(), 3);
+        assertThatRecordsMatch(actualAuditRecords.get(0), expectedAuditRecord);
+        assertThat(actualAuditRecords.get(0).getOperation()).contains(PREPARED_STATEMENT + "[1, 'a']");
+        assertThatRecordsMatch(actualAuditRecords.get(1), expectedBatchRecords.get(0));
+        assertThatRecordsMatch(actualAuditRecords.get(2), expectedBatchRecords.get(1));
+    }
+
+    @Test
+    public void repeatedValuesAreReferencedOnly() throws Exception
+    {
+        WriteDictionary dictionary = new WriteDictionary();
+        AuditRecord auditRecord = likeGenericRecord().withOperation(new SimpleAuditOperation(PREPARED_STATEMENT)).build();
+
+        appender.writeDocument(new AuditRecordWriteMarshallable(auditRecord, FieldSelector.DEFAULT_FIELDS, dictionary));
+        appender.writeDocument(new AuditRecordWriteMarshallable(auditRecord, FieldSelector.DEFAULT_FIELDS, dictionary));
+        appender.writeDocument(new AuditRecordWriteMarshallable(auditRecord, FieldSelector.DEFAULT_FIELDS));
+
+        ExcerptTailer tailer = chronicleQueue.createTailer();
+        long definingSize = recordSize(tailer);
+        long referringSize = recordSize(tailer);
+        long selfContainedSize = recordSize(tailer);
+
+        assertThat(referringSize).isLessThan(definingSize - PREPARED_STATEMENT.length());
+        assertThat(referringSize).isLessThan(selfContainedSize);
+    }
+
+    @Test
+    public void dictionaryIsResetWhenFull() throws Exception
+    {
+        WriteDictionary dictionary = new WriteDictionary(2, false);
+        List<AuditRecord> expectedAuditRecords = Arrays.asList(likeGenericRecord().build(),
+                                                               likeGenericRecord().withOperation(new SimpleAuditOperation("INSERT SOMETHING")).build(),
+                                                               likeGenericRecord().withUser("alice").build());
+
+        for (AuditRecord auditRecord : expectedAuditRecords)
+        {
+            appender.writeDocument(new AuditRecordWriteMarshallable(auditRecord, FieldSelector.DEFAULT_FIELDS, dictionary));
+        }
+
+        List<StoredAuditRecord> actualAuditRecords = readAll(new ReadDictionary(), 3);
+        for (int i = 0; i < expectedAuditRecords.size(); i++)
+        {
+            assertThatRecordsMatch(actualAuditRecords.get(i), expectedAuditRecords.get(i));
+        }
+    }
+
+    @Test
+    public void valuesOfFailedRecordAreDefinedAgain() throws Exception
+    {
+        WriteDictionary dictionary = new WriteDictionary(WriteDictionary.DEFAULT_MAX_SIZE, true);
+        AuditRecord failingAuditRecord = likeGenericRecord().withOperation(new FailingOperation()).build();
+        AuditRecord expectedAuditRecord = likeGenericRecord().build();
+
+        try (DocumentContext documentContext = appender.writingDocument())
+        {
+            assertThatExceptionOfType(IllegalStateException.class)
+            .isThrownBy(() -> new AuditRecordWriteMarshallable(failingAuditRecord, FieldSelector.DEFAULT_FIELDS, dictionary).writeMarshallable(documentContext.wire()));
+            documentContext.rollbackOnClose();
+        }
+        appender.writeDocument(new AuditRecordWriteMarshallable(expectedAuditRecord, FieldSelector.DEFAULT_FIELDS, dictionary));
+
+        List<StoredAuditRecord> actualAuditRecords = readAll(new ReadDictionary(), 1);
+        assertThatRecordsMatch(actualAuditRecords.get(0), expectedAuditRecord);
+    }
+
+    @Test
+    public void selfContainedOutsideOfCycleFile() throws Exception
+    {
+        AuditRecord expectedAuditRecord = likeGenericRecord().build();
+        Wire wire = WireType.BINARY_LIGHT.apply(Bytes.elasticHeapByteBuffer(256));
+
+        new AuditRecordWriteMarshallable(expectedAuditRecord, FieldSelector.DEFAULT_FIELDS, new WriteDictionary()).writeMarshallable(wire);
+
+        AuditRecordReadMarshallable readMarshallable = new AuditRecordReadMarshallable();
+        readMarshallable.readMarshallable(wire);
+        assertThatRecordsMatch(readMarshallable.getAuditRecord(), expectedAuditRecord);
+    }
+
+    @Test
+    public void recoverDefinitionsWhenStartingMidCycle() throws Exception
+    {
+        WriteDictionary dictionary = new WriteDictionary();
+        AuditRecord firstAuditRecord = likeGenericRecord().build();
+        AuditRecord secondAuditRecord = likeGenericRecord().withStatus(Status.FAILED).build();
+        appender.writeDocument(new AuditRecordWriteMarshallable(firstAuditRecord, FieldSelector.DEFAULT_FIELDS, dictionary));
+        appender.writeDocument(new AuditRecordWriteMarshallable(secondAuditRecord, FieldSelector.DEFAULT_FIELDS, dictionary));
+
+        ExcerptTailer tailer = chronicleQueue.createTailer();
+        tailer.readingDocument().close();
+        AtomicInteger recoveries = new AtomicInteger();
+        ReadDictionary readDictionary = new ReadDictionary(tailer::cycle, (recovering, cycle) -> {
+            recoveries.incrementAndGet();
+            chronicleQueue.createTailer().readDocument(recovering.definitionReader());
+        });
+
+        AuditRecordReadMarshallable readMarshallable = new AuditRecordReadMarshallable(readDictionary);
+        tailer.readDocument(readMarshallable);
+
+        assertThatRecordsMatch(readMarshallable.getAuditRecord(), secondAuditRecord);
+        assertThat(recoveries).hasValue(1);
+    }
+
+    @Test
+    public void unknownReferenceWithoutRecovery() throws Exception
+    {
+        WriteDictionary dictionary = new WriteDictionary();
+        AuditRecord auditRecord = likeGenericRecord().build();
+        appender.writeDocument(new AuditRecordWriteMarshallable(auditRecord, FieldSelector.DEFAULT_FIELDS, dictionary));
+        appender.writeDocument(new AuditRecordWriteMarshallable(auditRecord, FieldSelector.DEFAULT_FIELDS, dictionary));
+
+        ExcerptTailer tailer = chronicleQueue.createTailer();
+        tailer.readingDocument().close();
+
+        assertThatExceptionOfType(IORuntimeException.class)
+        .isThrownBy(() -> tailer.readDocument(new AuditRecordReadMarshallable()))
+        .withMessageContaining("unknown dictionary reference");
+    }
+
+    private List<StoredAuditRecord> readAll(ReadDictionary dictionary, int expectedCount)
+    {
+        ExcerptTailer tailer = chronicleQueue.createTailer();
+        List<StoredAuditRecord> auditRecords = new ArrayList<>();
+        AuditRecordReadMarshallable readMarshallable = new AuditRecordReadMarshallable(dictionary);
+        while (tailer.readDocument(readMarshallable))
+        {
+            auditRecords.addAll(readMarshallable.getAuditRecords());
+            readMarshallable = new AuditRecordReadMarshallable(dictionary);
+        }
+
+        assertThat(auditRecords).hasSize(expectedCount);
+        return auditRecords;
+    }
+
+    private static long recordSize(ExcerptTailer tailer)
+    {
+        try (DocumentContext documentContext = tailer.readingDocument())
+        {
+            assertThat(documentContext.isPresent()).isTrue();
+            return documentContext.wire().bytes().readRemaining();
+        }
+    }
+
+    private SimpleAuditRecord.Builder likeGenericRecord() throws UnknownHostException
+    {
+        return SimpleAuditRecord
+        .builder()
+        .withClientAddress(new InetSocketAddress(InetAddress.getByName("0.1.2.3"), 876))
+        .withCoordinatorAddress(InetAddress.getByName("4.5.6.7"))
+        .withStatus(Status.ATTEMPT)
+        .withOperation(new SimpleAuditOperation("SELECT SOMETHING"))
+        .withUser("bob")
+        .withTimestamp(System.currentTimeMillis());
+    }
+
+    private void assertThatRecordsMatch(StoredAuditRecord actualAuditRecord, AuditRecord expectedAuditRecord)
+    {
+        assertThat(actualAuditRecord.getBatchId()).isEqualTo(expectedAuditRecord.getBatchId());
+        assertThat(actualAuditRecord.getClientAddress()).contains(expectedAuditRecord.getClientAddress().getAddress());
+        assertThat(actualAuditRecord.getClientPort()).contains(expectedAuditRecord.getClientAddress().getPort());
+        assertThat(actualAuditRecord.getCoordinatorAddress()).contains(expectedAuditRecord.getCoordinatorAddress());
+        assertThat(actualAuditRecord.getStatus()).contains(expectedAuditRecord.getStatus());
+        assertThat(actualAuditRecord.getOperation()).contains(expectedAuditRecord.getOperation().getOperationString());
+        assertThat(actualAuditRecord.getUser()).contains(expectedAuditRecord.getUser());
+        assertThat(actualAuditRecord.getTimestamp()).contains(expectedAuditRecord.getTimestamp());
+    }
+
+    private static SimplePreparedAuditOperation likeBoundOperation(int key)
+    {
+        return new SimplePreparedAuditOperation(PREPARED_STATEMENT,
+                                                BoundValue.serialized(BoundValueType.INT, ByteBuffer.allocate(4).putInt(0, key)),
+                                                BoundValue.literal("'a'"));
+    }
+
+    private static class PreparedOperation implements AuditOperation
+    {
+        private final String boundValues;
+
+        PreparedOperation(String boundValues)
+        {
+            this.boundValues = boundValues;
+        }
+
+        @Override
+        public String getOperationString()
+        {
+            return PREPARED_STATEMENT + boundValues;
+        }
+
+        @Override
+        public String getNakedOperationString()
+        {
+            return PREPARED_STATEMENT;
+        }
+    }
+
+    private static class FailingOperation implements AuditOperation
+    {
+        @Override
+        public String getOperationString()
+        {
+            throw new IllegalStateException("Failed to render operation");
+        }
+
+        @Override
+        public String getNakedOperationString()
+        {
+            return PREPARED_STATEMENT;
+        }
+    }
+}
@@ -15,9 +15,18 @@
  */
 package com.ericsson.bss.cassandra.ecaudit.common.chronicle;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
 import org.junit.Test;
 
+import com.ericsson.bss.cassandra.ecaudit.common.record.AuditOperation;
 import com.ericsson.bss.cassandra.ecaudit.common.record.AuditRecord;
+import com.ericsson.bss.cassandra.ecaudit.common.record.BoundValue;
+import com.ericsson.bss.cassandra.ecaudit.common.record.BoundValueType;
+import com.ericsson.bss.cassandra.ecaudit.common.record.SimpleAuditOperation;
 import com.ericsson.bss.cassandra.ecaudit.common.record.SimpleAuditRecord;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -27,12 +36,65 @@ public class TestFieldFilterFlavorAdapter
     @Test
     public void testGetFieldsAvailableInRecord()
     {
-        AuditRecord recordWithoutClientIPAndBatchId = SimpleAuditRecord.builder().build();
+        AuditRecord recordWithoutClientIPAndBatchId = SimpleAuditRecord.builder().withOperation(new SimpleAuditOperation("SELECT SOMETHING")).build();
 
         FieldSelector fields = FieldFilterFlavorAdapter.getFieldsAvailableInRecord(recordWithoutClientIPAndBatchId, FieldSelector.ALL_FIELDS);
 
         assertThat(fields.isSelected(FieldSelector.Field.CLIENT_IP)).isFalse();
         assertThat(fields.isSelected(FieldSelector.Field.CLIENT_PORT)).isFalse();
         assertThat(fields.isSelected(FieldSelector.Field.BATCH_ID)).isFalse();
+        assertThat(fields.isSelected(FieldSelector.Field.BOUND_VALUES)).isFalse();
+    }
+
+    @Test
+    public void testBoundValuesAvailableInRecord()
+    {
+        AuditRecord recordWithBoundValues = SimpleAuditRecord.builder().withOperation(new PreparedOperation()).build();
+
+        FieldSelector fields = FieldFilterFlavorAdapter.getFieldsAvailableInRecord(recordWithBoundValues, FieldSelector.ALL_FIELDS);
+
+        assertThat(fields.isSelected(FieldSelector.Field.BOUND_VALUES)).isTrue();
+    }
+
+    @Test
+    public void testBoundValuesRequireOperation()
+    {
+        AuditRecord recordWithBoundValues = SimpleAuditRecord.builder().withOperation(new PreparedOperation()).build();
+
+        FieldSelector fields = FieldFilterFlavorAdapter.getFieldsAvailableInRecord(recordWithBoundValues, FieldSelector.ALL_FIELDS.withoutField(FieldSelector.Field.OPERATION));
+
+        assertThat(fields.isSelected(FieldSelector.Field.BOUND_VALUES)).isFalse();
+    }
+
+    @Test
+    public void testBoundValuesAvailableInBatch()
+    {
+        AuditRecord recordWithoutBoundValues = SimpleAuditRecord.builder().withOperation(new SimpleAuditOperation("INSERT SOMETHING")).build();
+        AuditRecord recordWithBoundValues = SimpleAuditRecord.builder().withOperation(new PreparedOperation()).build();
+
+        FieldSelector fields = FieldFilterFlavorAdapter.getFieldsAvailableInBatch(Arrays.asList(recordWithoutBoundValues, recordWithBoundValues), FieldSelector.ALL_FIELDS);
+
+        assertThat(fields.isSelected(FieldSelector.Field.BOUND_VALUES)).isTrue();
+    }
+
+    private static class PreparedOperation implements AuditOperation
+    {
+        @Override
+        public String getOperationString()
+        {
+            return "SELECT * FROM ks.tbl WHERE key = ?[42]";
+        }
+
+        @Override
+        public String getNakedOperationString()
+        {
+            return "SELECT * FROM ks.tbl WHERE key = ?";
+        }
+
+        @Override
+        public List<BoundValue> getBoundValues()
+        {
+            return Collections.singletonList(BoundValue.serialized(BoundValueType.INT, ByteBuffer.allocate(4).putInt(0, 42)));
+        }
     }
 }
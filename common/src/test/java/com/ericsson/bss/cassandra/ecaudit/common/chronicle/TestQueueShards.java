@@ -0,0 +1,62 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.common.chronicle;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TestQueueShards
+{
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testShardPath()
+    {
+        Path directory = temporaryFolder.getRoot().toPath();
+
+        assertThat(QueueShards.shardPath(directory, 3)).isEqualTo(directory.resolve("shard-3"));
+    }
+
+    @Test
+    public void testListShardsInOrder() throws Exception
+    {
+        Path directory = temporaryFolder.getRoot().toPath();
+        Path tenth = Files.createDirectory(QueueShards.shardPath(directory, 10));
+        Path second = Files.createDirectory(QueueShards.shardPath(directory, 2));
+        Path first = Files.createDirectory(QueueShards.shardPath(directory, 0));
+        Files.createFile(directory.resolve("shard-1"));
+        Files.createDirectory(directory.resolve("shard-x"));
+        Files.createFile(directory.resolve("20200101-12.cq4"));
+
+        assertThat(QueueShards.listShards(directory)).containsExactly(first, second, tenth);
+    }
+
+    @Test
+    public void testListShardsOfUnshardedLog() throws Exception
+    {
+        Path directory = temporaryFolder.getRoot().toPath();
+        Files.createFile(directory.resolve("20200101-12.cq4"));
+
+        assertThat(QueueShards.listShards(directory)).isEmpty();
+    }
+}
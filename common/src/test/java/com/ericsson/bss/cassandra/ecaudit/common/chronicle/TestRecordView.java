@@ -0,0 +1,205 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.common.chronicle;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Predicate;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.ericsson.bss.cassandra.ecaudit.common.record.AuditRecord;
+import com.ericsson.bss.cassandra.ecaudit.common.record.SimpleAuditOperation;
+import com.ericsson.bss.cassandra.ecaudit.common.record.SimpleAuditRecord;
+import com.ericsson.bss.cassandra.ecaudit.common.record.Status;
+import com.ericsson.bss.cassandra.ecaudit.common.record.StoredAuditRecord;
+import net.openhft.chronicle.core.io.IORuntimeException;
+import net.openhft.chronicle.queue.ChronicleQueue;
+import net.openhft.chronicle.queue.ChronicleQueueBuilder;
+import net.openhft.chronicle.queue.ExcerptAppender;
+import net.openhft.chronicle.queue.ExcerptTailer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+public class TestRecordView
+{
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private ChronicleQueue chronicleQueue;
+    private ExcerptAppender appender;
+
+    @Before
+    public void before()
+    {
+        chronicleQueue = ChronicleQueueBuilder.single(temporaryFolder.getRoot()).blockSize(1024).build();
+        appender = chronicleQueue.acquireAppender();
+    }
+
+    @After
+    public void after()
+    {
+        chronicleQueue.close();
+    }
+
+    @Test
+    public void testFilterUserWithNamedFields() throws Exception
+    {
+        givenRecordsOfUsers(null, "alice", "bob", "alice");
+
+        List<StoredAuditRecord> records = readAll(view -> view.isUser("alice"));
+
+        assertThat(records).extracting(record -> record.getUser().orElse(null)).containsExactly("alice", "alice");
+        assertThat(records).extracting(record -> record.getOperation().orElse(null)).containsExactly("SELECT 0", "SELECT 2");
+    }
+
+    @Test
+    public void testFilterUserWithDictionary() throws Exception
+    {
+        givenRecordsOfUsers(new WriteDictionary(WriteDictionary.DEFAULT_MAX_SIZE, false), "bob", "alice", "bob", "alice");
+
+        List<StoredAuditRecord> records = readAll(view -> view.isUser("alice"));
+
+        assertThat(records).extracting(record -> record.getUser().orElse(null)).containsExactly("alice", "alice");
+        assertThat(records).extracting(record -> record.getOperation().orElse(null)).containsExactly("SELECT 1", "SELECT 3");
+    }
+
+    @Test
+    public void testFilterUserWithCompactLayout() throws Exception
+    {
+        givenRecordsOfUsers(new WriteDictionary(WriteDictionary.DEFAULT_MAX_SIZE, true), "bob", "alice", "bob", "alice");
+
+        List<StoredAuditRecord> records = readAll(view -> view.isUser("alice"));
+
+        // The values of the later records are defined by the skipped records
+        assertThat(records).extracting(record -> record.getUser().orElse(null)).containsExactly("alice", "alice");
+        assertThat(records).extracting(record -> record.getOperation().orElse(null)).containsExactly("SELECT 1", "SELECT 3");
+        assertThat(records).extracting(record -> record.getCoordinatorAddress().orElse(null)).containsOnly(InetAddress.getByName("4.5.6.7"));
+    }
+
+    @Test
+    public void testMatchSharedFieldsWithNamedFields() throws Exception
+    {
+        givenMixedRecords(null);
+        assertThatSharedFieldsMatch();
+    }
+
+    @Test
+    public void testMatchSharedFieldsWithCompactLayout() throws Exception
+    {
+        givenMixedRecords(new WriteDictionary(WriteDictionary.DEFAULT_MAX_SIZE, true));
+        assertThatSharedFieldsMatch();
+    }
+
+    @Test
+    public void testMatchCompactBatch() throws Exception
+    {
+        UUID batchId = UUID.randomUUID();
+        List<AuditRecord> batch = Arrays.asList(likeGenericRecord("alice", 0).withBatchId(batchId).build(),
+                                                likeGenericRecord("alice", 1).withBatchId(batchId).build());
+        appender.writeDocument(new AuditBatchWriteMarshallable(batch, FieldSelector.ALL_FIELDS, new WriteDictionary(WriteDictionary.DEFAULT_MAX_SIZE, true)));
+
+        assertThat(readAll(view -> view.isBatch(batchId))).hasSize(2);
+        assertThat(readAll(view -> view.isBatch(UUID.randomUUID()))).isEmpty();
+    }
+
+    @Test
+    public void testMissingFieldsDoNotMatch() throws Exception
+    {
+        FieldSelector fields = FieldSelector.NO_FIELDS.withField(FieldSelector.Field.OPERATION);
+        appender.writeDocument(new AuditRecordWriteMarshallable(likeGenericRecord("alice", 0).build(), fields));
+
+        List<RecordView> views = new ArrayList<>();
+        readAll(view -> views.add(view) && !view.hasTimestamp() && !view.isUser("alice") && !view.isStatus(Status.ATTEMPT));
+
+        assertThat(views).hasSize(1);
+    }
+
+    @Test
+    public void testStatusOf()
+    {
+        assertThat(RecordView.statusOf(new StringBuilder("FAILED"))).isEqualTo(Status.FAILED);
+        assertThatExceptionOfType(IORuntimeException.class)
+        .isThrownBy(() -> RecordView.statusOf(new StringBuilder("GUCK")))
+        .withMessageContaining("Corrupt record status field");
+    }
+
+    private void assertThatSharedFieldsMatch() throws UnknownHostException
+    {
+        assertThat(readAll(view -> view.isStatus(Status.FAILED))).extracting(record -> record.getOperation().orElse(null)).containsExactly("SELECT 1");
+        InetAddress clientAddress = InetAddress.getByName("0.1.2.9");
+        assertThat(readAll(view -> view.isClientAddress(clientAddress))).extracting(record -> record.getOperation().orElse(null)).containsExactly("SELECT 2");
+        assertThat(readAll(view -> view.hasTimestamp() && view.timestamp() > 1000)).hasSize(2);
+        assertThat(readAll(view -> true)).hasSize(3);
+    }
+
+    private void givenMixedRecords(WriteDictionary dictionary) throws UnknownHostException
+    {
+        List<AuditRecord> records = Arrays.asList(likeGenericRecord("alice", 0).withTimestamp(1000).build(),
+                                                  likeGenericRecord("alice", 1).withStatus(Status.FAILED).build(),
+                                                  likeGenericRecord("alice", 2).withClientAddress(new InetSocketAddress(InetAddress.getByName("0.1.2.9"), 876)).build());
+        for (AuditRecord record : records)
+        {
+            appender.writeDocument(new AuditRecordWriteMarshallable(record, FieldSelector.ALL_FIELDS, dictionary));
+        }
+    }
+
+    private void givenRecordsOfUsers(WriteDictionary dictionary, String... users) throws UnknownHostException
+    {
+        for (int i = 0; i < users.length; i++)
+        {
+            AuditRecord record = likeGenericRecord(users[i], i).build();
+            appender.writeDocument(new AuditRecordWriteMarshallable(record, FieldSelector.DEFAULT_FIELDS, dictionary));
+        }
+    }
+
+    private List<StoredAuditRecord> readAll(Predicate<RecordView> filter)
+    {
+        ExcerptTailer tailer = chronicleQueue.createTailer();
+        ReadDictionary dictionary = new ReadDictionary();
+        RecordView view = new RecordView();
+        List<StoredAuditRecord> auditRecords = new ArrayList<>();
+        AuditRecordReadMarshallable readMarshallable = new AuditRecordReadMarshallable(dictionary, view, filter);
+        while (tailer.readDocument(readMarshallable))
+        {
+            auditRecords.addAll(readMarshallable.getAuditRecords());
+            readMarshallable = new AuditRecordReadMarshallable(dictionary, view, filter);
+        }
+        return auditRecords;
+    }
+
+    private static SimpleAuditRecord.Builder likeGenericRecord(String user, int number) throws UnknownHostException
+    {
+        return SimpleAuditRecord
+        .builder()
+        .withClientAddress(new InetSocketAddress(InetAddress.getByName("0.1.2.3"), 876))
+        .withCoordinatorAddress(InetAddress.getByName("4.5.6.7"))
+        .withStatus(Status.ATTEMPT)
+        .withOperation(new SimpleAuditOperation("SELECT " + number))
+        .withUser(user)
+        .withTimestamp(System.currentTimeMillis());
+    }
+}
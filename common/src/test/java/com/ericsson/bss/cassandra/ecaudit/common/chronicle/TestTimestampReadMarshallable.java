@@ -0,0 +1,145 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.common.chronicle;
+
+import java.io.File;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.UUID;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.ericsson.bss.cassandra.ecaudit.common.record.SimpleAuditOperation;
+import com.ericsson.bss.cassandra.ecaudit.common.record.SimpleAuditRecord;
+import com.ericsson.bss.cassandra.ecaudit.common.record.Status;
+import net.openhft.chronicle.queue.ChronicleQueue;
+import net.openhft.chronicle.queue.ChronicleQueueBuilder;
+import net.openhft.chronicle.queue.ExcerptAppender;
+import net.openhft.chronicle.queue.ExcerptTailer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TestTimestampReadMarshallable
+{
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private ChronicleQueue chronicleQueue;
+    private ExcerptAppender appender;
+
+    @Before
+    public void before()
+    {
+        chronicleQueue = ChronicleQueueBuilder.single(temporaryFolder.getRoot()).blockSize(1024).build();
+        appender = chronicleQueue.acquireAppender();
+    }
+
+    @After
+    public void after()
+    {
+        chronicleQueue.close();
+    }
+
+    @Test
+    public void testNamedFields() throws Exception
+    {
+        appender.writeDocument(new AuditRecordWriteMarshallable(likeGenericRecord(1000L).build(), FieldSelector.DEFAULT_FIELDS));
+        appender.writeDocument(new AuditRecordWriteMarshallable(likeGenericRecord(2000L).build(), FieldSelector.DEFAULT_FIELDS, new WriteDictionary()));
+
+        TimestampReadMarshallable marshallable = new TimestampReadMarshallable(() -> 0L);
+        ExcerptTailer tailer = chronicleQueue.createTailer();
+
+        tailer.readDocument(marshallable);
+        assertThat(marshallable.getTimestamp()).hasValue(1000L);
+        tailer.readDocument(marshallable);
+        assertThat(marshallable.getTimestamp()).hasValue(2000L);
+        assertThat(marshallable.getDefinedBaseTimestamp()).isEmpty();
+    }
+
+    @Test
+    public void testCompactBatch() throws Exception
+    {
+        UUID batchId = UUID.randomUUID();
+        appender.writeDocument(new AuditBatchWriteMarshallable(Arrays.asList(likeGenericRecord(3000L).withBatchId(batchId).build(),
+                                                                             likeGenericRecord(3000L).withBatchId(batchId).build()),
+                                                               FieldSelector.DEFAULT_FIELDS));
+
+        TimestampReadMarshallable marshallable = new TimestampReadMarshallable(() -> 0L);
+        chronicleQueue.createTailer().readDocument(marshallable);
+
+        assertThat(marshallable.getTimestamp()).hasValue(3000L);
+    }
+
+    @Test
+    public void testCompactLayoutWithSuppliedBaseTimestamp() throws Exception
+    {
+        WriteDictionary dictionary = new WriteDictionary(WriteDictionary.DEFAULT_MAX_SIZE, true);
+        appender.writeDocument(new AuditRecordWriteMarshallable(likeGenericRecord(5000L).build(), FieldSelector.DEFAULT_FIELDS, dictionary));
+        appender.writeDocument(new AuditRecordWriteMarshallable(likeGenericRecord(5042L).build(), FieldSelector.DEFAULT_FIELDS, dictionary));
+
+        TimestampReadMarshallable marshallable = new TimestampReadMarshallable(() -> 5000L);
+        ExcerptTailer tailer = chronicleQueue.createTailer();
+
+        tailer.readDocument(marshallable);
+        assertThat(marshallable.getDefinedBaseTimestamp()).hasValue(5000L);
+        assertThat(marshallable.getTimestamp()).hasValue(5000L);
+        tailer.readDocument(marshallable);
+        assertThat(marshallable.getDefinedBaseTimestamp()).isEmpty();
+        assertThat(marshallable.getTimestamp()).hasValue(5042L);
+    }
+
+    @Test
+    public void testWithoutTimestampField() throws Exception
+    {
+        FieldSelector fields = FieldSelector.DEFAULT_FIELDS.withoutField(FieldSelector.Field.TIMESTAMP);
+        appender.writeDocument(new AuditRecordWriteMarshallable(likeGenericRecord(1000L).build(), fields));
+
+        TimestampReadMarshallable marshallable = new TimestampReadMarshallable(() -> 0L);
+        chronicleQueue.createTailer().readDocument(marshallable);
+
+        assertThat(marshallable.getTimestamp()).isEmpty();
+    }
+
+    @Test
+    public void testVersion0() throws Exception
+    {
+        try (ChronicleQueue queueVersion0 = ChronicleQueueBuilder.single(new File("src/test/resources/q0")).blockSize(1024).readOnly(true).build())
+        {
+            TimestampReadMarshallable marshallable = new TimestampReadMarshallable(() -> 0L);
+            queueVersion0.createTailer().readDocument(marshallable);
+
+            assertThat(marshallable.getTimestamp()).hasValue(1554188832323L);
+        }
+    }
+
+    private SimpleAuditRecord.Builder likeGenericRecord(long timestamp) throws UnknownHostException
+    {
+        return SimpleAuditRecord
+        .builder()
+        .withClientAddress(new InetSocketAddress(InetAddress.getByName("0.1.2.3"), 876))
+        .withCoordinatorAddress(InetAddress.getByName("4.5.6.7"))
+        .withStatus(Status.ATTEMPT)
+        .withOperation(new SimpleAuditOperation("SELECT SOMETHING"))
+        .withUser("bob")
+        .withTimestamp(timestamp);
+    }
+}
@@ -18,6 +18,10 @@ package com.ericsson.bss.cassandra.ecaudit.common.chronicle;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
 import java.util.UUID;
 
 import org.junit.After;
@@ -26,9 +30,13 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
+import com.ericsson.bss.cassandra.ecaudit.common.chronicle.FieldSelector.Field;
 import com.ericsson.bss.cassandra.ecaudit.common.record.AuditRecord;
+import com.ericsson.bss.cassandra.ecaudit.common.record.BoundValue;
+import com.ericsson.bss.cassandra.ecaudit.common.record.BoundValueType;
 import com.ericsson.bss.cassandra.ecaudit.common.record.SimpleAuditOperation;
 import com.ericsson.bss.cassandra.ecaudit.common.record.SimpleAuditRecord;
+import com.ericsson.bss.cassandra.ecaudit.common.record.SimplePreparedAuditOperation;
 import com.ericsson.bss.cassandra.ecaudit.common.record.Status;
 import com.ericsson.bss.cassandra.ecaudit.common.record.StoredAuditRecord;
 import net.openhft.chronicle.core.io.IORuntimeException;
@@ -84,6 +92,109 @@ public class TestWriteReadVersionCurrent
         assertThatRecordsMatch(actualAuditRecord, expectedAuditRecord);
     }
 
+    @Test
+    public void writeReadCompactBatch() throws Exception
+    {
+        UUID batchId = UUID.randomUUID();
+        long timestamp = System.currentTimeMillis();
+        List<AuditRecord> expectedAuditRecords = Arrays.asList(likeGenericRecord().withBatchId(batchId).withTimestamp(timestamp).build(),
+                                                               likeGenericRecord().withBatchId(batchId).withTimestamp(timestamp).withOperation(new SimpleAuditOperation("INSERT SOMETHING")).build());
+
+        ExcerptAppender appender = chronicleQueue.acquireAppender();
+        appender.writeDocument(new AuditBatchWriteMarshallable(expectedAuditRecords, FieldSelector.DEFAULT_FIELDS));
+
+        AuditRecordReadMarshallable readMarshallable = new AuditRecordReadMarshallable();
+        chronicleQueue.createTailer().readDocument(readMarshallable);
+        List<StoredAuditRecord> actualAuditRecords = readMarshallable.getAuditRecords();
+
+        assertThat(actualAuditRecords).hasSize(2);
+        assertThatRecordsMatch(actualAuditRecords.get(0), expectedAuditRecords.get(0));
+        assertThatRecordsMatch(actualAuditRecords.get(1), expectedAuditRecords.get(1));
+        assertThatExceptionOfType(IllegalStateException.class)
+        .isThrownBy(readMarshallable::getAuditRecord);
+    }
+
+    @Test
+    public void writeReadBoundValues() throws Exception
+    {
+        AuditRecord expectedAuditRecord = likeGenericRecord().withOperation(likePreparedOperation()).build();
+
+        writeAuditRecordToChronicle(expectedAuditRecord, FieldSelector.DEFAULT_FIELDS.withField(Field.BOUND_VALUES));
+
+        StoredAuditRecord actualAuditRecord = readAuditRecordFromChronicle();
+
+        assertThatRecordsMatch(actualAuditRecord, expectedAuditRecord);
+        assertThat(actualAuditRecord.getOperation()).contains("UPDATE ks.tbl SET value = ? WHERE key = ?['Kalle', 42, <blob>]");
+    }
+
+    @Test
+    public void writeReadCompactBatchBoundValues() throws Exception
+    {
+        UUID batchId = UUID.randomUUID();
+        long timestamp = System.currentTimeMillis();
+        List<AuditRecord> expectedAuditRecords = Arrays.asList(likeGenericRecord().withBatchId(batchId).withTimestamp(timestamp).withOperation(new SimpleAuditOperation("INSERT SOMETHING")).build(),
+                                                               likeGenericRecord().withBatchId(batchId).withTimestamp(timestamp).withOperation(likePreparedOperation()).build());
+
+        ExcerptAppender appender = chronicleQueue.acquireAppender();
+        appender.writeDocument(new AuditBatchWriteMarshallable(expectedAuditRecords, FieldSelector.DEFAULT_FIELDS.withField(Field.BOUND_VALUES)));
+
+        AuditRecordReadMarshallable readMarshallable = new AuditRecordReadMarshallable();
+        chronicleQueue.createTailer().readDocument(readMarshallable);
+        List<StoredAuditRecord> actualAuditRecords = readMarshallable.getAuditRecords();
+
+        assertThat(actualAuditRecords).hasSize(2);
+        assertThatRecordsMatch(actualAuditRecords.get(0), expectedAuditRecords.get(0));
+        assertThatRecordsMatch(actualAuditRecords.get(1), expectedAuditRecords.get(1));
+    }
+
+    @Test
+    public void writeReadSequenced() throws Exception
+    {
+        AuditRecord expectedAuditRecord = likeGenericRecord().build();
+
+        ExcerptAppender appender = chronicleQueue.acquireAppender();
+        appender.writeDocument(new SequencedWriteMarshallable(new AuditRecordWriteMarshallable(expectedAuditRecord, FieldSelector.DEFAULT_FIELDS), 17));
+
+        AuditRecordReadMarshallable readMarshallable = new AuditRecordReadMarshallable();
+        chronicleQueue.createTailer().readDocument(readMarshallable);
+
+        assertThatRecordsMatch(readMarshallable.getAuditRecord(), expectedAuditRecord);
+        assertThat(readMarshallable.getSequence()).contains(17L);
+    }
+
+    @Test
+    public void writeReadSequencedWithDictionary() throws Exception
+    {
+        AuditRecord expectedAuditRecord = likeGenericRecord().build();
+        WriteDictionary dictionary = new WriteDictionary(WriteDictionary.DEFAULT_MAX_SIZE, true);
+
+        ExcerptAppender appender = chronicleQueue.acquireAppender();
+        appender.writeDocument(new SequencedWriteMarshallable(new AuditRecordWriteMarshallable(expectedAuditRecord, FieldSelector.DEFAULT_FIELDS, dictionary), 1));
+        appender.writeDocument(new SequencedWriteMarshallable(new AuditRecordWriteMarshallable(expectedAuditRecord, FieldSelector.DEFAULT_FIELDS, dictionary), 2));
+
+        ReadDictionary readDictionary = new ReadDictionary();
+        ExcerptTailer tailer = chronicleQueue.createTailer();
+        AuditRecordReadMarshallable firstMarshallable = new AuditRecordReadMarshallable(readDictionary);
+        tailer.readDocument(firstMarshallable);
+        AuditRecordReadMarshallable secondMarshallable = new AuditRecordReadMarshallable(readDictionary);
+        tailer.readDocument(secondMarshallable);
+
+        assertThat(firstMarshallable.getSequence()).contains(1L);
+        assertThatRecordsMatch(secondMarshallable.getAuditRecord(), expectedAuditRecord);
+        assertThat(secondMarshallable.getSequence()).contains(2L);
+    }
+
+    @Test
+    public void readWithoutSequence() throws Exception
+    {
+        writeAuditRecordToChronicle(likeGenericRecord().build());
+
+        AuditRecordReadMarshallable readMarshallable = new AuditRecordReadMarshallable();
+        chronicleQueue.createTailer().readDocument(readMarshallable);
+
+        assertThat(readMarshallable.getSequence()).isEmpty();
+    }
+
     @Test
     public void tryReuseOnRead() throws Exception
     {
@@ -114,9 +225,22 @@ public class TestWriteReadVersionCurrent
         .withTimestamp(System.currentTimeMillis());
     }
 
+    private static SimplePreparedAuditOperation likePreparedOperation()
+    {
+        return new SimplePreparedAuditOperation("UPDATE ks.tbl SET value = ? WHERE key = ?",
+                                                BoundValue.serialized(BoundValueType.TEXT, ByteBuffer.wrap("Kalle".getBytes(StandardCharsets.UTF_8))),
+                                                BoundValue.serialized(BoundValueType.INT, ByteBuffer.allocate(4).putInt(0, 42)),
+                                                BoundValue.literal("<blob>"));
+    }
+
     private void writeAuditRecordToChronicle(AuditRecord auditRecord)
     {
-        WriteMarshallable writeMarshallable = new AuditRecordWriteMarshallable(auditRecord, FieldSelector.DEFAULT_FIELDS);
+        writeAuditRecordToChronicle(auditRecord, FieldSelector.DEFAULT_FIELDS);
+    }
+
+    private void writeAuditRecordToChronicle(AuditRecord auditRecord, FieldSelector fields)
+    {
+        WriteMarshallable writeMarshallable = new AuditRecordWriteMarshallable(auditRecord, fields);
 
         ExcerptAppender appender = chronicleQueue.acquireAppender();
         appender.writeDocument(writeMarshallable);
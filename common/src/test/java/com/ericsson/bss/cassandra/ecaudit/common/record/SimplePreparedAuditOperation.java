@@ -0,0 +1,51 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.common.record;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class SimplePreparedAuditOperation implements AuditOperation
+{
+    private final String preparedStatement;
+    private final List<BoundValue> boundValues;
+
+    public SimplePreparedAuditOperation(String preparedStatement, BoundValue... boundValues)
+    {
+        this.preparedStatement = preparedStatement;
+        this.boundValues = Arrays.asList(boundValues);
+    }
+
+    @Override
+    public String getOperationString()
+    {
+        List<String> literals = boundValues.stream().map(BoundValue::toCqlLiteral).collect(Collectors.toList());
+        return preparedStatement + BoundValue.toCqlLiterals(literals);
+    }
+
+    @Override
+    public String getNakedOperationString()
+    {
+        return preparedStatement;
+    }
+
+    @Override
+    public List<BoundValue> getBoundValues()
+    {
+        return boundValues;
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.common.record;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+public class TestBoundValue
+{
+    @Test
+    public void testSerialized()
+    {
+        ByteBuffer serializedValue = ByteBuffer.allocate(4).putInt(0, 42);
+        BoundValue value = BoundValue.serialized(BoundValueType.INT, serializedValue);
+
+        assertThat(value.getType()).contains(BoundValueType.INT);
+        assertThat(value.getSerializedValue()).isEqualTo(serializedValue);
+        assertThat(value.getSerializedValue().isReadOnly()).isTrue();
+        assertThat(value.toCqlLiteral()).isEqualTo("42");
+    }
+
+    @Test
+    public void testLiteral()
+    {
+        BoundValue value = BoundValue.literal("<text>");
+
+        assertThat(value.getType()).isEmpty();
+        assertThat(value.toCqlLiteral()).isEqualTo("<text>");
+        assertThatExceptionOfType(IllegalStateException.class)
+        .isThrownBy(value::getSerializedValue);
+    }
+
+    @Test
+    public void testToCqlLiterals()
+    {
+        assertThat(BoundValue.toCqlLiterals(Collections.emptyList())).isEmpty();
+        assertThat(BoundValue.toCqlLiterals(Collections.singletonList("'a'"))).isEqualTo("['a']");
+        assertThat(BoundValue.toCqlLiterals(Arrays.asList("'a'", "42", "null"))).isEqualTo("['a', 42, null]");
+    }
+}
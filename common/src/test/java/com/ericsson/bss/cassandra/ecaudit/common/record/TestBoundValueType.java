@@ -0,0 +1,105 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.common.record;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+public class TestBoundValueType
+{
+    private static final ByteBuffer EMPTY_BUFFER = ByteBuffer.allocate(0);
+
+    @Test
+    public void testRenderText()
+    {
+        assertThat(BoundValueType.ASCII.render(ByteBuffer.wrap("Anka".getBytes(StandardCharsets.US_ASCII)))).isEqualTo("'Anka'");
+        assertThat(BoundValueType.TEXT.render(ByteBuffer.wrap("Kalle Åström".getBytes(StandardCharsets.UTF_8)))).isEqualTo("'Kalle Åström'");
+    }
+
+    @Test
+    public void testRenderNumbers()
+    {
+        assertThat(BoundValueType.BIGINT.render(ByteBuffer.allocate(8).putLong(0, Long.MIN_VALUE))).isEqualTo("-9223372036854775808");
+        assertThat(BoundValueType.INT.render(ByteBuffer.allocate(4).putInt(0, -42))).isEqualTo("-42");
+        assertThat(BoundValueType.SMALLINT.render(ByteBuffer.allocate(2).putShort(0, (short) 4711))).isEqualTo("4711");
+        assertThat(BoundValueType.TINYINT.render(ByteBuffer.wrap(new byte[]{ -1 }))).isEqualTo("-1");
+        assertThat(BoundValueType.DOUBLE.render(ByteBuffer.allocate(8).putDouble(0, 1.5))).isEqualTo("1.5");
+        assertThat(BoundValueType.FLOAT.render(ByteBuffer.allocate(4).putFloat(0, 0.1f))).isEqualTo("0.1");
+        assertThat(BoundValueType.VARINT.render(ByteBuffer.wrap(new BigInteger("123456789012345678901234567890").toByteArray()))).isEqualTo("123456789012345678901234567890");
+    }
+
+    @Test
+    public void testRenderDecimal()
+    {
+        BigDecimal decimal = new BigDecimal("-12345.678");
+        byte[] unscaled = decimal.unscaledValue().toByteArray();
+        ByteBuffer value = ByteBuffer.allocate(4 + unscaled.length).putInt(decimal.scale()).put(unscaled);
+        value.flip();
+
+        assertThat(BoundValueType.DECIMAL.render(value)).isEqualTo("-12345.678");
+        assertThat(value.position()).isEqualTo(0);
+    }
+
+    @Test
+    public void testRenderOther() throws Exception
+    {
+        UUID uuid = UUID.fromString("b23534c7-93af-497f-b00c-1edaaa335caa");
+        ByteBuffer uuidValue = ByteBuffer.allocate(16).putLong(0, uuid.getMostSignificantBits()).putLong(8, uuid.getLeastSignificantBits());
+
+        assertThat(BoundValueType.BLOB.render(ByteBuffer.wrap(new byte[]{ 0x0a, (byte) 0xff, 0 }))).isEqualTo("0x0aff00");
+        assertThat(BoundValueType.BOOLEAN.render(ByteBuffer.wrap(new byte[]{ 1 }))).isEqualTo("true");
+        assertThat(BoundValueType.BOOLEAN.render(ByteBuffer.wrap(new byte[]{ 0 }))).isEqualTo("false");
+        assertThat(BoundValueType.INET.render(ByteBuffer.wrap(InetAddress.getByName("1.2.3.4").getAddress()))).isEqualTo("1.2.3.4");
+        assertThat(BoundValueType.TIMESTAMP.render(ByteBuffer.allocate(8).putLong(0, 42))).isEqualTo("1970-01-01T00:00:00.042Z");
+        assertThat(BoundValueType.UUID.render(uuidValue)).isEqualTo("b23534c7-93af-497f-b00c-1edaaa335caa");
+    }
+
+    @Test
+    public void testRenderEmpty()
+    {
+        assertThat(BoundValueType.TEXT.render(EMPTY_BUFFER)).isEqualTo("''");
+        assertThat(BoundValueType.ASCII.render(EMPTY_BUFFER)).isEqualTo("''");
+        assertThat(BoundValueType.INT.render(EMPTY_BUFFER)).isEqualTo("null");
+    }
+
+    @Test
+    public void testCodeRoundTrip()
+    {
+        for (BoundValueType type : BoundValueType.values())
+        {
+            assertThat(BoundValueType.fromCode(type.getCode())).isSameAs(type);
+        }
+    }
+
+    @Test
+    public void testUnknownCode()
+    {
+        assertThatExceptionOfType(IllegalArgumentException.class)
+        .isThrownBy(() -> BoundValueType.fromCode((byte) 0))
+        .withMessageContaining("Unknown bound value type");
+        assertThatExceptionOfType(IllegalArgumentException.class)
+        .isThrownBy(() -> BoundValueType.fromCode((byte) -3));
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import com.google.common.annotations.VisibleForTesting;
+
+import com.ericsson.bss.cassandra.ecaudit.common.record.Status;
+import com.ericsson.bss.cassandra.ecaudit.entry.factory.AuditEntryBuilderFactory;
+import com.ericsson.bss.cassandra.ecaudit.entry.suppressor.BoundValueSuppressor;
+import com.ericsson.bss.cassandra.ecaudit.facade.Auditor;
+import org.apache.cassandra.cql3.BatchQueryOptions;
+import org.apache.cassandra.cql3.CQLStatement;
+import org.apache.cassandra.cql3.QueryOptions;
+import org.apache.cassandra.cql3.statements.BatchStatement;
+import org.apache.cassandra.service.ClientState;
+import org.apache.cassandra.utils.ByteBufferUtil;
+import org.apache.cassandra.utils.MD5Digest;
+
+/**
+ * An {@link AuditAdapter} which builds, filters and logs audit entries on dedicated audit worker threads.
+ * <p>
+ * The request thread only captures an immutable snapshot of the request, i.e. the client information and copies of
+ * the bound values, once per request context and hands it off to the {@link AsyncAuditExecutor} for each status. The
+ * statuses of a request context, or of a batch, are keyed on the context or the batch id, so that they are logged in
+ * order. Since the request may have been answered by the time the entry is logged, audit failures are reported in the
+ * Cassandra log rather than to the client.
+ */
+class AsyncAuditAdapter extends AuditAdapter
+{
+    private static final int NO_PAGING = -1;
+
+    private final AsyncAuditExecutor executor;
+
+    AsyncAuditAdapter(Auditor auditor, AuditEntryBuilderFactory entryBuilderFactory, BoundValueSuppressor boundValueSuppressor,
+                      AsyncAuditExecutor executor)
+    {
+        super(auditor, entryBuilderFactory, boundValueSuppressor);
+        this.executor = executor;
+    }
+
+    @Override
+    public AuditRequestContext createRegularContext(String operation, ClientState state, long timestamp)
+    {
+        return createRegularContext(operation, AuditClient.snapshotOf(state), timestamp);
+    }
+
+    @Override
+    public AuditRequestContext createPreparedContext(MD5Digest id, CQLStatement statement, ClientState state, QueryOptions options, long timestamp)
+    {
+        return createPreparedContext(id, statement, AuditClient.snapshotOf(state), copyOf(options), timestamp);
+    }
+
+    @Override
+    public void audit(AuditRequestContext context, Status status)
+    {
+        if (getAuditor().shouldLogForStatus(status))
+        {
+            executor.submit(context, () -> auditContext(context, status));
+        }
+    }
+
+    @Override
+    public void auditBatch(BatchStatement statement, UUID uuid, ClientState state, BatchQueryOptions options, Status status, long timestamp)
+    {
+        if (getAuditor().shouldLogForStatus(status))
+        {
+            AuditClient client = AuditClient.snapshotOf(state);
+            List<Object> queryOrIdList = new ArrayList<>(options.getQueryOrIdList());
+            List<QueryOptions> optionsCopies = new ArrayList<>(queryOrIdList.size());
+            for (int i = 0; i < queryOrIdList.size(); i++)
+            {
+                optionsCopies.add(copyOf(options.forStatement(i)));
+            }
+            executor.submit(uuid, () -> auditBatch(statement, uuid, client, queryOrIdList, optionsCopies::get, status, timestamp));
+        }
+    }
+
+    /**
+     * Copy the bound values, column specifications and protocol version of the query options.
+     * <p>
+     * The bound values of the original options may refer to buffers which are reused once the request completes.
+     * The protocol version is kept, since bound values are decoded by it. Paging state is not needed for audit.
+     *
+     * @param options the options to copy
+     * @return a detached copy of the options
+     */
+    @VisibleForTesting
+    static QueryOptions copyOf(QueryOptions options)
+    {
+        List<ByteBuffer> values = options.getValues()
+                                         .stream()
+                                         .map(value -> value == null ? null : ByteBufferUtil.clone(value))
+                                         .collect(Collectors.toList());
+
+        QueryOptions copy = QueryOptions.create(options.getConsistency(), values, options.skipMetadata(), NO_PAGING, null,
+                                                options.getSerialConsistency(), options.getProtocolVersion());
+        return options.hasColumnSpecifications()
+               ? QueryOptions.addColumnSpecifications(copy, options.getColumnSpecifications())
+               : copy;
+    }
+}
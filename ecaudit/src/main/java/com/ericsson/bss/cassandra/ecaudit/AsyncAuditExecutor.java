@@ -0,0 +1,237 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ericsson.bss.cassandra.ecaudit.config.AsyncOverflowPolicy;
+import com.ericsson.bss.cassandra.ecaudit.facade.CassandraAuditException;
+import com.ericsson.bss.cassandra.ecaudit.metrics.AsyncAuditMetrics;
+import org.apache.cassandra.concurrent.NamedThreadFactory;
+
+/**
+ * Executes audit tasks on a pool of dedicated audit worker threads.
+ * <p>
+ * Each worker has a bounded queue of its own, and tasks are handed off from the request threads to the worker chosen by
+ * the key of the task. All tasks with the same key, e.g. the statuses of one request, are executed in the order they
+ * were submitted. The {@link AsyncOverflowPolicy} decides what happens when a request thread finds the queue full.
+ * <p>
+ * When the executor is closed the workers execute the tasks already queued before they stop.
+ */
+class AsyncAuditExecutor implements AutoCloseable
+{
+    private static final Logger LOG = LoggerFactory.getLogger(AsyncAuditExecutor.class);
+
+    private static final long POLL_INTERVAL_MS = 100;
+    private static final long DRAIN_TIMEOUT_MS = 10_000;
+
+    private final NamedThreadFactory threadFactory = new NamedThreadFactory("Audit Worker");
+    private final List<Thread> workerThreads = new ArrayList<>();
+    private final List<BlockingQueue<HandOff>> queues = new ArrayList<>();
+    private final AsyncOverflowPolicy overflowPolicy;
+    private final AsyncAuditMetrics metrics;
+
+    private volatile boolean active = true;
+
+    AsyncAuditExecutor(int workers, int queueSize, AsyncOverflowPolicy overflowPolicy)
+    {
+        this.overflowPolicy = overflowPolicy;
+        this.metrics = new AsyncAuditMetrics(this::queuedTasks);
+        startWorkers(workers, queueSize);
+    }
+
+    @VisibleForTesting
+    AsyncAuditExecutor(int workers, int queueSize, AsyncOverflowPolicy overflowPolicy, AsyncAuditMetrics metrics)
+    {
+        this.overflowPolicy = overflowPolicy;
+        this.metrics = metrics;
+        startWorkers(workers, queueSize);
+    }
+
+    /**
+     * Start the workers, sharing the queue size between them.
+     */
+    private void startWorkers(int workers, int queueSize)
+    {
+        int workerQueueSize = Math.max(1, (queueSize + workers - 1) / workers);
+        for (int i = 0; i < workers; i++)
+        {
+            BlockingQueue<HandOff> queue = new ArrayBlockingQueue<>(workerQueueSize);
+            queues.add(queue);
+            Thread workerThread = threadFactory.newThread(() -> workerLoop(queue));
+            workerThreads.add(workerThread);
+            workerThread.start();
+        }
+    }
+
+    private int queuedTasks()
+    {
+        return queues.stream().mapToInt(BlockingQueue::size).sum();
+    }
+
+    /**
+     * Hand off an audit task to the audit worker of its key.
+     *
+     * @param key  the key of the task, tasks with equal keys are executed in order by the same worker
+     * @param task the task to execute
+     * @throws CassandraAuditException if the queue is full and the overflow policy is to fail the request
+     */
+    void submit(Object key, Runnable task)
+    {
+        if (!active)
+        {
+            throw new IllegalStateException("Asynchronous audit executor has been deactivated");
+        }
+
+        BlockingQueue<HandOff> queue = queueOf(key);
+        HandOff handOff = new HandOff(task);
+        switch (overflowPolicy)
+        {
+            case block:
+                put(queue, handOff);
+                break;
+            case fail:
+                offerOrFail(queue, handOff);
+                break;
+            case drop:
+                offerOrDrop(queue, handOff);
+                break;
+            default:
+                throw new IllegalStateException("Unknown overflow policy: " + overflowPolicy);
+        }
+    }
+
+    private BlockingQueue<HandOff> queueOf(Object key)
+    {
+        int hash = key.hashCode();
+        return queues.get(Math.floorMod(hash ^ (hash >>> 16), queues.size()));
+    }
+
+    private void offerOrFail(BlockingQueue<HandOff> queue, HandOff handOff)
+    {
+        if (!queue.offer(handOff))
+        {
+            throw new CassandraAuditException("Asynchronous audit queue is full");
+        }
+    }
+
+    private void offerOrDrop(BlockingQueue<HandOff> queue, HandOff handOff)
+    {
+        if (!queue.offer(handOff))
+        {
+            metrics.dropAuditRequest();
+        }
+    }
+
+    private static void put(BlockingQueue<HandOff> queue, HandOff handOff)
+    {
+        try
+        {
+            queue.put(handOff);
+        }
+        catch (InterruptedException e)
+        {
+            LOG.warn("Interrupted while handing off request to audit workers");
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void workerLoop(BlockingQueue<HandOff> queue)
+    {
+        try
+        {
+            while (active || !queue.isEmpty())
+            {
+                HandOff handOff = queue.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                if (handOff != null)
+                {
+                    metrics.handOffAuditRequest(System.nanoTime() - handOff.enqueuedNanos, TimeUnit.NANOSECONDS);
+                    execute(handOff.task);
+                }
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @SuppressWarnings("PMD.AvoidCatchingGenericException")
+    private static void execute(Runnable task)
+    {
+        try
+        {
+            task.run();
+        }
+        catch (RuntimeException e)
+        {
+            // The request has already been answered, there is no one left to report the failure to
+            LOG.error("Failed to audit request", e);
+        }
+    }
+
+    /**
+     * Stop accepting tasks and wait for the workers to execute the tasks already queued.
+     * <p>
+     * Workers which have not drained their queue within a timeout are interrupted.
+     */
+    @Override
+    public synchronized void close()
+    {
+        if (!active)
+        {
+            return;
+        }
+
+        active = false;
+        long deadline = System.currentTimeMillis() + DRAIN_TIMEOUT_MS;
+        try
+        {
+            for (Thread workerThread : workerThreads)
+            {
+                workerThread.join(Math.max(1, deadline - System.currentTimeMillis()));
+                if (workerThread.isAlive())
+                {
+                    LOG.warn("Audit worker did not finish queued requests in time");
+                    workerThread.interrupt();
+                }
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class HandOff
+    {
+        private final Runnable task;
+        private final long enqueuedNanos = System.nanoTime();
+
+        HandOff(Runnable task)
+        {
+            this.task = task;
+        }
+    }
+}
@@ -15,27 +15,32 @@
  */
 package com.ericsson.bss.cassandra.ecaudit;
 
-import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntFunction;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 
 import com.ericsson.bss.cassandra.ecaudit.common.record.SimpleAuditOperation;
 import com.ericsson.bss.cassandra.ecaudit.common.record.Status;
 import com.ericsson.bss.cassandra.ecaudit.entry.AuditEntry;
-import com.ericsson.bss.cassandra.ecaudit.entry.PreparedAuditOperation;
+import com.ericsson.bss.cassandra.ecaudit.entry.PreparedAuditTemplate;
 import com.ericsson.bss.cassandra.ecaudit.entry.factory.AuditEntryBuilderFactory;
 import com.ericsson.bss.cassandra.ecaudit.entry.suppressor.BoundValueSuppressor;
 import com.ericsson.bss.cassandra.ecaudit.facade.Auditor;
+import com.ericsson.bss.cassandra.ecaudit.facade.BatchAuditor;
 import com.ericsson.bss.cassandra.ecaudit.utils.Exceptions;
 import org.apache.cassandra.cql3.BatchQueryOptions;
 import org.apache.cassandra.cql3.CQLStatement;
+import org.apache.cassandra.cql3.ColumnSpecification;
 import org.apache.cassandra.cql3.QueryOptions;
 import org.apache.cassandra.cql3.statements.BatchStatement;
+import org.apache.cassandra.cql3.statements.ModificationStatement;
+import org.apache.cassandra.cql3.statements.ParsedStatement;
 import org.apache.cassandra.exceptions.AuthenticationException;
 import org.apache.cassandra.exceptions.RequestExecutionException;
 import org.apache.cassandra.service.ClientState;
@@ -54,7 +59,11 @@ public class AuditAdapter
     private final AuditEntryBuilderFactory entryBuilderFactory;
     private BoundValueSuppressor boundValueSuppressor;
 
-    private final Map<MD5Digest, String> idQueryCache = new ConcurrentHashMap<>();
+    // Templates are keyed by the statement instance held in the prepared statement cache of Cassandra.
+    // With weak keys a template is released together with its statement when Cassandra evicts it.
+    private final Cache<CQLStatement, PreparedAuditTemplate> preparedTemplates = CacheBuilder.newBuilder()
+                                                                                             .weakKeys()
+                                                                                             .build();
 
     /**
      * Constructor, see {@link AuditAdapterFactory#createAuditAdapter()}
@@ -86,7 +95,81 @@ public class AuditAdapter
     }
 
     /**
-     * Audit a regular CQL statement.
+     * Create the audit context of a regular CQL statement.
+     *
+     * @param operation the CQL statement to audit
+     * @param state     the client state accompanying the statement
+     * @param timestamp the system timestamp for the request
+     * @return a new context to audit the request with, see {@link #audit(AuditRequestContext, Status)}
+     */
+    public AuditRequestContext createRegularContext(String operation, ClientState state, long timestamp)
+    {
+        return createRegularContext(operation, AuditClient.live(state), timestamp);
+    }
+
+    AuditRequestContext createRegularContext(String operation, AuditClient client, long timestamp)
+    {
+        return new AuditRequestContext(client.getUser(), () -> entryBuilderFactory.createEntryBuilder(operation, client.getState())
+                                                                .client(client.getAddress())
+                                                                .coordinator(FBUtilities.getBroadcastAddress())
+                                                                .user(client.getUser())
+                                                                .operation(new SimpleAuditOperation(operation))
+                                                                .timestamp(timestamp));
+    }
+
+    /**
+     * Create the audit context of a prepared statement.
+     *
+     * @param id        the statement id
+     * @param statement the statement to audit
+     * @param state     the client state accompanying the statement
+     * @param options   the options accompanying the statement
+     * @param timestamp the system timestamp for the request
+     * @return a new context to audit the request with, see {@link #audit(AuditRequestContext, Status)}
+     */
+    public AuditRequestContext createPreparedContext(MD5Digest id, CQLStatement statement, ClientState state, QueryOptions options, long timestamp)
+    {
+        return createPreparedContext(id, statement, AuditClient.live(state), options, timestamp);
+    }
+
+    AuditRequestContext createPreparedContext(MD5Digest id, CQLStatement statement, AuditClient client, QueryOptions options, long timestamp)
+    {
+        return new AuditRequestContext(client.getUser(), () -> {
+            PreparedAuditTemplate template = getPreparedTemplate(statement);
+            return template.applyTo(AuditEntry.newBuilder())
+                           .client(client.getAddress())
+                           .coordinator(FBUtilities.getBroadcastAddress())
+                           .user(client.getUser())
+                           .operation(template.createOperation(options))
+                           .timestamp(timestamp);
+        });
+    }
+
+    /**
+     * Audit a request for a given status.
+     * <p>
+     * The audit entry is created, filtered and obfuscated once per context, and reused for each status. The entry is
+     * never created if the request can be filtered on the user alone.
+     *
+     * @param context the audit context of the request
+     * @param status  the status of the operation
+     */
+    public void audit(AuditRequestContext context, Status status)
+    {
+        if (auditor.shouldLogForStatus(status))
+        {
+            auditContext(context, status);
+        }
+    }
+
+    void auditContext(AuditRequestContext context, Status status)
+    {
+        context.getEntry(status, auditor::filterAndObfuscate)
+               .ifPresent(auditor::log);
+    }
+
+    /**
+     * Audit a regular CQL statement for a single status.
      *
      * @param operation the CQL statement to audit
      * @param state     the client state accompanying the statement
@@ -97,21 +180,12 @@ public class AuditAdapter
     {
         if (auditor.shouldLogForStatus(status))
         {
-            AuditEntry logEntry = entryBuilderFactory.createEntryBuilder(operation, state)
-                                                     .client(state.getRemoteAddress())
-                                                     .coordinator(FBUtilities.getBroadcastAddress())
-                                                     .user(state.getUser().getName())
-                                                     .operation(new SimpleAuditOperation(operation))
-                                                     .status(status)
-                                                     .timestamp(timestamp)
-                                                     .build();
-
-            auditor.audit(logEntry);
+            audit(createRegularContext(operation, state, timestamp), status);
         }
     }
 
     /**
-     * Audit a prepared statement.
+     * Audit a prepared statement for a single status.
      *
      * @param id        the statement id
      * @param statement the statement to audit
@@ -124,16 +198,7 @@ public class AuditAdapter
     {
         if (auditor.shouldLogForStatus(status))
         {
-            AuditEntry logEntry = entryBuilderFactory.createEntryBuilder(statement)
-                                                     .client(state.getRemoteAddress())
-                                                     .coordinator(FBUtilities.getBroadcastAddress())
-                                                     .user(state.getUser().getName())
-                                                     .operation(new PreparedAuditOperation(idQueryCache.get(id), options, boundValueSuppressor))
-                                                     .status(status)
-                                                     .timestamp(timestamp)
-                                                     .build();
-
-            auditor.audit(logEntry);
+            audit(createPreparedContext(id, statement, state, options, timestamp), status);
         }
     }
 
@@ -151,29 +216,50 @@ public class AuditAdapter
     {
         if (auditor.shouldLogForStatus(status))
         {
-            AuditEntry.Builder builder = entryBuilderFactory.createBatchEntryBuilder()
-                                                            .client(state.getRemoteAddress())
-                                                            .coordinator(FBUtilities.getBroadcastAddress())
-                                                            .user(state.getUser().getName())
-                                                            .batch(uuid)
-                                                            .status(status)
-                                                            .timestamp(timestamp);
-
-            if (status == Status.FAILED && auditor.shouldLogFailedBatchSummary())
-            {
-                String failedBatchStatement = String.format(BATCH_FAILURE, uuid.toString());
-                auditor.audit(builder.operation(new SimpleAuditOperation(failedBatchStatement)).build());
-            }
-            else
-            {
-                for (AuditEntry entry : getBatchOperations(builder, statement, state, options))
-                {
-                    auditor.audit(entry);
-                }
-            }
+            auditBatch(statement, uuid, AuditClient.live(state), options.getQueryOrIdList(), options::forStatement, status, timestamp);
         }
     }
 
+    /**
+     * Audit a batch statement.
+     *
+     * @param statement           the batch statement to audit
+     * @param uuid                to identify the batch
+     * @param client              the client issuing the statement
+     * @param queryOrIdList       the query string or prepared statement id of each statement in the batch
+     * @param optionsForStatement the options of a statement in the batch, by statement index
+     * @param status              the status of the operation
+     * @param timestamp           the system timestamp for the request
+     */
+    void auditBatch(BatchStatement statement, UUID uuid, AuditClient client, List<Object> queryOrIdList,
+                    IntFunction<QueryOptions> optionsForStatement, Status status, long timestamp)
+    {
+        Optional<BatchAuditor> batchAuditor = auditor.createBatchAuditor(client.getUser());
+        if (!batchAuditor.isPresent())
+        {
+            return;
+        }
+
+        AuditEntry.Builder builder = entryBuilderFactory.createBatchEntryBuilder()
+                                                        .client(client.getAddress())
+                                                        .coordinator(FBUtilities.getBroadcastAddress())
+                                                        .user(client.getUser())
+                                                        .batch(uuid)
+                                                        .status(status)
+                                                        .timestamp(timestamp);
+
+        if (status == Status.FAILED && auditor.shouldLogFailedBatchSummary())
+        {
+            String failedBatchStatement = String.format(BATCH_FAILURE, uuid.toString());
+            batchAuditor.get().audit(builder.operation(new SimpleAuditOperation(failedBatchStatement)).build());
+        }
+        else
+        {
+            auditBatchOperations(builder, statement, queryOrIdList, optionsForStatement, batchAuditor.get());
+        }
+        batchAuditor.get().commit();
+    }
+
     /**
      * Audit an authentication attempt.
      *
@@ -211,48 +297,70 @@ public class AuditAdapter
     }
 
     /**
-     * Map a prepared statement id to a raw query string.
+     * Create an audit template for a prepared statement.
+     * <p>
+     * The template is kept for as long as Cassandra keeps the statement in its prepared statement cache.
      *
-     * @param id    the id of the prepared statement
-     * @param query the query string
+     * @param query    the query string
+     * @param prepared the prepared statement
      */
-    public void mapIdToQuery(MD5Digest id, String query)
+    public void createPreparedTemplate(String query, ParsedStatement.Prepared prepared)
     {
-        idQueryCache.put(id, query);
+        preparedTemplates.put(prepared.statement, createTemplate(query, prepared.statement, prepared.boundNames));
+    }
+
+    private PreparedAuditTemplate getPreparedTemplate(CQLStatement statement)
+    {
+        PreparedAuditTemplate template = preparedTemplates.getIfPresent(statement);
+        if (template == null)
+        {
+            // Statement prepared before auditing got enabled, the query string is unknown
+            return createTemplate(null, statement, Collections.emptyList());
+        }
+
+        return template;
+    }
+
+    private PreparedAuditTemplate createTemplate(String query, CQLStatement statement, List<ColumnSpecification> boundNames)
+    {
+        AuditEntry prototype = entryBuilderFactory.createEntryBuilder(statement).build();
+        return new PreparedAuditTemplate(query, prototype, boundNames, boundValueSuppressor);
     }
 
     /**
-     * Get all the audit entries for a batch
+     * Audit the statements of a batch one by one.
+     * <p>
+     * Each statement is mapped from the statement list of the batch, no statement is parsed again.
      *
-     * @param builder        the prepared audit entry builder
-     * @param batchStatement the batch statement
-     * @param state          the client state accompanying the statement
-     * @param options        the options to get the operations from
-     * @return a collection of operations, as strings
+     * @param builder             the prepared audit entry builder
+     * @param batchStatement      the batch statement
+     * @param queryOrIdList       the query string or prepared statement id of each statement in the batch
+     * @param optionsForStatement the options of a statement in the batch, by statement index
+     * @param batchAuditor        filters and obfuscates the audit entries of the batch
      */
-    private Collection<AuditEntry> getBatchOperations(AuditEntry.Builder builder, BatchStatement batchStatement, ClientState state, BatchQueryOptions options)
+    private void auditBatchOperations(AuditEntry.Builder builder, BatchStatement batchStatement, List<Object> queryOrIdList,
+                                      IntFunction<QueryOptions> optionsForStatement, BatchAuditor batchAuditor)
     {
-        List<AuditEntry> batchOperations = new ArrayList<>();
+        List<ModificationStatement> statements = batchStatement.getStatements();
 
         int statementIndex = 0;
-        for (Object queryOrId : options.getQueryOrIdList())
+        for (Object queryOrId : queryOrIdList)
         {
+            ModificationStatement statement = statements.get(statementIndex);
             if (queryOrId instanceof MD5Digest)
             {
-                entryBuilderFactory.updateBatchEntryBuilder(builder, batchStatement.getStatements().get(statementIndex));
-                builder.operation(new PreparedAuditOperation(idQueryCache.get(queryOrId), options.forStatement(statementIndex), boundValueSuppressor));
-                batchOperations.add(builder.build());
+                PreparedAuditTemplate template = getPreparedTemplate(statement);
+                template.applyTo(builder);
+                builder.operation(template.createOperation(optionsForStatement.apply(statementIndex)));
             }
             else
             {
-                entryBuilderFactory.updateBatchEntryBuilder(builder, queryOrId.toString(), state);
+                entryBuilderFactory.updateBatchEntryBuilder(builder, statement);
                 builder.operation(new SimpleAuditOperation(queryOrId.toString()));
-                batchOperations.add(builder.build());
             }
+            batchAuditor.audit(builder.build());
             statementIndex++;
         }
-
-        return batchOperations;
     }
 
     public Auditor getAuditor()
@@ -264,6 +372,7 @@ public class AuditAdapter
     public void setBoundValueSuppressor(BoundValueSuppressor suppressor)
     {
         this.boundValueSuppressor = suppressor;
+        preparedTemplates.asMap().replaceAll((statement, template) -> template.withSuppressor(suppressor));
     }
 
     @VisibleForTesting
@@ -25,6 +25,7 @@ import org.slf4j.LoggerFactory;
 
 import com.ericsson.bss.cassandra.ecaudit.config.AuditConfig;
 import com.ericsson.bss.cassandra.ecaudit.entry.factory.AuditEntryBuilderFactory;
+import com.ericsson.bss.cassandra.ecaudit.entry.factory.UnpreparedStatementCache;
 import com.ericsson.bss.cassandra.ecaudit.entry.suppressor.BoundValueSuppressor;
 import com.ericsson.bss.cassandra.ecaudit.facade.Auditor;
 import com.ericsson.bss.cassandra.ecaudit.facade.DefaultAuditor;
@@ -77,10 +78,20 @@ final class AuditAdapterFactory
         LogTimingStrategy logStrategy = getLogTimingStrategy(auditConfig);
 
         Auditor auditor = new DefaultAuditor(logger, filter, obfuscator, logStrategy);
-        AuditEntryBuilderFactory entryBuilderFactory = new AuditEntryBuilderFactory();
+        AuditEntryBuilderFactory entryBuilderFactory = createEntryBuilderFactory(auditConfig);
 
         BoundValueSuppressor boundValueSuppressor = createBoundValueSuppressor(auditConfig);
 
+        if (auditConfig.isAsyncAudit())
+        {
+            LOG.info("Audit entries will be created asynchronously");
+            AsyncAuditExecutor executor = new AsyncAuditExecutor(auditConfig.getAsyncAuditWorkers(),
+                                                                 auditConfig.getAsyncAuditQueueSize(),
+                                                                 auditConfig.getAsyncAuditOverflowPolicy());
+            Runtime.getRuntime().addShutdownHook(new Thread(executor::close, "Audit Worker Shutdown"));
+            return new AsyncAuditAdapter(auditor, entryBuilderFactory, boundValueSuppressor, executor);
+        }
+
         return new AuditAdapter(auditor, entryBuilderFactory, boundValueSuppressor);
     }
 
@@ -142,6 +153,17 @@ final class AuditAdapterFactory
         }
     }
 
+    private static AuditEntryBuilderFactory createEntryBuilderFactory(AuditConfig auditConfig)
+    {
+        int cacheSize = auditConfig.getUnpreparedStatementCacheSize();
+        if (cacheSize == 0)
+        {
+            return new AuditEntryBuilderFactory();
+        }
+
+        return new AuditEntryBuilderFactory(UnpreparedStatementCache.createRegistered(cacheSize));
+    }
+
     private static LogTimingStrategy getLogTimingStrategy(AuditConfig auditConfig)
     {
         return auditConfig.isPostLogging()
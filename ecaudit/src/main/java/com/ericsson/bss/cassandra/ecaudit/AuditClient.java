@@ -0,0 +1,123 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit;
+
+import java.net.InetSocketAddress;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.cassandra.exceptions.InvalidRequestException;
+import org.apache.cassandra.service.ClientState;
+
+/**
+ * The client information needed to create audit entries for a request.
+ * <p>
+ * An instance either refers to the live {@link ClientState} of a connection, or to a snapshot of it which is safe to
+ * use from another thread after the request has completed.
+ */
+final class AuditClient
+{
+    private static final Logger LOG = LoggerFactory.getLogger(AuditClient.class);
+
+    private final ClientState liveState;
+    private final String keyspace;
+    private final InetSocketAddress address;
+    private final String user;
+
+    private volatile ClientState detachedState;
+
+    private AuditClient(ClientState liveState, String keyspace, InetSocketAddress address, String user)
+    {
+        this.liveState = liveState;
+        this.keyspace = keyspace;
+        this.address = address;
+        this.user = user;
+    }
+
+    /**
+     * Create a client referring to the live client state of a connection.
+     *
+     * @param state the client state of the connection
+     * @return a new client instance
+     */
+    static AuditClient live(ClientState state)
+    {
+        return new AuditClient(state, state.getRawKeyspace(), state.getRemoteAddress(), state.getUser().getName());
+    }
+
+    /**
+     * Create a client from a snapshot of the client state of a connection.
+     * <p>
+     * The client state of a connection is mutable, e.g. the current keyspace may change as soon as the next request
+     * arrives. The snapshot copies the raw keyspace, without validating it on the request thread, and the detached
+     * client state used to parse statements is created when it is first needed.
+     *
+     * @param state the client state of the connection
+     * @return a new client instance
+     */
+    static AuditClient snapshotOf(ClientState state)
+    {
+        return new AuditClient(null, state.getRawKeyspace(), state.getRemoteAddress(), state.getUser().getName());
+    }
+
+    /**
+     * @return the client state to use when parsing statements
+     */
+    ClientState getState()
+    {
+        if (liveState != null)
+        {
+            return liveState;
+        }
+
+        ClientState state = detachedState;
+        if (state == null)
+        {
+            state = detachState(keyspace);
+            detachedState = state;
+        }
+        return state;
+    }
+
+    private static ClientState detachState(String keyspace)
+    {
+        ClientState state = ClientState.forInternalCalls();
+        if (keyspace != null)
+        {
+            try
+            {
+                state.setKeyspace(keyspace);
+            }
+            catch (InvalidRequestException e)
+            {
+                // The keyspace may have been dropped since the request, statements with qualified names can still be parsed
+                LOG.debug("Keyspace of audited request is no longer available", e);
+            }
+        }
+        return state;
+    }
+
+    InetSocketAddress getAddress()
+    {
+        return address;
+    }
+
+    String getUser()
+    {
+        return user;
+    }
+}
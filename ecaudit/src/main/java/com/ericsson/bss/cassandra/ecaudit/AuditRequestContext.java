@@ -0,0 +1,79 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit;
+
+import java.util.Optional;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+
+import com.ericsson.bss.cassandra.ecaudit.common.record.Status;
+import com.ericsson.bss.cassandra.ecaudit.entry.AuditEntry;
+
+/**
+ * The audit state of a single request, shared by each status the request is audited for.
+ * <p>
+ * The audit entry is created, filtered and obfuscated the first time the request is audited. Following statuses of
+ * the same request, e.g. a FAILED after an ATTEMPT, reuse the outcome and only change the status.
+ * <p>
+ * Instances are created by the {@link AuditAdapter}. This class is thread safe.
+ */
+public final class AuditRequestContext
+{
+    private final String user;
+    private final Supplier<AuditEntry.Builder> entryBuilderSupplier;
+    private Optional<AuditEntry> acceptedEntry; // lazy initialization
+
+    /**
+     * @param user                 the user issuing the request
+     * @param entryBuilderSupplier supplies a builder configured with everything but the status of the request
+     */
+    AuditRequestContext(String user, Supplier<AuditEntry.Builder> entryBuilderSupplier)
+    {
+        this.user = user;
+        this.entryBuilderSupplier = entryBuilderSupplier;
+    }
+
+    /**
+     * Get the audit entry of the request for a given status.
+     *
+     * @param status    the status of the request
+     * @param evaluator filters and obfuscates the entry of the user, only invoked the first time
+     * @return the entry to log, or {@link Optional#empty()} if the request is filtered
+     */
+    synchronized Optional<AuditEntry> getEntry(Status status, BiFunction<String, Supplier<AuditEntry>, Optional<AuditEntry>> evaluator)
+    {
+        if (acceptedEntry == null) // NOPMD
+        {
+            acceptedEntry = evaluator.apply(user, () -> entryBuilderSupplier.get().status(status).build());
+            return acceptedEntry;
+        }
+
+        return acceptedEntry.map(entry -> withStatus(entry, status));
+    }
+
+    private static AuditEntry withStatus(AuditEntry entry, Status status)
+    {
+        if (entry.getStatus() == status)
+        {
+            return entry;
+        }
+
+        return AuditEntry.newBuilder()
+                         .basedOn(entry)
+                         .status(status)
+                         .build();
+    }
+}
@@ -83,6 +83,59 @@ public class AuditConfig
         return yamlConfig.getBoundValueSuppressor();
     }
 
+    public boolean isAsyncAudit()
+    {
+        loadConfigIfNeeded();
+
+        return yamlConfig.isAsyncAudit();
+    }
+
+    public int getAsyncAuditWorkers() throws ConfigurationException
+    {
+        loadConfigIfNeeded();
+
+        int workers = yamlConfig.getAsyncAuditWorkers();
+        if (workers < 1)
+        {
+            throw new ConfigurationException("Number of async audit workers must be at least 1, got " + workers);
+        }
+
+        return workers;
+    }
+
+    public int getAsyncAuditQueueSize() throws ConfigurationException
+    {
+        loadConfigIfNeeded();
+
+        int queueSize = yamlConfig.getAsyncAuditQueueSize();
+        if (queueSize < 1)
+        {
+            throw new ConfigurationException("Async audit queue size must be at least 1, got " + queueSize);
+        }
+
+        return queueSize;
+    }
+
+    public AsyncOverflowPolicy getAsyncAuditOverflowPolicy()
+    {
+        loadConfigIfNeeded();
+
+        return yamlConfig.getAsyncAuditOverflowPolicy();
+    }
+
+    public int getUnpreparedStatementCacheSize() throws ConfigurationException
+    {
+        loadConfigIfNeeded();
+
+        int cacheSize = yamlConfig.getUnpreparedStatementCacheSize();
+        if (cacheSize < 0)
+        {
+            throw new ConfigurationException("Unprepared statement cache size must not be negative, got " + cacheSize);
+        }
+
+        return cacheSize;
+    }
+
     private synchronized void loadConfigIfNeeded()
     {
         if (yamlConfig == null)
@@ -34,6 +34,10 @@ public final class AuditYamlConfig
     private static final ParameterizedClass DEFAULT_LOGGER_BACKEND = new ParameterizedClass(Slf4jAuditLogger.class.getCanonicalName(), Collections.emptyMap());
     private static final String DEFAULT_WRAPPED_AUTHORIZER = "org.apache.cassandra.auth.CassandraAuthorizer";
     private static final String DEFAULT_BOUND_VALUE_SUPPRESSOR = SuppressNothing.class.getName();
+    private static final int DEFAULT_ASYNC_AUDIT_WORKERS = 2;
+    private static final int DEFAULT_ASYNC_AUDIT_QUEUE_SIZE = 1024;
+    private static final AsyncOverflowPolicy DEFAULT_ASYNC_AUDIT_OVERFLOW_POLICY = AsyncOverflowPolicy.block;
+    private static final int DEFAULT_UNPREPARED_STATEMENT_CACHE_SIZE = 1000;
 
     private boolean fromFile = true;
 
@@ -44,6 +48,11 @@ public final class AuditYamlConfig
     public LoggerTiming log_timing_strategy;
     public String wrapped_authorizer;
     public String bound_value_suppressor;
+    public Boolean async_audit;
+    public Integer async_audit_workers;
+    public Integer async_audit_queue_size;
+    public AsyncOverflowPolicy async_audit_overflow_policy;
+    public Integer unprepared_statement_cache_size;
 
     static AuditYamlConfig createWithoutFile()
     {
@@ -108,4 +117,29 @@ public final class AuditYamlConfig
     {
         return bound_value_suppressor == null ? DEFAULT_BOUND_VALUE_SUPPRESSOR : bound_value_suppressor;
     }
+
+    boolean isAsyncAudit()
+    {
+        return async_audit != null && async_audit;
+    }
+
+    int getAsyncAuditWorkers()
+    {
+        return async_audit_workers == null ? DEFAULT_ASYNC_AUDIT_WORKERS : async_audit_workers;
+    }
+
+    int getAsyncAuditQueueSize()
+    {
+        return async_audit_queue_size == null ? DEFAULT_ASYNC_AUDIT_QUEUE_SIZE : async_audit_queue_size;
+    }
+
+    AsyncOverflowPolicy getAsyncAuditOverflowPolicy()
+    {
+        return async_audit_overflow_policy == null ? DEFAULT_ASYNC_AUDIT_OVERFLOW_POLICY : async_audit_overflow_policy;
+    }
+
+    int getUnpreparedStatementCacheSize()
+    {
+        return unprepared_statement_cache_size == null ? DEFAULT_UNPREPARED_STATEMENT_CACHE_SIZE : unprepared_statement_cache_size;
+    }
 }
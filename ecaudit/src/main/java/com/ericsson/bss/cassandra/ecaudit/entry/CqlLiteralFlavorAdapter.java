@@ -21,6 +21,8 @@ import java.text.SimpleDateFormat;
 import java.util.Locale;
 import java.util.TimeZone;
 
+import com.ericsson.bss.cassandra.ecaudit.common.record.BoundValue;
+import com.ericsson.bss.cassandra.ecaudit.common.record.BoundValueType;
 import org.apache.cassandra.cql3.CQL3Type;
 import org.apache.cassandra.cql3.ColumnSpecification;
 import org.apache.cassandra.db.marshal.AsciiType;
@@ -67,6 +69,72 @@ final class CqlLiteralFlavorAdapter
         return column.type.getString(serializedValue);
     }
 
+    /**
+     * Capture a bound value in serialized form, to be rendered as the same CQL literal when read.
+     * <p>
+     * Values of types which can not be rendered outside of Cassandra are rendered right away.
+     *
+     * @param serializedValue the serialized value
+     * @param column          the column the value is bound to
+     * @return the bound value
+     */
+    static BoundValue toBoundValue(ByteBuffer serializedValue, ColumnSpecification column)
+    {
+        BoundValueType type = toBoundValueType(column);
+        if (type == null || !serializedValue.hasRemaining())
+        {
+            return BoundValue.literal(toCQLLiteral(serializedValue, column));
+        }
+        return BoundValue.serialized(type, serializedValue);
+    }
+
+    @SuppressWarnings("PMD.CyclomaticComplexity")
+    private static BoundValueType toBoundValueType(ColumnSpecification column)
+    {
+        if (!(column.type.asCQL3Type() instanceof CQL3Type.Native))
+        {
+            return null;
+        }
+
+        switch ((CQL3Type.Native) column.type.asCQL3Type())
+        {
+            case ASCII:
+                return BoundValueType.ASCII;
+            case VARCHAR:
+            case TEXT:
+                return BoundValueType.TEXT;
+            case BIGINT:
+                return BoundValueType.BIGINT;
+            case BLOB:
+                return BoundValueType.BLOB;
+            case BOOLEAN:
+                return BoundValueType.BOOLEAN;
+            case DECIMAL:
+                return BoundValueType.DECIMAL;
+            case DOUBLE:
+                return BoundValueType.DOUBLE;
+            case FLOAT:
+                return BoundValueType.FLOAT;
+            case INET:
+                return BoundValueType.INET;
+            case INT:
+                return BoundValueType.INT;
+            case SMALLINT:
+                return BoundValueType.SMALLINT;
+            case TINYINT:
+                return BoundValueType.TINYINT;
+            case TIMESTAMP:
+                return BoundValueType.TIMESTAMP;
+            case UUID:
+            case TIMEUUID:
+                return BoundValueType.UUID;
+            case VARINT:
+                return BoundValueType.VARINT;
+            default:
+                return null;
+        }
+    }
+
     private static String noValueString(ColumnSpecification column)
     {
         return isStringType(column) ? "''" : "null";
@@ -16,10 +16,14 @@
 package com.ericsson.bss.cassandra.ecaudit.entry;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Queue;
 
 import com.ericsson.bss.cassandra.ecaudit.common.record.AuditOperation;
+import com.ericsson.bss.cassandra.ecaudit.common.record.BoundValue;
 import com.ericsson.bss.cassandra.ecaudit.entry.suppressor.BoundValueSuppressor;
 import org.apache.cassandra.cql3.ColumnSpecification;
 import org.apache.cassandra.cql3.QueryOptions;
@@ -38,6 +42,7 @@ public class PreparedAuditOperation implements AuditOperation
     private final String preparedStatement;
     private final QueryOptions options;
     private String effectiveStatement; // lazy initialization
+    private List<BoundValue> boundValues; // lazy initialization
     private final BoundValueSuppressor boundValueSuppressor;
 
     /**
@@ -109,4 +114,44 @@ public class PreparedAuditOperation implements AuditOperation
     {
         return preparedStatement;
     }
+
+    /**
+     * Capture the bound values in serialized form, leaving the rendering as CQL literals to the reader.
+     * <p>
+     * Suppressed values are captured in their suppressed form.
+     *
+     * @return the bound values of the operation
+     */
+    @Override
+    public List<BoundValue> getBoundValues()
+    {
+        if (boundValues == null)
+        {
+            boundValues = captureValues();
+        }
+
+        return boundValues;
+    }
+
+    private List<BoundValue> captureValues()
+    {
+        if (!options.hasColumnSpecifications())
+        {
+            return Collections.emptyList();
+        }
+
+        List<ColumnSpecification> columns = options.getColumnSpecifications();
+        List<ByteBuffer> values = options.getValues();
+        List<BoundValue> captured = new ArrayList<>(columns.size());
+        for (int i = 0; i < columns.size(); i++)
+        {
+            ColumnSpecification column = columns.get(i);
+            ByteBuffer value = values.get(i);
+            captured.add(boundValueSuppressor.suppress(column, value)
+                                             .map(BoundValue::literal)
+                                             .orElseGet(() -> CqlLiteralFlavorAdapter.toBoundValue(value, column)));
+        }
+
+        return captured;
+    }
 }
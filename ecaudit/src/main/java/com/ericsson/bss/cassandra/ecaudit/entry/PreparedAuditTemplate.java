@@ -0,0 +1,144 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.entry;
+
+import java.nio.ByteBuffer;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import com.ericsson.bss.cassandra.ecaudit.entry.suppressor.BoundValueSuppressor;
+import org.apache.cassandra.auth.IResource;
+import org.apache.cassandra.auth.Permission;
+import org.apache.cassandra.cql3.ColumnSpecification;
+import org.apache.cassandra.cql3.QueryOptions;
+
+/**
+ * The parts of an audit entry which only depend on a prepared statement.
+ * <p>
+ * A template is created once when a statement is prepared. Each execution of the statement then only has to attach
+ * its bound values, see {@link #createOperation(QueryOptions)}.
+ *
+ * This class is immutable and thread safe.
+ */
+public final class PreparedAuditTemplate
+{
+    private final String query;
+    private final Set<Permission> permissions;
+    private final IResource resource;
+    private final List<ColumnSpecification> boundNames;
+    private final BoundValueSuppressor suppressor;
+
+    /**
+     * Create a new template for a prepared statement.
+     *
+     * @param query       the query string of the prepared statement
+     * @param prototype   an audit entry holding the permissions and resource of the prepared statement
+     * @param boundNames  the bound columns of the prepared statement
+     * @param suppressor  the suppressor to process bound values
+     */
+    public PreparedAuditTemplate(String query, AuditEntry prototype, List<ColumnSpecification> boundNames, BoundValueSuppressor suppressor)
+    {
+        this(query, prototype.getPermissions(), prototype.getResource(), boundNames, suppressor);
+    }
+
+    private PreparedAuditTemplate(String query, Set<Permission> permissions, IResource resource,
+                                  List<ColumnSpecification> boundNames, BoundValueSuppressor suppressor)
+    {
+        this.query = query;
+        this.permissions = permissions;
+        this.resource = resource;
+        this.boundNames = boundNames;
+        this.suppressor = suppressor.isValueDependent()
+                          ? suppressor
+                          : new PrecomputedSuppressor(boundNames, suppressor);
+    }
+
+    /**
+     * Create a copy of this template which uses another bound value suppressor.
+     *
+     * @param newSuppressor the suppressor to process bound values
+     * @return a new template instance
+     */
+    public PreparedAuditTemplate withSuppressor(BoundValueSuppressor newSuppressor)
+    {
+        return new PreparedAuditTemplate(query, permissions, resource, boundNames, newSuppressor);
+    }
+
+    public String getQuery()
+    {
+        return query;
+    }
+
+    /**
+     * Assign the permissions and resource of the prepared statement to an audit entry builder.
+     *
+     * @param builder the builder to update
+     * @return the updated builder
+     */
+    public AuditEntry.Builder applyTo(AuditEntry.Builder builder)
+    {
+        return builder.permissions(permissions)
+                      .resource(resource);
+    }
+
+    /**
+     * Create an audit operation for an execution of the prepared statement.
+     *
+     * @param options the query options of the execution
+     * @return a new audit operation
+     */
+    public PreparedAuditOperation createOperation(QueryOptions options)
+    {
+        return new PreparedAuditOperation(query, options, suppressor);
+    }
+
+    /**
+     * Holds the outcome of a value independent suppressor for each bound column of the prepared statement.
+     * <p>
+     * Column specifications are looked up by identity since the query options of each execution refer to the bound
+     * names of the prepared statement. Unknown columns are delegated to the original suppressor.
+     */
+    private static final class PrecomputedSuppressor implements BoundValueSuppressor
+    {
+        private final Map<ColumnSpecification, Optional<String>> suppressedColumns = new IdentityHashMap<>();
+        private final BoundValueSuppressor delegate;
+
+        PrecomputedSuppressor(List<ColumnSpecification> boundNames, BoundValueSuppressor delegate)
+        {
+            this.delegate = delegate;
+            for (ColumnSpecification column : boundNames)
+            {
+                suppressedColumns.put(column, delegate.suppress(column, null));
+            }
+        }
+
+        @Override
+        public Optional<String> suppress(ColumnSpecification column, ByteBuffer value)
+        {
+            Optional<String> suppressed = suppressedColumns.get(column);
+            return suppressed == null ? delegate.suppress(column, value) : suppressed;
+        }
+
+        @Override
+        public boolean isValueDependent()
+        {
+            return false;
+        }
+    }
+}
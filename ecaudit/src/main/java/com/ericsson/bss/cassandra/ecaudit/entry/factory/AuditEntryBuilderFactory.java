@@ -15,20 +15,21 @@
  */
 package com.ericsson.bss.cassandra.ecaudit.entry.factory;
 
-import java.util.List;
 import java.util.Set;
 
 import com.google.common.collect.ImmutableSet;
-import org.apache.commons.lang3.reflect.FieldUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.ericsson.bss.cassandra.ecaudit.auth.ConnectionResource;
 import com.ericsson.bss.cassandra.ecaudit.entry.AuditEntry;
 import com.ericsson.bss.cassandra.ecaudit.entry.AuditEntry.Builder;
+import com.ericsson.bss.cassandra.ecaudit.entry.factory.CqlStatementClassifier.Classification;
+import com.ericsson.bss.cassandra.ecaudit.entry.factory.CqlStatementClassifier.Kind;
 import com.ericsson.bss.cassandra.ecaudit.facade.CassandraAuditException;
 import org.apache.cassandra.auth.DataResource;
 import org.apache.cassandra.auth.Permission;
+import org.apache.cassandra.config.Schema;
 import org.apache.cassandra.cql3.CQLStatement;
 import org.apache.cassandra.cql3.QueryProcessor;
 import org.apache.cassandra.cql3.statements.AlterKeyspaceStatement;
@@ -68,6 +69,7 @@ import org.apache.cassandra.cql3.statements.UseStatement;
 import org.apache.cassandra.exceptions.InvalidRequestException;
 import org.apache.cassandra.service.ClientState;
 
+@SuppressWarnings({"PMD.CouplingBetweenObjects", "PMD.GodClass"})
 public class AuditEntryBuilderFactory
 {
     private static final Logger LOG = LoggerFactory.getLogger(AuditEntryBuilderFactory.class);
@@ -95,6 +97,78 @@ public class AuditEntryBuilderFactory
     private static final String UNEXPECTED_BATCH_STATEMENT = "Unexpected BatchStatement when mapping single query for audit";
 
     private final StatementResourceAdapter statementResourceAdapter = new StatementResourceAdapter();
+    private final UnpreparedStatementCache unpreparedStatementCache;
+    private final StatementMapperRegistry statementMappers;
+
+    /**
+     * Create a factory which parses every unprepared statement.
+     */
+    public AuditEntryBuilderFactory()
+    {
+        this(null);
+    }
+
+    /**
+     * Create a factory which resolves repeated unprepared statements from a cache.
+     *
+     * @param unpreparedStatementCache the cache of unprepared statements, or {@code null} to disable caching
+     */
+    public AuditEntryBuilderFactory(UnpreparedStatementCache unpreparedStatementCache)
+    {
+        this.unpreparedStatementCache = unpreparedStatementCache;
+        this.statementMappers = createStatementMappers();
+    }
+
+    /**
+     * Register the mappers of all recognized {@link CQLStatement}s and {@link ParsedStatement}s.
+     * <p>
+     * Specific statement types must be registered ahead of their base types.
+     *
+     * @return a new registry of statement mappers
+     */
+    private StatementMapperRegistry createStatementMappers()
+    {
+        return new StatementMapperRegistry(statement -> createUnrecognizedEntryBuilder("CQLStatement"))
+               .register(SelectStatement.class, this::createSelectEntryBuilder)
+               .register(SelectStatement.RawStatement.class, this::createSelectEntryBuilder)
+               .register(ModificationStatement.class, this::createModificationEntryBuilder)
+               .register(ModificationStatement.Parsed.class, this::createModificationEntryBuilder)
+               .register(TruncateStatement.class, this::createTruncateEntryBuilder)
+               .register(UseStatement.class, this::createUseEntryBuilder)
+
+               .register(CreateKeyspaceStatement.class, this::createCreateKeyspaceEntryBuilder)
+               .register(AlterKeyspaceStatement.class, this::createAlterKeyspaceEntryBuilder)
+               .register(DropKeyspaceStatement.class, this::createDropKeyspaceEntryBuilder)
+               .register(CreateTableStatement.class, this::createCreateTableEntryBuilder)
+               .register(AlterTableStatement.class, this::createAlterTableEntryBuilder)
+               .register(DropTableStatement.class, this::createDropTableEntryBuilder)
+               .register(CreateTypeStatement.class, this::createCreateTypeEntryBuilder)
+               .register(AlterTypeStatement.class, this::createAlterTypeEntryBuilder)
+               .register(DropTypeStatement.class, this::createDropTypeEntryBuilder)
+               .register(CreateFunctionStatement.class, this::createCreateFunctionEntryBuilder)
+               .register(DropFunctionStatement.class, this::createDropFunctionEntryBuilder)
+               .register(CreateAggregateStatement.class, this::createCreateAggregateEntryBuilder)
+               .register(DropAggregateStatement.class, this::createDropAggregateEntryBuilder)
+               .register(CreateIndexStatement.class, this::createCreateIndexEntryBuilder)
+               .register(DropIndexStatement.class, this::createDropIndexEntryBuilder)
+               .register(CreateTriggerStatement.class, this::createCreateTriggerEntryBuilder)
+               .register(DropTriggerStatement.class, this::createDropTriggerEntryBuilder)
+               .register(SchemaAlteringStatement.class, statement -> createUnrecognizedEntryBuilder("SchemaAlteringStatement"))
+
+               .register(CreateRoleStatement.class, this::createCreateRoleEntryBuilder)
+               .register(AlterRoleStatement.class, this::createAlterRoleEntryBuilder)
+               .register(DropRoleStatement.class, this::createDropRoleEntryBuilder)
+               .register(RoleManagementStatement.class, this::createRoleManagementEntryBuilder)
+               .register(AuthenticationStatement.class, statement -> createUnrecognizedEntryBuilder("AuthenticationStatement"))
+
+               .register(ListRolesStatement.class, this::createListRolesEntryBuilder)
+               .register(ListPermissionsStatement.class, this::createListPermissionsEntryBuilder)
+               .register(PermissionsManagementStatement.class, this::createPermissionsManagementEntryBuilder)
+               .register(AuthorizationStatement.class, statement -> createUnrecognizedEntryBuilder("AuthorizationStatement"))
+
+               .register(BatchStatement.class, statement -> createUnexpectedBatchEntryBuilder())
+               .register(BatchStatement.Parsed.class, statement -> createUnexpectedBatchEntryBuilder());
+    }
 
     public Builder createAuthenticationEntryBuilder()
     {
@@ -107,7 +181,9 @@ public class AuditEntryBuilderFactory
     {
         try
         {
-            return createEntryBuilderForUnpreparedStatement(operation, state);
+            return unpreparedStatementCache == null
+                   ? createEntryBuilderForUnpreparedStatement(operation, state)
+                   : unpreparedStatementCache.getEntryBuilder(operation, state, this::createEntryBuilderForUnpreparedStatement);
         }
         catch (RuntimeException e)
         {
@@ -118,6 +194,19 @@ public class AuditEntryBuilderFactory
 
     private Builder createEntryBuilderForUnpreparedStatement(String operation, ClientState state)
     {
+        Classification classification = CqlStatementClassifier.classify(operation);
+        if (classification.getKind() == Kind.UNRECOGNIZED)
+        {
+            LOG.trace("Unrecognized statement - assuming default permissions and resources");
+            return createDefaultEntryBuilder();
+        }
+
+        if (classification.isDataStatement() && !isExistingTable(classification, state))
+        {
+            // Avoid the exceptions of the CQL parser for statements which are bound to fail
+            return createClassifiedEntryBuilder(classification, state);
+        }
+
         try
         {
             CQLStatement statement = QueryProcessor.getStatement(operation, state).statement;
@@ -125,12 +214,54 @@ public class AuditEntryBuilderFactory
         }
         catch (InvalidRequestException e)
         {
+            if (classification.isDataStatement())
+            {
+                LOG.trace("Failed to prepare statement - using classified statement", e);
+                return createClassifiedEntryBuilder(classification, state);
+            }
+
             LOG.trace("Failed to prepare statement - trying direct parsing", e);
             ParsedStatement parsedStatement = getParsedStatement(operation, state);
             return createEntryBuilder(parsedStatement);
         }
     }
 
+    private static boolean isExistingTable(Classification classification, ClientState state)
+    {
+        String keyspace = getKeyspace(classification, state);
+        return keyspace != null && Schema.instance.getCFMetaData(keyspace, classification.getTable()) != null;
+    }
+
+    private static String getKeyspace(Classification classification, ClientState state)
+    {
+        return classification.getKeyspace() == null
+               ? state.getRawKeyspace()
+               : classification.getKeyspace();
+    }
+
+    private Builder createClassifiedEntryBuilder(Classification classification, ClientState state)
+    {
+        String keyspace = getKeyspace(classification, state);
+        if (keyspace == null)
+        {
+            return createDefaultEntryBuilder();
+        }
+
+        Set<Permission> permissions;
+        if (classification.getKind() == Kind.SELECT)
+        {
+            permissions = SELECT_PERMISSIONS;
+        }
+        else
+        {
+            permissions = classification.isConditional() ? CAS_PERMISSIONS : MODIFY_PERMISSIONS;
+        }
+
+        return AuditEntry.newBuilder()
+                         .permissions(permissions)
+                         .resource(DataResource.table(keyspace, classification.getTable()));
+    }
+
     private ParsedStatement getParsedStatement(String operation, ClientState state)
     {
         ParsedStatement parsedStatement = QueryProcessor.parseStatement(operation);
@@ -149,88 +280,14 @@ public class AuditEntryBuilderFactory
      * @param parsedStatement the {@link ParsedStatement} or {@link CFStatement}
      * @return the initialized builder with operation and resource assigned
      */
-    @SuppressWarnings("PMD")
     private Builder createEntryBuilder(ParsedStatement parsedStatement)
     {
-        if (parsedStatement instanceof SelectStatement.RawStatement)
-        {
-            return createSelectEntryBuilder((SelectStatement.RawStatement) parsedStatement);
-        }
-        if (parsedStatement instanceof ModificationStatement.Parsed)
-        {
-            return createModificationEntryBuilder((ModificationStatement.Parsed) parsedStatement);
-        }
-        if (parsedStatement instanceof TruncateStatement)
-        {
-            return createTruncateEntryBuilder((TruncateStatement) parsedStatement);
-        }
-        if (parsedStatement instanceof UseStatement)
-        {
-            return createUseEntryBuilder((UseStatement) parsedStatement);
-        }
-        if (parsedStatement instanceof SchemaAlteringStatement)
-        {
-            return createSchemaAlteringEntryBuilder((SchemaAlteringStatement) parsedStatement);
-        }
-        if (parsedStatement instanceof AuthenticationStatement)
-        {
-            return createAuthenticationEntryBuilder((AuthenticationStatement) parsedStatement);
-        }
-        if (parsedStatement instanceof AuthorizationStatement)
-        {
-            return createAuthorizationEntryBuilder((AuthorizationStatement) parsedStatement);
-        }
-
-        if (parsedStatement instanceof BatchStatement.Parsed)
-        {
-            LOG.error(UNEXPECTED_BATCH_STATEMENT);
-            throw new CassandraAuditException(UNEXPECTED_BATCH_STATEMENT);
-        }
-
-        LOG.warn("Detected unrecognized CQLStatement in audit mapping");
-        return createDefaultEntryBuilder();
+        return statementMappers.createEntryBuilder(parsedStatement);
     }
 
-    @SuppressWarnings("PMD")
     public Builder createEntryBuilder(CQLStatement statement)
     {
-        if (statement instanceof SelectStatement)
-        {
-            return createSelectEntryBuilder((SelectStatement) statement);
-        }
-        if (statement instanceof ModificationStatement)
-        {
-            return createModificationEntryBuilder((ModificationStatement) statement);
-        }
-        if (statement instanceof TruncateStatement)
-        {
-            return createTruncateEntryBuilder((TruncateStatement) statement);
-        }
-        if (statement instanceof UseStatement)
-        {
-            return createUseEntryBuilder((UseStatement) statement);
-        }
-        if (statement instanceof SchemaAlteringStatement)
-        {
-            return createSchemaAlteringEntryBuilder((SchemaAlteringStatement) statement);
-        }
-        if (statement instanceof AuthenticationStatement)
-        {
-            return createAuthenticationEntryBuilder((AuthenticationStatement) statement);
-        }
-        if (statement instanceof AuthorizationStatement)
-        {
-            return createAuthorizationEntryBuilder((AuthorizationStatement) statement);
-        }
-
-        if (statement instanceof BatchStatement)
-        {
-            LOG.error("Unexpected BatchStatement when mapping singe query for audit");
-            throw new CassandraAuditException("Unexpected BatchStatement when mapping singe query for audit");
-        }
-
-        LOG.warn("Detected unrecognized CQLStatement in audit mapping");
-        return createDefaultEntryBuilder();
+        return statementMappers.createEntryBuilder(statement);
     }
 
     public Builder createBatchEntryBuilder()
@@ -240,25 +297,6 @@ public class AuditEntryBuilderFactory
                          .resource(DataResource.root());
     }
 
-    public Builder updateBatchEntryBuilder(Builder builder, String operation, ClientState state)
-    {
-        CQLStatement statement;
-        try
-        {
-            statement = QueryProcessor.getStatement(operation, state).statement;
-        }
-        catch (RuntimeException e)
-        {
-            // TODO: We should be able to fix this
-            // This would be the result of a query towards a non-existing resource in a batch statement
-            // But right now we don't get here since batch statements fail pre-processing
-            LOG.error("Failed to parse and prepare BatchStatement when mapping singe query for audit", e);
-            throw new CassandraAuditException("Failed to parse and prepare BatchStatement when mapping singe query for audit", e);
-        }
-
-        return updateBatchEntryBuilder(builder, (ModificationStatement) statement);
-    }
-
     public Builder updateBatchEntryBuilder(Builder builder, ModificationStatement statement)
     {
         return builder
@@ -289,19 +327,8 @@ public class AuditEntryBuilderFactory
 
     private Builder createModificationEntryBuilder(ModificationStatement.Parsed statement)
     {
-        Set<Permission> permissions;
-        try
-        {
-            boolean hasCondition = !((List<?>) FieldUtils.readField(statement, "conditions", true)).isEmpty();
-            permissions = hasCondition ? CAS_PERMISSIONS : MODIFY_PERMISSIONS;
-        }
-        catch (IllegalAccessException e)
-        {
-            throw new CassandraAuditException("Failed to resolve resource", e);
-        }
-
         return AuditEntry.newBuilder()
-                         .permissions(permissions)
+                         .permissions(statementResourceAdapter.hasConditions(statement) ? CAS_PERMISSIONS : MODIFY_PERMISSIONS)
                          .resource(DataResource.table(statement.keyspace(), statement.columnFamily()));
     }
 
@@ -319,29 +346,6 @@ public class AuditEntryBuilderFactory
                          .resource(statementResourceAdapter.resolveKeyspaceResource(statement));
     }
 
-    private Builder createAuthenticationEntryBuilder(AuthenticationStatement statement)
-    {
-        if (statement instanceof CreateRoleStatement)
-        {
-            return createCreateRoleEntryBuilder((CreateRoleStatement) statement);
-        }
-        if (statement instanceof AlterRoleStatement)
-        {
-            return createAlterRoleEntryBuilder((AlterRoleStatement) statement);
-        }
-        if (statement instanceof DropRoleStatement)
-        {
-            return createDropRoleEntryBuilder((DropRoleStatement) statement);
-        }
-        if (statement instanceof RoleManagementStatement)
-        {
-            return createRoleManagementEntryBuilder((RoleManagementStatement) statement);
-        }
-
-        LOG.warn("Detected unrecognized AuthenticationStatement in audit mapping");
-        return createDefaultEntryBuilder();
-    }
-
     private Builder createCreateRoleEntryBuilder(CreateRoleStatement statement)
     {
         return AuditEntry.newBuilder()
@@ -370,25 +374,6 @@ public class AuditEntryBuilderFactory
                          .resource(statementResourceAdapter.resolveRoleResource(statement));
     }
 
-    private Builder createAuthorizationEntryBuilder(AuthorizationStatement statement)
-    {
-        if (statement instanceof ListRolesStatement)
-        {
-            return createListRolesEntryBuilder((ListRolesStatement) statement);
-        }
-        if (statement instanceof ListPermissionsStatement)
-        {
-            return createListPermissionsEntryBuilder((ListPermissionsStatement) statement);
-        }
-        if (statement instanceof PermissionsManagementStatement)
-        {
-            return createPermissionsManagementEntryBuilder((PermissionsManagementStatement) statement);
-        }
-
-        LOG.warn("Detected unrecognized AuthorizationStatement in audit mapping");
-        return createDefaultEntryBuilder();
-    }
-
     private Builder createListRolesEntryBuilder(ListRolesStatement statement)
     {
         return AuditEntry.newBuilder()
@@ -410,88 +395,6 @@ public class AuditEntryBuilderFactory
                          .resource(statementResourceAdapter.resolveManagedResource(statement));
     }
 
-    @SuppressWarnings("PMD")
-    private Builder createSchemaAlteringEntryBuilder(SchemaAlteringStatement statement)
-    {
-        if (statement instanceof CreateKeyspaceStatement)
-        {
-            return createCreateKeyspaceEntryBuilder((CreateKeyspaceStatement) statement);
-        }
-        if (statement instanceof AlterKeyspaceStatement)
-        {
-            return createAlterKeyspaceEntryBuilder((AlterKeyspaceStatement) statement);
-        }
-        if (statement instanceof DropKeyspaceStatement)
-        {
-            return createDropKeyspaceEntryBuilder((DropKeyspaceStatement) statement);
-        }
-
-        if (statement instanceof CreateTableStatement)
-        {
-            return createCreateTableEntryBuilder((CreateTableStatement) statement);
-        }
-        if (statement instanceof AlterTableStatement)
-        {
-            return createAlterTableEntryBuilder((AlterTableStatement) statement);
-        }
-        if (statement instanceof DropTableStatement)
-        {
-            return createDropTableEntryBuilder((DropTableStatement) statement);
-        }
-
-        if (statement instanceof CreateTypeStatement)
-        {
-            return createCreateTypeEntryBuilder((CreateTypeStatement) statement);
-        }
-        if (statement instanceof AlterTypeStatement)
-        {
-            return createAlterTypeEntryBuilder((AlterTypeStatement) statement);
-        }
-        if (statement instanceof DropTypeStatement)
-        {
-            return createDropTypeEntryBuilder((DropTypeStatement) statement);
-        }
-
-        if (statement instanceof CreateFunctionStatement)
-        {
-            return createCreateFunctionEntryBuilder((CreateFunctionStatement) statement);
-        }
-        if (statement instanceof DropFunctionStatement)
-        {
-            return createDropFunctionEntryBuilder((DropFunctionStatement) statement);
-        }
-
-        if (statement instanceof CreateAggregateStatement)
-        {
-            return createCreateAggregateEntryBuilder((CreateAggregateStatement) statement);
-        }
-        if (statement instanceof DropAggregateStatement)
-        {
-            return createDropAggregateEntryBuilder((DropAggregateStatement) statement);
-        }
-
-        if (statement instanceof CreateIndexStatement)
-        {
-            return createCreateIndexEntryBuilder((CreateIndexStatement) statement);
-        }
-        if (statement instanceof DropIndexStatement)
-        {
-            return createDropIndexEntryBuilder((DropIndexStatement) statement);
-        }
-
-        if (statement instanceof CreateTriggerStatement)
-        {
-            return createCreateTriggerEntryBuilder((CreateTriggerStatement) statement);
-        }
-        if (statement instanceof DropTriggerStatement)
-        {
-            return createDropTriggerEntryBuilder((DropTriggerStatement) statement);
-        }
-
-        LOG.warn("Detected unrecognized SchemaAlteringStatement in audit mapping");
-        return createDefaultEntryBuilder();
-    }
-
     private Builder createCreateKeyspaceEntryBuilder(CreateKeyspaceStatement statement)
     {
         return AuditEntry.newBuilder()
@@ -611,6 +514,18 @@ public class AuditEntryBuilderFactory
                          .resource(DataResource.table(statement.keyspace(), statement.columnFamily()));
     }
 
+    private Builder createUnrecognizedEntryBuilder(String statementType)
+    {
+        LOG.warn("Detected unrecognized {} in audit mapping", statementType);
+        return createDefaultEntryBuilder();
+    }
+
+    private Builder createUnexpectedBatchEntryBuilder()
+    {
+        LOG.error(UNEXPECTED_BATCH_STATEMENT);
+        throw new CassandraAuditException(UNEXPECTED_BATCH_STATEMENT);
+    }
+
     private Builder createDefaultEntryBuilder()
     {
         return AuditEntry.newBuilder()
@@ -0,0 +1,403 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.entry.factory;
+
+import java.util.Locale;
+import java.util.Set;
+
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * A lightweight token level classifier of CQL statements.
+ * <p>
+ * The classifier resolves the kind, the table and the conditional form of data statements without involving the CQL
+ * parser or the schema. It is used to describe statements which fail to prepare or parse, and never throws on
+ * malformed input. Statements which are not recognized are classified as {@link Kind#UNRECOGNIZED}.
+ */
+final class CqlStatementClassifier
+{
+    private static final Set<String> OTHER_STATEMENT_KEYWORDS = ImmutableSet.of("alter", "begin", "create", "drop",
+                                                                                 "grant", "list", "revoke",
+                                                                                 "truncate", "use");
+
+    private CqlStatementClassifier()
+    {
+        // Utility class
+    }
+
+    enum Kind
+    {
+        SELECT,
+        INSERT,
+        UPDATE,
+        DELETE,
+        /**
+         * A statement with a valid leading keyword which is not classified any further.
+         */
+        OTHER,
+        /**
+         * A statement which is malformed or does not start with a CQL statement keyword.
+         */
+        UNRECOGNIZED
+    }
+
+    /**
+     * The result of a classification.
+     */
+    static final class Classification
+    {
+        private static final Classification OTHER = new Classification(Kind.OTHER, null, null, false);
+        private static final Classification UNRECOGNIZED = new Classification(Kind.UNRECOGNIZED, null, null, false);
+
+        private final Kind kind;
+        private final String keyspace;
+        private final String table;
+        private final boolean conditional;
+
+        private Classification(Kind kind, String keyspace, String table, boolean conditional)
+        {
+            this.kind = kind;
+            this.keyspace = keyspace;
+            this.table = table;
+            this.conditional = conditional;
+        }
+
+        Kind getKind()
+        {
+            return kind;
+        }
+
+        /**
+         * @return {@code true} if this is a select or modification statement on a table
+         */
+        boolean isDataStatement()
+        {
+            return table != null;
+        }
+
+        /**
+         * @return the keyspace given in the statement, or {@code null} if the table name was not qualified
+         */
+        String getKeyspace()
+        {
+            return keyspace;
+        }
+
+        String getTable()
+        {
+            return table;
+        }
+
+        /**
+         * @return {@code true} if this is a modification statement with an IF clause
+         */
+        boolean isConditional()
+        {
+            return conditional;
+        }
+    }
+
+    /**
+     * Classify a CQL statement.
+     *
+     * @param cql the query string
+     * @return the classification of the statement
+     */
+    static Classification classify(String cql)
+    {
+        Tokenizer tokenizer = new Tokenizer(cql);
+        if (!tokenizer.next() || tokenizer.type != TokenType.WORD)
+        {
+            return Classification.UNRECOGNIZED;
+        }
+
+        switch (tokenizer.text)
+        {
+        case "select":
+            return classifyData(tokenizer, Kind.SELECT, "from");
+        case "insert":
+            return classifyData(tokenizer, Kind.INSERT, "into");
+        case "update":
+            return classifyData(tokenizer, Kind.UPDATE, null);
+        case "delete":
+            return classifyData(tokenizer, Kind.DELETE, "from");
+        default:
+            return OTHER_STATEMENT_KEYWORDS.contains(tokenizer.text) && tokenizer.skipToEnd()
+                   ? Classification.OTHER
+                   : Classification.UNRECOGNIZED;
+        }
+    }
+
+    private static Classification classifyData(Tokenizer tokenizer, Kind kind, String tableKeyword)
+    {
+        if (tableKeyword != null && !tokenizer.skipToWord(tableKeyword))
+        {
+            return Classification.UNRECOGNIZED;
+        }
+
+        if (!tokenizer.next() || !tokenizer.isName())
+        {
+            return Classification.UNRECOGNIZED;
+        }
+
+        String keyspace = null;
+        String table = tokenizer.text;
+        if (tokenizer.nextIfSymbol('.'))
+        {
+            if (!tokenizer.next() || !tokenizer.isName())
+            {
+                return Classification.UNRECOGNIZED;
+            }
+            keyspace = table;
+            table = tokenizer.text;
+        }
+
+        boolean conditional = kind != Kind.SELECT && tokenizer.skipToWord("if");
+        return tokenizer.skipToEnd()
+               ? new Classification(kind, keyspace, table, conditional)
+               : Classification.UNRECOGNIZED;
+    }
+
+    private enum TokenType
+    {
+        /**
+         * An unquoted identifier, keyword or number, in lower case.
+         */
+        WORD,
+        /**
+         * A double quoted identifier, unescaped and case preserved.
+         */
+        QUOTED_NAME,
+        /**
+         * A string literal, the text is not retained.
+         */
+        STRING,
+        SYMBOL
+    }
+
+    private static final class Tokenizer
+    {
+        private final String cql;
+        private int position;
+        private boolean malformed;
+
+        private TokenType type;
+        private String text;
+        private char symbol;
+
+        Tokenizer(String cql)
+        {
+            this.cql = cql;
+        }
+
+        boolean isName()
+        {
+            return type == TokenType.QUOTED_NAME || type == TokenType.WORD && Character.isLetter(text.charAt(0));
+        }
+
+        boolean isWord(String word)
+        {
+            return type == TokenType.WORD && text.equals(word);
+        }
+
+        boolean isSymbol(char expected)
+        {
+            return type == TokenType.SYMBOL && symbol == expected;
+        }
+
+        boolean skipToWord(String word)
+        {
+            while (next())
+            {
+                if (isWord(word))
+                {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * @return {@code true} if the remaining tokens are well-formed
+         */
+        boolean skipToEnd()
+        {
+            boolean hasMore;
+            do
+            {
+                hasMore = next();
+            }
+            while (hasMore);
+            return !malformed;
+        }
+
+        /**
+         * Advance to the next token only if it is the expected symbol.
+         *
+         * @param expected the expected symbol
+         * @return {@code true} if the expected symbol was consumed
+         */
+        boolean nextIfSymbol(char expected)
+        {
+            int start = position;
+            boolean found = next() && isSymbol(expected);
+            if (!found && !malformed)
+            {
+                position = start;
+            }
+            return found;
+        }
+
+        /**
+         * Advance to the next token.
+         *
+         * @return {@code false} at the end of the statement or if the statement is malformed
+         */
+        boolean next()
+        {
+            if (!skipWhitespaceAndComments())
+            {
+                return false;
+            }
+
+            char c = cql.charAt(position);
+            if (Character.isLetterOrDigit(c) || c == '_')
+            {
+                readWord();
+                return true;
+            }
+            if (c == '"')
+            {
+                return readQuoted('"', TokenType.QUOTED_NAME);
+            }
+            if (c == '\'')
+            {
+                return readQuoted('\'', TokenType.STRING);
+            }
+            if (c == '$' && cql.startsWith("$$", position))
+            {
+                return readDollarQuoted();
+            }
+
+            type = TokenType.SYMBOL;
+            symbol = c;
+            text = "";
+            position++;
+            return true;
+        }
+
+        private void readWord()
+        {
+            int start = position;
+            while (position < cql.length() && isWordCharacter(cql.charAt(position)))
+            {
+                position++;
+            }
+            type = TokenType.WORD;
+            text = cql.substring(start, position).toLowerCase(Locale.US);
+        }
+
+        private static boolean isWordCharacter(char c)
+        {
+            return Character.isLetterOrDigit(c) || c == '_';
+        }
+
+        private boolean readQuoted(char quote, TokenType quotedType)
+        {
+            StringBuilder builder = quotedType == TokenType.QUOTED_NAME ? new StringBuilder() : null;
+            int index = position + 1;
+            while (index < cql.length())
+            {
+                char c = cql.charAt(index);
+                if (c == quote)
+                {
+                    if (index + 1 < cql.length() && cql.charAt(index + 1) == quote)
+                    {
+                        appendIfPresent(builder, c);
+                        index += 2;
+                        continue;
+                    }
+                    position = index + 1;
+                    type = quotedType;
+                    text = builder == null ? "" : builder.toString();
+                    return true;
+                }
+                appendIfPresent(builder, c);
+                index++;
+            }
+            return markMalformed();
+        }
+
+        private static void appendIfPresent(StringBuilder builder, char c)
+        {
+            if (builder != null)
+            {
+                builder.append(c);
+            }
+        }
+
+        private boolean readDollarQuoted()
+        {
+            int end = cql.indexOf("$$", position + 2);
+            if (end < 0)
+            {
+                return markMalformed();
+            }
+            position = end + 2;
+            type = TokenType.STRING;
+            text = "";
+            return true;
+        }
+
+        private boolean skipWhitespaceAndComments()
+        {
+            while (position < cql.length())
+            {
+                char c = cql.charAt(position);
+                if (Character.isWhitespace(c))
+                {
+                    position++;
+                }
+                else if (cql.startsWith("--", position) || cql.startsWith("//", position))
+                {
+                    int end = cql.indexOf('\n', position);
+                    position = end < 0 ? cql.length() : end + 1;
+                }
+                else if (cql.startsWith("/*", position))
+                {
+                    int end = cql.indexOf("*/", position + 2);
+                    if (end < 0)
+                    {
+                        return markMalformed();
+                    }
+                    position = end + 2;
+                }
+                else
+                {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean markMalformed()
+        {
+            malformed = true;
+            position = cql.length();
+            return false;
+        }
+    }
+}
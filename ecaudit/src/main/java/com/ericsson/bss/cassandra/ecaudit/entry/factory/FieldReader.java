@@ -0,0 +1,94 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.entry.factory;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+
+import com.ericsson.bss.cassandra.ecaudit.facade.CassandraAuditException;
+
+/**
+ * Reads a non-public field of a Cassandra statement through a method handle.
+ * <p>
+ * The field is resolved once on creation, which makes a missing or renamed field fail at startup rather than on the
+ * first audited statement.
+ *
+ * @param <T> the type of the field
+ */
+final class FieldReader<T>
+{
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    private final String description;
+    private final MethodHandle getter;
+
+    private FieldReader(String description, MethodHandle getter)
+    {
+        this.description = description;
+        this.getter = getter;
+    }
+
+    /**
+     * Resolve a field reader.
+     *
+     * @param declaringClass the class declaring the field
+     * @param fieldName      the name of the field
+     * @param fieldType      the expected type of the field
+     * @param <T>            the type of the field
+     * @return a new field reader
+     * @throws CassandraAuditException if the field does not exist or has an unexpected type
+     */
+    static <T> FieldReader<T> forField(Class<?> declaringClass, String fieldName, Class<? super T> fieldType)
+    {
+        String description = declaringClass.getName() + "." + fieldName;
+        try
+        {
+            Field field = declaringClass.getDeclaredField(fieldName);
+            if (!fieldType.isAssignableFrom(field.getType()))
+            {
+                throw new CassandraAuditException("Unexpected type of field " + description + ": " + field.getType().getName());
+            }
+            field.setAccessible(true);
+            MethodHandle getter = MethodHandles.lookup().unreflectGetter(field).asType(GETTER_TYPE);
+            return new FieldReader<>(description, getter);
+        }
+        catch (NoSuchFieldException | IllegalAccessException | SecurityException e)
+        {
+            throw new CassandraAuditException("Failed to resolve field " + description, e);
+        }
+    }
+
+    /**
+     * Read the field of a statement.
+     *
+     * @param statement the statement to read from, an instance of the declaring class
+     * @return the value of the field
+     */
+    @SuppressWarnings("unchecked")
+    T read(Object statement)
+    {
+        try
+        {
+            return (T) getter.invokeExact(statement);
+        }
+        catch (Throwable e) // NOPMD
+        {
+            throw new CassandraAuditException("Failed to read field " + description, e);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.entry.factory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import com.ericsson.bss.cassandra.ecaudit.entry.AuditEntry.Builder;
+
+/**
+ * A registry of entry builder mappers by statement class.
+ * <p>
+ * The mapper of a statement class is the first registered mapper of a matching class or interface, in registration
+ * order. It is resolved on the first lookup of each statement class and cached in a {@link ClassValue}, so that later
+ * lookups are a constant time operation regardless of the number of registered mappers. All mappers must be
+ * registered before the first lookup.
+ */
+final class StatementMapperRegistry
+{
+    private final List<Mapping> mappings = new ArrayList<>();
+    private final Function<Object, Builder> fallbackMapper;
+
+    private final ClassValue<Function<Object, Builder>> mappersByClass = new ClassValue<Function<Object, Builder>>()
+    {
+        @Override
+        protected Function<Object, Builder> computeValue(Class<?> statementClass)
+        {
+            return findMapper(statementClass);
+        }
+    };
+
+    /**
+     * @param fallbackMapper the mapper to use for statements of unrecognized classes
+     */
+    StatementMapperRegistry(Function<Object, Builder> fallbackMapper)
+    {
+        this.fallbackMapper = fallbackMapper;
+    }
+
+    /**
+     * Register a mapper for statements of a class, including sub-classes.
+     *
+     * @param statementClass the statement class
+     * @param mapper         the mapper to create entry builders for the statement class
+     * @param <T>            the statement type
+     * @return this registry
+     */
+    <T> StatementMapperRegistry register(Class<T> statementClass, Function<? super T, Builder> mapper)
+    {
+        mappings.add(new Mapping(statementClass, statement -> mapper.apply(statementClass.cast(statement))));
+        return this;
+    }
+
+    /**
+     * Create an entry builder for a statement.
+     *
+     * @param statement the statement
+     * @return a builder with permissions and resource of the statement
+     */
+    Builder createEntryBuilder(Object statement)
+    {
+        return mappersByClass.get(statement.getClass()).apply(statement);
+    }
+
+    private Function<Object, Builder> findMapper(Class<?> statementClass)
+    {
+        for (Mapping mapping : mappings)
+        {
+            if (mapping.statementClass.isAssignableFrom(statementClass))
+            {
+                return mapping.mapper;
+            }
+        }
+
+        return fallbackMapper;
+    }
+
+    private static final class Mapping
+    {
+        private final Class<?> statementClass;
+        private final Function<Object, Builder> mapper;
+
+        Mapping(Class<?> statementClass, Function<Object, Builder> mapper)
+        {
+            this.statementClass = statementClass;
+            this.mapper = mapper;
+        }
+    }
+}
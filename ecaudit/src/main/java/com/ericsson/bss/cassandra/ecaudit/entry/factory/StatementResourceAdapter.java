@@ -17,146 +17,123 @@ package com.ericsson.bss.cassandra.ecaudit.entry.factory;
 
 import java.util.List;
 
-import org.apache.commons.lang3.reflect.FieldUtils;
-
-import com.ericsson.bss.cassandra.ecaudit.facade.CassandraAuditException;
 import org.apache.cassandra.auth.DataResource;
 import org.apache.cassandra.auth.FunctionResource;
 import org.apache.cassandra.auth.IResource;
 import org.apache.cassandra.auth.RoleResource;
 import org.apache.cassandra.cql3.CQL3Type;
 import org.apache.cassandra.cql3.functions.FunctionName;
-import org.apache.cassandra.cql3.statements.AuthenticationStatement;
-import org.apache.cassandra.cql3.statements.AuthorizationStatement;
+import org.apache.cassandra.cql3.statements.AlterRoleStatement;
 import org.apache.cassandra.cql3.statements.CreateAggregateStatement;
 import org.apache.cassandra.cql3.statements.CreateFunctionStatement;
+import org.apache.cassandra.cql3.statements.CreateRoleStatement;
 import org.apache.cassandra.cql3.statements.DropAggregateStatement;
 import org.apache.cassandra.cql3.statements.DropFunctionStatement;
+import org.apache.cassandra.cql3.statements.DropRoleStatement;
+import org.apache.cassandra.cql3.statements.ListPermissionsStatement;
+import org.apache.cassandra.cql3.statements.ListRolesStatement;
+import org.apache.cassandra.cql3.statements.ModificationStatement;
 import org.apache.cassandra.cql3.statements.PermissionsManagementStatement;
+import org.apache.cassandra.cql3.statements.RoleManagementStatement;
 import org.apache.cassandra.cql3.statements.UseStatement;
 
+/**
+ * Extracts the resources of statements which are not exposed by the Cassandra statement types.
+ * <p>
+ * All fields are resolved when the class is loaded, so that a Cassandra version with renamed fields fails at startup.
+ */
 class StatementResourceAdapter
 {
+    private static final String ROLE = "role";
+    private static final String GRANTEE = "grantee";
+    private static final String FUNCTION_NAME = "functionName";
+    private static final String ARG_RAW_TYPES = "argRawTypes";
+
+    private static final FieldReader<RoleResource> CREATE_ROLE_ROLE = FieldReader.forField(CreateRoleStatement.class, ROLE, RoleResource.class);
+    private static final FieldReader<RoleResource> ALTER_ROLE_ROLE = FieldReader.forField(AlterRoleStatement.class, ROLE, RoleResource.class);
+    private static final FieldReader<RoleResource> DROP_ROLE_ROLE = FieldReader.forField(DropRoleStatement.class, ROLE, RoleResource.class);
+    private static final FieldReader<RoleResource> ROLE_MANAGEMENT_ROLE = FieldReader.forField(RoleManagementStatement.class, ROLE, RoleResource.class);
+    private static final FieldReader<IResource> PERMISSIONS_MANAGEMENT_RESOURCE = FieldReader.forField(PermissionsManagementStatement.class, "resource", IResource.class);
+    private static final FieldReader<RoleResource> LIST_ROLES_GRANTEE = FieldReader.forField(ListRolesStatement.class, GRANTEE, RoleResource.class);
+    private static final FieldReader<RoleResource> LIST_PERMISSIONS_GRANTEE = FieldReader.forField(ListPermissionsStatement.class, GRANTEE, RoleResource.class);
+    private static final FieldReader<String> USE_KEYSPACE = FieldReader.forField(UseStatement.class, "keyspace", String.class);
+    private static final FieldReader<FunctionName> CREATE_FUNCTION_NAME = FieldReader.forField(CreateFunctionStatement.class, FUNCTION_NAME, FunctionName.class);
+    private static final FieldReader<FunctionName> DROP_FUNCTION_NAME = FieldReader.forField(DropFunctionStatement.class, FUNCTION_NAME, FunctionName.class);
+    private static final FieldReader<List<CQL3Type.Raw>> DROP_FUNCTION_ARGS = FieldReader.forField(DropFunctionStatement.class, ARG_RAW_TYPES, List.class);
+    private static final FieldReader<FunctionName> CREATE_AGGREGATE_NAME = FieldReader.forField(CreateAggregateStatement.class, FUNCTION_NAME, FunctionName.class);
+    private static final FieldReader<FunctionName> DROP_AGGREGATE_NAME = FieldReader.forField(DropAggregateStatement.class, FUNCTION_NAME, FunctionName.class);
+    private static final FieldReader<List<CQL3Type.Raw>> DROP_AGGREGATE_ARGS = FieldReader.forField(DropAggregateStatement.class, ARG_RAW_TYPES, List.class);
+    private static final FieldReader<List<?>> MODIFICATION_CONDITIONS = FieldReader.forField(ModificationStatement.Parsed.class, "conditions", List.class);
+
+    RoleResource resolveRoleResource(CreateRoleStatement statement)
+    {
+        return CREATE_ROLE_ROLE.read(statement);
+    }
 
-    private static final String FAILED_TO_RESOLVE_RESOURCE = "Failed to resolve resource";
-    public static final String FUNCTION_NAME = "functionName";
-
-    /**
-     * Extract the {@link RoleResource} from the {@link AuthenticationStatement}.
-     * <p>
-     * The abstract type {@link AuthenticationStatement} itself does not contain any member named "role".
-     * But all known implementation does have a member with correct name and type.
-     *
-     * @param statement the statement
-     * @return the RoleResource
-     */
-    RoleResource resolveRoleResource(AuthenticationStatement statement)
+    RoleResource resolveRoleResource(AlterRoleStatement statement)
     {
-        try
-        {
-            return (RoleResource) FieldUtils.readField(statement, "role", true);
-        }
-        catch (IllegalAccessException e)
-        {
-            throw new CassandraAuditException(FAILED_TO_RESOLVE_RESOURCE, e);
-        }
+        return ALTER_ROLE_ROLE.read(statement);
+    }
+
+    RoleResource resolveRoleResource(DropRoleStatement statement)
+    {
+        return DROP_ROLE_ROLE.read(statement);
+    }
+
+    RoleResource resolveRoleResource(RoleManagementStatement statement)
+    {
+        return ROLE_MANAGEMENT_ROLE.read(statement);
     }
 
     IResource resolveManagedResource(PermissionsManagementStatement statement)
     {
-        try
-        {
-            return (IResource) FieldUtils.readField(statement, "resource", true);
-        }
-        catch (IllegalAccessException e)
-        {
-            throw new CassandraAuditException(FAILED_TO_RESOLVE_RESOURCE, e);
-        }
+        return PERMISSIONS_MANAGEMENT_RESOURCE.read(statement);
+    }
+
+    RoleResource resolveGranteeResource(ListRolesStatement statement)
+    {
+        return rootIfNull(LIST_ROLES_GRANTEE.read(statement));
+    }
+
+    RoleResource resolveGranteeResource(ListPermissionsStatement statement)
+    {
+        return rootIfNull(LIST_PERMISSIONS_GRANTEE.read(statement));
     }
 
-    RoleResource resolveGranteeResource(AuthorizationStatement statement)
+    private static RoleResource rootIfNull(RoleResource resource)
     {
-        try
-        {
-            RoleResource resource = (RoleResource) FieldUtils.readField(statement, "grantee", true);
-            if (resource == null)
-            {
-                resource = RoleResource.root();
-            }
-            return resource;
-        }
-        catch (IllegalAccessException e)
-        {
-            throw new CassandraAuditException(FAILED_TO_RESOLVE_RESOURCE, e);
-        }
+        return resource == null ? RoleResource.root() : resource;
     }
 
     DataResource resolveKeyspaceResource(UseStatement statement)
     {
-        try
-        {
-            String keyspace = (String) FieldUtils.readField(statement, "keyspace", true);
-            return DataResource.keyspace(keyspace);
-        }
-        catch (IllegalAccessException e)
-        {
-            throw new CassandraAuditException(FAILED_TO_RESOLVE_RESOURCE, e);
-        }
+        return DataResource.keyspace(USE_KEYSPACE.read(statement));
     }
 
     FunctionResource resolveFunctionKeyspaceResource(CreateFunctionStatement statement)
     {
-        try
-        {
-            FunctionName functionName = (FunctionName)  FieldUtils.readField(statement, FUNCTION_NAME, true);
-            return FunctionResource.keyspace(functionName.keyspace);
-        }
-        catch (IllegalAccessException e)
-        {
-            throw new CassandraAuditException("Failed to resolve base keyspace of function" + statement.keyspace() + "." + statement.columnFamily(), e);
-        }
+        return FunctionResource.keyspace(CREATE_FUNCTION_NAME.read(statement).keyspace);
     }
 
     FunctionResource resolveFunctionResource(DropFunctionStatement statement)
     {
-        try
-        {
-            FunctionName functionName = (FunctionName)  FieldUtils.readField(statement, FUNCTION_NAME, true);
-            @SuppressWarnings("unchecked")
-            List<CQL3Type.Raw> argRawTypes = (List<CQL3Type.Raw>) FieldUtils.readField(statement, "argRawTypes", true);
-            return FunctionResource.functionFromCql(functionName.keyspace, functionName.name, argRawTypes);
-        }
-        catch (IllegalAccessException e)
-        {
-            throw new CassandraAuditException("Failed to resolve base table of function " + statement.keyspace() + "." + statement.columnFamily(), e);
-        }
+        FunctionName functionName = DROP_FUNCTION_NAME.read(statement);
+        return FunctionResource.functionFromCql(functionName.keyspace, functionName.name, DROP_FUNCTION_ARGS.read(statement));
     }
 
     FunctionResource resolveAggregateKeyspaceResource(CreateAggregateStatement statement)
     {
-        try
-        {
-            FunctionName functionName = (FunctionName)  FieldUtils.readField(statement, FUNCTION_NAME, true);
-            return FunctionResource.keyspace(functionName.keyspace);
-        }
-        catch (IllegalAccessException e)
-        {
-            throw new CassandraAuditException("Failed to resolve base keyspace of aggregate" + statement.keyspace() + "." + statement.columnFamily(), e);
-        }
+        return FunctionResource.keyspace(CREATE_AGGREGATE_NAME.read(statement).keyspace);
     }
 
     FunctionResource resolveAggregateResource(DropAggregateStatement statement)
     {
-        try
-        {
-            FunctionName functionName = (FunctionName)  FieldUtils.readField(statement, FUNCTION_NAME, true);
-            @SuppressWarnings("unchecked")
-            List<CQL3Type.Raw> argRawTypes = (List<CQL3Type.Raw>) FieldUtils.readField(statement, "argRawTypes", true);
-            return FunctionResource.functionFromCql(functionName.keyspace, functionName.name, argRawTypes);
-        }
-        catch (IllegalAccessException e)
-        {
-            throw new CassandraAuditException("Failed to resolve base table of function " + statement.keyspace() + "." + statement.columnFamily(), e);
-        }
+        FunctionName functionName = DROP_AGGREGATE_NAME.read(statement);
+        return FunctionResource.functionFromCql(functionName.keyspace, functionName.name, DROP_AGGREGATE_ARGS.read(statement));
+    }
+
+    boolean hasConditions(ModificationStatement.Parsed statement)
+    {
+        return !MODIFICATION_CONDITIONS.read(statement).isEmpty();
     }
 }
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.entry.factory;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import com.ericsson.bss.cassandra.ecaudit.entry.AuditEntry;
+import com.ericsson.bss.cassandra.ecaudit.entry.AuditEntry.Builder;
+import com.ericsson.bss.cassandra.ecaudit.metrics.StatementCacheMetrics;
+import org.apache.cassandra.db.marshal.AbstractType;
+import org.apache.cassandra.service.ClientState;
+import org.apache.cassandra.service.MigrationListener;
+import org.apache.cassandra.service.MigrationManager;
+
+/**
+ * A bounded cache of the resource and permissions of unprepared statements, keyed by the current keyspace of the
+ * client and the query string.
+ * <p>
+ * This allows repeated unprepared statements to skip the CQL parser. The cache is invalidated on any schema change
+ * since the resolved resource may depend on the schema.
+ */
+public class UnpreparedStatementCache
+{
+    private final Cache<StatementKey, AuditEntry> prototypes;
+    private final StatementCacheMetrics metrics;
+    private final AtomicLong schemaVersion = new AtomicLong();
+    private final MigrationListener schemaChangeListener = new SchemaChangeListener();
+
+    /**
+     * Create a new cache and register it for schema changes.
+     *
+     * @param maximumSize the maximum number of statements to keep in the cache
+     * @return a new cache
+     */
+    public static UnpreparedStatementCache createRegistered(int maximumSize)
+    {
+        UnpreparedStatementCache cache = new UnpreparedStatementCache(maximumSize, new StatementCacheMetrics());
+        MigrationManager.instance.register(cache.schemaChangeListener);
+        return cache;
+    }
+
+    @VisibleForTesting
+    UnpreparedStatementCache(int maximumSize, StatementCacheMetrics metrics)
+    {
+        this.prototypes = CacheBuilder.newBuilder()
+                                      .maximumSize(maximumSize)
+                                      .build();
+        this.metrics = metrics;
+    }
+
+    /**
+     * Get an entry builder with the resource and permissions of a statement, loading it on a cache miss.
+     * <p>
+     * Nothing is cached if the loader fails.
+     *
+     * @param operation the query string
+     * @param state     the client state accompanying the statement
+     * @param loader    parses the statement and creates a builder with its resource and permissions
+     * @return a new builder with the resource and permissions of the statement
+     */
+    Builder getEntryBuilder(String operation, ClientState state, BiFunction<String, ClientState, Builder> loader)
+    {
+        StatementKey key = new StatementKey(state.getRawKeyspace(), operation);
+        AuditEntry prototype = prototypes.getIfPresent(key);
+        if (prototype != null)
+        {
+            metrics.hit();
+            return AuditEntry.newBuilder().basedOn(prototype);
+        }
+
+        metrics.miss();
+        long version = schemaVersion.get();
+        Builder builder = loader.apply(operation, state);
+        prototypes.put(key, builder.build());
+        if (version != schemaVersion.get())
+        {
+            // The schema changed while the statement was resolved
+            prototypes.invalidate(key);
+        }
+
+        return builder;
+    }
+
+    @VisibleForTesting
+    void invalidateAll()
+    {
+        schemaVersion.incrementAndGet();
+        prototypes.invalidateAll();
+    }
+
+    @VisibleForTesting
+    MigrationListener getSchemaChangeListener()
+    {
+        return schemaChangeListener;
+    }
+
+    private static final class StatementKey
+    {
+        private final String keyspace;
+        private final String operation;
+
+        StatementKey(String keyspace, String operation)
+        {
+            this.keyspace = keyspace;
+            this.operation = operation;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o)
+            {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass())
+            {
+                return false;
+            }
+            StatementKey other = (StatementKey) o;
+            return Objects.equals(keyspace, other.keyspace) && operation.equals(other.operation);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(keyspace, operation);
+        }
+    }
+
+    private class SchemaChangeListener extends MigrationListener
+    {
+        @Override
+        public void onCreateKeyspace(String ksName)
+        {
+            invalidateAll();
+        }
+
+        @Override
+        public void onCreateColumnFamily(String ksName, String cfName)
+        {
+            invalidateAll();
+        }
+
+        @Override
+        public void onCreateFunction(String ksName, String functionName, List<AbstractType<?>> argTypes)
+        {
+            invalidateAll();
+        }
+
+        @Override
+        public void onCreateAggregate(String ksName, String aggregateName, List<AbstractType<?>> argTypes)
+        {
+            invalidateAll();
+        }
+
+        @Override
+        public void onUpdateKeyspace(String ksName)
+        {
+            invalidateAll();
+        }
+
+        @Override
+        public void onUpdateColumnFamily(String ksName, String cfName, boolean columnsDidChange)
+        {
+            invalidateAll();
+        }
+
+        @Override
+        public void onDropKeyspace(String ksName)
+        {
+            invalidateAll();
+        }
+
+        @Override
+        public void onDropColumnFamily(String ksName, String cfName)
+        {
+            invalidateAll();
+        }
+
+        @Override
+        public void onDropFunction(String ksName, String functionName, List<AbstractType<?>> argTypes)
+        {
+            invalidateAll();
+        }
+
+        @Override
+        public void onDropAggregate(String ksName, String aggregateName, List<AbstractType<?>> argTypes)
+        {
+            invalidateAll();
+        }
+    }
+}
@@ -34,4 +34,16 @@ public interface BoundValueSuppressor
      * should not be suppressed.
      */
     Optional<String> suppress(ColumnSpecification column, ByteBuffer value);
+
+    /**
+     * Tells if the outcome of {@link #suppress(ColumnSpecification, ByteBuffer)} depends on the bound value or only on
+     * the column. If it only depends on the column, the outcome may be computed once per prepared statement and reused
+     * for every execution.
+     *
+     * @return {@code true} if the bound value may affect the outcome, {@code false} otherwise
+     */
+    default boolean isValueDependent()
+    {
+        return true;
+    }
 }
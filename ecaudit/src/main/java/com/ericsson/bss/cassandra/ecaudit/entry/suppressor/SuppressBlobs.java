@@ -37,6 +37,12 @@ public class SuppressBlobs extends AbstractSuppressor
                : Optional.empty();
     }
 
+    @Override
+    public boolean isValueDependent()
+    {
+        return false;
+    }
+
     private boolean containsBlob(AbstractType<?> type)
     {
         if (type.asCQL3Type() instanceof CQL3Type.Native)
@@ -31,6 +31,12 @@ public class SuppressClusteringAndRegular extends AbstractSuppressor
                : Optional.empty();
     }
 
+    @Override
+    public boolean isValueDependent()
+    {
+        return false;
+    }
+
     private static boolean isClusteringOrRegular(ColumnSpecification column)
     {
         return column instanceof ColumnDefinition
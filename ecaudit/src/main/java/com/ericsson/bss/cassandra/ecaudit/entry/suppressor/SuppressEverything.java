@@ -27,4 +27,10 @@ public class SuppressEverything extends AbstractSuppressor
     {
         return Optional.of(suppressWithType(column)); // All values should be suppressed
     }
+
+    @Override
+    public boolean isValueDependent()
+    {
+        return false;
+    }
 }
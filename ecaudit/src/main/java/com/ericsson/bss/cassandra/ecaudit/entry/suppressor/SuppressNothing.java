@@ -27,4 +27,10 @@ public class SuppressNothing implements BoundValueSuppressor
     {
         return Optional.empty(); // No values should be suppressed
     }
+
+    @Override
+    public boolean isValueDependent()
+    {
+        return false;
+    }
 }
@@ -31,6 +31,12 @@ public class SuppressRegular extends AbstractSuppressor
                : Optional.empty();
     }
 
+    @Override
+    public boolean isValueDependent()
+    {
+        return false;
+    }
+
     private static boolean isRegularKey(ColumnSpecification column)
     {
         return column instanceof ColumnDefinition && ((ColumnDefinition) column).isRegular();
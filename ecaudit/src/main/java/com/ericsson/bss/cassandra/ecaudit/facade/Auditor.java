@@ -15,11 +15,15 @@
  */
 package com.ericsson.bss.cassandra.ecaudit.facade;
 
+import java.util.Optional;
+import java.util.function.Supplier;
+
 import com.google.common.annotations.VisibleForTesting;
 
 import com.ericsson.bss.cassandra.ecaudit.LogTimingStrategy;
 import com.ericsson.bss.cassandra.ecaudit.common.record.Status;
 import com.ericsson.bss.cassandra.ecaudit.entry.AuditEntry;
+import com.ericsson.bss.cassandra.ecaudit.filter.PreFilterDecision;
 import com.ericsson.bss.cassandra.ecaudit.logger.AuditLogger;
 
 /**
@@ -35,6 +39,54 @@ public interface Auditor
      */
     void audit(AuditEntry logEntry);
 
+    /**
+     * Filter and obfuscate an audit log entry without committing it.
+     * <p>
+     * This allows the outcome to be reused when the same request is audited for several statuses.
+     *
+     * @param logEntry the log entry to filter and obfuscate
+     * @return the obfuscated log entry, or {@link Optional#empty()} if the entry is filtered
+     */
+    Optional<AuditEntry> filterAndObfuscate(AuditEntry logEntry);
+
+    /**
+     * Filter and obfuscate the audit log entry of a request without committing it.
+     * <p>
+     * An early filter decision is taken on the user before the log entry is created, see {@link #preFilter(String)}.
+     *
+     * @param user          the user issuing the request
+     * @param entrySupplier creates the log entry, only invoked if the early decision is not conclusive
+     * @return the obfuscated log entry, or {@link Optional#empty()} if the entry is filtered
+     */
+    Optional<AuditEntry> filterAndObfuscate(String user, Supplier<AuditEntry> entrySupplier);
+
+    /**
+     * Take an early filter decision for requests from a user, before their log entries are created.
+     *
+     * @param user the user issuing the request
+     * @return the early filter decision
+     */
+    PreFilterDecision preFilter(String user);
+
+    /**
+     * Create an auditor for the log entries of a batch from a single user.
+     * <p>
+     * The early filter decision and the filter state of the user are resolved once for all log entries of the batch.
+     *
+     * @param user the user issuing the batch
+     * @return an auditor for the log entries of the batch, or {@link Optional#empty()} if all log entries of the user
+     *         are filtered
+     */
+    Optional<BatchAuditor> createBatchAuditor(String user);
+
+    /**
+     * Commit an audit log entry which has already been filtered and obfuscated.
+     *
+     * @param logEntry the log entry to commit
+     * @see #filterAndObfuscate(AuditEntry)
+     */
+    void log(AuditEntry logEntry);
+
     /**
      * Setup is called once upon system startup to initialize the Auditor.
      *
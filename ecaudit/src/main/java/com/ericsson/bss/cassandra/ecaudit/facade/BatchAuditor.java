@@ -0,0 +1,39 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.facade;
+
+import com.ericsson.bss.cassandra.ecaudit.entry.AuditEntry;
+
+/**
+ * Audits the log entries of a single batch.
+ * <p>
+ * Log entries are filtered, obfuscated and logged as they are added. Logger backends which store the shared fields of
+ * a batch once collect the entries until the batch is committed.
+ */
+public interface BatchAuditor
+{
+    /**
+     * Filter and obfuscate a log entry of the batch.
+     *
+     * @param logEntry the log entry to add to the batch
+     */
+    void audit(AuditEntry logEntry);
+
+    /**
+     * Commit the log entries of the batch which were collected by logger backends to the audit log.
+     */
+    void commit();
+}
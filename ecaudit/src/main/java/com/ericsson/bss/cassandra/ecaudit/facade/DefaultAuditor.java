@@ -17,13 +17,18 @@ package com.ericsson.bss.cassandra.ecaudit.facade;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 import com.ericsson.bss.cassandra.ecaudit.LogTimingStrategy;
 import com.ericsson.bss.cassandra.ecaudit.common.record.Status;
 import com.ericsson.bss.cassandra.ecaudit.entry.AuditEntry;
 import com.ericsson.bss.cassandra.ecaudit.filter.AuditFilter;
+import com.ericsson.bss.cassandra.ecaudit.filter.PreFilterDecision;
 import com.ericsson.bss.cassandra.ecaudit.logger.AuditLogger;
+import com.ericsson.bss.cassandra.ecaudit.logger.BatchSink;
 import com.ericsson.bss.cassandra.ecaudit.metrics.AuditMetrics;
 import com.ericsson.bss.cassandra.ecaudit.obfuscator.AuditObfuscator;
 
@@ -64,20 +69,89 @@ public class DefaultAuditor implements Auditor
 
     @Override
     public void audit(AuditEntry logEntry)
+    {
+        filterAndObfuscate(logEntry).ifPresent(this::log);
+    }
+
+    @Override
+    public Optional<AuditEntry> filterAndObfuscate(AuditEntry logEntry)
     {
         if (shouldAudit(logEntry))
         {
-            AuditEntry obfuscatedEntry = obfuscator.obfuscate(logEntry);
-            performAudit(obfuscatedEntry);
+            return Optional.of(obfuscator.obfuscate(logEntry));
+        }
+
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<AuditEntry> filterAndObfuscate(String user, Supplier<AuditEntry> entrySupplier)
+    {
+        switch (preFilter(user))
+        {
+        case FILTERED:
+            return Optional.empty();
+        case NOT_FILTERED:
+            return Optional.of(obfuscator.obfuscate(entrySupplier.get()));
+        default:
+            return filterAndObfuscate(entrySupplier.get());
+        }
+    }
+
+    @Override
+    public PreFilterDecision preFilter(String user)
+    {
+        long start = System.nanoTime();
+        try
+        {
+            return filter.preFilter(user);
+        }
+        finally
+        {
+            long end = System.nanoTime();
+            auditMetrics.filterAuditRequest(end - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public Optional<BatchAuditor> createBatchAuditor(String user)
+    {
+        switch (preFilter(user))
+        {
+        case FILTERED:
+            return Optional.empty();
+        case NOT_FILTERED:
+            return Optional.of(new DefaultBatchAuditor(logEntry -> false));
+        default:
+            return Optional.of(new DefaultBatchAuditor(createUserFilter(user)));
+        }
+    }
+
+    private Predicate<AuditEntry> createUserFilter(String user)
+    {
+        long start = System.nanoTime();
+        try
+        {
+            return filter.createUserFilter(user);
+        }
+        finally
+        {
+            long end = System.nanoTime();
+            auditMetrics.filterAuditRequest(end - start, TimeUnit.NANOSECONDS);
         }
     }
 
     private boolean shouldAudit(AuditEntry logEntry)
+    {
+        return shouldAudit(filter::isFiltered, logEntry);
+    }
+
+    private boolean shouldAudit(Predicate<AuditEntry> entryFilter, AuditEntry logEntry)
     {
         long start = System.nanoTime();
         try
         {
-            return !filter.isFiltered(logEntry);
+            return !entryFilter.test(logEntry);
         }
         finally
         {
@@ -86,7 +160,8 @@ public class DefaultAuditor implements Auditor
         }
     }
 
-    private void performAudit(AuditEntry logEntry)
+    @Override
+    public void log(AuditEntry logEntry)
     {
         long start = System.nanoTime();
         try
@@ -129,4 +204,90 @@ public class DefaultAuditor implements Auditor
     {
         loggers.remove(logger);
     }
+
+    /**
+     * Audits the entries of a batch as they are added.
+     * <p>
+     * Each entry which is not filtered is passed on to the loggers at once, except for loggers which provide a
+     * {@link BatchSink}. Those sinks collect the entries until the batch is committed. The sinks are created when the
+     * first entry of the batch is logged.
+     */
+    private class DefaultBatchAuditor implements BatchAuditor
+    {
+        private final Predicate<AuditEntry> userFilter;
+        private List<AuditLogger> entryLoggers;
+        private List<BatchSink> batchSinks;
+
+        DefaultBatchAuditor(Predicate<AuditEntry> userFilter)
+        {
+            this.userFilter = userFilter;
+        }
+
+        @Override
+        public void audit(AuditEntry logEntry)
+        {
+            if (shouldAudit(userFilter, logEntry))
+            {
+                log(obfuscator.obfuscate(logEntry));
+            }
+        }
+
+        private void log(AuditEntry logEntry)
+        {
+            if (batchSinks == null)
+            {
+                createSinks();
+            }
+
+            long start = System.nanoTime();
+            try
+            {
+                entryLoggers.forEach(logger -> logger.log(logEntry));
+                batchSinks.forEach(batchSink -> batchSink.add(logEntry));
+            }
+            finally
+            {
+                long end = System.nanoTime();
+                auditMetrics.logAuditRequest(end - start, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        private void createSinks()
+        {
+            entryLoggers = new ArrayList<>(loggers.size());
+            batchSinks = new ArrayList<>(loggers.size());
+            for (AuditLogger logger : loggers)
+            {
+                Optional<BatchSink> batchSink = logger.createBatchSink();
+                if (batchSink.isPresent())
+                {
+                    batchSinks.add(batchSink.get());
+                }
+                else
+                {
+                    entryLoggers.add(logger);
+                }
+            }
+        }
+
+        @Override
+        public void commit()
+        {
+            if (batchSinks == null || batchSinks.isEmpty())
+            {
+                return;
+            }
+
+            long start = System.nanoTime();
+            try
+            {
+                batchSinks.forEach(BatchSink::commit);
+            }
+            finally
+            {
+                long end = System.nanoTime();
+                auditMetrics.logAuditRequest(end - start, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
 }
@@ -15,6 +15,8 @@
  */
 package com.ericsson.bss.cassandra.ecaudit.filter;
 
+import java.util.function.Predicate;
+
 import com.ericsson.bss.cassandra.ecaudit.entry.AuditEntry;
 
 /**
@@ -31,6 +33,38 @@ public interface AuditFilter {
      */
     boolean isFiltered(AuditEntry logEntry);
 
+    /**
+     * Return an early decision on whether requests from the given user are exempt from audit logging.
+     * <p>
+     * This is called before the audit entry of a CQL request is created, i.e. before the statement is parsed. The
+     * decision must hold for any operation and resource the user may access, otherwise {@link PreFilterDecision#NEED_RESOURCE}
+     * is to be returned and {@link #isFiltered(AuditEntry)} will be consulted with the complete log entry.
+     *
+     * @param user
+     *            the user issuing the request
+     * @return the early filter decision
+     */
+    default PreFilterDecision preFilter(String user)
+    {
+        return PreFilterDecision.NEED_RESOURCE;
+    }
+
+    /**
+     * Return a filter for the log entries of a single user, such as the statements of a batch.
+     * <p>
+     * Implementations may resolve the filter state of the user, like roles and their whitelists, once for all log
+     * entries passed to the returned filter. All log entries passed to the returned filter must belong to the given
+     * user.
+     *
+     * @param user
+     *            the user issuing the requests
+     * @return a predicate which is true for log entries to be exempt from audit
+     */
+    default Predicate<AuditEntry> createUserFilter(String user)
+    {
+        return this::isFiltered;
+    }
+
     /**
      * Setup is called once upon system startup to initialize the AuditFilter.
      *
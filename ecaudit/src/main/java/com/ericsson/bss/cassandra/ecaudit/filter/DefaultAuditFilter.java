@@ -27,6 +27,12 @@ public class DefaultAuditFilter implements AuditFilter {
         return false;
     }
 
+    @Override
+    public PreFilterDecision preFilter(String user)
+    {
+        return PreFilterDecision.NOT_FILTERED;
+    }
+
     @Override
     public void setup()
     {
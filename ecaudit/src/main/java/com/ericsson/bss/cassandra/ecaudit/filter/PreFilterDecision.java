@@ -0,0 +1,39 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.filter;
+
+/**
+ * The outcome of an early filter decision, taken before the audit entry of a request has been created.
+ *
+ * @see AuditFilter#preFilter(String)
+ */
+public enum PreFilterDecision
+{
+    /**
+     * The request is exempt from audit logging, regardless of its operation and resource.
+     */
+    FILTERED,
+
+    /**
+     * The request is to be audit logged, regardless of its operation and resource.
+     */
+    NOT_FILTERED,
+
+    /**
+     * The operation and resource of the request are required to decide, see {@link AuditFilter#isFiltered}.
+     */
+    NEED_RESOURCE
+}
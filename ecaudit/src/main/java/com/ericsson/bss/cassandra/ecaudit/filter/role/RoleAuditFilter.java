@@ -15,13 +15,18 @@
  */
 package com.ericsson.bss.cassandra.ecaudit.filter.role;
 
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
 import com.google.common.util.concurrent.UncheckedExecutionException;
 
 import com.ericsson.bss.cassandra.ecaudit.auth.AuditWhitelistCache;
@@ -29,6 +34,9 @@ import com.ericsson.bss.cassandra.ecaudit.utils.Exceptions;
 import com.ericsson.bss.cassandra.ecaudit.auth.WhitelistDataAccess;
 import com.ericsson.bss.cassandra.ecaudit.entry.AuditEntry;
 import com.ericsson.bss.cassandra.ecaudit.filter.AuditFilter;
+import com.ericsson.bss.cassandra.ecaudit.filter.PreFilterDecision;
+import org.apache.cassandra.auth.DataResource;
+import org.apache.cassandra.auth.FunctionResource;
 import org.apache.cassandra.auth.IResource;
 import org.apache.cassandra.auth.Permission;
 import org.apache.cassandra.auth.Resources;
@@ -40,6 +48,10 @@ import org.apache.cassandra.auth.Roles;
  */
 public class RoleAuditFilter implements AuditFilter
 {
+    private static final List<IResource> ROOT_RESOURCES = ImmutableList.of(DataResource.root(),
+                                                                           RoleResource.root(),
+                                                                           FunctionResource.root());
+
     private final Function<RoleResource, Set<RoleResource>> getRolesFunction;
     private final AuditWhitelistCache whitelistCache;
     private final WhitelistDataAccess whitelistDataAccess;
@@ -91,10 +103,90 @@ public class RoleAuditFilter implements AuditFilter
 
     private boolean isFilteredUnchecked(AuditEntry logEntry)
     {
-        Set<RoleResource> roles = getRoles(logEntry.getUser());
+        return isFilteredByWhitelists(logEntry, getWhitelists(logEntry.getUser()));
+    }
+
+    /**
+     * Returns a filter which resolves the roles of the supplied user and their whitelists once, and then behaves as
+     * {@link #isFiltered(AuditEntry)} for every log entry of that user.
+     *
+     * @param user
+     *            the user issuing the requests
+     * @return a predicate which is true for white-listed log entries
+     */
+    @Override
+    public Predicate<AuditEntry> createUserFilter(String user)
+    {
+        try
+        {
+            List<Map<IResource, Set<Permission>>> whitelists = getWhitelists(user);
+            return logEntry -> isFilteredByWhitelists(logEntry, whitelists);
+        }
+        catch (UncheckedExecutionException e)
+        {
+            throw Exceptions.tryGetCassandraExceptionCause(e);
+        }
+    }
+
+    private static boolean isFilteredByWhitelists(AuditEntry logEntry, List<Map<IResource, Set<Permission>>> whitelists)
+    {
         List<? extends IResource> operationResourceChain = Resources.chain(logEntry.getResource());
         return logEntry.getPermissions().stream()
-                       .allMatch(permission -> isOperationWhitelistedOnResourceByRoles(permission, operationResourceChain, roles));
+                       .allMatch(permission -> isOperationWhitelistedOnResource(permission, operationResourceChain, whitelists));
+    }
+
+    /**
+     * Returns an early decision based on the whitelists of the supplied user's roles.
+     *
+     * Requests are filtered if the roles of the user are white-listed for all applicable operations on the root of
+     * every resource hierarchy, and never filtered if none of the roles has a whitelist.
+     *
+     * @param user
+     *            the user issuing the request
+     * @return the early filter decision
+     */
+    @Override
+    public PreFilterDecision preFilter(String user)
+    {
+        try
+        {
+            return preFilterUnchecked(user);
+        }
+        catch (UncheckedExecutionException e)
+        {
+            throw Exceptions.tryGetCassandraExceptionCause(e);
+        }
+    }
+
+    private PreFilterDecision preFilterUnchecked(String user)
+    {
+        List<Map<IResource, Set<Permission>>> whitelists = getWhitelists(user);
+        if (whitelists.isEmpty())
+        {
+            return PreFilterDecision.NOT_FILTERED;
+        }
+
+        if (ROOT_RESOURCES.stream().allMatch(root -> isFullyWhitelisted(root, whitelists)))
+        {
+            return PreFilterDecision.FILTERED;
+        }
+
+        return PreFilterDecision.NEED_RESOURCE;
+    }
+
+    private static boolean isFullyWhitelisted(IResource root, List<Map<IResource, Set<Permission>>> whitelists)
+    {
+        Set<Permission> whitelistedOperations = EnumSet.noneOf(Permission.class);
+        whitelists.forEach(whitelist -> whitelistedOperations.addAll(whitelist.getOrDefault(root, Collections.emptySet())));
+        return whitelistedOperations.containsAll(root.applicablePermissions());
+    }
+
+    private List<Map<IResource, Set<Permission>>> getWhitelists(String username)
+    {
+        return getRoles(username).stream()
+                                 .map(whitelistCache::getWhitelist)
+                                 .filter(whitelist -> !whitelist.isEmpty())
+                                 .collect(Collectors.toList());
     }
 
     private Set<RoleResource> getRoles(String username)
@@ -103,15 +195,14 @@ public class RoleAuditFilter implements AuditFilter
         return getRolesFunction.apply(primaryRole);
     }
 
-    private boolean isOperationWhitelistedOnResourceByRoles(Permission operation, List<? extends IResource> operationResourceChain, Set<RoleResource> roles)
+    private static boolean isOperationWhitelistedOnResource(Permission operation, List<? extends IResource> operationResourceChain, List<Map<IResource, Set<Permission>>> whitelists)
     {
-        return roles.stream()
-                    .anyMatch(role -> isOperationWhitelistedOnResourceByRole(operation, operationResourceChain, role));
+        return whitelists.stream()
+                         .anyMatch(whitelist -> isOperationWhitelistedOnResource(operation, operationResourceChain, whitelist));
     }
 
-    private boolean isOperationWhitelistedOnResourceByRole(Permission operation, List<? extends IResource> operationResourceChain, RoleResource role)
+    private static boolean isOperationWhitelistedOnResource(Permission operation, List<? extends IResource> operationResourceChain, Map<IResource, Set<Permission>> whitelist)
     {
-        Map<IResource, Set<Permission>> whitelist = whitelistCache.getWhitelist(role);
         return operationResourceChain.stream()
                                      .map(whitelist::get)
                                      .filter(Objects::nonNull)
@@ -21,6 +21,7 @@ import com.ericsson.bss.cassandra.ecaudit.auth.ConnectionResource;
 import com.ericsson.bss.cassandra.ecaudit.config.AuditConfig;
 import com.ericsson.bss.cassandra.ecaudit.entry.AuditEntry;
 import com.ericsson.bss.cassandra.ecaudit.filter.AuditFilter;
+import com.ericsson.bss.cassandra.ecaudit.filter.PreFilterDecision;
 
 /**
  * A simple whitelist filter that exempts certain users from being audited by having them in a whitelist.
@@ -48,6 +49,14 @@ public class YamlAuditFilter implements AuditFilter
         return whitelist.contains(user);
     }
 
+    @Override
+    public PreFilterDecision preFilter(String user)
+    {
+        return whitelist.contains(user)
+               ? PreFilterDecision.FILTERED
+               : PreFilterDecision.NOT_FILTERED;
+    }
+
     @Override
     public void setup()
     {
@@ -15,11 +15,14 @@
  */
 package com.ericsson.bss.cassandra.ecaudit.filter.yamlandrole;
 
+import java.util.function.Predicate;
+
 import com.google.common.annotations.VisibleForTesting;
 
 import com.ericsson.bss.cassandra.ecaudit.config.AuditConfig;
 import com.ericsson.bss.cassandra.ecaudit.entry.AuditEntry;
 import com.ericsson.bss.cassandra.ecaudit.filter.AuditFilter;
+import com.ericsson.bss.cassandra.ecaudit.filter.PreFilterDecision;
 import com.ericsson.bss.cassandra.ecaudit.filter.role.RoleAuditFilter;
 import com.ericsson.bss.cassandra.ecaudit.filter.yaml.YamlAuditFilter;
 
@@ -51,6 +54,24 @@ public class YamlAndRoleAuditFilter implements AuditFilter
         return yamlFilter.isFiltered(logEntry) || roleFilter.isFiltered(logEntry);
     }
 
+    @Override
+    public PreFilterDecision preFilter(String user)
+    {
+        if (yamlFilter.preFilter(user) == PreFilterDecision.FILTERED)
+        {
+            return PreFilterDecision.FILTERED;
+        }
+
+        return roleFilter.preFilter(user);
+    }
+
+    @Override
+    public Predicate<AuditEntry> createUserFilter(String user)
+    {
+        Predicate<AuditEntry> roleUserFilter = roleFilter.createUserFilter(user);
+        return logEntry -> yamlFilter.isFiltered(logEntry) || roleUserFilter.test(logEntry);
+    }
+
     @Override
     public void setup()
     {
@@ -24,6 +24,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.ericsson.bss.cassandra.ecaudit.AuditAdapter;
+import com.ericsson.bss.cassandra.ecaudit.AuditRequestContext;
 import com.ericsson.bss.cassandra.ecaudit.common.record.Status;
 import org.apache.cassandra.config.DatabaseDescriptor;
 import org.apache.cassandra.cql3.BatchQueryOptions;
@@ -100,16 +101,17 @@ public class AuditQueryHandler implements QueryHandler
                                  Map<String, ByteBuffer> customPayload) throws RequestExecutionException, RequestValidationException
     {
         long timestamp = System.currentTimeMillis();
-        auditAdapter.auditRegular(query, state.getClientState(), Status.ATTEMPT, timestamp);
+        AuditRequestContext context = auditAdapter.createRegularContext(query, state.getClientState(), timestamp);
+        auditAdapter.audit(context, Status.ATTEMPT);
         try
         {
             ResultMessage result = wrappedQueryHandler.process(query, state, options, customPayload);
-            auditAdapter.auditRegular(query, state.getClientState(), Status.SUCCEEDED, timestamp);
+            auditAdapter.audit(context, Status.SUCCEEDED);
             return result;
         }
         catch (RuntimeException e)
         {
-            auditAdapter.auditRegular(query, state.getClientState(), Status.FAILED, timestamp);
+            auditAdapter.audit(context, Status.FAILED);
             throw e;
         }
     }
@@ -133,16 +135,17 @@ public class AuditQueryHandler implements QueryHandler
     throws RequestExecutionException, RequestValidationException
     {
         long timestamp = System.currentTimeMillis();
-        auditAdapter.auditPrepared(id, statement, state.getClientState(), options, Status.ATTEMPT, timestamp);
+        AuditRequestContext context = auditAdapter.createPreparedContext(id, statement, state.getClientState(), options, timestamp);
+        auditAdapter.audit(context, Status.ATTEMPT);
         try
         {
             ResultMessage result = wrappedQueryHandler.processPrepared(statement, state, options, customPayload);
-            auditAdapter.auditPrepared(id, statement, state.getClientState(), options, Status.SUCCEEDED, timestamp);
+            auditAdapter.audit(context, Status.SUCCEEDED);
             return result;
         }
         catch (RuntimeException e)
         {
-            auditAdapter.auditPrepared(id, statement, state.getClientState(), options, Status.FAILED, timestamp);
+            auditAdapter.audit(context, Status.FAILED);
             throw e;
         }
     }
@@ -172,7 +175,11 @@ public class AuditQueryHandler implements QueryHandler
     throws RequestValidationException
     {
         Prepared prepared = wrappedQueryHandler.prepare(query, state, customPayload);
-        auditAdapter.mapIdToQuery(prepared.statementId, query);
+        ParsedStatement.Prepared preparedStatement = wrappedQueryHandler.getPrepared(prepared.statementId);
+        if (preparedStatement != null)
+        {
+            auditAdapter.createPreparedTemplate(query, preparedStatement);
+        }
 
         return prepared;
     }
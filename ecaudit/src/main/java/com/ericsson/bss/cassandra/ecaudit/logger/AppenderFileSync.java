@@ -0,0 +1,142 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardOpenOption;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.bytes.MappedBytes;
+import net.openhft.chronicle.queue.ExcerptAppender;
+import net.openhft.chronicle.queue.impl.ExcerptContext;
+import net.openhft.chronicle.wire.Wire;
+
+/**
+ * Forces the memory-mapped cycle file of an appender to stable storage.
+ * <p>
+ * Chronicle does not expose a sync operation, so the cycle file which is currently mapped by the appender is forced
+ * through a separate file channel. Pages which are written through the memory mapping share the page cache with the
+ * file channel and are included by the force.
+ * <p>
+ * The appender may roll over several cycle files within one sync group. Every cycle file released by the queue since
+ * the last sync is therefore forced before the current one, and the previous file is forced one last time before its
+ * channel is closed. A released file which has already been deleted or replaced by its archive is skipped. A cycle file
+ * which is still held by a tailer is released, and forced, at a later sync.
+ */
+final class AppenderFileSync implements GroupCommit.SyncAction
+{
+    private static final Logger LOG = LoggerFactory.getLogger(AppenderFileSync.class);
+
+    private final ExcerptAppender appender;
+    private final ReleasedCycleFiles releasedFiles;
+    private final FileForce fileForce;
+
+    private File currentFile;
+    private FileChannel currentChannel;
+
+    AppenderFileSync(ExcerptAppender appender, ReleasedCycleFiles releasedFiles)
+    {
+        this(appender, releasedFiles, (file, channel) -> channel.force(false));
+    }
+
+    @VisibleForTesting
+    AppenderFileSync(ExcerptAppender appender, ReleasedCycleFiles releasedFiles, FileForce fileForce)
+    {
+        this.appender = appender;
+        this.releasedFiles = releasedFiles;
+        this.fileForce = fileForce;
+    }
+
+    @Override
+    public void sync() throws IOException
+    {
+        for (File releasedFile : releasedFiles.drain())
+        {
+            if (!releasedFile.equals(currentFile))
+            {
+                forceReleased(releasedFile);
+            }
+        }
+
+        File file = mappedFile();
+        if (file == null)
+        {
+            return;
+        }
+
+        if (!file.equals(currentFile))
+        {
+            close();
+            currentChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            currentFile = file;
+        }
+
+        fileForce.force(currentFile, currentChannel);
+    }
+
+    private void forceReleased(File file) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+        {
+            fileForce.force(file, channel);
+        }
+        catch (NoSuchFileException e)
+        {
+            // Deleted by the retention policy or replaced by its archive, nothing left to sync
+            LOG.debug("Released Chronicle file {} is gone, skipping sync", file);
+        }
+    }
+
+    private File mappedFile()
+    {
+        // The appender has no wire until the first record is written to a cycle
+        Wire wire = appender instanceof ExcerptContext ? ((ExcerptContext) appender).wire() : null;
+        Bytes<?> bytes = wire == null ? null : wire.bytes();
+        return bytes instanceof MappedBytes ? ((MappedBytes) bytes).mappedFile().file() : null;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        if (currentChannel != null && currentChannel.isOpen())
+        {
+            try
+            {
+                fileForce.force(currentFile, currentChannel);
+            }
+            finally
+            {
+                currentChannel.close();
+            }
+        }
+    }
+
+    /**
+     * Forces a cycle file through its file channel.
+     */
+    @FunctionalInterface
+    interface FileForce
+    {
+        void force(File file, FileChannel channel) throws IOException;
+    }
+}
@@ -0,0 +1,408 @@
+/*
+ * Copyright 2019 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.logger;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ericsson.bss.cassandra.ecaudit.logger.GroupCommit.DurableRecord;
+import com.ericsson.bss.cassandra.ecaudit.logger.GroupCommit.SyncAction;
+import com.ericsson.bss.cassandra.ecaudit.metrics.ChronicleWriterMetrics;
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.bytes.BytesStore;
+import net.openhft.chronicle.queue.ChronicleQueue;
+import net.openhft.chronicle.queue.ExcerptAppender;
+import net.openhft.chronicle.wire.WireType;
+import net.openhft.chronicle.wire.WriteMarshallable;
+import org.apache.cassandra.concurrent.NamedThreadFactory;
+
+/**
+ * Writes records to the Chronicle queue on a dedicated writer thread.
+ * <p>
+ * Records are handed off from the request threads through a lock-free ring buffer. The writer drains the ring buffer in
+ * batches, writing all records which are available each time it wakes up.
+ * <p>
+ * If a {@link SpillFile} is configured, records which do not fit in the ring buffer are appended to the spill file
+ * instead of blocking the request thread. Once records are spilled all new records go to the spill file, until the
+ * writer has replayed the spill file into the Chronicle queue. This keeps the records of each thread in order, and
+ * records put after a record was spilled are written after it. The ring buffer is offered to without a lock, so a record
+ * put concurrently with a record which is being spilled may be written before it.
+ * <p>
+ * Written records are synced to stable storage in groups as defined by the {@link SyncPolicy}. With durable
+ * acknowledgement the request thread waits until the group containing its record has been synced.
+ */
+class AsyncChronicleWriter implements ChronicleWriter
+{
+    private static final Logger LOG = LoggerFactory.getLogger(AsyncChronicleWriter.class);
+
+    private static final int DRAIN_BATCH_SIZE = 256;
+    private static final long WRITER_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long SPILL_RETRY_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long ACK_POLL_MILLIS = 100;
+
+    private final Thread writerThread = new NamedThreadFactory("Chronicle Writer").newThread(this::writerLoop);
+    private final MpscRingBuffer<WriteMarshallable> queue;
+    private final WriterWaitStrategy waitStrategy;
+    private final SpillFile spillFile;
+    private final ChronicleWriterMetrics metrics;
+    private final ChronicleQueue chronicle;
+    private final ExcerptAppender appender;
+    private final GroupCommit groupCommit;
+    private final SizeRollingTimeProvider sizeRolling;
+    private final boolean durableAck;
+    private final Object spillLock = new Object();
+
+    private volatile boolean active = true;
+    private volatile boolean writerParked;
+    private volatile boolean spilling;
+
+    /**
+     * The size of the ring buffer, how threads wait, and when records are synced to stable storage are taken from the
+     * configuration.
+     *
+     * @param chronicle   the Chronicle queue to write to
+     * @param config      the Chronicle logger configuration
+     * @param spillFile   the file for records which do not fit in the ring buffer, or {@code null} to block instead
+     * @param sizeRolling the time provider of the queue which rolls on size, or {@code null} to roll on time only
+     * @param releasedFiles the cycle files released by the queue, or {@code null} if the sync policy is NONE
+     * @param metrics     the metrics of the writer, which may be shared with the writers of other shards
+     */
+    AsyncChronicleWriter(ChronicleQueue chronicle, ChronicleAuditLoggerConfig config, SpillFile spillFile,
+                         SizeRollingTimeProvider sizeRolling, ReleasedCycleFiles releasedFiles, ChronicleWriterMetrics metrics)
+    {
+        this.chronicle = chronicle;
+        appender = chronicle.acquireAppender();
+        queue = new MpscRingBuffer<>(config.getQueueSize());
+        waitStrategy = config.getWaitStrategy();
+        this.spillFile = spillFile;
+        this.metrics = metrics;
+        SyncPolicy syncPolicy = config.getSyncPolicy();
+        SyncAction syncAction = syncPolicy == SyncPolicy.NONE ? () -> {} : new AppenderFileSync(appender, releasedFiles);
+        groupCommit = new GroupCommit(syncPolicy, config.getSyncRecords(), config.getSyncInterval(), TimeUnit.MILLISECONDS, syncAction, metrics);
+        durableAck = config.isDurableAck();
+        this.sizeRolling = sizeRolling;
+        spilling = spillFile != null && !spillFile.isEmpty();
+        writerThread.start();
+    }
+
+    @VisibleForTesting
+    AsyncChronicleWriter(ChronicleQueue chronicle, int queueSize, WriterWaitStrategy waitStrategy, SpillFile spillFile, ChronicleWriterMetrics metrics)
+    {
+        this(chronicle, queueSize, waitStrategy, spillFile, metrics,
+             appender -> new GroupCommit(SyncPolicy.NONE, 1, 0, TimeUnit.MILLISECONDS, () -> {}, metrics), false);
+    }
+
+    @VisibleForTesting
+    AsyncChronicleWriter(ChronicleQueue chronicle, int queueSize, WriterWaitStrategy waitStrategy, SpillFile spillFile, ChronicleWriterMetrics metrics,
+                         Function<ExcerptAppender, GroupCommit> groupCommitFactory, boolean durableAck)
+    {
+        this.chronicle = chronicle;
+        appender = chronicle.acquireAppender();
+        queue = new MpscRingBuffer<>(queueSize);
+        this.waitStrategy = waitStrategy;
+        this.spillFile = spillFile;
+        this.metrics = metrics;
+        groupCommit = groupCommitFactory.apply(appender);
+        this.durableAck = durableAck;
+        sizeRolling = null;
+        spilling = spillFile != null && !spillFile.isEmpty();
+        writerThread.start();
+    }
+
+    /**
+     * @return the number of records in the ring buffer waiting for the writer
+     */
+    int queueDepth()
+    {
+        return queue.size();
+    }
+
+    /**
+     * @return the number of bytes in the spill file waiting for the writer
+     */
+    long spillSize()
+    {
+        return spillFile == null ? 0L : spillFile.size();
+    }
+
+    /**
+     * Hand off a record to the writer.
+     * <p>
+     * If the ring buffer is full the record is spilled, or if there is no spill file or the spill file is full, the
+     * request thread waits as defined by the {@link WriterWaitStrategy}.
+     * <p>
+     * With durable acknowledgement this method returns once the record has been synced to stable storage.
+     *
+     * @param record the record to write
+     * @throws InterruptedException if interrupted while waiting for the queue or the sync
+     */
+    @Override
+    public void put(WriteMarshallable record) throws InterruptedException
+    {
+        checkActive();
+
+        if (durableAck)
+        {
+            DurableRecord durableRecord = new DurableRecord(record);
+            enqueue(durableRecord);
+            awaitSynced(durableRecord);
+        }
+        else
+        {
+            enqueue(record);
+        }
+    }
+
+    private void enqueue(WriteMarshallable marshallable) throws InterruptedException
+    {
+        // Lock-free fast path, a concurrent spill may start after the check and be written after this record
+        if (spilling || !queue.offer(marshallable))
+        {
+            if (spillFile == null)
+            {
+                offerOrWait(marshallable);
+            }
+            else
+            {
+                spillOrWait(marshallable);
+            }
+        }
+
+        if (writerParked)
+        {
+            LockSupport.unpark(writerThread);
+        }
+    }
+
+    private void awaitSynced(DurableRecord record) throws InterruptedException
+    {
+        while (!record.awaitSynced(ACK_POLL_MILLIS, TimeUnit.MILLISECONDS))
+        {
+            checkActive();
+        }
+    }
+
+    private void offerOrWait(WriteMarshallable marshallable) throws InterruptedException
+    {
+        metrics.blockProducer();
+        do
+        {
+            waitForQueue();
+        } while (!queue.offer(marshallable));
+    }
+
+    private void spillOrWait(WriteMarshallable marshallable) throws InterruptedException
+    {
+        byte[] record = serialize(marshallable);
+        if (!trySpill(marshallable, record))
+        {
+            metrics.blockProducer();
+            do
+            {
+                waitForQueue();
+            } while (!trySpill(marshallable, record));
+        }
+    }
+
+    private boolean trySpill(WriteMarshallable marshallable, byte[] record)
+    {
+        synchronized (spillLock)
+        {
+            // The writer may have caught up with the spill file since we last looked
+            if (!spilling && queue.offer(marshallable))
+            {
+                return true;
+            }
+
+            if (spillFile.append(record))
+            {
+                spilling = true;
+                metrics.spillRecord();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    private static byte[] serialize(WriteMarshallable marshallable)
+    {
+        Bytes<?> bytes = Bytes.elasticHeapByteBuffer(256);
+        marshallable.writeMarshallable(WireType.BINARY_LIGHT.apply(bytes));
+        return bytes.toByteArray();
+    }
+
+    private void checkActive()
+    {
+        if (!active)
+        {
+            throw new IllegalStateException("Chronicle audit writer has been deactivated");
+        }
+    }
+
+    private void waitForQueue() throws InterruptedException
+    {
+        if (Thread.interrupted())
+        {
+            throw new InterruptedException();
+        }
+        checkActive();
+        waitStrategy.idle();
+    }
+
+    private void writerLoop()
+    {
+        while (active)
+        {
+            int written = queue.drain(this::write, DRAIN_BATCH_SIZE);
+            if (written == 0 && spilling)
+            {
+                written = replaySpillFile();
+            }
+
+            groupCommit.maybeSync(written == 0);
+            if (written == 0)
+            {
+                idle();
+            }
+        }
+
+        groupCommit.close();
+    }
+
+    private void write(WriteMarshallable marshallable)
+    {
+        if (sizeRolling == null)
+        {
+            appender.writeDocument(marshallable);
+        }
+        else
+        {
+            sizeRolling.write(appender, marshallable);
+        }
+
+        if (marshallable instanceof DurableRecord)
+        {
+            groupCommit.written((DurableRecord) marshallable);
+        }
+        else
+        {
+            groupCommit.written();
+        }
+    }
+
+    @SuppressWarnings("PMD.AvoidCatchingGenericException")
+    private int replaySpillFile()
+    {
+        try
+        {
+            List<byte[]> records = spillFile.readBatch(DRAIN_BATCH_SIZE);
+            for (byte[] record : records)
+            {
+                writeBytes(BytesStore.wrap(record));
+                groupCommit.written();
+            }
+            synchronized (spillLock)
+            {
+                spillFile.commitBatch();
+                spilling = !spillFile.isEmpty();
+            }
+            return records.size();
+        }
+        catch (RuntimeException e)
+        {
+            // Keep the records in the spill file and try again later
+            LOG.error("Failed to replay audit spill file", e);
+            LockSupport.parkNanos(this, SPILL_RETRY_NANOS);
+            return 0;
+        }
+    }
+
+    private void writeBytes(BytesStore record)
+    {
+        if (sizeRolling == null)
+        {
+            appender.writeBytes(record);
+        }
+        else
+        {
+            sizeRolling.write(appender, record);
+        }
+    }
+
+    private void idle()
+    {
+        if (waitStrategy != WriterWaitStrategy.PARK)
+        {
+            waitStrategy.idle();
+            return;
+        }
+
+        // Producers check the flag after publishing, so either they see it or we see their record
+        writerParked = true;
+        if (queue.isEmpty() && !spilling && active)
+        {
+            LockSupport.parkNanos(this, Math.min(WRITER_PARK_NANOS, groupCommit.nanosUntilDue()));
+        }
+        writerParked = false;
+    }
+
+    @Override
+    public synchronized void close()
+    {
+        if (!active)
+        {
+            return;
+        }
+
+        active = false;
+        try
+        {
+            writerThread.interrupt();
+            writerThread.join(500);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+
+        chronicle.close();
+        closeSpillFile();
+    }
+
+    private void closeSpillFile()
+    {
+        if (spillFile == null)
+        {
+            return;
+        }
+
+        try
+        {
+            spillFile.close();
+        }
+        catch (IOException e)
+        {
+            LOG.warn("Failed to close audit spill file", e);
+        }
+    }
+}
@@ -16,6 +16,7 @@
 package com.ericsson.bss.cassandra.ecaudit.logger;
 
 import java.util.Map;
+import java.util.Optional;
 
 import com.ericsson.bss.cassandra.ecaudit.entry.AuditEntry;
 
@@ -35,4 +36,18 @@ public interface AuditLogger
      * @param logEntry the entry to commit to the log
      */
     void log(AuditEntry logEntry);
+
+    /**
+     * Create a sink for the entries of a single batch.
+     * <p>
+     * The entries of a batch are typically the statements of a single batch, sharing all fields but the operation. By
+     * default no sink is created and each entry is logged with {@link #log(AuditEntry)} as soon as it is audited.
+     * Loggers which write a batch as one record return a sink which collects the entries until the batch is committed.
+     *
+     * @return the sink for the entries of a batch, or empty to log each entry individually
+     */
+    default Optional<BatchSink> createBatchSink()
+    {
+        return Optional.empty();
+    }
 }
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.logger;
+
+import com.ericsson.bss.cassandra.ecaudit.entry.AuditEntry;
+
+/**
+ * Collects the entries of a single batch for a logger which writes a batch as one record.
+ */
+public interface BatchSink
+{
+    /**
+     * Add an entry of the batch.
+     *
+     * @param logEntry the entry to add to the batch
+     */
+    void add(AuditEntry logEntry);
+
+    /**
+     * Commit the entries added to the batch to the audit log.
+     */
+    void commit();
+}
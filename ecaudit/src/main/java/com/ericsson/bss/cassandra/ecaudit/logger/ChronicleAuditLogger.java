@@ -15,44 +15,151 @@
  */
 package com.ericsson.bss.cassandra.ecaudit.logger;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.google.common.annotations.VisibleForTesting;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.ericsson.bss.cassandra.ecaudit.common.chronicle.AuditBatchWriteMarshallable;
 import com.ericsson.bss.cassandra.ecaudit.common.chronicle.AuditRecordWriteMarshallable;
 import com.ericsson.bss.cassandra.ecaudit.common.chronicle.FieldSelector;
+import com.ericsson.bss.cassandra.ecaudit.common.chronicle.SequencedWriteMarshallable;
+import com.ericsson.bss.cassandra.ecaudit.common.chronicle.WriteDictionary;
 import com.ericsson.bss.cassandra.ecaudit.entry.AuditEntry;
+import net.openhft.chronicle.wire.WriteMarshallable;
 
+/**
+ * Writes audit records to a Chronicle log.
+ * <p>
+ * The log may be split into several shards, each with a writer of its own, so that request threads do not all contend
+ * for a single writer. A request thread always writes to the same shard, which is selected by its thread id. Records
+ * written to a sharded log carry a sequence number, which orders records with the same timestamp when the shards are
+ * merged by a reader.
+ */
 public class ChronicleAuditLogger implements AuditLogger
 {
     private static final Logger LOG = LoggerFactory.getLogger(ChronicleAuditLogger.class);
 
-    private final ChronicleWriter writer;
+    private final List<ChronicleWriter> writers;
     private final FieldSelector configuredFields;
+    private final boolean compactBatch;
+    private final List<WriteDictionary> dictionaries;
+    private final AtomicLong sequence = new AtomicLong();
 
     public ChronicleAuditLogger(Map<String, String> parameters)
     {
         ChronicleAuditLoggerConfig config = new ChronicleAuditLoggerConfig(parameters);
-        writer = new ChronicleWriter(config);
+        writers = ChronicleWriterFactory.createShards(config);
         configuredFields = config.getFields();
+        compactBatch = config.isCompactBatch();
+        dictionaries = createDictionaries(config);
     }
 
     @VisibleForTesting
     ChronicleAuditLogger(ChronicleWriter writer, FieldSelector configuredFields)
     {
-        this.writer = writer;
+        this(writer, configuredFields, false);
+    }
+
+    @VisibleForTesting
+    ChronicleAuditLogger(ChronicleWriter writer, FieldSelector configuredFields, boolean compactBatch)
+    {
+        this(writer, configuredFields, compactBatch, null);
+    }
+
+    @VisibleForTesting
+    ChronicleAuditLogger(ChronicleWriter writer, FieldSelector configuredFields, boolean compactBatch, WriteDictionary dictionary)
+    {
+        this(Collections.singletonList(writer), configuredFields, compactBatch, Collections.singletonList(dictionary));
+    }
+
+    /**
+     * @param writers          the writers of the shards
+     * @param configuredFields the fields to write
+     * @param compactBatch     {@code true} to write batches as compact batch records
+     * @param dictionaries     the dictionaries of the shards, or {@code null} elements to write self-contained records
+     */
+    @VisibleForTesting
+    ChronicleAuditLogger(List<ChronicleWriter> writers, FieldSelector configuredFields, boolean compactBatch, List<WriteDictionary> dictionaries)
+    {
+        this.writers = writers;
         this.configuredFields = configuredFields;
+        this.compactBatch = compactBatch;
+        this.dictionaries = dictionaries;
+    }
+
+    /**
+     * Dictionary ids are scoped to the cycle file which is written, so each shard has a dictionary of its own.
+     */
+    private static List<WriteDictionary> createDictionaries(ChronicleAuditLoggerConfig config)
+    {
+        List<WriteDictionary> dictionaries = new ArrayList<>(config.getShards());
+        for (int shard = 0; shard < config.getShards(); shard++)
+        {
+            dictionaries.add(createDictionary(config));
+        }
+        return dictionaries;
+    }
+
+    private static WriteDictionary createDictionary(ChronicleAuditLoggerConfig config)
+    {
+        if (config.isDictionaryEncoding())
+        {
+            return new WriteDictionary(WriteDictionary.DEFAULT_MAX_SIZE, config.isCompactLayout());
+        }
+
+        return null; // Write self-contained records
     }
 
     @Override
     public void log(AuditEntry logEntry)
     {
-        AuditRecordWriteMarshallable auditRecordWriteMarshallable = new AuditRecordWriteMarshallable(logEntry, configuredFields);
+        int shard = currentShard();
+        put(shard, new AuditRecordWriteMarshallable(logEntry, configuredFields, dictionaries.get(shard)));
+    }
+
+    @Override
+    public Optional<BatchSink> createBatchSink()
+    {
+        return compactBatch
+               ? Optional.of(new CompactBatchSink())
+               : Optional.empty();
+    }
+
+    private void logBatch(List<AuditEntry> logEntries)
+    {
+        if (AuditBatchWriteMarshallable.isCompactable(logEntries))
+        {
+            int shard = currentShard();
+            put(shard, new AuditBatchWriteMarshallable(logEntries, configuredFields, dictionaries.get(shard)));
+        }
+        else
+        {
+            logEntries.forEach(this::log);
+        }
+    }
+
+    private int currentShard()
+    {
+        return writers.size() == 1
+               ? 0
+               : (int) (Thread.currentThread().getId() % writers.size());
+    }
+
+    private void put(int shard, WriteMarshallable marshallable)
+    {
+        WriteMarshallable record = writers.size() == 1
+                                   ? marshallable
+                                   : new SequencedWriteMarshallable(marshallable, sequence.getAndIncrement());
         try
         {
-            writer.put(auditRecordWriteMarshallable);
+            writers.get(shard).put(record);
         }
         catch (InterruptedException e)
         {
@@ -60,4 +167,27 @@ public class ChronicleAuditLogger implements AuditLogger
             Thread.currentThread().interrupt();
         }
     }
+
+    /**
+     * Collects the entries of a batch and writes them as one compact batch record on commit.
+     */
+    private class CompactBatchSink implements BatchSink
+    {
+        private final List<AuditEntry> logEntries = new ArrayList<>();
+
+        @Override
+        public void add(AuditEntry logEntry)
+        {
+            logEntries.add(logEntry);
+        }
+
+        @Override
+        public void commit()
+        {
+            if (!logEntries.isEmpty())
+            {
+                logBatch(logEntries);
+            }
+        }
+    }
 }
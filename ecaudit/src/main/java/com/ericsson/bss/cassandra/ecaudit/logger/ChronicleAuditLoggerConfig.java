@@ -15,101 +15,229 @@
  */
 package com.ericsson.bss.cassandra.ecaudit.logger;
 
-import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 import com.google.common.base.Splitter;
 
 import com.ericsson.bss.cassandra.ecaudit.common.chronicle.FieldSelector;
-import com.ericsson.bss.cassandra.ecaudit.utils.Exceptions;
 import net.openhft.chronicle.queue.RollCycle;
 import net.openhft.chronicle.queue.RollCycles;
 import org.apache.cassandra.exceptions.ConfigurationException;
 
+import static com.ericsson.bss.cassandra.ecaudit.logger.ChronicleOptions.mandatoryConfig;
+import static com.ericsson.bss.cassandra.ecaudit.logger.ChronicleOptions.resolveOption;
+import static com.ericsson.bss.cassandra.ecaudit.logger.ChronicleOptions.resolvePositiveInt;
+import static com.ericsson.bss.cassandra.ecaudit.logger.ChronicleOptions.resolvePositiveLong;
+
+@SuppressWarnings({"PMD.GodClass", "PMD.TooManyFields"})
 class ChronicleAuditLoggerConfig
 {
     private static final String CONFIG_LOG_DIR = "log_dir";
+    private static final String CONFIG_SHARDS = "shards";
     private static final String CONFIG_ROLL_CYCLE = "roll_cycle";
+    private static final String CONFIG_MAX_CYCLE_SIZE = "max_cycle_size";
     private static final String CONFIG_MAX_LOG_SIZE = "max_log_size";
+    private static final String CONFIG_MAX_LOG_AGE = "max_log_age_hours";
+    private static final String CONFIG_MIN_FREE_SPACE = "min_free_space";
+    private static final String CONFIG_COMPRESSION = "compression";
+    private static final String CONFIG_INDEX = "index";
+    private static final String CONFIG_PRETOUCH = "pretouch";
     private static final String CONFIG_FIELDS = "fields";
+    private static final String CONFIG_COMPACT_BATCH = "compact_batch";
+    private static final String CONFIG_DICTIONARY_ENCODING = "dictionary_encoding";
+    private static final String CONFIG_COMPACT_LAYOUT = "compact_layout";
+    private static final String CONFIG_WRITE_MODE = "write_mode";
+    private static final String CONFIG_WRITER_QUEUE_SIZE = "writer_queue_size";
+    private static final String CONFIG_WRITER_WAIT_STRATEGY = "writer_wait_strategy";
+    private static final String CONFIG_SPILL_DIR = "spill_dir";
+    private static final String CONFIG_MAX_SPILL_SIZE = "max_spill_size";
+    private static final String CONFIG_SYNC_POLICY = "sync_policy";
+    private static final String CONFIG_SYNC_RECORDS = "sync_records";
+    private static final String CONFIG_SYNC_INTERVAL = "sync_interval_ms";
+    private static final String CONFIG_DURABLE_ACK = "durable_ack";
     private static final long DEFAULT_MAX_LOG_SIZE = 16L * 1024L * 1024L * 1024L; // 16 GB
+    private static final long DEFAULT_MAX_SPILL_SIZE = 1024L * 1024L * 1024L; // 1 GB
+    private static final int MAX_SHARDS = 256;
+    private static final int DEFAULT_WRITER_QUEUE_SIZE = 1024;
+    private static final int MAX_WRITER_QUEUE_SIZE = 1 << 30;
+    private static final int DEFAULT_SYNC_RECORDS = 100;
+    private static final long DEFAULT_SYNC_INTERVAL = 100;
 
     private final Path logPath;
+    private final int shards;
     private final RollCycle rollCycle;
+    private final long maxCycleSize;
     private final long maxLogSize;
+    private final long maxLogAgeMillis;
+    private final long minFreeSpace;
+    private final boolean compression;
+    private final boolean index;
+    private final boolean pretouch;
     private final FieldSelector fieldSelector;
-
+    private final boolean compactBatch;
+    private final boolean dictionaryEncoding;
+    private final boolean compactLayout;
+    private final WriteMode writeMode;
+    private final int queueSize;
+    private final WriterWaitStrategy waitStrategy;
+    private final Optional<Path> spillPath;
+    private final long maxSpillSize;
+    private final SyncPolicy syncPolicy;
+    private final int syncRecords;
+    private final long syncInterval;
+    private final boolean durableAck;
 
     ChronicleAuditLoggerConfig(Map<String, String> parameters)
     {
         logPath = resolveLogPath(parameters);
+        shards = resolvePositiveInt(parameters, CONFIG_SHARDS, 1, MAX_SHARDS, "shards");
         rollCycle = resolveRollCycle(parameters);
+        maxCycleSize = resolveMaxCycleSize(parameters);
         maxLogSize = resolveMaxLogSize(parameters);
+        maxLogAgeMillis = resolveMaxLogAge(parameters);
+        minFreeSpace = resolveMinFreeSpace(parameters);
+        compression = resolveOption(parameters, CONFIG_COMPRESSION, ChronicleOptions::parseBoolean, false, "compression");
+        index = resolveOption(parameters, CONFIG_INDEX, ChronicleOptions::parseBoolean, false, "index");
+        pretouch = resolveOption(parameters, CONFIG_PRETOUCH, ChronicleOptions::parseBoolean, false, "pretouch");
         fieldSelector = resolveFields(parameters);
+        compactBatch = resolveCompactBatch(parameters);
+        dictionaryEncoding = resolveOption(parameters, CONFIG_DICTIONARY_ENCODING, ChronicleOptions::parseBoolean, false, "dictionary encoding");
+        compactLayout = resolveCompactLayout(parameters, dictionaryEncoding);
+        writeMode = resolveWriteMode(parameters);
+        queueSize = resolveQueueSize(parameters);
+        waitStrategy = resolveWaitStrategy(parameters);
+        spillPath = resolveSpillPath(parameters, writeMode);
+        maxSpillSize = resolveMaxSpillSize(parameters);
+        syncPolicy = resolveSyncPolicy(parameters, writeMode);
+        syncRecords = resolvePositiveInt(parameters, CONFIG_SYNC_RECORDS, DEFAULT_SYNC_RECORDS, Integer.MAX_VALUE, "sync records");
+        syncInterval = resolvePositiveLong(parameters, CONFIG_SYNC_INTERVAL, DEFAULT_SYNC_INTERVAL, "sync interval");
+        durableAck = resolveDurableAck(parameters, syncPolicy, spillPath);
     }
 
     private static Path resolveLogPath(Map<String, String> parameters)
     {
         mandatoryConfig(CONFIG_LOG_DIR, parameters);
-        try
+        return resolveOption(parameters, CONFIG_LOG_DIR, Paths::get, null, "log directory path");
+    }
+
+    private static RollCycle resolveRollCycle(Map<String, String> parameters)
+    {
+        return resolveOption(parameters, CONFIG_ROLL_CYCLE, RollCycles::valueOf, RollCycles.HOURLY, "roll cycle");
+    }
+
+    private static long resolveMaxCycleSize(Map<String, String> parameters)
+    {
+        if (!parameters.containsKey(CONFIG_MAX_CYCLE_SIZE))
         {
-            return Paths.get(parameters.get(CONFIG_LOG_DIR));
+            return 0; // Roll on time only
         }
-        catch (InvalidPathException e)
+
+        return resolvePositiveLong(parameters, CONFIG_MAX_CYCLE_SIZE, 0, "max cycle size");
+    }
+
+    private static long resolveMaxLogSize(Map<String, String> parameters)
+    {
+        return resolvePositiveLong(parameters, CONFIG_MAX_LOG_SIZE, DEFAULT_MAX_LOG_SIZE, "max log size");
+    }
+
+    private static long resolveMaxLogAge(Map<String, String> parameters)
+    {
+        if (!parameters.containsKey(CONFIG_MAX_LOG_AGE))
         {
-            throw new ConfigurationException("Invalid chronicle logger log directory path: " + parameters.get(CONFIG_LOG_DIR), e);
+            return 0; // No age limit
         }
+
+        return TimeUnit.HOURS.toMillis(resolvePositiveLong(parameters, CONFIG_MAX_LOG_AGE, 0, "max log age"));
     }
 
-    private static RollCycle resolveRollCycle(Map<String, String> parameters)
+    private static long resolveMinFreeSpace(Map<String, String> parameters)
     {
-        try
+        if (!parameters.containsKey(CONFIG_MIN_FREE_SPACE))
         {
-            return Optional.ofNullable(parameters.get(CONFIG_ROLL_CYCLE))
-                           .map(RollCycles::valueOf)
-                           .orElse(RollCycles.HOURLY);
+            return 0; // No free space limit
         }
-        catch (IllegalArgumentException e)
+
+        return resolvePositiveLong(parameters, CONFIG_MIN_FREE_SPACE, 0, "min free space");
+    }
+
+    private static WriteMode resolveWriteMode(Map<String, String> parameters)
+    {
+        return resolveOption(parameters, CONFIG_WRITE_MODE, WriteMode::valueOf, WriteMode.async, "write mode");
+    }
+
+    private static int resolveQueueSize(Map<String, String> parameters)
+    {
+        return resolvePositiveInt(parameters, CONFIG_WRITER_QUEUE_SIZE, DEFAULT_WRITER_QUEUE_SIZE, MAX_WRITER_QUEUE_SIZE, "writer queue size");
+    }
+
+    private static WriterWaitStrategy resolveWaitStrategy(Map<String, String> parameters)
+    {
+        return resolveOption(parameters, CONFIG_WRITER_WAIT_STRATEGY, WriterWaitStrategy::valueOf, WriterWaitStrategy.PARK, "writer wait strategy");
+    }
+
+    private static Optional<Path> resolveSpillPath(Map<String, String> parameters, WriteMode writeMode)
+    {
+        if (parameters.containsKey(CONFIG_SPILL_DIR) && writeMode != WriteMode.async)
         {
-            throw new ConfigurationException("Invalid chronicle logger roll cycle: " + parameters.get(CONFIG_ROLL_CYCLE), e);
+            throw new ConfigurationException("Chronicle logger spill directory is only supported in async write mode");
         }
+
+        return Optional.ofNullable(resolveOption(parameters, CONFIG_SPILL_DIR, Paths::get, null, "spill directory path"));
     }
 
-    private long resolveMaxLogSize(Map<String, String> parameters)
+    private static long resolveMaxSpillSize(Map<String, String> parameters)
     {
-        long size;
-        try
+        return resolvePositiveLong(parameters, CONFIG_MAX_SPILL_SIZE, DEFAULT_MAX_SPILL_SIZE, "max spill size");
+    }
+
+    private static SyncPolicy resolveSyncPolicy(Map<String, String> parameters, WriteMode writeMode)
+    {
+        SyncPolicy policy = resolveOption(parameters, CONFIG_SYNC_POLICY, SyncPolicy::valueOf, SyncPolicy.NONE, "sync policy");
+        if (policy != SyncPolicy.NONE && writeMode != WriteMode.async)
         {
-            size = Optional.ofNullable(parameters.get(CONFIG_MAX_LOG_SIZE))
-                           .map(Long::valueOf)
-                           .orElse(DEFAULT_MAX_LOG_SIZE);
+            throw new ConfigurationException("Chronicle logger sync policy is only supported in async write mode");
         }
-        catch (NumberFormatException e)
+
+        return policy;
+    }
+
+    private static boolean resolveDurableAck(Map<String, String> parameters, SyncPolicy syncPolicy, Optional<Path> spillPath)
+    {
+        boolean durableAck = resolveOption(parameters, CONFIG_DURABLE_ACK, ChronicleOptions::parseBoolean, false, "durable ack");
+        if (durableAck && syncPolicy == SyncPolicy.NONE)
         {
-            throw Exceptions.appendCause(new ConfigurationException("Invalid chronicle logger max log size: " + parameters.get(CONFIG_MAX_LOG_SIZE)), e);
+            throw new ConfigurationException("Chronicle logger durable ack requires a sync policy");
         }
-
-        if (size <= 0)
+        if (durableAck && spillPath.isPresent())
         {
-            throw new ConfigurationException("Invalid chronicle logger max log size: " + parameters.get(CONFIG_MAX_LOG_SIZE));
+            throw new ConfigurationException("Chronicle logger durable ack is not supported with a spill directory");
         }
 
-        return size;
+        return durableAck;
     }
 
-    private static void mandatoryConfig(String option, Map<String, String> parameters)
+    private static boolean resolveCompactLayout(Map<String, String> parameters, boolean dictionaryEncoding)
     {
-        if (!parameters.containsKey(option))
+        boolean compactLayout = resolveOption(parameters, CONFIG_COMPACT_LAYOUT, ChronicleOptions::parseBoolean, false, "compact layout");
+        if (compactLayout && !dictionaryEncoding)
         {
-            throw new ConfigurationException("Chronicle logger backend require '" + option + "' parameter option");
+            throw new ConfigurationException("Chronicle logger compact layout requires dictionary encoding");
         }
+
+        return compactLayout;
+    }
+
+    private static boolean resolveCompactBatch(Map<String, String> parameters)
+    {
+        return resolveOption(parameters, CONFIG_COMPACT_BATCH, ChronicleOptions::parseBoolean, false, "compact batch");
     }
 
-    private FieldSelector resolveFields(Map<String, String> parameters)
+    private static FieldSelector resolveFields(Map<String, String> parameters)
     {
         String fieldsString = parameters.getOrDefault(CONFIG_FIELDS, "");
 
@@ -136,18 +264,118 @@ class ChronicleAuditLoggerConfig
         return logPath;
     }
 
+    int getShards()
+    {
+        return shards;
+    }
+
     RollCycle getRollCycle()
     {
         return rollCycle;
     }
 
+    long getMaxCycleSize()
+    {
+        return maxCycleSize;
+    }
+
     long getMaxLogSize()
     {
         return maxLogSize;
     }
 
+    long getMaxLogAgeMillis()
+    {
+        return maxLogAgeMillis;
+    }
+
+    long getMinFreeSpace()
+    {
+        return minFreeSpace;
+    }
+
+    RetentionPolicy getRetentionPolicy()
+    {
+        return new RetentionPolicy(maxLogSize, maxLogAgeMillis, minFreeSpace);
+    }
+
+    boolean isCompression()
+    {
+        return compression;
+    }
+
+    boolean isIndex()
+    {
+        return index;
+    }
+
+    boolean isPretouch()
+    {
+        return pretouch;
+    }
+
     public FieldSelector getFields()
     {
         return fieldSelector;
     }
+
+    boolean isCompactBatch()
+    {
+        return compactBatch;
+    }
+
+    boolean isDictionaryEncoding()
+    {
+        return dictionaryEncoding;
+    }
+
+    boolean isCompactLayout()
+    {
+        return compactLayout;
+    }
+
+    WriteMode getWriteMode()
+    {
+        return writeMode;
+    }
+
+    int getQueueSize()
+    {
+        return queueSize;
+    }
+
+    WriterWaitStrategy getWaitStrategy()
+    {
+        return waitStrategy;
+    }
+
+    Optional<Path> getSpillPath()
+    {
+        return spillPath;
+    }
+
+    long getMaxSpillSize()
+    {
+        return maxSpillSize;
+    }
+
+    SyncPolicy getSyncPolicy()
+    {
+        return syncPolicy;
+    }
+
+    int getSyncRecords()
+    {
+        return syncRecords;
+    }
+
+    long getSyncInterval()
+    {
+        return syncInterval;
+    }
+
+    boolean isDurableAck()
+    {
+        return durableAck;
+    }
 }
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.logger;
+
+import java.util.Map;
+import java.util.function.Function;
+
+import com.ericsson.bss.cassandra.ecaudit.utils.Exceptions;
+import org.apache.cassandra.exceptions.ConfigurationException;
+
+/**
+ * Parsing of the Chronicle logger parameters.
+ */
+final class ChronicleOptions
+{
+    private ChronicleOptions()
+    {
+        // Utility class
+    }
+
+    static boolean parseBoolean(String value)
+    {
+        if (!"true".equalsIgnoreCase(value) && !"false".equalsIgnoreCase(value))
+        {
+            throw new IllegalArgumentException("Not a boolean: " + value);
+        }
+
+        return Boolean.parseBoolean(value);
+    }
+
+    static long resolvePositiveLong(Map<String, String> parameters, String option, long defaultValue, String description)
+    {
+        long value = resolveOption(parameters, option, Long::valueOf, defaultValue, description);
+        if (value <= 0)
+        {
+            throw new ConfigurationException("Invalid chronicle logger " + description + ": " + parameters.get(option));
+        }
+
+        return value;
+    }
+
+    static int resolvePositiveInt(Map<String, String> parameters, String option, int defaultValue, int maxValue, String description)
+    {
+        long value = resolvePositiveLong(parameters, option, defaultValue, description);
+        if (value > maxValue)
+        {
+            throw new ConfigurationException("Invalid chronicle logger " + description + ": " + parameters.get(option));
+        }
+
+        return (int) value;
+    }
+
+    /**
+     * Parse an optional parameter.
+     *
+     * @param parameters   the logger parameters
+     * @param option       the name of the parameter
+     * @param parser       parses the parameter value, throwing {@link IllegalArgumentException} on invalid values
+     * @param defaultValue the value to use if the parameter is not set
+     * @param description  the description of the parameter used in error messages
+     * @param <T>          the type of the parameter
+     * @return the parsed parameter value, or the default value if the parameter is not set
+     */
+    static <T> T resolveOption(Map<String, String> parameters, String option, Function<String, T> parser, T defaultValue, String description)
+    {
+        String value = parameters.get(option);
+        if (value == null)
+        {
+            return defaultValue;
+        }
+
+        try
+        {
+            return parser.apply(value);
+        }
+        catch (IllegalArgumentException e)
+        {
+            throw Exceptions.appendCause(new ConfigurationException("Invalid chronicle logger " + description + ": " + value), e);
+        }
+    }
+
+    static void mandatoryConfig(String option, Map<String, String> parameters)
+    {
+        if (!parameters.containsKey(option))
+        {
+            throw new ConfigurationException("Chronicle logger backend require '" + option + "' parameter option");
+        }
+    }
+}
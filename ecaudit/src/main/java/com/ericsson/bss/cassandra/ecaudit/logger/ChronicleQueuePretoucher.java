@@ -0,0 +1,127 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.logger;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.openhft.chronicle.queue.ChronicleQueueBuilder;
+import net.openhft.chronicle.queue.impl.single.Pretoucher;
+import net.openhft.chronicle.queue.impl.single.SingleChronicleQueue;
+import org.apache.cassandra.concurrent.NamedThreadFactory;
+
+/**
+ * Pretouches the Chronicle queue in the background, to avoid latency spikes in the writer when pages are mapped and
+ * when the queue rolls to a new cycle file.
+ * <p>
+ * Pages ahead of the write position of the current cycle are touched before the writer reaches them. Shortly before
+ * the queue rolls, the file of the next cycle is created and its first pages are touched, through a view of the queue
+ * which runs ahead of time. Readers stay on the current cycle until the writer has rolled to the next cycle.
+ * <p>
+ * The pretoucher is closed together with the queue.
+ */
+class ChronicleQueuePretoucher implements AutoCloseable
+{
+    private static final Logger LOG = LoggerFactory.getLogger(ChronicleQueuePretoucher.class);
+
+    static final long PREROLL_MILLIS = 2000;
+    private static final long PRETOUCH_INTERVAL_MILLIS = 100;
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 1000;
+
+    private final ScheduledExecutorService executor;
+    private final SingleChronicleQueue nextCycleView;
+    private final Pretoucher currentCyclePretoucher;
+    private final Pretoucher nextCyclePretoucher;
+
+    @VisibleForTesting
+    ChronicleQueuePretoucher(SingleChronicleQueue chronicle, SingleChronicleQueue nextCycleView, ScheduledExecutorService executor)
+    {
+        this.executor = executor;
+        this.nextCycleView = nextCycleView;
+        currentCyclePretoucher = new Pretoucher(chronicle);
+        nextCyclePretoucher = new Pretoucher(nextCycleView);
+    }
+
+    /**
+     * Start pretouching a Chronicle queue on a dedicated thread.
+     *
+     * @param chronicle the queue to pretouch
+     * @return the running pretoucher
+     */
+    static ChronicleQueuePretoucher start(SingleChronicleQueue chronicle)
+    {
+        ScheduledExecutorService executor = new ScheduledThreadPoolExecutor(1, new NamedThreadFactory("Chronicle Pretoucher"));
+        ChronicleQueuePretoucher pretoucher = new ChronicleQueuePretoucher(chronicle, nextCycleViewOf(chronicle), executor);
+        chronicle.addCloseListener(pretoucher, ChronicleQueuePretoucher::close);
+        executor.scheduleWithFixedDelay(pretoucher::pretouch, 0, PRETOUCH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        return pretoucher;
+    }
+
+    /**
+     * @param chronicle the queue to view
+     * @return a view of the queue which runs ahead of time, to acquire the next cycle before the queue rolls
+     */
+    @VisibleForTesting
+    static SingleChronicleQueue nextCycleViewOf(SingleChronicleQueue chronicle)
+    {
+        return ChronicleQueueBuilder.single(chronicle.file())
+                                    .rollCycle(chronicle.rollCycle())
+                                    .timeProvider(() -> chronicle.time().currentTimeMillis() + PREROLL_MILLIS)
+                                    .build();
+    }
+
+    @VisibleForTesting
+    @SuppressWarnings("PMD.AvoidCatchingGenericException")
+    void pretouch()
+    {
+        try
+        {
+            currentCyclePretoucher.execute();
+            nextCyclePretoucher.execute();
+        }
+        catch (RuntimeException e)
+        {
+            // Keep pretouching, the writer will map the pages itself meanwhile
+            LOG.warn("Failed to pretouch Chronicle queue", e);
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        executor.shutdownNow();
+        try
+        {
+            if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS))
+            {
+                LOG.warn("Chronicle pretoucher did not stop in time");
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+
+        currentCyclePretoucher.close();
+        nextCyclePretoucher.close();
+        nextCycleView.close();
+    }
+}
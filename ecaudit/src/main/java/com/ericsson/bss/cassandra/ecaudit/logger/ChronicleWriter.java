@@ -1,5 +1,5 @@
 /*
- * Copyright 2019 Telefonaktiebolaget LM Ericsson
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -15,94 +15,26 @@
  */
 package com.ericsson.bss.cassandra.ecaudit.logger;
 
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
-
-import com.google.common.annotations.VisibleForTesting;
-
-import net.openhft.chronicle.queue.ChronicleQueue;
-import net.openhft.chronicle.queue.ChronicleQueueBuilder;
-import net.openhft.chronicle.queue.ExcerptAppender;
 import net.openhft.chronicle.wire.WriteMarshallable;
-import org.apache.cassandra.concurrent.NamedThreadFactory;
 
-class ChronicleWriter implements AutoCloseable
+/**
+ * Writes records to the Chronicle queue of the {@link ChronicleAuditLogger}.
+ * <p>
+ * Writers are created by the {@link ChronicleWriterFactory}.
+ */
+interface ChronicleWriter extends AutoCloseable
 {
-    private static final int BUFFER_SIZE = 256;
-
-    private final Thread writerThread = new NamedThreadFactory("Chronicle Writer").newThread(this::writerLoop);
-    private final BlockingQueue<WriteMarshallable> queue;
-    private final ChronicleQueue chronicle;
-    private final ExcerptAppender appender;
-
-    private volatile boolean active = true;
-
-    ChronicleWriter(ChronicleAuditLoggerConfig config)
-    {
-        chronicle = ChronicleQueueBuilder.single(config.getLogPath().toFile())
-                             .rollCycle(config.getRollCycle())
-                             .storeFileListener(new SizeRotatingStoreFileListener(config.getLogPath(), config.getMaxLogSize()))
-                             .build();
-
-        appender = chronicle.acquireAppender();
-        queue = new ArrayBlockingQueue<>(BUFFER_SIZE);
-        writerThread.start();
-    }
-
-    @VisibleForTesting
-    ChronicleWriter(ChronicleQueue chronicle)
-    {
-        this.chronicle = chronicle;
-        appender = chronicle.acquireAppender();
-        queue = new ArrayBlockingQueue<>(BUFFER_SIZE);
-        writerThread.start();
-    }
-
-    void put(WriteMarshallable marshallable) throws InterruptedException
-    {
-        if (!active)
-        {
-            throw new IllegalStateException("Chronicle audit writer has been deactivated");
-        }
-
-        queue.put(marshallable);
-    }
-
-    private void writerLoop()
-    {
-        try
-        {
-            while (active)
-            {
-                WriteMarshallable marshallable = queue.take();
-                appender.writeDocument(marshallable);
-            }
-        }
-        catch (InterruptedException e)
-        {
-            Thread.currentThread().interrupt();
-        }
-    }
-
+    /**
+     * Write a record to the Chronicle queue.
+     *
+     * @param marshallable the record to write
+     * @throws InterruptedException if interrupted while waiting to write the record
+     */
+    void put(WriteMarshallable marshallable) throws InterruptedException;
+
+    /**
+     * Stop accepting new records and close the Chronicle queue.
+     */
     @Override
-    public synchronized void close()
-    {
-        if (!active)
-        {
-            return;
-        }
-
-        active = false;
-        try
-        {
-            writerThread.interrupt();
-            writerThread.join(500);
-        }
-        catch (InterruptedException e)
-        {
-            Thread.currentThread().interrupt();
-        }
-
-        chronicle.close();
-    }
+    void close();
 }
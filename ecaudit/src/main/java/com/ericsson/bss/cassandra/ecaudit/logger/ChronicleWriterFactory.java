@@ -0,0 +1,184 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.logger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.ericsson.bss.cassandra.ecaudit.common.chronicle.QueueShards;
+import com.ericsson.bss.cassandra.ecaudit.metrics.ChronicleRetentionMetrics;
+import com.ericsson.bss.cassandra.ecaudit.metrics.ChronicleWriterMetrics;
+import net.openhft.chronicle.queue.ChronicleQueueBuilder;
+import net.openhft.chronicle.queue.impl.StoreFileListener;
+import net.openhft.chronicle.queue.impl.single.SingleChronicleQueue;
+import net.openhft.chronicle.queue.impl.single.SingleChronicleQueueBuilder;
+import org.apache.cassandra.exceptions.ConfigurationException;
+
+/**
+ * Creates the writers of the {@link ChronicleAuditLogger}, one for each shard of the log.
+ * <p>
+ * A log with a single shard is written directly to the log directory, while each shard of a sharded log is written to a
+ * sub-directory of the log directory, see {@link QueueShards}. Each shard has a Chronicle queue and a writer of its
+ * own, as defined by the configured {@link WriteMode}. The maximum size of the log files and of the spill files is
+ * shared evenly between the shards. The age and free space limits apply to each shard.
+ */
+final class ChronicleWriterFactory
+{
+    private ChronicleWriterFactory()
+    {
+        // Utility class
+    }
+
+    /**
+     * Create a writer for each configured shard of the Chronicle log.
+     *
+     * @param config the Chronicle logger configuration
+     * @return the writers of the shards, ordered by shard number
+     */
+    static List<ChronicleWriter> createShards(ChronicleAuditLoggerConfig config)
+    {
+        int shards = config.getShards();
+        CycleFileCompressor compressor = config.isCompression() ? new CycleFileCompressor() : null;
+        CycleFileIndexer indexer = config.isIndex() ? new CycleFileIndexer(config.getRollCycle()) : null;
+        RetentionPolicy policy = config.getRetentionPolicy();
+        RetentionPolicy shardPolicy = new RetentionPolicy(policy.getMaxLogSize() / shards, policy.getMaxLogAgeMillis(), policy.getMinFreeSpace());
+        List<AsyncChronicleWriter> asyncWriters = new CopyOnWriteArrayList<>();
+        ChronicleWriterMetrics writerMetrics = config.getWriteMode() == WriteMode.direct
+                                               ? null
+                                               : new ChronicleWriterMetrics(() -> asyncWriters.stream().mapToInt(AsyncChronicleWriter::queueDepth).sum(),
+                                                                            () -> asyncWriters.stream().mapToLong(AsyncChronicleWriter::spillSize).sum());
+
+        List<RetentionManager> retentionManagers = new ArrayList<>(shards);
+        List<ChronicleWriter> writers = new ArrayList<>(shards);
+        try
+        {
+            for (int shard = 0; shard < shards; shard++)
+            {
+                Path logPath = shardPathOf(config.getLogPath(), shard, shards);
+                RetentionManager retentionManager = RetentionManager.create(createDirectory(logPath), shardPolicy, compressor, indexer);
+                retentionManagers.add(retentionManager);
+                ChronicleWriter writer = createWriter(config, logPath, retentionManager, spillPathOf(config, shard), writerMetrics);
+                if (writer instanceof AsyncChronicleWriter)
+                {
+                    asyncWriters.add((AsyncChronicleWriter) writer);
+                }
+                writers.add(writer);
+            }
+        }
+        catch (ConfigurationException e)
+        {
+            writers.forEach(ChronicleWriter::close);
+            throw e;
+        }
+
+        new ChronicleRetentionMetrics(() -> retentionManagers.stream().mapToLong(RetentionManager::getRetainedBytes).sum(),
+                                      () -> shortestHorizonHours(retentionManagers));
+        return writers;
+    }
+
+    private static Path shardPathOf(Path directory, int shard, int shards)
+    {
+        return shards == 1 ? directory : QueueShards.shardPath(directory, shard);
+    }
+
+    private static Optional<Path> spillPathOf(ChronicleAuditLoggerConfig config, int shard)
+    {
+        return config.getSpillPath().map(directory -> shardPathOf(directory, shard, config.getShards()));
+    }
+
+    private static Path createDirectory(Path directory)
+    {
+        try
+        {
+            return Files.createDirectories(directory);
+        }
+        catch (IOException e)
+        {
+            throw new ConfigurationException("Failed to create chronicle logger directory: " + directory, e);
+        }
+    }
+
+    /**
+     * The retention horizon of a sharded log is limited by the shard which covers the shortest history.
+     */
+    private static double shortestHorizonHours(List<RetentionManager> retentionManagers)
+    {
+        return retentionManagers.stream()
+                                .mapToDouble(RetentionManager::getRetentionHorizonHours)
+                                .filter(hours -> !Double.isNaN(hours))
+                                .min()
+                                .orElse(Double.NaN);
+    }
+
+    private static ChronicleWriter createWriter(ChronicleAuditLoggerConfig config, Path logPath, RetentionManager retentionManager,
+                                                Optional<Path> spillPath, ChronicleWriterMetrics writerMetrics)
+    {
+        SizeRollingTimeProvider sizeRolling = config.getMaxCycleSize() > 0
+                                              ? new SizeRollingTimeProvider(config.getRollCycle(), config.getMaxCycleSize())
+                                              : null;
+        // Released files are only collected when the writer syncs, which drains them
+        ReleasedCycleFiles releasedFiles = config.getSyncPolicy() == SyncPolicy.NONE ? null : new ReleasedCycleFiles(retentionManager);
+        SingleChronicleQueue chronicle = createQueue(config, logPath, releasedFiles == null ? retentionManager : releasedFiles, sizeRolling);
+
+        if (config.getWriteMode() == WriteMode.direct)
+        {
+            return new DirectChronicleWriter(chronicle, sizeRolling);
+        }
+
+        SpillFile spillFile = null;
+        if (spillPath.isPresent())
+        {
+            try
+            {
+                spillFile = new SpillFile(spillPath.get(), config.getMaxSpillSize() / config.getShards());
+            }
+            catch (IOException e)
+            {
+                chronicle.close();
+                throw new ConfigurationException("Failed to open chronicle logger spill file in: " + spillPath.get(), e);
+            }
+        }
+
+        return new AsyncChronicleWriter(chronicle, config, spillFile, sizeRolling, releasedFiles, writerMetrics);
+    }
+
+    private static SingleChronicleQueue createQueue(ChronicleAuditLoggerConfig config, Path logPath, StoreFileListener storeFileListener,
+                                                    SizeRollingTimeProvider sizeRolling)
+    {
+        SingleChronicleQueueBuilder builder = ChronicleQueueBuilder.single(logPath.toFile())
+                                                                   .rollCycle(config.getRollCycle())
+                                                                   .storeFileListener(storeFileListener);
+        if (sizeRolling != null)
+        {
+            builder.timeProvider(sizeRolling);
+        }
+        SingleChronicleQueue chronicle = builder.build();
+        if (sizeRolling != null)
+        {
+            sizeRolling.seed(chronicle);
+        }
+        if (config.isPretouch())
+        {
+            ChronicleQueuePretoucher.start(chronicle);
+        }
+        return chronicle;
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ericsson.bss.cassandra.ecaudit.common.chronicle.CycleArchive;
+import org.apache.cassandra.concurrent.NamedThreadFactory;
+
+/**
+ * Compresses released Chronicle cycle files into {@link CycleArchive}s in the background.
+ * <p>
+ * Cycle files are compressed one at a time, in the order they are submitted, on a low priority thread. The thread is
+ * started on demand and stops when there is nothing left to compress.
+ */
+class CycleFileCompressor
+{
+    private static final Logger LOG = LoggerFactory.getLogger(CycleFileCompressor.class);
+
+    private static final long KEEP_ALIVE_SECONDS = 60;
+
+    private final Executor executor;
+
+    CycleFileCompressor()
+    {
+        this(new ThreadPoolExecutor(0, 1, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                                    new NamedThreadFactory("Chronicle Compressor", Thread.MIN_PRIORITY)));
+    }
+
+    @VisibleForTesting
+    CycleFileCompressor(Executor executor)
+    {
+        this.executor = executor;
+    }
+
+    /**
+     * Compress a cycle file in the background.
+     * <p>
+     * The cycle file is left in place, it is up to the callback to replace it with the archive.
+     *
+     * @param cycleFile    the cycle file to compress
+     * @param onCompressed called with the cycle file and its archive once the archive is complete
+     */
+    void compress(File cycleFile, BiConsumer<File, File> onCompressed)
+    {
+        executor.execute(() -> {
+            try
+            {
+                File archive = CycleArchive.compress(cycleFile.toPath()).toFile();
+                LOG.debug("Compressed Chronicle file {} from {} to {} bytes", cycleFile.getPath(), cycleFile.length(), archive.length());
+                onCompressed.accept(cycleFile, archive);
+            }
+            catch (NoSuchFileException e)
+            {
+                LOG.debug("Chronicle file {} was deleted before it was compressed", cycleFile.getPath());
+            }
+            catch (IOException e)
+            {
+                LOG.warn("Failed to compress Chronicle file {}", cycleFile.getPath(), e);
+            }
+        });
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ericsson.bss.cassandra.ecaudit.common.chronicle.AuditRecordReadMarshallable;
+import com.ericsson.bss.cassandra.ecaudit.common.chronicle.CycleIndex;
+import com.ericsson.bss.cassandra.ecaudit.common.chronicle.ReadDictionary;
+import net.openhft.chronicle.core.io.IORuntimeException;
+import net.openhft.chronicle.queue.ChronicleQueue;
+import net.openhft.chronicle.queue.ChronicleQueueBuilder;
+import net.openhft.chronicle.queue.ExcerptTailer;
+import net.openhft.chronicle.queue.RollCycle;
+import net.openhft.chronicle.wire.DocumentContext;
+import org.apache.cassandra.concurrent.NamedThreadFactory;
+
+/**
+ * Writes a {@link CycleIndex} for released Chronicle cycle files in the background.
+ * <p>
+ * Cycle files are indexed one at a time, in the order they are submitted, on a low priority thread. The thread is
+ * started on demand and stops when there is nothing left to index. Each cycle file is read through a read-only queue
+ * over the directory of the cycle file.
+ */
+class CycleFileIndexer
+{
+    private static final Logger LOG = LoggerFactory.getLogger(CycleFileIndexer.class);
+
+    private static final long KEEP_ALIVE_SECONDS = 60;
+
+    private final RollCycle rollCycle;
+    private final Executor executor;
+
+    /**
+     * @param rollCycle the roll cycle of the Chronicle queues
+     */
+    CycleFileIndexer(RollCycle rollCycle)
+    {
+        this(rollCycle, new ThreadPoolExecutor(0, 1, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                                               new NamedThreadFactory("Chronicle Indexer", Thread.MIN_PRIORITY)));
+    }
+
+    @VisibleForTesting
+    CycleFileIndexer(RollCycle rollCycle, Executor executor)
+    {
+        this.rollCycle = rollCycle;
+        this.executor = executor;
+    }
+
+    /**
+     * Index a cycle file in the background.
+     * <p>
+     * The callback is invoked also if the cycle file could not be indexed, since readers fall back to reading cycle
+     * files without an index.
+     *
+     * @param cycleFile the cycle file to index
+     * @param onIndexed called with the cycle file once it has been indexed
+     */
+    void index(File cycleFile, Consumer<File> onIndexed)
+    {
+        executor.execute(() -> {
+            if (!cycleFile.exists())
+            {
+                LOG.debug("Chronicle file {} was deleted before it was indexed", cycleFile.getPath());
+                onIndexed.accept(cycleFile);
+                return;
+            }
+
+            try
+            {
+                CycleIndex index = buildIndex(cycleFile);
+                index.write(CycleIndex.indexOf(cycleFile.toPath()));
+                LOG.debug("Indexed {} records of Chronicle file {}", index.recordCount(), cycleFile.getPath());
+            }
+            catch (IOException | IORuntimeException e)
+            {
+                LOG.warn("Failed to index Chronicle file {}", cycleFile.getPath(), e);
+            }
+            onIndexed.accept(cycleFile);
+        });
+    }
+
+    private CycleIndex buildIndex(File cycleFile)
+    {
+        int cycle = CycleIndex.cycleOf(cycleFile, rollCycle);
+        CycleIndex.Builder builder = CycleIndex.builder(cycle);
+        try (ChronicleQueue chronicle = ChronicleQueueBuilder.single(cycleFile.getParentFile())
+                                                             .rollCycle(rollCycle)
+                                                             .readOnly(true)
+                                                             .build())
+        {
+            ExcerptTailer tailer = chronicle.createTailer();
+            if (!tailer.moveToIndex(rollCycle.toIndex(cycle, 0)))
+            {
+                return builder.build();
+            }
+
+            // The cycle is read from its start, so every dictionary reference is defined before it is used
+            ReadDictionary dictionary = new ReadDictionary();
+            while (true)
+            {
+                try (DocumentContext documentContext = tailer.readingDocument())
+                {
+                    if (!documentContext.isPresent() || rollCycle.toCycle(documentContext.index()) != cycle)
+                    {
+                        return builder.build();
+                    }
+
+                    long definitionCount = dictionary.definitionCount();
+                    AuditRecordReadMarshallable marshallable = new AuditRecordReadMarshallable(dictionary);
+                    marshallable.readMarshallable(documentContext.wire());
+                    builder.add(documentContext.index(), marshallable.getAuditRecords(), dictionary.definitionCount() != definitionCount);
+                }
+            }
+        }
+    }
+}
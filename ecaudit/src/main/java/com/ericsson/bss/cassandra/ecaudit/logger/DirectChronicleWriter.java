@@ -0,0 +1,80 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.logger;
+
+import net.openhft.chronicle.queue.ChronicleQueue;
+import net.openhft.chronicle.queue.ExcerptAppender;
+import net.openhft.chronicle.wire.WriteMarshallable;
+
+/**
+ * Writes records straight into the Chronicle queue on the calling thread.
+ * <p>
+ * Each thread writes through its own appender, which Chronicle keeps in a thread local. There is no hand-off to a
+ * writer thread, so records are written concurrently by the request threads.
+ */
+class DirectChronicleWriter implements ChronicleWriter
+{
+    private final ChronicleQueue chronicle;
+    private final SizeRollingTimeProvider sizeRolling;
+
+    private volatile boolean active = true;
+
+    DirectChronicleWriter(ChronicleQueue chronicle)
+    {
+        this(chronicle, null);
+    }
+
+    /**
+     * @param chronicle   the Chronicle queue to write to
+     * @param sizeRolling the time provider of the queue which rolls on size, or {@code null} to roll on time only
+     */
+    DirectChronicleWriter(ChronicleQueue chronicle, SizeRollingTimeProvider sizeRolling)
+    {
+        this.chronicle = chronicle;
+        this.sizeRolling = sizeRolling;
+    }
+
+    @Override
+    public void put(WriteMarshallable marshallable)
+    {
+        if (!active)
+        {
+            throw new IllegalStateException("Chronicle audit writer has been deactivated");
+        }
+
+        ExcerptAppender appender = chronicle.acquireAppender();
+        if (sizeRolling == null)
+        {
+            appender.writeDocument(marshallable);
+        }
+        else
+        {
+            sizeRolling.write(appender, marshallable);
+        }
+    }
+
+    @Override
+    public synchronized void close()
+    {
+        if (!active)
+        {
+            return;
+        }
+
+        active = false;
+        chronicle.close();
+    }
+}
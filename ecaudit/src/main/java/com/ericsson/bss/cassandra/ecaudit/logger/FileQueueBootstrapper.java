@@ -19,13 +19,16 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.ericsson.bss.cassandra.ecaudit.common.chronicle.CycleArchive;
 import net.openhft.chronicle.queue.impl.single.SingleChronicleQueue;
 
 class FileQueueBootstrapper
@@ -51,12 +54,10 @@ class FileQueueBootstrapper
         {
             // Chronicle use filenames which allow sorting in chronological order
             // Example filename for MINUTELY rolling policy: 20190327-1231.cq4
-            discoveredFiles = Files.list(path)
-                                   .filter(Files::isRegularFile)
-                                   .map(Path::toFile)
-                                   .filter(file -> file.getPath().endsWith(SingleChronicleQueue.SUFFIX))
-                                   .sorted()
-                                   .collect(Collectors.toList());
+            // Compressed cycle files sort along with them: 20190327-1230.cq4.gz
+            discoveredFiles = Stream.concat(listCycleFiles().stream(), CycleArchive.listArchives(path).stream().map(Path::toFile))
+                                    .sorted()
+                                    .collect(Collectors.toCollection(ArrayList::new));
         }
         catch (IOException e)
         {
@@ -70,17 +71,51 @@ class FileQueueBootstrapper
         }
     }
 
+    private List<File> listCycleFiles() throws IOException
+    {
+        try (Stream<Path> files = Files.list(path))
+        {
+            return files.filter(Files::isRegularFile)
+                        .map(Path::toFile)
+                        .filter(file -> file.getPath().endsWith(SingleChronicleQueue.SUFFIX))
+                        .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Exclude the active file from the discovered files, as well as the files of any later cycles. Later cycle files
+     * may have been created ahead of time by a pretoucher, and will be acquired by Chronicle when the queue rolls.
+     *
+     * @param file the file of the active cycle
+     */
     void excludeActiveFile(File file)
     {
-        discoveredFiles.remove(file);
+        String activeFileName = file.getName();
+        discoveredFiles.removeIf(discoveredFile -> discoveredFile.equals(file) || isLaterCycle(discoveredFile, activeFileName));
+    }
+
+    private static boolean isLaterCycle(File discoveredFile, String activeFileName)
+    {
+        String cycleFileName = CycleArchive.isArchive(discoveredFile.toPath())
+                               ? CycleArchive.cycleFileNameOf(discoveredFile.toPath())
+                               : discoveredFile.getName();
+        return cycleFileName.compareTo(activeFileName) > 0;
     }
 
-    void enqueueOn(SizeTrackedFileQueue releasedFileQueue)
+    /**
+     * Add the discovered files to a queue of released files.
+     *
+     * @param releasedFileQueue the queue to add the files to
+     * @return the files which were added
+     */
+    List<File> enqueueOn(SizeTrackedFileQueue releasedFileQueue)
     {
-        for (File existingFile : discoveredFiles)
+        List<File> existingFiles = new ArrayList<>(discoveredFiles);
+        for (File existingFile : existingFiles)
         {
             releasedFileQueue.offer(existingFile);
         }
         discoveredFiles.clear();
+        return existingFiles;
     }
 }
@@ -0,0 +1,243 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.logger;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ericsson.bss.cassandra.ecaudit.facade.CassandraAuditException;
+import com.ericsson.bss.cassandra.ecaudit.metrics.ChronicleWriterMetrics;
+import net.openhft.chronicle.wire.WireOut;
+import net.openhft.chronicle.wire.WriteMarshallable;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Syncs records written by the Chronicle writer thread to stable storage in groups, as defined by the
+ * {@link SyncPolicy}.
+ * <p>
+ * All records written since the last sync share the next sync. Records wrapped in a {@link DurableRecord} are
+ * acknowledged once their group is synced. This class is not thread safe and must only be used by the writer thread.
+ */
+final class GroupCommit
+{
+    private static final Logger LOG = LoggerFactory.getLogger(GroupCommit.class);
+
+    private final SyncPolicy policy;
+    private final int syncRecords;
+    private final long syncIntervalNanos;
+    private final SyncAction syncAction;
+    private final ChronicleWriterMetrics metrics;
+    private final List<DurableRecord> pendingRecords = new ArrayList<>();
+
+    private int unsyncedRecords;
+    private long firstUnsyncedNanos;
+
+    /**
+     * Syncs the records written so far to stable storage.
+     */
+    @FunctionalInterface
+    interface SyncAction extends AutoCloseable
+    {
+        void sync() throws IOException;
+
+        @Override
+        default void close() throws IOException
+        {
+            // Nothing to release by default
+        }
+    }
+
+    GroupCommit(SyncPolicy policy, int syncRecords, long syncInterval, TimeUnit timeUnit, SyncAction syncAction, ChronicleWriterMetrics metrics)
+    {
+        this.policy = policy;
+        this.syncRecords = syncRecords;
+        this.syncIntervalNanos = timeUnit.toNanos(syncInterval);
+        this.syncAction = syncAction;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Add a record which has been written to the Chronicle queue to the current group.
+     */
+    void written()
+    {
+        if (policy == SyncPolicy.NONE)
+        {
+            return;
+        }
+
+        if (unsyncedRecords == 0)
+        {
+            firstUnsyncedNanos = System.nanoTime();
+        }
+        unsyncedRecords++;
+
+        if (policy == SyncPolicy.RECORDS && unsyncedRecords >= syncRecords)
+        {
+            sync();
+        }
+    }
+
+    /**
+     * Add a record which has been written to the Chronicle queue to the current group, acknowledging it once the group
+     * is synced.
+     *
+     * @param record the record which was written
+     */
+    void written(DurableRecord record)
+    {
+        pendingRecords.add(record);
+        written();
+    }
+
+    /**
+     * Sync the current group if it is due.
+     *
+     * @param idle {@code true} if the writer has run out of records to write
+     */
+    void maybeSync(boolean idle)
+    {
+        if (unsyncedRecords == 0)
+        {
+            return;
+        }
+
+        boolean due = policy == SyncPolicy.RECORDS
+                      ? idle
+                      : System.nanoTime() - firstUnsyncedNanos >= syncIntervalNanos;
+        if (due)
+        {
+            sync();
+        }
+    }
+
+    /**
+     * @return the time until the current group is due for sync, or {@link Long#MAX_VALUE} if there is nothing to sync
+     *         at a given time
+     */
+    long nanosUntilDue()
+    {
+        if (unsyncedRecords == 0 || policy != SyncPolicy.INTERVAL)
+        {
+            return Long.MAX_VALUE;
+        }
+
+        return Math.max(0, firstUnsyncedNanos + syncIntervalNanos - System.nanoTime());
+    }
+
+    /**
+     * Sync the current group, acknowledging its durable records.
+     */
+    void sync()
+    {
+        if (unsyncedRecords == 0)
+        {
+            return;
+        }
+
+        long start = System.nanoTime();
+        IOException failure = null;
+        try
+        {
+            syncAction.sync();
+        }
+        catch (IOException e)
+        {
+            LOG.error("Failed to sync audit records to disk", e);
+            failure = e;
+        }
+        metrics.syncRecords(System.nanoTime() - start, TimeUnit.NANOSECONDS, unsyncedRecords);
+
+        for (DurableRecord record : pendingRecords)
+        {
+            record.complete(failure);
+        }
+        pendingRecords.clear();
+        unsyncedRecords = 0;
+    }
+
+    /**
+     * Sync any records which are not yet synced and release the sync resources.
+     */
+    void close()
+    {
+        sync();
+        try
+        {
+            syncAction.close();
+        }
+        catch (IOException e)
+        {
+            LOG.warn("Failed to release audit sync resources", e);
+        }
+    }
+
+    /**
+     * A record which is acknowledged once it is synced to stable storage.
+     */
+    static final class DurableRecord implements WriteMarshallable
+    {
+        private final WriteMarshallable delegate;
+        private final CountDownLatch synced = new CountDownLatch(1);
+        private volatile IOException failure;
+
+        DurableRecord(WriteMarshallable delegate)
+        {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void writeMarshallable(@NotNull WireOut wire)
+        {
+            delegate.writeMarshallable(wire);
+        }
+
+        void complete(IOException syncFailure)
+        {
+            this.failure = syncFailure;
+            synced.countDown();
+        }
+
+        /**
+         * Wait until the record is synced.
+         *
+         * @param timeout  the maximum time to wait
+         * @param timeUnit the time unit of the timeout
+         * @return {@code true} if the record is synced, {@code false} on timeout
+         * @throws InterruptedException   if interrupted while waiting
+         * @throws CassandraAuditException if the record could not be synced
+         */
+        boolean awaitSynced(long timeout, TimeUnit timeUnit) throws InterruptedException
+        {
+            if (!synced.await(timeout, timeUnit))
+            {
+                return false;
+            }
+
+            if (failure != null)
+            {
+                throw new CassandraAuditException("Failed to sync audit record to disk", failure);
+            }
+            return true;
+        }
+    }
+}
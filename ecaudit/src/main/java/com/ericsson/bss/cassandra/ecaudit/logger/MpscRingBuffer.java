@@ -0,0 +1,137 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.logger;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * A bounded, lock-free, multi-producer/single-consumer ring buffer.
+ * <p>
+ * Producers claim a slot by advancing the producer index and then publish the element into the slot. The single
+ * consumer takes published elements in order, clearing each slot before it is released to the producers again.
+ * Elements are never {@code null}, an empty slot means that the element has not been published yet.
+ *
+ * @param <E> the type of elements in the buffer
+ */
+final class MpscRingBuffer<E>
+{
+    private final AtomicReferenceArray<E> buffer;
+    private final int capacity;
+    private final int mask;
+
+    private final AtomicLong producerIndex = new AtomicLong();
+    private final AtomicLong consumerIndex = new AtomicLong();
+
+    /**
+     * @param requestedCapacity the minimum capacity of the buffer, rounded up to the next power of two
+     */
+    MpscRingBuffer(int requestedCapacity)
+    {
+        if (requestedCapacity <= 0 || requestedCapacity > 1 << 30)
+        {
+            throw new IllegalArgumentException("Invalid ring buffer capacity: " + requestedCapacity);
+        }
+
+        capacity = requestedCapacity == 1 ? 1 : Integer.highestOneBit(requestedCapacity - 1) << 1;
+        mask = capacity - 1;
+        buffer = new AtomicReferenceArray<>(capacity);
+    }
+
+    /**
+     * Add an element to the buffer, may be called concurrently from any thread.
+     *
+     * @param element the element to add
+     * @return {@code true} if the element was added, {@code false} if the buffer is full
+     */
+    boolean offer(E element)
+    {
+        if (element == null)
+        {
+            throw new IllegalArgumentException("Ring buffer elements must not be null");
+        }
+
+        long index;
+        do
+        {
+            index = producerIndex.get();
+            if (index - consumerIndex.get() >= capacity)
+            {
+                return false;
+            }
+        } while (!producerIndex.compareAndSet(index, index + 1));
+
+        buffer.lazySet(offset(index), element);
+        return true;
+    }
+
+    /**
+     * Take up to {@code limit} published elements from the buffer, must only be called from the consumer thread.
+     *
+     * @param consumer the consumer of the elements
+     * @param limit    the maximum number of elements to take
+     * @return the number of elements taken
+     */
+    int drain(Consumer<? super E> consumer, int limit)
+    {
+        long index = consumerIndex.get();
+        int drained = 0;
+        while (drained < limit)
+        {
+            int offset = offset(index);
+            E element = buffer.get(offset);
+            if (element == null)
+            {
+                break;
+            }
+
+            buffer.lazySet(offset, null);
+            index++;
+            consumerIndex.lazySet(index);
+            drained++;
+            consumer.accept(element);
+        }
+        return drained;
+    }
+
+    /**
+     * @return {@code true} if there are no claimed or published elements in the buffer
+     */
+    boolean isEmpty()
+    {
+        return producerIndex.get() == consumerIndex.get();
+    }
+
+    /**
+     * @return the approximate number of elements in the buffer
+     */
+    int size()
+    {
+        long size = producerIndex.get() - consumerIndex.get();
+        return (int) Math.max(0, Math.min(size, capacity));
+    }
+
+    int capacity()
+    {
+        return capacity;
+    }
+
+    private int offset(long index)
+    {
+        return (int) index & mask;
+    }
+}
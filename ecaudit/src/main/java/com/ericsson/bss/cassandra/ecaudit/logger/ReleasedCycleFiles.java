@@ -0,0 +1,69 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.logger;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import net.openhft.chronicle.queue.impl.StoreFileListener;
+
+/**
+ * Collects the cycle files released by a Chronicle queue, so that the {@link AppenderFileSync} can force them before a
+ * sync group completes.
+ * <p>
+ * Chronicle notifies the listener on the thread which releases the cycle file, which is the writer thread when the
+ * appender rolls. All notifications are passed on to the delegate listener.
+ */
+class ReleasedCycleFiles implements StoreFileListener
+{
+    private final StoreFileListener delegate;
+    private final Queue<File> releasedFiles = new ConcurrentLinkedQueue<>();
+
+    ReleasedCycleFiles(StoreFileListener delegate)
+    {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void onAcquired(int cycle, File file)
+    {
+        delegate.onAcquired(cycle, file);
+    }
+
+    @Override
+    public void onReleased(int cycle, File file)
+    {
+        releasedFiles.offer(file);
+        delegate.onReleased(cycle, file);
+    }
+
+    /**
+     * @return the cycle files released since the last call, in the order they were released
+     */
+    List<File> drain()
+    {
+        List<File> files = new ArrayList<>();
+        File file;
+        while ((file = releasedFiles.poll()) != null) // NOPMD
+        {
+            files.add(file);
+        }
+        return files;
+    }
+}
@@ -0,0 +1,365 @@
+/*
+ * Copyright 2019 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ericsson.bss.cassandra.ecaudit.common.chronicle.CycleArchive;
+import com.ericsson.bss.cassandra.ecaudit.common.chronicle.CycleIndex;
+import net.openhft.chronicle.queue.impl.StoreFileListener;
+import org.apache.cassandra.concurrent.NamedThreadFactory;
+
+/**
+ * Deletes the oldest released Chronicle files as defined by the {@link RetentionPolicy}.
+ * <p>
+ * Chronicle notifies the manager when cycle files are acquired and released, on the thread writing to the queue. The
+ * manager keeps its own inventory of released files and does all work on its own thread, so that the writer is not
+ * stalled while large files are deleted. The policy is also enforced periodically, since files age and free space
+ * shrinks between releases. If an old file can't be deleted it is kept in the inventory and deleted on a later attempt.
+ * <p>
+ * If a {@link CycleFileCompressor} is configured, released cycle files are compressed in the background. Once a cycle
+ * file is compressed it is replaced by its archive, and the size of the archive is used for the total size. A released
+ * cycle file is not compressed until a later cycle has been acquired, since Chronicle may acquire it again until then.
+ * <p>
+ * If a {@link CycleFileIndexer} is configured, released cycle files are indexed in the background in the same way,
+ * before they are compressed. The index of a cycle file is deleted along with the cycle file or its archive.
+ */
+class RetentionManager implements StoreFileListener
+{
+    private static final Logger LOG = LoggerFactory.getLogger(RetentionManager.class);
+
+    private static final long ENFORCE_INTERVAL_SECONDS = 60;
+    private static final double MILLIS_PER_HOUR = TimeUnit.HOURS.toMillis(1);
+
+    private final SizeTrackedFileQueue releasedFileQueue = new SizeTrackedFileQueue();
+    private final FileQueueBootstrapper bootstrapper;
+    private final RetentionPolicy policy;
+    private final CycleFileCompressor compressor;
+    private final CycleFileIndexer indexer;
+    private final Executor executor;
+    private final LongSupplier usableSpace;
+    private final LongSupplier clock;
+    private final Map<Integer, File> pendingCycles = new TreeMap<>();
+
+    private int latestAcquiredCycle = Integer.MIN_VALUE;
+    private volatile long retainedBytes;
+    private volatile double retentionHorizonHours = Double.NaN;
+
+    /**
+     * @param path        the directory of the Chronicle queue
+     * @param policy      the retention policy of released files
+     * @param compressor  the compressor of released cycle files, or {@code null} to keep them uncompressed
+     * @param indexer     the indexer of released cycle files, or {@code null} to not index them
+     * @param executor    the executor to manage the files on, which must run one task at a time in submission order
+     * @param usableSpace supplies the usable space in bytes of the directory
+     * @param clock       supplies the current time in milliseconds
+     */
+    @VisibleForTesting
+    RetentionManager(Path path, RetentionPolicy policy, CycleFileCompressor compressor, CycleFileIndexer indexer,
+                     Executor executor, LongSupplier usableSpace, LongSupplier clock)
+    {
+        LOG.debug("Retaining Chronicle audit logs with {}", policy);
+        bootstrapper = new FileQueueBootstrapper(path);
+        this.policy = policy;
+        this.compressor = compressor;
+        this.indexer = indexer;
+        this.executor = executor;
+        this.usableSpace = usableSpace;
+        this.clock = clock;
+        bootstrapper.discoverFiles();
+    }
+
+    /**
+     * Create a retention manager with its own thread, which also enforces the policy periodically.
+     *
+     * @param path       the directory of the Chronicle queue
+     * @param policy     the retention policy of released files
+     * @param compressor the compressor of released cycle files, or {@code null} to keep them uncompressed
+     * @param indexer    the indexer of released cycle files, or {@code null} to not index them
+     * @return a new retention manager
+     */
+    static RetentionManager create(Path path, RetentionPolicy policy, CycleFileCompressor compressor, CycleFileIndexer indexer)
+    {
+        ScheduledExecutorService executor = new ScheduledThreadPoolExecutor(1, new NamedThreadFactory("Chronicle Retention"));
+        RetentionManager manager = new RetentionManager(path, policy, compressor, indexer, executor, () -> usableSpaceOf(path), System::currentTimeMillis);
+        executor.scheduleWithFixedDelay(manager::enforcePolicy, ENFORCE_INTERVAL_SECONDS, ENFORCE_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        return manager;
+    }
+
+    private static long usableSpaceOf(Path path)
+    {
+        try
+        {
+            return Files.getFileStore(path).getUsableSpace();
+        }
+        catch (IOException e)
+        {
+            LOG.warn("Failed to get usable space of Chronicle directory {}", path, e);
+            return Long.MAX_VALUE;
+        }
+    }
+
+    @Override
+    public void onAcquired(int cycle, File file)
+    {
+        LOG.debug("Chronicle acquired [{}] {} at {} bytes", cycle, file.getPath(), file.length());
+        executor.execute(() -> acquired(cycle, file));
+    }
+
+    @Override
+    public void onReleased(int cycle, File file)
+    {
+        LOG.debug("Chronicle released [{}] {} at {} bytes", cycle, file.getPath(), file.length());
+        executor.execute(() -> released(cycle, file));
+    }
+
+    /**
+     * Enforce the retention policy, in addition to the periodic enforcement.
+     */
+    void enforceRetention()
+    {
+        executor.execute(this::enforcePolicy);
+    }
+
+    /**
+     * @return the total size in bytes of the released files, as of the last enforcement of the policy
+     */
+    long getRetainedBytes()
+    {
+        return retainedBytes;
+    }
+
+    /**
+     * The retention horizon is the time span of history which the retained files will cover once the limits of the
+     * policy are reached, estimated from the rate at which files have been released so far.
+     *
+     * @return the estimated retention horizon in hours, or {@link Double#NaN} if there is not enough history to estimate it
+     */
+    double getRetentionHorizonHours()
+    {
+        return retentionHorizonHours;
+    }
+
+    private void acquired(int cycle, File file)
+    {
+        pendingCycles.remove(cycle);
+        latestAcquiredCycle = Math.max(latestAcquiredCycle, cycle);
+        processReleasedCycles();
+
+        if (bootstrapper.isBootstrapping())
+        {
+            bootstrapper.excludeActiveFile(file);
+            List<File> existingFiles = bootstrapper.enqueueOn(releasedFileQueue);
+            existingFiles.stream()
+                         .filter(existingFile -> !CycleArchive.isArchive(existingFile.toPath()))
+                         .forEach(this::process);
+            // We may be above threshold at this point
+            // But we'll reclaim disk space on next call to onReleased()
+        }
+    }
+
+    private void released(int cycle, File file)
+    {
+        releasedFileQueue.offer(file);
+        enforcePolicy();
+        if (compressor != null || indexer != null)
+        {
+            pendingCycles.put(cycle, file);
+            processReleasedCycles();
+        }
+    }
+
+    private void processReleasedCycles()
+    {
+        Iterator<Map.Entry<Integer, File>> iterator = pendingCycles.entrySet().iterator();
+        while (iterator.hasNext())
+        {
+            Map.Entry<Integer, File> entry = iterator.next();
+            if (entry.getKey() >= latestAcquiredCycle)
+            {
+                return;
+            }
+            process(entry.getValue());
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Index a cycle file unless it is already indexed, and then compress it.
+     */
+    private void process(File file)
+    {
+        if (indexer == null || CycleIndex.indexOf(file.toPath()).toFile().exists())
+        {
+            compress(file);
+        }
+        else
+        {
+            indexer.index(file, cycleFile -> executor.execute(() -> indexed(cycleFile)));
+        }
+    }
+
+    private void indexed(File file)
+    {
+        if (!file.exists())
+        {
+            LOG.debug("Chronicle file {} was rotated while indexed, deleting its index", file.getPath());
+            deleteFile(CycleIndex.indexOf(file.toPath()).toFile());
+            return;
+        }
+
+        compress(file);
+    }
+
+    private void compress(File file)
+    {
+        if (compressor != null)
+        {
+            compressor.compress(file, (cycleFile, archive) -> executor.execute(() -> compressed(cycleFile, archive)));
+        }
+    }
+
+    private void compressed(File file, File archive)
+    {
+        if (!releasedFileQueue.replace(file, archive))
+        {
+            LOG.debug("Chronicle file {} was rotated while compressed, deleting its archive", file.getPath());
+            deleteFile(archive);
+            return;
+        }
+
+        deleteFile(file);
+        updateRetention();
+    }
+
+    private void enforcePolicy()
+    {
+        while (isPolicyExceeded())
+        {
+            if (!tryDeleteOldestFile())
+            {
+                // Try again on next enforcement
+                break;
+            }
+        }
+        updateRetention();
+    }
+
+    private boolean isPolicyExceeded()
+    {
+        if (releasedFileQueue.isEmpty())
+        {
+            return false;
+        }
+
+        return policy.exceedsSize(releasedFileQueue.accumulatedFileSize())
+               || policy.isExpired(releasedFileQueue.oldestReleasedMillis(), clock.getAsLong())
+               || policy.hasMinFreeSpace() && policy.isBelowFreeSpace(usableSpace.getAsLong());
+    }
+
+    private boolean tryDeleteOldestFile()
+    {
+        File toDelete = releasedFileQueue.peek();
+        LOG.debug("Deleting Chronicle file {} at {} bytes", toDelete.getPath(), releasedFileQueue.peekSize());
+        if (!deleteFile(toDelete))
+        {
+            return false;
+        }
+        deleteFile(CycleIndex.indexOf(toDelete.toPath()).toFile());
+
+        releasedFileQueue.poll();
+        return true;
+    }
+
+    private static boolean deleteFile(File file)
+    {
+        try
+        {
+            Files.deleteIfExists(file.toPath());
+            return true;
+        }
+        catch (IOException e)
+        {
+            LOG.error("Failed to delete Chronicle file {}", file.getPath(), e);
+            return false;
+        }
+    }
+
+    private void updateRetention()
+    {
+        retainedBytes = releasedFileQueue.accumulatedFileSize();
+        retentionHorizonHours = estimateHorizonMillis() / MILLIS_PER_HOUR;
+    }
+
+    private double estimateHorizonMillis()
+    {
+        double bytesPerMilli = estimateWriteRate();
+        if (Double.isNaN(bytesPerMilli))
+        {
+            return Double.NaN;
+        }
+
+        double horizonMillis = Math.max(0L, retentionCapacity()) / bytesPerMilli;
+        if (policy.getMaxLogAgeMillis() > 0)
+        {
+            return Math.min(horizonMillis, policy.getMaxLogAgeMillis());
+        }
+        return horizonMillis;
+    }
+
+    /**
+     * The write rate is estimated from the files released after the oldest retained file, over the time since the
+     * oldest retained file was released.
+     */
+    private double estimateWriteRate()
+    {
+        long spanMillis = releasedFileQueue.newestReleasedMillis() - releasedFileQueue.oldestReleasedMillis();
+        long writtenBytes = releasedFileQueue.accumulatedFileSize() - releasedFileQueue.peekSize();
+        if (releasedFileQueue.size() < 2 || spanMillis <= 0 || writtenBytes <= 0)
+        {
+            return Double.NaN;
+        }
+        return (double) writtenBytes / spanMillis;
+    }
+
+    private long retentionCapacity()
+    {
+        if (!policy.hasMinFreeSpace())
+        {
+            return policy.getMaxLogSize();
+        }
+
+        long retained = releasedFileQueue.accumulatedFileSize();
+        long headroom = Math.min(policy.getMaxLogSize() - retained, usableSpace.getAsLong() - policy.getMinFreeSpace());
+        return retained + headroom;
+    }
+}
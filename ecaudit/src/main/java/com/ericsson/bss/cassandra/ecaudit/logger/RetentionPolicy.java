@@ -0,0 +1,88 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.logger;
+
+/**
+ * Defines which released Chronicle files the {@link RetentionManager} keeps.
+ * <p>
+ * The oldest files are deleted while the total size of the retained files exceeds the maximum log size, while the
+ * oldest file is older than the maximum log age, or while the free space of the log directory is below the minimum
+ * free space. The age and free space limits are optional.
+ */
+final class RetentionPolicy
+{
+    private final long maxLogSize;
+    private final long maxLogAgeMillis;
+    private final long minFreeSpace;
+
+    /**
+     * @param maxLogSize      the maximum total size in bytes of retained files
+     * @param maxLogAgeMillis the maximum age in milliseconds of retained files, or {@code 0} for no age limit
+     * @param minFreeSpace    the minimum free space in bytes to keep in the log directory, or {@code 0} for no limit
+     */
+    RetentionPolicy(long maxLogSize, long maxLogAgeMillis, long minFreeSpace)
+    {
+        this.maxLogSize = maxLogSize;
+        this.maxLogAgeMillis = maxLogAgeMillis;
+        this.minFreeSpace = minFreeSpace;
+    }
+
+    static RetentionPolicy maxLogSize(long maxLogSize)
+    {
+        return new RetentionPolicy(maxLogSize, 0, 0);
+    }
+
+    long getMaxLogSize()
+    {
+        return maxLogSize;
+    }
+
+    long getMaxLogAgeMillis()
+    {
+        return maxLogAgeMillis;
+    }
+
+    long getMinFreeSpace()
+    {
+        return minFreeSpace;
+    }
+
+    boolean exceedsSize(long retainedBytes)
+    {
+        return retainedBytes > maxLogSize;
+    }
+
+    boolean isExpired(long releasedMillis, long nowMillis)
+    {
+        return maxLogAgeMillis > 0 && nowMillis - releasedMillis > maxLogAgeMillis;
+    }
+
+    boolean hasMinFreeSpace()
+    {
+        return minFreeSpace > 0;
+    }
+
+    boolean isBelowFreeSpace(long usableSpace)
+    {
+        return usableSpace < minFreeSpace;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "max size " + maxLogSize + " bytes, max age " + maxLogAgeMillis + " ms, min free space " + minFreeSpace + " bytes";
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.logger;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.annotations.VisibleForTesting;
+
+import net.openhft.chronicle.bytes.BytesStore;
+import net.openhft.chronicle.core.time.SystemTimeProvider;
+import net.openhft.chronicle.core.time.TimeProvider;
+import net.openhft.chronicle.queue.ExcerptAppender;
+import net.openhft.chronicle.queue.ExcerptTailer;
+import net.openhft.chronicle.queue.RollCycle;
+import net.openhft.chronicle.queue.TailerDirection;
+import net.openhft.chronicle.queue.impl.single.SingleChronicleQueue;
+import net.openhft.chronicle.wire.DocumentContext;
+import net.openhft.chronicle.wire.WriteMarshallable;
+
+/**
+ * A Chronicle time provider which rolls the queue to the next cycle once the active cycle reaches a maximum size.
+ * <p>
+ * Chronicle derives the cycle of the queue from the time. Records are written through this class, which tracks the
+ * write position of the active cycle. Once the active cycle reaches the maximum size, the time moves ahead to the start
+ * of the next cycle, which makes Chronicle roll on the next write. The time stays ahead until the wall clock catches up.
+ * Cycles are thereby kept in chronological order, and cycle file names sort in the order the files were written, even
+ * though the names may be ahead of the wall clock during bursts. Records carry their own timestamps.
+ * <p>
+ * Once the queue is opened the time is seeded from the cycles already in it, so that a restart does not move the time
+ * back behind cycles which were rolled ahead of the wall clock.
+ * <p>
+ * The queue is assumed to have the default epoch.
+ */
+final class SizeRollingTimeProvider implements TimeProvider
+{
+    private final TimeProvider clock;
+    private final long cycleLengthMillis;
+    private final long maxCycleSize;
+    private final AtomicLong rolledMillis = new AtomicLong(Long.MIN_VALUE);
+
+    /**
+     * @param rollCycle    the roll cycle of the queue
+     * @param maxCycleSize the size in bytes at which to roll to the next cycle
+     */
+    SizeRollingTimeProvider(RollCycle rollCycle, long maxCycleSize)
+    {
+        this(SystemTimeProvider.INSTANCE, rollCycle, maxCycleSize);
+    }
+
+    @VisibleForTesting
+    SizeRollingTimeProvider(TimeProvider clock, RollCycle rollCycle, long maxCycleSize)
+    {
+        this.clock = clock;
+        this.cycleLengthMillis = rollCycle.length();
+        this.maxCycleSize = maxCycleSize;
+    }
+
+    /**
+     * Seed the time from the last cycle of the queue. The time starts at the last cycle if it is below the maximum size,
+     * or at the next cycle if the last cycle is full. Should be called before the first record is written.
+     *
+     * @param queue the queue which uses this time provider
+     */
+    void seed(SingleChronicleQueue queue)
+    {
+        int lastCycle = queue.lastCycle();
+        if (lastCycle == Integer.MIN_VALUE)
+        {
+            return;
+        }
+
+        long seedCycle = endPosition(queue, lastCycle) >= maxCycleSize ? lastCycle + 1L : lastCycle;
+        rolledMillis.accumulateAndGet(seedCycle * cycleLengthMillis, Math::max);
+    }
+
+    /**
+     * @return the position after the last record of the cycle, or 0 if the cycle has no records
+     */
+    private static long endPosition(SingleChronicleQueue queue, int cycle)
+    {
+        ExcerptTailer tailer = queue.createTailer().direction(TailerDirection.BACKWARD).toEnd();
+        try (DocumentContext context = tailer.readingDocument())
+        {
+            return context.isPresent() && tailer.cycle() == cycle
+                   ? context.wire().bytes().readLimit()
+                   : 0L;
+        }
+    }
+
+    @Override
+    public long currentTimeMillis()
+    {
+        return Math.max(clock.currentTimeMillis(), rolledMillis.get());
+    }
+
+    /**
+     * Write a record, rolling to the next cycle if the active cycle reached the maximum size.
+     *
+     * @param appender     the appender to write with
+     * @param marshallable the record to write
+     */
+    void write(ExcerptAppender appender, WriteMarshallable marshallable)
+    {
+        long position;
+        try (DocumentContext context = appender.writingDocument())
+        {
+            marshallable.writeMarshallable(context.wire());
+            position = context.wire().bytes().writePosition();
+        }
+        written(appender.cycle(), position);
+    }
+
+    /**
+     * Write a serialized record, rolling to the next cycle if the active cycle reached the maximum size.
+     *
+     * @param appender the appender to write with
+     * @param record   the serialized record to write
+     */
+    void write(ExcerptAppender appender, BytesStore record)
+    {
+        long position;
+        try (DocumentContext context = appender.writingDocument())
+        {
+            context.wire().bytes().write(record);
+            position = context.wire().bytes().writePosition();
+        }
+        written(appender.cycle(), position);
+    }
+
+    @VisibleForTesting
+    void written(int cycle, long position)
+    {
+        if (position >= maxCycleSize)
+        {
+            long nextCycleMillis = (cycle + 1L) * cycleLengthMillis;
+            rolledMillis.accumulateAndGet(nextCycleMillis, Math::max);
+        }
+    }
+}
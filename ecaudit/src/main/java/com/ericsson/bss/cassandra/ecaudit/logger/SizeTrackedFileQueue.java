@@ -17,11 +17,18 @@ package com.ericsson.bss.cassandra.ecaudit.logger;
 
 import java.io.File;
 import java.util.LinkedList;
-import java.util.Queue;
+import java.util.List;
+import java.util.ListIterator;
 
+/**
+ * The inventory of released Chronicle files, oldest first.
+ * <p>
+ * The size and release time of each file is recorded when the file is added, so that the accounting stays consistent
+ * even if a file is deleted or replaced behind our back.
+ */
 class SizeTrackedFileQueue
 {
-    private final Queue<File> releasedStoreFiles = new LinkedList<>();
+    private final List<TrackedFile> releasedStoreFiles = new LinkedList<>();
     private long bytesInStoreFiles;
 
     long accumulatedFileSize()
@@ -29,23 +36,90 @@ class SizeTrackedFileQueue
         return bytesInStoreFiles;
     }
 
+    int size()
+    {
+        return releasedStoreFiles.size();
+    }
+
+    boolean isEmpty()
+    {
+        return releasedStoreFiles.isEmpty();
+    }
+
     void offer(File file)
     {
-        releasedStoreFiles.offer(file);
         // Not accurate because the files are sparse, but it's at least pessimistic
-        bytesInStoreFiles += file.length();
+        TrackedFile trackedFile = new TrackedFile(file, file.length(), file.lastModified());
+        releasedStoreFiles.add(trackedFile);
+        bytesInStoreFiles += trackedFile.size;
     }
 
-    File poll()
+    /**
+     * Replace a file in the queue, keeping its position and release time.
+     *
+     * @param file        the file to replace
+     * @param replacement the file to replace it with
+     * @return {@code true} if the file was replaced, {@code false} if the file is not in the queue
+     */
+    boolean replace(File file, File replacement)
     {
-        File file = releasedStoreFiles.poll();
+        ListIterator<TrackedFile> iterator = releasedStoreFiles.listIterator();
+        while (iterator.hasNext())
+        {
+            TrackedFile trackedFile = iterator.next();
+            if (trackedFile.file.equals(file))
+            {
+                TrackedFile trackedReplacement = new TrackedFile(replacement, replacement.length(), trackedFile.releasedMillis);
+                iterator.set(trackedReplacement);
+                bytesInStoreFiles += trackedReplacement.size - trackedFile.size;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the oldest file, or {@code null} if the queue is empty
+     */
+    File peek()
+    {
+        return releasedStoreFiles.isEmpty() ? null : releasedStoreFiles.get(0).file;
+    }
 
-        if (file != null)
+    /**
+     * @return the size of the oldest file as recorded when it was added, or {@code 0} if the queue is empty
+     */
+    long peekSize()
+    {
+        return releasedStoreFiles.isEmpty() ? 0 : releasedStoreFiles.get(0).size;
+    }
+
+    /**
+     * @return the release time of the oldest file, or {@link Long#MAX_VALUE} if the queue is empty
+     */
+    long oldestReleasedMillis()
+    {
+        return releasedStoreFiles.isEmpty() ? Long.MAX_VALUE : releasedStoreFiles.get(0).releasedMillis;
+    }
+
+    /**
+     * @return the release time of the newest file, or {@link Long#MIN_VALUE} if the queue is empty
+     */
+    long newestReleasedMillis()
+    {
+        return releasedStoreFiles.isEmpty() ? Long.MIN_VALUE : releasedStoreFiles.get(releasedStoreFiles.size() - 1).releasedMillis;
+    }
+
+    File poll()
+    {
+        if (releasedStoreFiles.isEmpty())
         {
-            bytesInStoreFiles -= file.length();
+            return null;
         }
 
-        return file;
+        TrackedFile trackedFile = releasedStoreFiles.remove(0);
+        bytesInStoreFiles -= trackedFile.size;
+        return trackedFile.file;
     }
 
     void clear()
@@ -53,4 +127,18 @@ class SizeTrackedFileQueue
         releasedStoreFiles.clear();
         bytesInStoreFiles = 0;
     }
+
+    private static final class TrackedFile
+    {
+        private final File file;
+        private final long size;
+        private final long releasedMillis;
+
+        private TrackedFile(File file, long size, long releasedMillis)
+        {
+            this.file = file;
+            this.size = size;
+            this.releasedMillis = releasedMillis;
+        }
+    }
 }
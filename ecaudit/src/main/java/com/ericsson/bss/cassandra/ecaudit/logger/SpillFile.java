@@ -0,0 +1,303 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.logger;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.google.common.annotations.VisibleForTesting;
+
+/**
+ * A sequential, append-only file holding serialized records which did not fit in the writer queue.
+ * <p>
+ * Records are stored with a length prefix after a header holding the replay offset, i.e. the position of the oldest
+ * record which has not yet been replayed. Records are replayed in the order they were appended. Since the replay offset
+ * is persisted after records are replayed, a restart may replay the last batch of records a second time but will never
+ * lose a record. Once all records are replayed the file is truncated.
+ * <p>
+ * Under a sustained backlog the file may never be fully replayed. Once the replayed records at the start of the file
+ * take up more than half of the maximum size, the remaining records are copied to a new file which atomically replaces
+ * the spill file. The file therefore takes up at most one and a half times the maximum size on disk.
+ * <p>
+ * Appended records are not forced to disk, so they survive a crash of the process but may be lost if the operating
+ * system goes down. A compacted file is forced to disk before it replaces the spill file.
+ */
+final class SpillFile implements AutoCloseable
+{
+    @VisibleForTesting
+    static final String FILE_NAME = "ecaudit-spill.dat";
+    private static final String COMPACT_FILE_NAME = FILE_NAME + ".tmp";
+    private static final int HEADER_SIZE = Long.BYTES;
+    private static final int LENGTH_SIZE = Integer.BYTES;
+
+    private final Path file;
+    private final long maxSize;
+
+    private FileChannel channel;
+    private long readOffset;
+    private long writeOffset;
+    private long batchEndOffset;
+
+    /**
+     * Open the spill file in the given directory, recovering any records which were not replayed before a restart.
+     *
+     * @param directory the directory of the spill file
+     * @param maxSize   the maximum number of bytes of records waiting for replay
+     * @throws IOException if the spill file could not be opened
+     */
+    SpillFile(Path directory, long maxSize) throws IOException
+    {
+        Files.createDirectories(directory);
+        this.file = directory.resolve(FILE_NAME);
+        this.maxSize = maxSize;
+        // A compaction which did not complete before a restart left the spill file untouched
+        Files.deleteIfExists(directory.resolve(COMPACT_FILE_NAME));
+        this.channel = open(file);
+        recover();
+    }
+
+    private static FileChannel open(Path path) throws IOException
+    {
+        return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    private void recover() throws IOException
+    {
+        if (channel.size() < HEADER_SIZE)
+        {
+            reset();
+            return;
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(header, 0);
+        readOffset = Math.max(HEADER_SIZE, Math.min(header.getLong(0), channel.size()));
+
+        // Drop a record which was partially written when the node went down
+        long position = readOffset;
+        ByteBuffer length = ByteBuffer.allocate(LENGTH_SIZE);
+        while (position + LENGTH_SIZE <= channel.size())
+        {
+            length.clear();
+            readFully(length, position);
+            int recordLength = length.getInt(0);
+            if (recordLength <= 0 || position + LENGTH_SIZE + recordLength > channel.size())
+            {
+                break;
+            }
+            position += LENGTH_SIZE + recordLength;
+        }
+        channel.truncate(position);
+        writeOffset = position;
+        batchEndOffset = readOffset;
+
+        if (isEmpty())
+        {
+            reset();
+        }
+    }
+
+    /**
+     * Append a record to the spill file.
+     *
+     * @param record the serialized record
+     * @return {@code true} if the record was appended, {@code false} if the spill file is full
+     */
+    synchronized boolean append(byte[] record)
+    {
+        long recordSize = (long) LENGTH_SIZE + record.length;
+        if (size() + recordSize > maxSize)
+        {
+            return false;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(LENGTH_SIZE + record.length);
+        buffer.putInt(record.length).put(record).flip();
+        try
+        {
+            writeFully(buffer, writeOffset);
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException("Failed to write to audit spill file", e);
+        }
+        writeOffset += recordSize;
+        return true;
+    }
+
+    /**
+     * Read the next batch of records to replay, without releasing them from the spill file.
+     *
+     * @param limit the maximum number of records to read
+     * @return the records in the order they were appended
+     * @see #commitBatch()
+     */
+    synchronized List<byte[]> readBatch(int limit)
+    {
+        if (isEmpty())
+        {
+            return Collections.emptyList();
+        }
+
+        List<byte[]> records = new ArrayList<>();
+        long position = readOffset;
+        try
+        {
+            ByteBuffer length = ByteBuffer.allocate(LENGTH_SIZE);
+            while (records.size() < limit && position < writeOffset)
+            {
+                length.clear();
+                readFully(length, position);
+                ByteBuffer record = ByteBuffer.allocate(length.getInt(0));
+                readFully(record, position + LENGTH_SIZE);
+                records.add(record.array());
+                position += LENGTH_SIZE + record.capacity();
+            }
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException("Failed to read from audit spill file", e);
+        }
+        batchEndOffset = position;
+        return records;
+    }
+
+    /**
+     * Release the records of the last batch once they have been replayed, truncating the file when all records are
+     * replayed and compacting it when the replayed records take up too much space.
+     */
+    synchronized void commitBatch()
+    {
+        readOffset = batchEndOffset;
+        try
+        {
+            if (isEmpty())
+            {
+                reset();
+            }
+            else if (readOffset - HEADER_SIZE > maxSize / 2)
+            {
+                compact();
+            }
+            else
+            {
+                writeHeader();
+            }
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException("Failed to update audit spill file", e);
+        }
+    }
+
+    /**
+     * @return {@code true} if there are no records waiting for replay
+     */
+    synchronized boolean isEmpty()
+    {
+        return readOffset == writeOffset;
+    }
+
+    /**
+     * @return the number of bytes of records waiting for replay
+     */
+    synchronized long size()
+    {
+        return writeOffset - readOffset;
+    }
+
+    private void reset() throws IOException
+    {
+        channel.truncate(HEADER_SIZE);
+        readOffset = HEADER_SIZE;
+        writeOffset = HEADER_SIZE;
+        batchEndOffset = HEADER_SIZE;
+        writeHeader();
+    }
+
+    private void writeHeader() throws IOException
+    {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putLong(readOffset).flip();
+        writeFully(header, 0);
+    }
+
+    /**
+     * Copy the records waiting for replay to a new file, which replaces the spill file once it is on disk.
+     */
+    private void compact() throws IOException
+    {
+        Path compactFile = file.resolveSibling(COMPACT_FILE_NAME);
+        long remaining = size();
+        try (FileChannel target = FileChannel.open(compactFile, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE))
+        {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putLong(HEADER_SIZE).flip();
+            while (header.hasRemaining())
+            {
+                target.write(header);
+            }
+
+            long position = readOffset;
+            while (position < writeOffset)
+            {
+                position += channel.transferTo(position, writeOffset - position, target);
+            }
+            target.force(true);
+        }
+
+        Files.move(compactFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        channel.close();
+        channel = open(file);
+        readOffset = HEADER_SIZE;
+        writeOffset = HEADER_SIZE + remaining;
+        batchEndOffset = HEADER_SIZE;
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException
+    {
+        while (buffer.hasRemaining())
+        {
+            if (channel.read(buffer, position + buffer.position()) < 0)
+            {
+                throw new IOException("Unexpected end of audit spill file");
+            }
+        }
+    }
+
+    private void writeFully(ByteBuffer buffer, long position) throws IOException
+    {
+        while (buffer.hasRemaining())
+        {
+            channel.write(buffer, position + buffer.position());
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException
+    {
+        channel.close();
+    }
+}
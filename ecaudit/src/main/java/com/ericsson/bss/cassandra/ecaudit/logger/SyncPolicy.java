@@ -0,0 +1,37 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.logger;
+
+/**
+ * Defines when records written to the Chronicle queue are synced to stable storage.
+ */
+enum SyncPolicy
+{
+    /**
+     * Leave it to the operating system to flush the memory-mapped log files.
+     */
+    NONE,
+
+    /**
+     * Sync once a configured number of records has been written, or when the writer runs out of records.
+     */
+    RECORDS,
+
+    /**
+     * Sync once a configured time has passed since the oldest record which is not synced was written.
+     */
+    INTERVAL
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.logger;
+
+/**
+ * Defines how records are handed to the Chronicle queue.
+ */
+@SuppressWarnings("PMD.FieldNamingConventions")
+enum WriteMode
+{
+    // Enum values in lower case - to match write_mode config values
+
+    /**
+     * Records are handed off to a dedicated writer thread, see {@link AsyncChronicleWriter}.
+     */
+    async,
+
+    /**
+     * Records are written by the request threads, see {@link DirectChronicleWriter}.
+     */
+    direct
+}
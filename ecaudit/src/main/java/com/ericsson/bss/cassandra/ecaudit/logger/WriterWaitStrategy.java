@@ -0,0 +1,69 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.logger;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Defines how the threads of the {@link AsyncChronicleWriter} wait when there is nothing to do, i.e. when the writer finds
+ * the queue empty or when a producer finds the queue full.
+ */
+enum WriterWaitStrategy
+{
+    /**
+     * Park the thread for a short while. An idle writer thread is parked until a producer wakes it up.
+     */
+    PARK
+    {
+        @Override
+        void idle()
+        {
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+    },
+
+    /**
+     * Yield the processor to other threads.
+     */
+    YIELD
+    {
+        @Override
+        void idle()
+        {
+            Thread.yield();
+        }
+    },
+
+    /**
+     * Spin without giving up the processor, giving the lowest latency at the cost of a fully occupied core.
+     */
+    BUSY_SPIN
+    {
+        @Override
+        void idle()
+        {
+            // Keep spinning
+        }
+    };
+
+    private static final long PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    /**
+     * Wait a short while before the next attempt.
+     */
+    abstract void idle();
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Timer;
+import org.apache.cassandra.metrics.CassandraMetricsRegistry;
+
+import static com.ericsson.bss.cassandra.ecaudit.metrics.AuditMetrics.createMetricName;
+
+/**
+ * Helper class to create and update metrics of the asynchronous audit pipeline.
+ */
+public class AsyncAuditMetrics
+{
+    private static final String METRIC_NAME_QUEUE_DEPTH = "AsyncQueueDepth";
+    private static final String METRIC_NAME_HAND_OFF = "AsyncHandOff";
+    private static final String METRIC_NAME_DROPPED = "AsyncDropped";
+
+    private final Timer handOffTimer;
+    private final Counter droppedCounter;
+
+    /**
+     * Create metrics for the asynchronous audit pipeline.
+     *
+     * @param queueDepth a gauge reporting the number of requests waiting for an audit worker
+     */
+    public AsyncAuditMetrics(Gauge<Integer> queueDepth)
+    {
+        this(CassandraMetricsRegistry.Metrics, queueDepth);
+    }
+
+    AsyncAuditMetrics(CassandraMetricsRegistry registry, Gauge<Integer> queueDepth)
+    {
+        // Replace any gauge left behind by a previous pipeline so that the depth of the current queue is reported
+        registry.remove(createMetricName(METRIC_NAME_QUEUE_DEPTH));
+        registry.register(createMetricName(METRIC_NAME_QUEUE_DEPTH), queueDepth);
+        handOffTimer = registry.timer(createMetricName(METRIC_NAME_HAND_OFF));
+        droppedCounter = registry.counter(createMetricName(METRIC_NAME_DROPPED));
+    }
+
+    /**
+     * Add timing for handing off a request from the request thread to an audit worker.
+     *
+     * @param time     the time spent waiting in the queue
+     * @param timeUnit the time unit of the provided time
+     */
+    public void handOffAuditRequest(long time, TimeUnit timeUnit)
+    {
+        handOffTimer.update(time, timeUnit);
+    }
+
+    /**
+     * Count a request which was dropped without being audited.
+     */
+    public void dropAuditRequest()
+    {
+        droppedCounter.inc();
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.metrics;
+
+import com.codahale.metrics.Gauge;
+import org.apache.cassandra.metrics.CassandraMetricsRegistry;
+
+import static com.ericsson.bss.cassandra.ecaudit.metrics.AuditMetrics.createMetricName;
+
+/**
+ * Helper class to register metrics of the retained Chronicle log files.
+ */
+public class ChronicleRetentionMetrics
+{
+    private static final String METRIC_NAME_RETAINED_SIZE = "ChronicleRetainedSize";
+    private static final String METRIC_NAME_RETENTION_HORIZON = "ChronicleRetentionHorizon";
+
+    /**
+     * Register metrics for the retained Chronicle log files.
+     *
+     * @param retainedSize     a gauge reporting the total size in bytes of the retained log files
+     * @param retentionHorizon a gauge reporting the estimated hours of history which the retained log files will cover
+     */
+    public ChronicleRetentionMetrics(Gauge<Long> retainedSize, Gauge<Double> retentionHorizon)
+    {
+        this(CassandraMetricsRegistry.Metrics, retainedSize, retentionHorizon);
+    }
+
+    ChronicleRetentionMetrics(CassandraMetricsRegistry registry, Gauge<Long> retainedSize, Gauge<Double> retentionHorizon)
+    {
+        // Replace any gauges left behind by a previous logger so that the state of the current logger is reported
+        registry.remove(createMetricName(METRIC_NAME_RETAINED_SIZE));
+        registry.register(createMetricName(METRIC_NAME_RETAINED_SIZE), retainedSize);
+        registry.remove(createMetricName(METRIC_NAME_RETENTION_HORIZON));
+        registry.register(createMetricName(METRIC_NAME_RETENTION_HORIZON), retentionHorizon);
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Timer;
+import org.apache.cassandra.metrics.CassandraMetricsRegistry;
+
+import static com.ericsson.bss.cassandra.ecaudit.metrics.AuditMetrics.createMetricName;
+
+/**
+ * Helper class to create and update metrics of the Chronicle writer queue.
+ */
+public class ChronicleWriterMetrics
+{
+    private static final String METRIC_NAME_QUEUE_DEPTH = "ChronicleQueueDepth";
+    private static final String METRIC_NAME_BLOCKED = "ChronicleBlockedProducers";
+    private static final String METRIC_NAME_SPILL_SIZE = "ChronicleSpillSize";
+    private static final String METRIC_NAME_SPILLED = "ChronicleSpilled";
+    private static final String METRIC_NAME_SYNC_LATENCY = "ChronicleSyncLatency";
+    private static final String METRIC_NAME_SYNC_GROUP_SIZE = "ChronicleSyncGroupSize";
+
+    private final Counter blockedCounter;
+    private final Counter spilledCounter;
+    private final Timer syncLatency;
+    private final Histogram syncGroupSize;
+
+    /**
+     * Create metrics for the Chronicle writer queue.
+     *
+     * @param queueDepth a gauge reporting the number of records waiting for the writer
+     * @param spillSize  a gauge reporting the number of bytes in the spill file waiting for the writer
+     */
+    public ChronicleWriterMetrics(Gauge<Integer> queueDepth, Gauge<Long> spillSize)
+    {
+        this(CassandraMetricsRegistry.Metrics, queueDepth, spillSize);
+    }
+
+    ChronicleWriterMetrics(CassandraMetricsRegistry registry, Gauge<Integer> queueDepth, Gauge<Long> spillSize)
+    {
+        // Replace any gauges left behind by a previous writer so that the state of the current writer is reported
+        registry.remove(createMetricName(METRIC_NAME_QUEUE_DEPTH));
+        registry.register(createMetricName(METRIC_NAME_QUEUE_DEPTH), queueDepth);
+        registry.remove(createMetricName(METRIC_NAME_SPILL_SIZE));
+        registry.register(createMetricName(METRIC_NAME_SPILL_SIZE), spillSize);
+        blockedCounter = registry.counter(createMetricName(METRIC_NAME_BLOCKED));
+        spilledCounter = registry.counter(createMetricName(METRIC_NAME_SPILLED));
+        syncLatency = registry.timer(createMetricName(METRIC_NAME_SYNC_LATENCY));
+        syncGroupSize = registry.histogram(createMetricName(METRIC_NAME_SYNC_GROUP_SIZE), false);
+    }
+
+    /**
+     * Count a producer which had to wait for the writer since the queue was full.
+     */
+    public void blockProducer()
+    {
+        blockedCounter.inc();
+    }
+
+    /**
+     * Count a record which was written to the spill file since the queue was full.
+     */
+    public void spillRecord()
+    {
+        spilledCounter.inc();
+    }
+
+    /**
+     * Record a sync of written records to stable storage.
+     *
+     * @param duration the time it took to sync
+     * @param timeUnit the time unit of the duration
+     * @param records  the number of records in the synced group
+     */
+    public void syncRecords(long duration, TimeUnit timeUnit, int records)
+    {
+        syncLatency.update(duration, timeUnit);
+        syncGroupSize.update(records);
+    }
+}
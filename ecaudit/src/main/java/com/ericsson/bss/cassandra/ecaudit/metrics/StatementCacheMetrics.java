@@ -0,0 +1,60 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.metrics;
+
+import com.codahale.metrics.Counter;
+import org.apache.cassandra.metrics.CassandraMetricsRegistry;
+
+import static com.ericsson.bss.cassandra.ecaudit.metrics.AuditMetrics.createMetricName;
+
+/**
+ * Helper class to create and update metrics of the unprepared statement cache.
+ */
+public class StatementCacheMetrics
+{
+    private static final String METRIC_NAME_HITS = "UnpreparedStatementCacheHits";
+    private static final String METRIC_NAME_MISSES = "UnpreparedStatementCacheMisses";
+
+    private final Counter hitCounter;
+    private final Counter missCounter;
+
+    public StatementCacheMetrics()
+    {
+        this(CassandraMetricsRegistry.Metrics);
+    }
+
+    StatementCacheMetrics(CassandraMetricsRegistry registry)
+    {
+        hitCounter = registry.counter(createMetricName(METRIC_NAME_HITS));
+        missCounter = registry.counter(createMetricName(METRIC_NAME_MISSES));
+    }
+
+    /**
+     * Count a statement which was resolved from the cache.
+     */
+    public void hit()
+    {
+        hitCounter.inc();
+    }
+
+    /**
+     * Count a statement which had to be parsed.
+     */
+    public void miss()
+    {
+        missCounter.inc();
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.entry.factory;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.collect.ImmutableSet;
+import org.apache.commons.lang3.reflect.FieldUtils;
+
+import com.ericsson.bss.cassandra.ecaudit.entry.AuditEntry;
+import com.ericsson.bss.cassandra.ecaudit.test.mode.ClientInitializer;
+import org.apache.cassandra.auth.DataResource;
+import org.apache.cassandra.auth.Permission;
+import org.apache.cassandra.auth.RoleOptions;
+import org.apache.cassandra.cql3.CQLStatement;
+import org.apache.cassandra.cql3.RoleName;
+import org.apache.cassandra.cql3.functions.FunctionName;
+import org.apache.cassandra.cql3.statements.CreateRoleStatement;
+import org.apache.cassandra.cql3.statements.DropFunctionStatement;
+import org.apache.cassandra.cql3.statements.GrantPermissionsStatement;
+import org.apache.cassandra.cql3.statements.ListRolesStatement;
+import org.apache.cassandra.cql3.statements.UseStatement;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Benchmark of the per statement cost of mapping a statement to the permissions and resource of its audit entry.
+ *
+ * The readFieldByReflection benchmark measures the reflective field lookup which was previously done for each
+ * statement, and readFieldByMethodHandle measures the cached method handle which replaced it.
+ *
+ * Run this directly in IntelliJ (if you have a working JMH plugin).
+ *
+ * Or, run in from the command line (with more accurate results)
+ * - mvn package -DskipTests
+ * - mvn dependency:unpack-dependencies
+ * - java -cp target/classes:target/test-classes:target/dependency com.ericsson.bss.cassandra.ecaudit.entry.factory.BenchmarkAuditEntryBuilderFactory
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+@Fork(value = 1)
+@Threads(1)
+@State(Scope.Benchmark)
+public class BenchmarkAuditEntryBuilderFactory
+{
+    @Param({ "USE", "CREATE_ROLE", "LIST_ROLES", "GRANT", "DROP_FUNCTION" })
+    private String statementType;
+
+    private AuditEntryBuilderFactory factory;
+    private StatementResourceAdapter resourceAdapter;
+    private CreateRoleStatement createRoleStatement;
+    private CQLStatement statement;
+
+    public static void main(String[] args) throws RunnerException
+    {
+        Options opt = new OptionsBuilder()
+                      .include(BenchmarkAuditEntryBuilderFactory.class.getSimpleName())
+                      .forks(1)
+                      .build();
+
+        new Runner(opt).run();
+    }
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+        ClientInitializer.beforeClass();
+        factory = new AuditEntryBuilderFactory();
+        resourceAdapter = new StatementResourceAdapter();
+        createRoleStatement = new CreateRoleStatement(roleName("role"), new RoleOptions(), false);
+        statement = createStatement(statementType);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        ClientInitializer.afterClass();
+    }
+
+    @Benchmark
+    public AuditEntry.Builder mapStatement()
+    {
+        return factory.createEntryBuilder(statement);
+    }
+
+    @Benchmark
+    public Object readFieldByReflection() throws IllegalAccessException
+    {
+        return FieldUtils.readField(createRoleStatement, "role", true);
+    }
+
+    @Benchmark
+    public Object readFieldByMethodHandle()
+    {
+        return resourceAdapter.resolveRoleResource(createRoleStatement);
+    }
+
+    private static CQLStatement createStatement(String statementType)
+    {
+        switch (statementType)
+        {
+        case "USE":
+            return new UseStatement("ks");
+        case "CREATE_ROLE":
+            return new CreateRoleStatement(roleName("role"), new RoleOptions(), false);
+        case "LIST_ROLES":
+            return new ListRolesStatement(roleName("role"), false);
+        case "GRANT":
+            return new GrantPermissionsStatement(ImmutableSet.of(Permission.SELECT), DataResource.table("ks", "tbl"), roleName("role"));
+        case "DROP_FUNCTION":
+            return new DropFunctionStatement(new FunctionName("ks", "func"), Collections.emptyList(), false, false);
+        default:
+            throw new IllegalArgumentException("Unknown statement type " + statementType);
+        }
+    }
+
+    private static RoleName roleName(String name)
+    {
+        RoleName roleName = new RoleName();
+        roleName.setName(name, true);
+        return roleName;
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.logger;
+
+import java.io.File;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.Files;
+
+import com.ericsson.bss.cassandra.ecaudit.common.chronicle.FieldSelector;
+import com.ericsson.bss.cassandra.ecaudit.common.record.SimpleAuditOperation;
+import com.ericsson.bss.cassandra.ecaudit.common.record.Status;
+import com.ericsson.bss.cassandra.ecaudit.entry.AuditEntry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compare the write latency percentiles of the Chronicle logger with and without the pretoucher.
+ *
+ * The logger rolls to a new file every minute and each measurement iteration spans more than a minute, so that every
+ * iteration includes at least one roll. Records are written in direct write mode, so that the latency of the write
+ * itself is sampled, including the creation of the next file at the roll. Compare the high percentiles and the max.
+ *
+ * Run this directly in IntelliJ (if you have a working JMH plugin).
+ *
+ * Or, run in from the command line (with more accurate results)
+ * - mvn package -DskipTests
+ * - mvn dependency:unpack-dependencies
+ * - java -cp target/classes:target/test-classes:target/dependency com.ericsson.bss.cassandra.ecaudit.logger.BenchmarkChronicleRoll
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 5, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 3, time = 65, timeUnit = TimeUnit.SECONDS)
+@Fork(value = 1)
+@State(Scope.Benchmark)
+public class BenchmarkChronicleRoll
+{
+    @Param({ "false", "true" })
+    private String pretouch;
+
+    private ChronicleWriter writer;
+    private ChronicleAuditLogger logger;
+    private AuditEntry auditEntry;
+
+    public static void main(String[] args) throws RunnerException
+    {
+        Options opt = new OptionsBuilder()
+                      .include(BenchmarkChronicleRoll.class.getSimpleName())
+                      .forks(1)
+                      .build();
+
+        new Runner(opt).run();
+    }
+
+    @Setup(Level.Trial)
+    public void setupLogger()
+    {
+        File tempDir = Files.createTempDir();
+        tempDir.deleteOnExit();
+
+        Map<String, String> parameters = ImmutableMap.of("log_dir", tempDir.getPath(),
+                                                         "roll_cycle", "MINUTELY",
+                                                         "write_mode", "direct",
+                                                         "pretouch", pretouch);
+
+        writer = ChronicleWriterFactory.createShards(new ChronicleAuditLoggerConfig(parameters)).get(0);
+        logger = new ChronicleAuditLogger(writer, FieldSelector.DEFAULT_FIELDS);
+    }
+
+    @Setup(Level.Iteration)
+    public void setupEntry() throws Exception
+    {
+        auditEntry = AuditEntry.newBuilder()
+                               .timestamp(System.currentTimeMillis())
+                               .client(new InetSocketAddress(InetAddress.getLocalHost(), 678))
+                               .coordinator(InetAddress.getLocalHost())
+                               .user("cassandra")
+                               .batch(UUID.randomUUID())
+                               .status(Status.ATTEMPT)
+                               .operation(new SimpleAuditOperation("SELECT * from dummy.table"))
+                               .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        writer.close();
+    }
+
+    @Benchmark
+    public void log()
+    {
+        logger.log(auditEntry);
+    }
+}
@@ -0,0 +1,354 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.ericsson.bss.cassandra.ecaudit.common.record.AuditOperation;
+import com.ericsson.bss.cassandra.ecaudit.common.record.Status;
+import com.ericsson.bss.cassandra.ecaudit.entry.AuditEntry;
+import com.ericsson.bss.cassandra.ecaudit.entry.factory.AuditEntryBuilderFactory;
+import com.ericsson.bss.cassandra.ecaudit.entry.suppressor.SuppressNothing;
+import com.ericsson.bss.cassandra.ecaudit.facade.Auditor;
+import com.ericsson.bss.cassandra.ecaudit.facade.BatchAuditor;
+import com.ericsson.bss.cassandra.ecaudit.test.mode.ClientInitializer;
+import org.apache.cassandra.auth.AuthenticatedUser;
+import org.apache.cassandra.auth.DataResource;
+import org.apache.cassandra.auth.Permission;
+import org.apache.cassandra.cql3.BatchQueryOptions;
+import org.apache.cassandra.cql3.CQLStatement;
+import org.apache.cassandra.cql3.ColumnIdentifier;
+import org.apache.cassandra.cql3.ColumnSpecification;
+import org.apache.cassandra.cql3.QueryOptions;
+import org.apache.cassandra.cql3.statements.BatchStatement;
+import org.apache.cassandra.cql3.statements.ModificationStatement;
+import org.apache.cassandra.cql3.statements.ParsedStatement;
+import org.apache.cassandra.db.ConsistencyLevel;
+import org.apache.cassandra.db.marshal.UTF8Type;
+import org.apache.cassandra.service.ClientState;
+import org.apache.cassandra.utils.MD5Digest;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.StrictStubs.class)
+public class TestAsyncAuditAdapter
+{
+    private static final long TIMESTAMP = 42L;
+    private static final String USER = "user";
+    private static final String KEYSPACE = "ks";
+    private static final String STATEMENT = "select * from tbl";
+    private static final String PREPARED_STATEMENT = "insert into ks.tbl (id, value) values (?, ?)";
+    private static final MD5Digest PREPARED_STATEMENT_ID = MD5Digest.compute(PREPARED_STATEMENT);
+    private static final DataResource RESOURCE = DataResource.table("ks", "tbl");
+    private static final ImmutableSet<Permission> PERMISSIONS = ImmutableSet.of(Permission.SELECT);
+
+    @Mock
+    private AuthenticatedUser mockUser;
+    @Mock
+    private ClientState mockState;
+    @Mock
+    private CQLStatement mockStatement;
+    @Mock
+    private Auditor mockAuditor;
+    @Mock
+    private AuditEntryBuilderFactory mockAuditEntryBuilderFactory;
+    @Mock
+    private AsyncAuditExecutor mockExecutor;
+    @Mock
+    private BatchStatement mockBatchStatement;
+    @Mock
+    private BatchQueryOptions mockBatchOptions;
+    @Mock
+    private BatchAuditor mockBatchAuditor;
+
+    private InetSocketAddress clientSocketAddress;
+    private AsyncAuditAdapter auditAdapter;
+
+    @BeforeClass
+    public static void beforeAll()
+    {
+        ClientInitializer.beforeClass();
+    }
+
+    @Before
+    public void before() throws UnknownHostException
+    {
+        clientSocketAddress = new InetSocketAddress(InetAddress.getByName("127.0.0.1"), 565);
+        auditAdapter = new AsyncAuditAdapter(mockAuditor, mockAuditEntryBuilderFactory, new SuppressNothing(), mockExecutor);
+    }
+
+    @After
+    public void after()
+    {
+        verifyNoMoreInteractions(mockAuditor);
+    }
+
+    @AfterClass
+    public static void afterAll()
+    {
+        ClientInitializer.afterClass();
+    }
+
+    @Test
+    public void testRegularIsAuditedOnWorkerWithSnapshotOfClient()
+    {
+        // Given
+        givenClient();
+        when(mockState.getRawKeyspace()).thenReturn(KEYSPACE);
+        when(mockAuditor.shouldLogForStatus(eq(Status.ATTEMPT))).thenReturn(true);
+        AuditEntry.Builder entryBuilder = AuditEntry.newBuilder().permissions(PERMISSIONS).resource(RESOURCE);
+        when(mockAuditEntryBuilderFactory.createEntryBuilder(eq(STATEMENT), any(ClientState.class))).thenReturn(entryBuilder);
+        givenAuditorAcceptsEntries();
+
+        // When
+        auditAdapter.auditRegular(STATEMENT, mockState, Status.ATTEMPT, TIMESTAMP);
+
+        // Then
+        verifyZeroInteractions(mockAuditEntryBuilderFactory);
+        runSubmittedTask();
+
+        ArgumentCaptor<ClientState> stateCaptor = ArgumentCaptor.forClass(ClientState.class);
+        verify(mockAuditEntryBuilderFactory).createEntryBuilder(eq(STATEMENT), stateCaptor.capture());
+        assertThat(stateCaptor.getValue()).isNotSameAs(mockState);
+        assertThat(stateCaptor.getValue().getRawKeyspace()).isEqualTo(KEYSPACE);
+
+        AuditEntry entry = getLoggedEntries(1).get(0);
+        assertThat(entry.getClientAddress()).isEqualTo(clientSocketAddress);
+        assertThat(entry.getUser()).isEqualTo(USER);
+        assertThat(entry.getStatus()).isEqualTo(Status.ATTEMPT);
+        assertThat(entry.getOperation().getOperationString()).isEqualTo(STATEMENT);
+        assertThat(entry.getTimestamp()).isEqualTo(TIMESTAMP);
+    }
+
+    @Test
+    public void testSnapshotKeepsRawKeyspaceWithoutValidation()
+    {
+        // Given
+        givenClient();
+        when(mockState.getRawKeyspace()).thenReturn("dropped_ks");
+        when(mockAuditor.shouldLogForStatus(eq(Status.ATTEMPT))).thenReturn(true);
+        AuditEntry.Builder entryBuilder = AuditEntry.newBuilder().permissions(PERMISSIONS).resource(RESOURCE);
+        when(mockAuditEntryBuilderFactory.createEntryBuilder(eq(STATEMENT), any(ClientState.class))).thenReturn(entryBuilder);
+        givenAuditorAcceptsEntries();
+
+        // When
+        auditAdapter.auditRegular(STATEMENT, mockState, Status.ATTEMPT, TIMESTAMP);
+        runSubmittedTask();
+
+        // Then
+        ArgumentCaptor<ClientState> stateCaptor = ArgumentCaptor.forClass(ClientState.class);
+        verify(mockAuditEntryBuilderFactory).createEntryBuilder(eq(STATEMENT), stateCaptor.capture());
+        assertThat(stateCaptor.getValue().getRawKeyspace()).isEqualTo("dropped_ks");
+        assertThat(getLoggedEntries(1)).extracting(AuditEntry::getStatus).containsExactly(Status.ATTEMPT);
+    }
+
+    @Test
+    public void testRegularNotLoggedForStatusIsNotSubmitted()
+    {
+        when(mockAuditor.shouldLogForStatus(eq(Status.SUCCEEDED))).thenReturn(false);
+
+        auditAdapter.auditRegular(STATEMENT, mockState, Status.SUCCEEDED, TIMESTAMP);
+
+        verifyZeroInteractions(mockExecutor, mockAuditEntryBuilderFactory, mockState);
+    }
+
+    @Test
+    public void testPreparedIsAuditedWithCopiedValues()
+    {
+        // Given
+        givenClient();
+        when(mockAuditor.shouldLogForStatus(eq(Status.ATTEMPT))).thenReturn(true);
+        AuditEntry.Builder entryBuilder = AuditEntry.newBuilder().permissions(PERMISSIONS).resource(RESOURCE);
+        when(mockAuditEntryBuilderFactory.createEntryBuilder(eq(mockStatement))).thenReturn(entryBuilder);
+        givenAuditorAcceptsEntries();
+        ByteBuffer value = ByteBuffer.wrap("val1".getBytes());
+        QueryOptions options = givenOptions(value);
+
+        // When
+        auditAdapter.createPreparedTemplate(PREPARED_STATEMENT, new ParsedStatement.Prepared(mockStatement));
+        auditAdapter.auditPrepared(PREPARED_STATEMENT_ID, mockStatement, mockState, options, Status.ATTEMPT, TIMESTAMP);
+        value.put(0, (byte) 'X');
+        runSubmittedTask();
+
+        // Then
+        AuditEntry entry = getLoggedEntries(1).get(0);
+        assertThat(entry.getOperation().getOperationString()).isEqualTo(PREPARED_STATEMENT + "['val1']");
+        assertThat(entry.getUser()).isEqualTo(USER);
+    }
+
+    @Test
+    public void testContextIsSnapshotOnceForAllStatuses()
+    {
+        // Given
+        givenClient();
+        when(mockAuditor.shouldLogForStatus(any(Status.class))).thenReturn(true);
+        AuditEntry.Builder entryBuilder = AuditEntry.newBuilder().permissions(PERMISSIONS).resource(RESOURCE);
+        when(mockAuditEntryBuilderFactory.createEntryBuilder(eq(STATEMENT), any(ClientState.class))).thenReturn(entryBuilder);
+        givenAuditorAcceptsEntries();
+
+        // When
+        AuditRequestContext context = auditAdapter.createRegularContext(STATEMENT, mockState, TIMESTAMP);
+        auditAdapter.audit(context, Status.ATTEMPT);
+        auditAdapter.audit(context, Status.FAILED);
+        ArgumentCaptor<Object> keyCaptor = ArgumentCaptor.forClass(Object.class);
+        runSubmittedTasks(2, keyCaptor);
+
+        // Then
+        assertThat(keyCaptor.getAllValues()).containsOnly(context);
+        verify(mockState, times(1)).getRemoteAddress();
+        verify(mockAuditEntryBuilderFactory, times(1)).createEntryBuilder(eq(STATEMENT), any(ClientState.class));
+        verify(mockAuditor, times(1)).filterAndObfuscate(eq(USER), any());
+        assertThat(getLoggedEntries(2)).extracting(AuditEntry::getStatus).containsExactly(Status.ATTEMPT, Status.FAILED);
+    }
+
+    @Test
+    public void testBatchIsAuditedOnWorker()
+    {
+        // Given
+        givenClient();
+        when(mockAuditor.shouldLogForStatus(eq(Status.ATTEMPT))).thenReturn(true);
+        List<Object> queries = Arrays.asList("query1", "query2");
+        when(mockBatchOptions.getQueryOrIdList()).thenReturn(queries);
+        when(mockBatchStatement.getStatements()).thenReturn(Arrays.asList(mock(ModificationStatement.class), mock(ModificationStatement.class)));
+        when(mockAuditor.createBatchAuditor(eq(USER))).thenReturn(Optional.of(mockBatchAuditor));
+        when(mockBatchOptions.forStatement(any(Integer.class))).thenReturn(givenOptions());
+        AuditEntry.Builder entryBuilder = AuditEntry.newBuilder().permissions(PERMISSIONS).resource(RESOURCE);
+        when(mockAuditEntryBuilderFactory.createBatchEntryBuilder()).thenReturn(entryBuilder);
+
+        // When
+        auditAdapter.auditBatch(mockBatchStatement, UUID.randomUUID(), mockState, mockBatchOptions, Status.ATTEMPT, TIMESTAMP);
+        runSubmittedTask();
+
+        // Then
+        List<AuditEntry> entries = getBatchAuditEntries(2);
+        assertThat(entries).extracting(AuditEntry::getOperation).extracting(AuditOperation::getOperationString).containsExactly("query1", "query2");
+        assertThat(entries).extracting(AuditEntry::getUser).containsOnly(USER);
+    }
+
+    @Test
+    public void testCopyOfOptionsIsDetached()
+    {
+        ByteBuffer value = ByteBuffer.wrap("val1".getBytes());
+        QueryOptions options = givenOptions(value, null);
+
+        QueryOptions copy = AsyncAuditAdapter.copyOf(options);
+        value.put(0, (byte) 'X');
+
+        assertThat(copy.getValues()).containsExactly(ByteBuffer.wrap("val1".getBytes()), null);
+        assertThat(copy.getColumnSpecifications()).isEqualTo(options.getColumnSpecifications());
+        assertThat(copy.getConsistency()).isEqualTo(ConsistencyLevel.QUORUM);
+    }
+
+    @Test
+    public void testCopyOfOptionsKeepsProtocolVersion()
+    {
+        QueryOptions options = QueryOptions.create(ConsistencyLevel.ONE, Arrays.asList(ByteBuffer.wrap("val1".getBytes())), false, 100, null, ConsistencyLevel.LOCAL_SERIAL, 2);
+
+        QueryOptions copy = AsyncAuditAdapter.copyOf(options);
+
+        assertThat(copy.getProtocolVersion()).isEqualTo(2);
+        assertThat(copy.getConsistency()).isEqualTo(ConsistencyLevel.ONE);
+        assertThat(copy.getSerialConsistency()).isEqualTo(ConsistencyLevel.LOCAL_SERIAL);
+    }
+
+    private void givenClient()
+    {
+        when(mockState.getUser()).thenReturn(mockUser);
+        when(mockUser.getName()).thenReturn(USER);
+        when(mockState.getRemoteAddress()).thenReturn(clientSocketAddress);
+    }
+
+    private static QueryOptions givenOptions(ByteBuffer... values)
+    {
+        ImmutableList.Builder<ColumnSpecification> columns = ImmutableList.builder();
+        for (int i = 0; i < values.length; i++)
+        {
+            ColumnIdentifier id = new ColumnIdentifier("c" + i, true);
+            columns.add(new ColumnSpecification("ks", "tbl", id, UTF8Type.instance));
+        }
+
+        QueryOptions options = QueryOptions.forInternalCalls(ConsistencyLevel.QUORUM, Arrays.asList(values));
+        return QueryOptions.addColumnSpecifications(options, columns.build());
+    }
+
+    private void givenAuditorAcceptsEntries()
+    {
+        when(mockAuditor.filterAndObfuscate(eq(USER), any())).thenAnswer(invocation -> {
+            Supplier<AuditEntry> entrySupplier = invocation.getArgument(1);
+            return Optional.of(entrySupplier.get());
+        });
+    }
+
+    private void runSubmittedTask()
+    {
+        runSubmittedTasks(1);
+    }
+
+    private void runSubmittedTasks(int expectedNumberOfTasks)
+    {
+        runSubmittedTasks(expectedNumberOfTasks, ArgumentCaptor.forClass(Object.class));
+    }
+
+    private void runSubmittedTasks(int expectedNumberOfTasks, ArgumentCaptor<Object> keyCaptor)
+    {
+        ArgumentCaptor<Runnable> taskCaptor = ArgumentCaptor.forClass(Runnable.class);
+        verify(mockExecutor, times(expectedNumberOfTasks)).submit(keyCaptor.capture(), taskCaptor.capture());
+        taskCaptor.getAllValues().forEach(Runnable::run);
+    }
+
+    private List<AuditEntry> getLoggedEntries(int expectedNumberOfEntries)
+    {
+        ArgumentCaptor<AuditEntry> captor = ArgumentCaptor.forClass(AuditEntry.class);
+        verify(mockAuditor, times(expectedNumberOfEntries)).log(captor.capture());
+        return captor.getAllValues();
+    }
+
+    private List<AuditEntry> getBatchAuditEntries(int expectedNumberOfEntries)
+    {
+        ArgumentCaptor<AuditEntry> captor = ArgumentCaptor.forClass(AuditEntry.class);
+        verify(mockBatchAuditor, times(expectedNumberOfEntries)).audit(captor.capture());
+        verify(mockBatchAuditor).commit();
+        return captor.getAllValues();
+    }
+}
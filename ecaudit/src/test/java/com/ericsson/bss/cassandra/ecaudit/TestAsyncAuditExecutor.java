@@ -0,0 +1,197 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.ericsson.bss.cassandra.ecaudit.config.AsyncOverflowPolicy;
+import com.ericsson.bss.cassandra.ecaudit.facade.CassandraAuditException;
+import com.ericsson.bss.cassandra.ecaudit.metrics.AsyncAuditMetrics;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@RunWith(MockitoJUnitRunner.StrictStubs.class)
+public class TestAsyncAuditExecutor
+{
+    private static final Object KEY = new Object();
+
+    @Mock
+    private AsyncAuditMetrics mockMetrics;
+    @Mock
+    private Runnable mockTask;
+
+    private final CountDownLatch blockingTaskStarted = new CountDownLatch(1);
+    private final CountDownLatch releaseBlockingTask = new CountDownLatch(1);
+
+    private AsyncAuditExecutor executor;
+
+    @After
+    public void after()
+    {
+        releaseBlockingTask.countDown();
+        executor.close();
+    }
+
+    @Test
+    public void testTaskIsExecutedByWorker()
+    {
+        executor = new AsyncAuditExecutor(2, 10, AsyncOverflowPolicy.block, mockMetrics);
+
+        executor.submit(KEY, mockTask);
+
+        verify(mockTask, timeout(5000)).run();
+        verify(mockMetrics, timeout(5000)).handOffAuditRequest(anyLong(), eq(TimeUnit.NANOSECONDS));
+    }
+
+    @Test
+    public void testFailingTaskDoesNotStopWorker()
+    {
+        executor = new AsyncAuditExecutor(1, 10, AsyncOverflowPolicy.block, mockMetrics);
+
+        executor.submit(KEY, () -> {
+            throw new IllegalStateException("Expected failure");
+        });
+        executor.submit(KEY, mockTask);
+
+        verify(mockTask, timeout(5000)).run();
+    }
+
+    @Test
+    public void testFailPolicyThrowsWhenQueueIsFull() throws Exception
+    {
+        executor = givenBusyExecutorWithFullQueue(AsyncOverflowPolicy.fail);
+
+        assertThatExceptionOfType(CassandraAuditException.class)
+        .isThrownBy(() -> executor.submit(KEY, mockTask))
+        .withMessageContaining("queue is full");
+    }
+
+    @Test
+    public void testDropPolicyCountsWhenQueueIsFull() throws Exception
+    {
+        executor = givenBusyExecutorWithFullQueue(AsyncOverflowPolicy.drop);
+
+        executor.submit(KEY, mockTask);
+
+        verify(mockMetrics).dropAuditRequest();
+        releaseBlockingTask.countDown();
+        verify(mockTask, timeout(5000).times(1)).run();
+    }
+
+    @Test
+    public void testBlockPolicyWaitsForQueue() throws Exception
+    {
+        executor = givenBusyExecutorWithFullQueue(AsyncOverflowPolicy.block);
+
+        Thread submitter = new Thread(() -> executor.submit(KEY, mockTask));
+        submitter.start();
+        submitter.join(100);
+        assertThat(submitter.isAlive()).isTrue();
+
+        releaseBlockingTask.countDown();
+        submitter.join(5000);
+        assertThat(submitter.isAlive()).isFalse();
+        verify(mockTask, timeout(5000).times(2)).run();
+    }
+
+    @Test
+    public void testTasksWithSameKeyAreExecutedInOrder()
+    {
+        executor = new AsyncAuditExecutor(4, 1000, AsyncOverflowPolicy.block, mockMetrics);
+        List<Integer> executed = Collections.synchronizedList(new ArrayList<>());
+
+        for (int i = 0; i < 100; i++)
+        {
+            int task = i;
+            executor.submit(KEY, () -> executed.add(task));
+        }
+        executor.close();
+
+        assertThat(executed).isEqualTo(IntStream.range(0, 100).boxed().collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testQueuedTasksAreExecutedOnClose() throws Exception
+    {
+        executor = new AsyncAuditExecutor(1, 10, AsyncOverflowPolicy.block, mockMetrics);
+        executor.submit(KEY, this::blockingTask);
+        assertThat(blockingTaskStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        executor.submit(KEY, mockTask);
+        executor.submit(KEY, mockTask);
+
+        Thread closer = new Thread(executor::close);
+        closer.start();
+        releaseBlockingTask.countDown();
+        closer.join(5000);
+
+        assertThat(closer.isAlive()).isFalse();
+        verify(mockTask, times(2)).run();
+    }
+
+    @Test
+    public void testSubmitAfterCloseThrows()
+    {
+        executor = new AsyncAuditExecutor(1, 10, AsyncOverflowPolicy.block, mockMetrics);
+        executor.close();
+
+        assertThatExceptionOfType(IllegalStateException.class)
+        .isThrownBy(() -> executor.submit(KEY, mockTask));
+        verify(mockTask, times(0)).run();
+    }
+
+    /**
+     * Create an executor with a single worker, occupied by a blocking task, and a queue with one pending task.
+     */
+    private AsyncAuditExecutor givenBusyExecutorWithFullQueue(AsyncOverflowPolicy overflowPolicy) throws InterruptedException
+    {
+        AsyncAuditExecutor busyExecutor = new AsyncAuditExecutor(1, 1, overflowPolicy, mockMetrics);
+        busyExecutor.submit(KEY, this::blockingTask);
+        assertThat(blockingTaskStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        busyExecutor.submit(KEY, mockTask);
+        return busyExecutor;
+    }
+
+    private void blockingTask()
+    {
+        blockingTaskStarted.countDown();
+        try
+        {
+            releaseBlockingTask.await();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -24,6 +24,7 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Supplier;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
@@ -42,6 +43,7 @@ import com.ericsson.bss.cassandra.ecaudit.entry.AuditEntry;
 import com.ericsson.bss.cassandra.ecaudit.entry.factory.AuditEntryBuilderFactory;
 import com.ericsson.bss.cassandra.ecaudit.entry.suppressor.BoundValueSuppressor;
 import com.ericsson.bss.cassandra.ecaudit.facade.Auditor;
+import com.ericsson.bss.cassandra.ecaudit.facade.BatchAuditor;
 import com.ericsson.bss.cassandra.ecaudit.test.mode.ClientInitializer;
 import org.apache.cassandra.auth.AuthenticatedUser;
 import org.apache.cassandra.auth.DataResource;
@@ -53,6 +55,7 @@ import org.apache.cassandra.cql3.ColumnSpecification;
 import org.apache.cassandra.cql3.QueryOptions;
 import org.apache.cassandra.cql3.statements.BatchStatement;
 import org.apache.cassandra.cql3.statements.ModificationStatement;
+import org.apache.cassandra.cql3.statements.ParsedStatement;
 import org.apache.cassandra.db.ConsistencyLevel;
 import org.apache.cassandra.db.marshal.UTF8Type;
 import org.apache.cassandra.exceptions.AuthenticationException;
@@ -108,6 +111,8 @@ public class TestAuditAdapter
     private BatchQueryOptions mockBatchOptions;
     @Mock
     private BoundValueSuppressor mockBoundValueSuppressor;
+    @Mock
+    private BatchAuditor mockBatchAuditor;
 
     private InetSocketAddress clientSocketAddress;
     private AuditAdapter auditAdapter;
@@ -162,12 +167,13 @@ public class TestAuditAdapter
 
         AuditEntry.Builder entryBuilder = AuditEntry.newBuilder().permissions(PERMISSIONS).resource(RESOURCE);
         when(mockAuditEntryBuilderFactory.createEntryBuilder(eq(STATEMENT), eq(mockState))).thenReturn(entryBuilder);
+        givenAuditorAcceptsEntries();
 
         // When
         auditAdapter.auditRegular(STATEMENT, mockState, Status.ATTEMPT, TIMESTAMP);
 
         // Then
-        AuditEntry entry = getAuditEntry();
+        AuditEntry entry = getLoggedEntries(1).get(0);
         assertThat(entry.getClientAddress()).isEqualTo(clientSocketAddress);
         assertThat(entry.getCoordinatorAddress()).isEqualTo(FBUtilities.getBroadcastAddress());
         assertThat(entry.getOperation().getOperationString()).isEqualTo(STATEMENT);
@@ -206,15 +212,16 @@ public class TestAuditAdapter
 
         AuditEntry.Builder entryBuilder = AuditEntry.newBuilder().permissions(PERMISSIONS).resource(RESOURCE);
         when(mockAuditEntryBuilderFactory.createEntryBuilder(eq(mockStatement))).thenReturn(entryBuilder);
+        givenAuditorAcceptsEntries();
 
         // When
-        auditAdapter.mapIdToQuery(PREPARED_STATEMENT_ID, PREPARED_STATEMENT);
+        auditAdapter.createPreparedTemplate(PREPARED_STATEMENT, new ParsedStatement.Prepared(mockStatement));
         auditAdapter.auditPrepared(PREPARED_STATEMENT_ID, mockStatement, mockState, mockOptions, Status.ATTEMPT, TIMESTAMP);
 
         // Then
         verifyNoMoreInteractions(mockOptions);
 
-        AuditEntry entry = getAuditEntry();
+        AuditEntry entry = getLoggedEntries(1).get(0);
         assertThat(entry.getClientAddress()).isEqualTo(clientSocketAddress);
         assertThat(entry.getCoordinatorAddress()).isEqualTo(FBUtilities.getBroadcastAddress());
         assertThat(entry.getOperation().getOperationString()).isEqualTo(expectedQuery);
@@ -226,6 +233,64 @@ public class TestAuditAdapter
         assertThat(entry.getTimestamp()).isEqualTo(TIMESTAMP);
     }
 
+    @Test
+    public void testContextIsEvaluatedOnceForAllStatuses()
+    {
+        // Given
+        when(mockUser.getName()).thenReturn(USER);
+        when(mockState.getRemoteAddress()).thenReturn(clientSocketAddress);
+        AuditEntry.Builder entryBuilder = AuditEntry.newBuilder().permissions(PERMISSIONS).resource(RESOURCE);
+        when(mockAuditEntryBuilderFactory.createEntryBuilder(eq(STATEMENT), eq(mockState))).thenReturn(entryBuilder);
+        givenAuditorAcceptsEntries();
+
+        // When
+        AuditRequestContext context = auditAdapter.createRegularContext(STATEMENT, mockState, TIMESTAMP);
+        auditAdapter.audit(context, Status.ATTEMPT);
+        auditAdapter.audit(context, Status.FAILED);
+
+        // Then
+        verify(mockAuditEntryBuilderFactory, times(1)).createEntryBuilder(eq(STATEMENT), eq(mockState));
+        verify(mockAuditor, times(1)).filterAndObfuscate(eq(USER), any());
+        List<AuditEntry> entries = getLoggedEntries(2);
+        assertThat(entries).extracting(AuditEntry::getStatus).containsExactly(Status.ATTEMPT, Status.FAILED);
+        assertThat(entries).extracting(AuditEntry::getOperation).containsOnly(entries.get(0).getOperation());
+        assertThat(entries).extracting(AuditEntry::getTimestamp).containsOnly(TIMESTAMP);
+    }
+
+    @Test
+    public void testFilteredContextIsNeverLogged()
+    {
+        // Given
+        when(mockUser.getName()).thenReturn(USER);
+        when(mockState.getRemoteAddress()).thenReturn(clientSocketAddress);
+        when(mockAuditor.filterAndObfuscate(eq(USER), any())).thenReturn(Optional.empty());
+
+        // When
+        AuditRequestContext context = auditAdapter.createRegularContext(STATEMENT, mockState, TIMESTAMP);
+        auditAdapter.audit(context, Status.ATTEMPT);
+        auditAdapter.audit(context, Status.FAILED);
+
+        // Then
+        verify(mockAuditor, times(2)).shouldLogForStatus(any(Status.class));
+        verify(mockAuditor, times(1)).filterAndObfuscate(eq(USER), any());
+        verifyNoMoreInteractions(mockAuditEntryBuilderFactory);
+    }
+
+    @Test
+    public void testContextNotLoggedForStatus()
+    {
+        // Given
+        when(mockAuditor.shouldLogForStatus(eq(Status.SUCCEEDED))).thenReturn(false);
+
+        // When
+        AuditRequestContext context = auditAdapter.createRegularContext(STATEMENT, mockState, TIMESTAMP);
+        auditAdapter.audit(context, Status.SUCCEEDED);
+
+        // Then
+        verify(mockAuditor).shouldLogForStatus(eq(Status.SUCCEEDED));
+        verifyNoMoreInteractions(mockAuditEntryBuilderFactory);
+    }
+
     @Test
     public void testProcessPreparedNoLogTimeStrategy()
     {
@@ -242,6 +307,7 @@ public class TestAuditAdapter
     {
         // Given
         when(mockAuditor.shouldLogFailedBatchSummary()).thenReturn(true);
+        when(mockAuditor.createBatchAuditor(eq(USER))).thenReturn(Optional.of(mockBatchAuditor));
 
         UUID expectedBatchId = UUID.randomUUID();
         String expectedQuery = String.format("Apply batch failed: %s", expectedBatchId.toString());
@@ -256,7 +322,7 @@ public class TestAuditAdapter
         auditAdapter.auditBatch(mockBatchStatement, expectedBatchId, mockState, mockBatchOptions, Status.FAILED, TIMESTAMP);
 
         // Then
-        AuditEntry entry = getAuditEntry();
+        AuditEntry entry = getBatchAuditEntries(1).get(0);
         assertThat(entry.getClientAddress()).isEqualTo(clientSocketAddress);
         assertThat(entry.getCoordinatorAddress()).isEqualTo(FBUtilities.getBroadcastAddress());
         assertThat(entry.getUser()).isEqualTo(USER);
@@ -276,7 +342,13 @@ public class TestAuditAdapter
         UUID expectedBatchId = UUID.randomUUID();
         List<Object> expectedQueries = Arrays.asList("query1", "query2", "query3");
 
+        List<ModificationStatement> statements = Arrays.asList(mock(ModificationStatement.class),
+                                                               mock(ModificationStatement.class),
+                                                               mock(ModificationStatement.class));
+
         when(mockBatchOptions.getQueryOrIdList()).thenReturn(expectedQueries);
+        when(mockBatchStatement.getStatements()).thenReturn(statements);
+        when(mockAuditor.createBatchAuditor(eq(USER))).thenReturn(Optional.of(mockBatchAuditor));
         when(mockUser.getName()).thenReturn(USER);
         when(mockState.getRemoteAddress()).thenReturn(clientSocketAddress);
 
@@ -287,7 +359,11 @@ public class TestAuditAdapter
         auditAdapter.auditBatch(mockBatchStatement, expectedBatchId, mockState, mockBatchOptions, Status.ATTEMPT, TIMESTAMP);
 
         // Then
-        List<AuditEntry> entries = getAuditEntries(3);
+        for (ModificationStatement statement : statements)
+        {
+            verify(mockAuditEntryBuilderFactory).updateBatchEntryBuilder(eq(entryBuilder), eq(statement));
+        }
+        List<AuditEntry> entries = getBatchAuditEntries(3);
         assertThat(entries).extracting(AuditEntry::getClientAddress).containsOnly(clientSocketAddress);
         assertThat(entries).extracting(AuditEntry::getUser).containsOnly(USER);
         assertThat(entries).extracting(AuditEntry::getBatchId).containsOnly(Optional.of(expectedBatchId));
@@ -307,25 +383,28 @@ public class TestAuditAdapter
         ImmutableList<ColumnSpecification> columns = createTextColumns("c1", "c2");
 
         when(mockBatchOptions.forStatement(0)).thenReturn(mockOptions);
+        when(mockAuditor.createBatchAuditor(eq(USER))).thenReturn(Optional.of(mockBatchAuditor));
         when(mockOptions.getValues()).thenReturn(values);
         when(mockOptions.getColumnSpecifications()).thenReturn(columns);
         when(mockOptions.hasColumnSpecifications()).thenReturn(true);
 
-        when(mockBatchStatement.getStatements()).thenReturn(singletonList(mock(ModificationStatement.class)));
+        ModificationStatement mockModificationStatement = mock(ModificationStatement.class);
+        when(mockBatchStatement.getStatements()).thenReturn(singletonList(mockModificationStatement));
         when(mockBatchOptions.getQueryOrIdList()).thenReturn(singletonList(PREPARED_STATEMENT_ID));
         when(mockUser.getName()).thenReturn(USER);
         when(mockState.getRemoteAddress()).thenReturn(clientSocketAddress);
 
+        when(mockAuditEntryBuilderFactory.createBatchEntryBuilder()).thenReturn(AuditEntry.newBuilder());
         AuditEntry.Builder entryBuilder = AuditEntry.newBuilder().permissions(PERMISSIONS).resource(RESOURCE);
-        when(mockAuditEntryBuilderFactory.createBatchEntryBuilder()).thenReturn(entryBuilder);
+        when(mockAuditEntryBuilderFactory.createEntryBuilder(eq(mockModificationStatement))).thenReturn(entryBuilder);
 
         // When
-        auditAdapter.mapIdToQuery(PREPARED_STATEMENT_ID, PREPARED_STATEMENT);
+        auditAdapter.createPreparedTemplate(PREPARED_STATEMENT, new ParsedStatement.Prepared(mockModificationStatement));
         auditAdapter.auditBatch(mockBatchStatement, BATCH_ID, mockState, mockBatchOptions, Status.ATTEMPT, TIMESTAMP);
 
         // Then
         verifyNoMoreInteractions(mockOptions);
-        AuditEntry entry = getAuditEntry();
+        AuditEntry entry = getBatchAuditEntries(1).get(0);
         assertThat(entry.getClientAddress()).isEqualTo(clientSocketAddress);
         assertThat(entry.getCoordinatorAddress()).isEqualTo(FBUtilities.getBroadcastAddress());
         assertThat(entry.getUser()).isEqualTo(USER);
@@ -337,6 +416,20 @@ public class TestAuditAdapter
         assertThat(entry.getTimestamp()).isEqualTo(TIMESTAMP);
     }
 
+    @Test
+    public void testProcessBatchOfPreFilteredUser()
+    {
+        // Given
+        when(mockUser.getName()).thenReturn(USER);
+        when(mockAuditor.createBatchAuditor(eq(USER))).thenReturn(Optional.empty());
+
+        // When
+        auditAdapter.auditBatch(mockBatchStatement, BATCH_ID, mockState, mockBatchOptions, Status.ATTEMPT, TIMESTAMP);
+
+        // Then
+        verifyNoMoreInteractions(mockAuditEntryBuilderFactory, mockBatchStatement);
+    }
+
     @Test
     public void testProcessBatchNoLogTimeStrategy()
     {
@@ -436,6 +529,22 @@ public class TestAuditAdapter
         return rawValues;
     }
 
+    private void givenAuditorAcceptsEntries()
+    {
+        when(mockAuditor.filterAndObfuscate(eq(USER), any())).thenAnswer(invocation -> {
+            Supplier<AuditEntry> entrySupplier = invocation.getArgument(1);
+            return Optional.of(entrySupplier.get());
+        });
+    }
+
+    private List<AuditEntry> getLoggedEntries(int expectedNumberOfEntries)
+    {
+        ArgumentCaptor<AuditEntry> captor = ArgumentCaptor.forClass(AuditEntry.class);
+        verify(mockAuditor, times(expectedNumberOfEntries)).log(captor.capture());
+
+        return captor.getAllValues();
+    }
+
     private AuditEntry getAuditEntry()
     {
         ArgumentCaptor<AuditEntry> captor = ArgumentCaptor.forClass(AuditEntry.class);
@@ -444,10 +553,11 @@ public class TestAuditAdapter
         return captor.getValue();
     }
 
-    private List<AuditEntry> getAuditEntries(int expectedNumberOfEntries)
+    private List<AuditEntry> getBatchAuditEntries(int expectedNumberOfEntries)
     {
         ArgumentCaptor<AuditEntry> captor = ArgumentCaptor.forClass(AuditEntry.class);
-        verify(mockAuditor, times(expectedNumberOfEntries)).audit(captor.capture());
+        verify(mockBatchAuditor, times(expectedNumberOfEntries)).audit(captor.capture());
+        verify(mockBatchAuditor).commit();
 
         return captor.getAllValues();
     }
@@ -33,6 +33,7 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import com.ericsson.bss.cassandra.ecaudit.config.AsyncOverflowPolicy;
 import com.ericsson.bss.cassandra.ecaudit.config.AuditConfig;
 import com.ericsson.bss.cassandra.ecaudit.config.AuditYamlConfigurationLoader;
 import com.ericsson.bss.cassandra.ecaudit.entry.suppressor.BoundValueSuppressor;
@@ -237,6 +238,21 @@ public class TestAuditAdapterFactory
         assertThat(logTimingStrategyIn(adapterWithPostLogging)).isSameAs(LogTimingStrategy.POST_LOGGING_STRATEGY);
     }
 
+    @Test
+    public void testLoadAsyncAuditAdapter() throws Exception
+    {
+        AuditConfig config = givenAuditConfig("com.ericsson.bss.cassandra.ecaudit.logger.Slf4jAuditLogger", Collections.emptyMap());
+        when(config.isAsyncAudit()).thenReturn(true);
+        when(config.getAsyncAuditWorkers()).thenReturn(1);
+        when(config.getAsyncAuditQueueSize()).thenReturn(1);
+        when(config.getAsyncAuditOverflowPolicy()).thenReturn(AsyncOverflowPolicy.block);
+
+        AuditAdapter adapter = AuditAdapterFactory.createAuditAdapter(config);
+
+        assertThat(adapter).isInstanceOf(AsyncAuditAdapter.class);
+        assertThat(auditorIn(adapter)).isInstanceOf(DefaultAuditor.class);
+    }
+
     @Test
     public void testCreateBoundValueSuppressorThrows()
     {
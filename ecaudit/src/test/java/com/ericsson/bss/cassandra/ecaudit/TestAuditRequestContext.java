@@ -0,0 +1,114 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit;
+
+import java.util.Optional;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.ericsson.bss.cassandra.ecaudit.common.record.SimpleAuditOperation;
+import com.ericsson.bss.cassandra.ecaudit.common.record.Status;
+import com.ericsson.bss.cassandra.ecaudit.entry.AuditEntry;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.StrictStubs.class)
+public class TestAuditRequestContext
+{
+    private static final String USER = "user";
+    private static final SimpleAuditOperation OPERATION = new SimpleAuditOperation("select * from ks.tbl");
+
+    @Mock
+    private Supplier<AuditEntry.Builder> mockEntryBuilderSupplier;
+    @Mock
+    private BiFunction<String, Supplier<AuditEntry>, Optional<AuditEntry>> mockEvaluator;
+
+    @Test
+    public void testEntryIsEvaluatedOnce()
+    {
+        when(mockEntryBuilderSupplier.get()).thenReturn(AuditEntry.newBuilder().operation(OPERATION));
+        givenEvaluatorAcceptsEntries();
+        AuditRequestContext context = new AuditRequestContext(USER, mockEntryBuilderSupplier);
+
+        Optional<AuditEntry> attempt = context.getEntry(Status.ATTEMPT, mockEvaluator);
+        Optional<AuditEntry> failed = context.getEntry(Status.FAILED, mockEvaluator);
+
+        assertThat(attempt.map(AuditEntry::getStatus)).contains(Status.ATTEMPT);
+        assertThat(failed.map(AuditEntry::getStatus)).contains(Status.FAILED);
+        assertThat(failed.map(AuditEntry::getOperation)).containsSame(OPERATION);
+        verify(mockEntryBuilderSupplier, times(1)).get();
+        verify(mockEvaluator, times(1)).apply(eq(USER), any());
+    }
+
+    @Test
+    public void testSameStatusReusesEntry()
+    {
+        when(mockEntryBuilderSupplier.get()).thenReturn(AuditEntry.newBuilder().operation(OPERATION));
+        givenEvaluatorAcceptsEntries();
+        AuditRequestContext context = new AuditRequestContext(USER, mockEntryBuilderSupplier);
+
+        AuditEntry first = context.getEntry(Status.SUCCEEDED, mockEvaluator).orElse(null);
+        AuditEntry second = context.getEntry(Status.SUCCEEDED, mockEvaluator).orElse(null);
+
+        assertThat(second).isSameAs(first);
+    }
+
+    @Test
+    public void testFilteredEntryIsNeverCreated()
+    {
+        when(mockEvaluator.apply(eq(USER), any())).thenReturn(Optional.empty());
+        AuditRequestContext context = new AuditRequestContext(USER, mockEntryBuilderSupplier);
+
+        assertThat(context.getEntry(Status.ATTEMPT, mockEvaluator)).isEmpty();
+        assertThat(context.getEntry(Status.FAILED, mockEvaluator)).isEmpty();
+        verify(mockEvaluator, times(1)).apply(eq(USER), any());
+        verify(mockEntryBuilderSupplier, never()).get();
+    }
+
+    @Test
+    public void testFailedEvaluationIsRetried()
+    {
+        when(mockEntryBuilderSupplier.get()).thenThrow(new IllegalStateException("Expected failure"))
+                                            .thenReturn(AuditEntry.newBuilder().operation(OPERATION));
+        givenEvaluatorAcceptsEntries();
+        AuditRequestContext context = new AuditRequestContext(USER, mockEntryBuilderSupplier);
+
+        assertThatExceptionOfType(IllegalStateException.class)
+        .isThrownBy(() -> context.getEntry(Status.ATTEMPT, mockEvaluator));
+        assertThat(context.getEntry(Status.FAILED, mockEvaluator).map(AuditEntry::getStatus)).contains(Status.FAILED);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void givenEvaluatorAcceptsEntries()
+    {
+        when(mockEvaluator.apply(eq(USER), any())).thenAnswer(invocation -> {
+            Supplier<AuditEntry> entrySupplier = invocation.getArgument(1);
+            return Optional.of(entrySupplier.get());
+        });
+    }
+}
@@ -157,6 +157,79 @@ public class TestAuditYamlConfigurationLoader
         assertThat(config.getWrappedAuthorizer()).isEqualTo("org.apache.cassandra.auth.AllowAllAuthorizer");
     }
 
+    @Test
+    public void testAsyncAuditDefault()
+    {
+        Properties properties = getProperties("empty.yaml");
+
+        AuditConfig config = givenLoadedConfig(properties);
+
+        assertThat(config.isAsyncAudit()).isFalse();
+        assertThat(config.getAsyncAuditWorkers()).isEqualTo(2);
+        assertThat(config.getAsyncAuditQueueSize()).isEqualTo(1024);
+        assertThat(config.getAsyncAuditOverflowPolicy()).isEqualTo(AsyncOverflowPolicy.block);
+    }
+
+    @Test
+    public void testAsyncAuditConfigured()
+    {
+        Properties properties = getProperties("mock_async_configuration.yaml");
+
+        AuditConfig config = givenLoadedConfig(properties);
+
+        assertThat(config.isAsyncAudit()).isTrue();
+        assertThat(config.getAsyncAuditWorkers()).isEqualTo(4);
+        assertThat(config.getAsyncAuditQueueSize()).isEqualTo(100);
+        assertThat(config.getAsyncAuditOverflowPolicy()).isEqualTo(AsyncOverflowPolicy.drop);
+    }
+
+    @Test
+    public void testInvalidAsyncAuditThrowsConfigurationException()
+    {
+        Properties properties = getProperties("mock_invalid_configuration.yaml");
+
+        AuditConfig config = givenLoadedConfig(properties);
+
+        assertThatExceptionOfType(ConfigurationException.class)
+        .isThrownBy(config::getAsyncAuditWorkers)
+        .withMessageContaining("workers");
+        assertThatExceptionOfType(ConfigurationException.class)
+        .isThrownBy(config::getAsyncAuditQueueSize)
+        .withMessageContaining("queue size");
+    }
+
+    @Test
+    public void testUnpreparedStatementCacheSizeDefault()
+    {
+        Properties properties = getProperties("empty.yaml");
+
+        AuditConfig config = givenLoadedConfig(properties);
+
+        assertThat(config.getUnpreparedStatementCacheSize()).isEqualTo(1000);
+    }
+
+    @Test
+    public void testUnpreparedStatementCacheSizeConfigured()
+    {
+        Properties properties = getProperties("mock_configuration.yaml");
+
+        AuditConfig config = givenLoadedConfig(properties);
+
+        assertThat(config.getUnpreparedStatementCacheSize()).isEqualTo(200);
+    }
+
+    @Test
+    public void testNegativeUnpreparedStatementCacheSizeThrowsConfigurationException()
+    {
+        Properties properties = getProperties("mock_invalid_configuration.yaml");
+
+        AuditConfig config = givenLoadedConfig(properties);
+
+        assertThatExceptionOfType(ConfigurationException.class)
+        .isThrownBy(config::getUnpreparedStatementCacheSize)
+        .withMessageContaining("cache size");
+    }
+
     private AuditConfig givenLoadedConfig(Properties properties)
     {
         AuditYamlConfigurationLoader loader = AuditYamlConfigurationLoader.withProperties(properties);
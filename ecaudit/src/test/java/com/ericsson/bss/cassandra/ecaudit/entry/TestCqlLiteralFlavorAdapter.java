@@ -15,20 +15,41 @@
  */
 package com.ericsson.bss.cassandra.ecaudit.entry;
 
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import com.ericsson.bss.cassandra.ecaudit.common.record.BoundValue;
 import junitparams.JUnitParamsRunner;
 import junitparams.Parameters;
 import org.apache.cassandra.cql3.ColumnSpecification;
 import org.apache.cassandra.db.marshal.AbstractType;
 import org.apache.cassandra.db.marshal.AsciiType;
 import org.apache.cassandra.db.marshal.BooleanType;
+import org.apache.cassandra.db.marshal.ByteType;
 import org.apache.cassandra.db.marshal.BytesType;
+import org.apache.cassandra.db.marshal.DecimalType;
+import org.apache.cassandra.db.marshal.DoubleType;
+import org.apache.cassandra.db.marshal.FloatType;
+import org.apache.cassandra.db.marshal.InetAddressType;
+import org.apache.cassandra.db.marshal.Int32Type;
+import org.apache.cassandra.db.marshal.IntegerType;
+import org.apache.cassandra.db.marshal.ListType;
+import org.apache.cassandra.db.marshal.LongType;
+import org.apache.cassandra.db.marshal.ReversedType;
+import org.apache.cassandra.db.marshal.ShortType;
+import org.apache.cassandra.db.marshal.SimpleDateType;
+import org.apache.cassandra.db.marshal.TimeType;
+import org.apache.cassandra.db.marshal.TimeUUIDType;
 import org.apache.cassandra.db.marshal.TimestampType;
 import org.apache.cassandra.db.marshal.UTF8Type;
+import org.apache.cassandra.db.marshal.UUIDType;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -64,4 +85,48 @@ public class TestCqlLiteralFlavorAdapter
             { BytesType.instance, BytesType.instance.fromString("AABBCCDD"), "0xaabbccdd" },
         };
     }
+
+    @Test
+    @Parameters(method = "testToBoundValue_parameters")
+    public void testBoundValueIsRenderedAsCQLLiteral(AbstractType type, ByteBuffer value, boolean serialized)
+    {
+        // Given
+        ColumnSpecification col = new ColumnSpecification("ks", "cf", null, type);
+        // When
+        BoundValue boundValue = CqlLiteralFlavorAdapter.toBoundValue(value, col);
+        // Then
+        assertThat(boundValue.getType().isPresent()).isEqualTo(serialized);
+        assertThat(boundValue.toCqlLiteral()).isEqualTo(CqlLiteralFlavorAdapter.toCQLLiteral(value, col));
+    }
+
+    public Object[][] testToBoundValue_parameters() throws UnknownHostException
+    {
+        return new Object[][]{
+            { UTF8Type.instance, EMPTY_BUFFER, false },
+            { ReversedType.getInstance(UTF8Type.instance), EMPTY_BUFFER, false },
+            { UTF8Type.instance, UTF8Type.instance.fromString("Kalle Åström"), true },
+            { AsciiType.instance, AsciiType.instance.fromString("Anka"), true },
+            { ReversedType.getInstance(AsciiType.instance), AsciiType.instance.fromString("Anka"), true },
+            { LongType.instance, LongType.instance.decompose(Long.MIN_VALUE), true },
+            { BytesType.instance, BytesType.instance.fromString("00AABBCCDD"), true },
+            { BooleanType.instance, BooleanType.instance.fromString("false"), true },
+            { DecimalType.instance, DecimalType.instance.decompose(new BigDecimal("-12345.6789E-3")), true },
+            { DecimalType.instance, DecimalType.instance.decompose(new BigDecimal("1E+10")), true },
+            { DoubleType.instance, DoubleType.instance.decompose(1.0E-7), true },
+            { FloatType.instance, FloatType.instance.decompose(3.14f), true },
+            { InetAddressType.instance, InetAddressType.instance.decompose(InetAddress.getByName("::1")), true },
+            { InetAddressType.instance, InetAddressType.instance.decompose(InetAddress.getByName("10.0.0.1")), true },
+            { Int32Type.instance, Int32Type.instance.decompose(-42), true },
+            { ShortType.instance, ShortType.instance.decompose((short) 4711), true },
+            { ByteType.instance, ByteType.instance.decompose((byte) -1), true },
+            { TimestampType.instance, TimestampType.instance.fromTimeInMillis(1_585_000_000_123L), true },
+            { TimestampType.instance, TimestampType.instance.fromTimeInMillis(-62_135_769_600_000L), true },
+            { UUIDType.instance, UUIDType.instance.fromString("b23534c7-93af-497f-b00c-1edaaa335caa"), true },
+            { TimeUUIDType.instance, TimeUUIDType.instance.fromString("50554d6e-29bb-11e5-b345-feff819cdc9f"), true },
+            { IntegerType.instance, IntegerType.instance.decompose(new BigInteger("-123456789012345678901234567890")), true },
+            { SimpleDateType.instance, SimpleDateType.instance.fromString("2020-03-24"), false },
+            { TimeType.instance, TimeType.instance.fromString("13:30:54.234"), false },
+            { ListType.getInstance(Int32Type.instance, true), ListType.getInstance(Int32Type.instance, true).decompose(Arrays.asList(1, 2)), false },
+        };
+    }
 }
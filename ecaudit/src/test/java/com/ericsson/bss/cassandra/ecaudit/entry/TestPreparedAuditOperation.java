@@ -19,11 +19,14 @@ import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 import com.google.common.collect.ImmutableList;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import com.ericsson.bss.cassandra.ecaudit.common.record.BoundValue;
+import com.ericsson.bss.cassandra.ecaudit.common.record.BoundValueType;
 import com.ericsson.bss.cassandra.ecaudit.entry.suppressor.BoundValueSuppressor;
 import com.ericsson.bss.cassandra.ecaudit.entry.suppressor.SuppressNothing;
 import org.apache.cassandra.cql3.ColumnIdentifier;
@@ -147,6 +150,63 @@ public class TestPreparedAuditOperation
         assertThat(auditOperation.getOperationString()).isEqualTo(expectedStatement);
     }
 
+    @Test
+    public void testThatBoundValuesAreCaptured()
+    {
+        String preparedStatement = "select value1, value2 from ks.cf where pk = ? and ck = ?";
+
+        List<ByteBuffer> values = createValues("text1", "text2");
+        ImmutableList<ColumnSpecification> columns = createTextColumns("col1", "col2");
+
+        when(mockOptions.hasColumnSpecifications()).thenReturn(true);
+        when(mockOptions.getColumnSpecifications()).thenReturn(columns);
+        when(mockOptions.getValues()).thenReturn(values);
+
+        PreparedAuditOperation auditOperation = new PreparedAuditOperation(preparedStatement, mockOptions, SHOW_ALL_SUPPRESSOR);
+
+        List<BoundValue> boundValues = auditOperation.getBoundValues();
+        assertThat(boundValues).extracting(BoundValue::getType).containsExactly(Optional.of(BoundValueType.TEXT), Optional.of(BoundValueType.TEXT));
+        assertThat(boundValues).extracting(BoundValue::getSerializedValue).containsExactlyElementsOf(values);
+        assertThat(preparedStatement + BoundValue.toCqlLiterals(render(boundValues))).isEqualTo(auditOperation.getOperationString());
+    }
+
+    @Test
+    public void testThatSuppressedBoundValuesAreCapturedAsLiterals()
+    {
+        String preparedStatement = "insert into ks1.t1 (k1, k2) values (?, ?)";
+
+        List<ByteBuffer> values = createValues("text1", "text2");
+        ImmutableList<ColumnSpecification> columns = createTextColumns("col1", "col2");
+
+        when(mockOptions.hasColumnSpecifications()).thenReturn(true);
+        when(mockOptions.getColumnSpecifications()).thenReturn(columns);
+        when(mockOptions.getValues()).thenReturn(values);
+
+        when(mockSuppressor.suppress(eq(columns.get(0)), eq(values.get(0)))).thenReturn(Optional.of("<ob1>"));
+        when(mockSuppressor.suppress(eq(columns.get(1)), eq(values.get(1)))).thenReturn(Optional.empty());
+
+        PreparedAuditOperation auditOperation = new PreparedAuditOperation(preparedStatement, mockOptions, mockSuppressor);
+
+        List<BoundValue> boundValues = auditOperation.getBoundValues();
+        assertThat(boundValues.get(0).getType()).isEmpty();
+        assertThat(render(boundValues)).containsExactly("<ob1>", "'text2'");
+    }
+
+    @Test
+    public void testNoBoundValuesWhenColumnSpecIsMissing()
+    {
+        when(mockOptions.hasColumnSpecifications()).thenReturn(false);
+
+        PreparedAuditOperation auditOperation = new PreparedAuditOperation("select * from ks.cf", mockOptions, SHOW_ALL_SUPPRESSOR);
+
+        assertThat(auditOperation.getBoundValues()).isEmpty();
+    }
+
+    private static List<String> render(List<BoundValue> boundValues)
+    {
+        return boundValues.stream().map(BoundValue::toCqlLiteral).collect(Collectors.toList());
+    }
+
     private List<ByteBuffer> createValues(String... values)
     {
         List<ByteBuffer> rawValues = new ArrayList<>();
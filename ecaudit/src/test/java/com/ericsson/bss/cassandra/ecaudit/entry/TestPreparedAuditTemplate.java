@@ -0,0 +1,142 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.entry;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.ericsson.bss.cassandra.ecaudit.entry.suppressor.BoundValueSuppressor;
+import com.ericsson.bss.cassandra.ecaudit.entry.suppressor.SuppressEverything;
+import com.ericsson.bss.cassandra.ecaudit.entry.suppressor.SuppressNothing;
+import org.apache.cassandra.auth.DataResource;
+import org.apache.cassandra.auth.Permission;
+import org.apache.cassandra.cql3.ColumnIdentifier;
+import org.apache.cassandra.cql3.ColumnSpecification;
+import org.apache.cassandra.cql3.QueryOptions;
+import org.apache.cassandra.db.ConsistencyLevel;
+import org.apache.cassandra.db.marshal.UTF8Type;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.StrictStubs.class)
+public class TestPreparedAuditTemplate
+{
+    private static final String QUERY = "insert into ks.tbl (c1, c2) values (?, ?)";
+    private static final DataResource RESOURCE = DataResource.table("ks", "tbl");
+    private static final ImmutableSet<Permission> PERMISSIONS = ImmutableSet.of(Permission.MODIFY);
+    private static final AuditEntry PROTOTYPE = AuditEntry.newBuilder().permissions(PERMISSIONS).resource(RESOURCE).build();
+    private static final List<ColumnSpecification> COLUMNS = createTextColumns("c1", "c2");
+
+    @Mock
+    private BoundValueSuppressor mockSuppressor;
+
+    @Test
+    public void testPermissionsAndResourceAreApplied()
+    {
+        PreparedAuditTemplate template = new PreparedAuditTemplate(QUERY, PROTOTYPE, COLUMNS, new SuppressNothing());
+
+        AuditEntry entry = template.applyTo(AuditEntry.newBuilder()).build();
+
+        assertThat(template.getQuery()).isEqualTo(QUERY);
+        assertThat(entry.getPermissions()).isEqualTo(PERMISSIONS);
+        assertThat(entry.getResource()).isEqualTo(RESOURCE);
+    }
+
+    @Test
+    public void testValuesAreBound()
+    {
+        PreparedAuditTemplate template = new PreparedAuditTemplate(QUERY, PROTOTYPE, COLUMNS, new SuppressNothing());
+
+        PreparedAuditOperation operation = template.createOperation(givenOptions("hello", "world"));
+
+        assertThat(operation.getOperationString()).isEqualTo(QUERY + "['hello', 'world']");
+        assertThat(operation.getNakedOperationString()).isEqualTo(QUERY);
+    }
+
+    @Test
+    public void testValueIndependentSuppressorIsInvokedOncePerColumn()
+    {
+        when(mockSuppressor.isValueDependent()).thenReturn(false);
+        when(mockSuppressor.suppress(eq(COLUMNS.get(0)), eq(null))).thenReturn(Optional.of("<text>"));
+        when(mockSuppressor.suppress(eq(COLUMNS.get(1)), eq(null))).thenReturn(Optional.empty());
+        PreparedAuditTemplate template = new PreparedAuditTemplate(QUERY, PROTOTYPE, COLUMNS, mockSuppressor);
+
+        String first = template.createOperation(givenOptions("hello", "world")).getOperationString();
+        String second = template.createOperation(givenOptions("hi", "there")).getOperationString();
+
+        assertThat(first).isEqualTo(QUERY + "[<text>, 'world']");
+        assertThat(second).isEqualTo(QUERY + "[<text>, 'there']");
+        verify(mockSuppressor, times(2)).suppress(any(ColumnSpecification.class), eq(null));
+    }
+
+    @Test
+    public void testValueDependentSuppressorIsInvokedPerValue()
+    {
+        when(mockSuppressor.isValueDependent()).thenReturn(true);
+        when(mockSuppressor.suppress(any(ColumnSpecification.class), any(ByteBuffer.class))).thenReturn(Optional.empty());
+        PreparedAuditTemplate template = new PreparedAuditTemplate(QUERY, PROTOTYPE, COLUMNS, mockSuppressor);
+
+        template.createOperation(givenOptions("hello", "world")).getOperationString();
+        template.createOperation(givenOptions("hi", "there")).getOperationString();
+
+        verify(mockSuppressor, times(4)).suppress(any(ColumnSpecification.class), any(ByteBuffer.class));
+    }
+
+    @Test
+    public void testWithSuppressor()
+    {
+        PreparedAuditTemplate template = new PreparedAuditTemplate(QUERY, PROTOTYPE, COLUMNS, new SuppressNothing());
+
+        PreparedAuditTemplate suppressingTemplate = template.withSuppressor(new SuppressEverything());
+
+        assertThat(suppressingTemplate.createOperation(givenOptions("hello", "world")).getOperationString())
+        .isEqualTo(QUERY + "[<text>, <text>]");
+        assertThat(template.createOperation(givenOptions("hello", "world")).getOperationString())
+        .isEqualTo(QUERY + "['hello', 'world']");
+    }
+
+    private static QueryOptions givenOptions(String... values)
+    {
+        ByteBuffer[] rawValues = Arrays.stream(values).map(v -> ByteBuffer.wrap(v.getBytes())).toArray(ByteBuffer[]::new);
+        QueryOptions options = QueryOptions.forInternalCalls(ConsistencyLevel.ONE, Arrays.asList(rawValues));
+        return QueryOptions.addColumnSpecifications(options, COLUMNS);
+    }
+
+    private static List<ColumnSpecification> createTextColumns(String... columns)
+    {
+        ImmutableList.Builder<ColumnSpecification> builder = ImmutableList.builder();
+        for (String column : columns)
+        {
+            ColumnIdentifier id = new ColumnIdentifier(column, true);
+            builder.add(new ColumnSpecification("ks", "tbl", id, UTF8Type.instance));
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.entry.factory;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.ericsson.bss.cassandra.ecaudit.entry.factory.CqlStatementClassifier.Classification;
+import com.ericsson.bss.cassandra.ecaudit.entry.factory.CqlStatementClassifier.Kind;
+import junitparams.JUnitParamsRunner;
+import junitparams.Parameters;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests the {@link CqlStatementClassifier} class.
+ */
+@RunWith(JUnitParamsRunner.class)
+public class TestCqlStatementClassifier
+{
+    @Test
+    @Parameters(method = "testDataStatement_parameters")
+    public void testDataStatement(String cql, Kind kind, String keyspace, String table, boolean conditional)
+    {
+        Classification classification = CqlStatementClassifier.classify(cql);
+
+        assertThat(classification.getKind()).isEqualTo(kind);
+        assertThat(classification.isDataStatement()).isTrue();
+        assertThat(classification.getKeyspace()).isEqualTo(keyspace);
+        assertThat(classification.getTable()).isEqualTo(table);
+        assertThat(classification.isConditional()).isEqualTo(conditional);
+    }
+
+    public Object[][] testDataStatement_parameters()
+    {
+        return new Object[][]{
+            { "SELECT * FROM ks.tbl", Kind.SELECT, "ks", "tbl", false },
+            { "select count(*) from tbl where key = 'if'", Kind.SELECT, null, "tbl", false },
+            { "SELECT JSON a, b FROM \"MyKs\" . \"My\"\"Tbl\";", Kind.SELECT, "MyKs", "My\"Tbl", false },
+            { "INSERT INTO Ks.Tbl (a, b) VALUES (1, 'one')", Kind.INSERT, "ks", "tbl", false },
+            { "INSERT INTO ks.tbl (a, b) VALUES (1, 'it''s') IF NOT EXISTS", Kind.INSERT, "ks", "tbl", true },
+            { "INSERT INTO ks.tbl JSON '{\"a\": 1}'", Kind.INSERT, "ks", "tbl", false },
+            { "UPDATE ks.tbl USING TTL 10 SET b = 'x' WHERE a = 1", Kind.UPDATE, "ks", "tbl", false },
+            { "UPDATE ks.tbl SET b = $$if$$ WHERE a = 1 IF b = 'y'", Kind.UPDATE, "ks", "tbl", true },
+            { "DELETE b FROM ks.tbl WHERE a = 1", Kind.DELETE, "ks", "tbl", false },
+            { "-- comment\nDELETE /* if */ FROM ks.tbl WHERE a = 1 // if", Kind.DELETE, "ks", "tbl", false },
+            { "DELETE FROM ks.tbl WHERE a = 1 IF EXISTS", Kind.DELETE, "ks", "tbl", true },
+        };
+    }
+
+    @Test
+    @Parameters(method = "testOtherStatement_parameters")
+    public void testOtherStatement(String cql)
+    {
+        Classification classification = CqlStatementClassifier.classify(cql);
+
+        assertThat(classification.getKind()).isEqualTo(Kind.OTHER);
+        assertThat(classification.isDataStatement()).isFalse();
+    }
+
+    public Object[] testOtherStatement_parameters()
+    {
+        return new Object[]{
+            "USE ks",
+            "CREATE TABLE ks.tbl (a int PRIMARY KEY)",
+            "drop keyspace ks",
+            "GRANT SELECT ON ks.tbl TO role",
+            "LIST ROLES",
+            "TRUNCATE ks.tbl",
+            "BEGIN BATCH INSERT INTO ks.tbl (a) VALUES (1) APPLY BATCH",
+        };
+    }
+
+    @Test
+    @Parameters(method = "testUnrecognizedStatement_parameters")
+    public void testUnrecognizedStatement(String cql)
+    {
+        Classification classification = CqlStatementClassifier.classify(cql);
+
+        assertThat(classification.getKind()).isEqualTo(Kind.UNRECOGNIZED);
+        assertThat(classification.isDataStatement()).isFalse();
+    }
+
+    public Object[] testUnrecognizedStatement_parameters()
+    {
+        return new Object[]{
+            "",
+            "   ",
+            "SELEC * FROM ks.tbl",
+            "; SELECT * FROM ks.tbl",
+            "SELECT * WHERE a = 1",
+            "SELECT * FROM",
+            "SELECT * FROM ks.",
+            "SELECT * FROM 1tbl",
+            "INSERT ks.tbl (a) VALUES (1)",
+            "INSERT INTO ks.tbl (a) VALUES ('unterminated)",
+            "UPDATE \"unterminated SET a = 1",
+            "DELETE FROM ks.tbl /* unterminated",
+            "CREATE TABLE ks.tbl (a text PRIMARY KEY) WITH comment = 'unterminated",
+        };
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.entry.factory;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import com.ericsson.bss.cassandra.ecaudit.facade.CassandraAuditException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+public class TestFieldReader
+{
+    @Test
+    public void testReadPrivateField()
+    {
+        FieldReader<String> reader = FieldReader.forField(Statement.class, "keyspace", String.class);
+
+        assertThat(reader.read(new Statement("ks"))).isEqualTo("ks");
+    }
+
+    @Test
+    public void testReadFieldOfSubClass()
+    {
+        FieldReader<String> reader = FieldReader.forField(Statement.class, "keyspace", String.class);
+
+        assertThat(reader.read(new SubStatement("ks"))).isEqualTo("ks");
+    }
+
+    @Test
+    public void testMissingFieldFailsOnCreation()
+    {
+        assertThatExceptionOfType(CassandraAuditException.class)
+        .isThrownBy(() -> FieldReader.forField(Statement.class, "table", String.class))
+        .withMessageContaining("Statement.table");
+    }
+
+    @Test
+    public void testFieldOfUnexpectedTypeFailsOnCreation()
+    {
+        assertThatExceptionOfType(CassandraAuditException.class)
+        .isThrownBy(() -> FieldReader.forField(Statement.class, "keyspace", List.class))
+        .withMessageContaining("Unexpected type");
+    }
+
+    @Test
+    public void testReadOfUnrelatedObjectFails()
+    {
+        FieldReader<String> reader = FieldReader.forField(Statement.class, "keyspace", String.class);
+
+        assertThatExceptionOfType(CassandraAuditException.class)
+        .isThrownBy(() -> reader.read("unrelated"));
+    }
+
+    private static class Statement
+    {
+        private final String keyspace;
+
+        Statement(String keyspace)
+        {
+            this.keyspace = keyspace;
+        }
+    }
+
+    private static class SubStatement extends Statement
+    {
+        SubStatement(String keyspace)
+        {
+            super(keyspace);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.entry.factory;
+
+import java.util.function.Function;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.ericsson.bss.cassandra.ecaudit.entry.AuditEntry;
+import com.ericsson.bss.cassandra.ecaudit.entry.AuditEntry.Builder;
+import org.apache.cassandra.auth.DataResource;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.StrictStubs.class)
+public class TestStatementMapperRegistry
+{
+    @Mock
+    private Function<Object, Builder> mockFallbackMapper;
+    @Mock
+    private Function<CharSequence, Builder> mockCharSequenceMapper;
+
+    @Test
+    public void testFirstMatchingMapperIsUsed()
+    {
+        StatementMapperRegistry registry = new StatementMapperRegistry(mockFallbackMapper)
+                                           .register(String.class, statement -> givenBuilder("string"))
+                                           .register(CharSequence.class, statement -> givenBuilder("chars"));
+
+        assertThat(registry.createEntryBuilder("statement").build().getResource()).isEqualTo(DataResource.keyspace("string"));
+        assertThat(registry.createEntryBuilder(new StringBuilder()).build().getResource()).isEqualTo(DataResource.keyspace("chars"));
+    }
+
+    @Test
+    public void testBaseClassRegisteredFirstShadowsSubClass()
+    {
+        StatementMapperRegistry registry = new StatementMapperRegistry(mockFallbackMapper)
+                                           .register(CharSequence.class, statement -> givenBuilder("chars"))
+                                           .register(String.class, statement -> givenBuilder("string"));
+
+        assertThat(registry.createEntryBuilder("statement").build().getResource()).isEqualTo(DataResource.keyspace("chars"));
+    }
+
+    @Test
+    public void testMapperReceivesStatement()
+    {
+        when(mockCharSequenceMapper.apply(any(CharSequence.class))).thenReturn(givenBuilder("chars"));
+        StatementMapperRegistry registry = new StatementMapperRegistry(mockFallbackMapper)
+                                           .register(CharSequence.class, mockCharSequenceMapper);
+
+        registry.createEntryBuilder("first");
+        registry.createEntryBuilder("second");
+
+        verify(mockCharSequenceMapper).apply("first");
+        verify(mockCharSequenceMapper).apply("second");
+    }
+
+    @Test
+    public void testUnrecognizedStatementUsesFallback()
+    {
+        when(mockFallbackMapper.apply(any())).thenReturn(givenBuilder("fallback"));
+        StatementMapperRegistry registry = new StatementMapperRegistry(mockFallbackMapper)
+                                           .register(String.class, statement -> givenBuilder("string"));
+
+        registry.createEntryBuilder(42);
+        registry.createEntryBuilder(43);
+
+        verify(mockFallbackMapper, times(2)).apply(any());
+    }
+
+    private static Builder givenBuilder(String keyspace)
+    {
+        return AuditEntry.newBuilder().resource(DataResource.keyspace(keyspace));
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.entry.factory;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.function.BiFunction;
+
+import com.google.common.collect.ImmutableSet;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.ericsson.bss.cassandra.ecaudit.entry.AuditEntry;
+import com.ericsson.bss.cassandra.ecaudit.metrics.StatementCacheMetrics;
+import org.apache.cassandra.auth.DataResource;
+import org.apache.cassandra.auth.Permission;
+import org.apache.cassandra.service.ClientState;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.StrictStubs.class)
+public class TestUnpreparedStatementCache
+{
+    private static final String QUERY = "SELECT * FROM tbl";
+    private static final Set<Permission> PERMISSIONS = ImmutableSet.of(Permission.SELECT);
+
+    @Mock
+    private ClientState mockState;
+    @Mock
+    private StatementCacheMetrics mockMetrics;
+    @Mock
+    private BiFunction<String, ClientState, AuditEntry.Builder> mockLoader;
+
+    private UnpreparedStatementCache cache;
+
+    @Before
+    public void before()
+    {
+        cache = new UnpreparedStatementCache(10, mockMetrics);
+        when(mockLoader.apply(anyString(), any(ClientState.class)))
+        .thenAnswer(invocation -> AuditEntry.newBuilder()
+                                            .permissions(PERMISSIONS)
+                                            .resource(DataResource.table(((ClientState) invocation.getArgument(1)).getRawKeyspace(), "tbl")));
+    }
+
+    @Test
+    public void testRepeatedStatementIsLoadedOnce()
+    {
+        when(mockState.getRawKeyspace()).thenReturn("ks");
+
+        AuditEntry first = cache.getEntryBuilder(QUERY, mockState, mockLoader).build();
+        AuditEntry second = cache.getEntryBuilder(QUERY, mockState, mockLoader).build();
+
+        verify(mockLoader, times(1)).apply(QUERY, mockState);
+        verify(mockMetrics, times(1)).miss();
+        verify(mockMetrics, times(1)).hit();
+        assertThat(second.getResource()).isEqualTo(first.getResource()).isEqualTo(DataResource.table("ks", "tbl"));
+        assertThat(second.getPermissions()).isEqualTo(PERMISSIONS);
+    }
+
+    @Test
+    public void testStatementIsCachedPerKeyspace()
+    {
+        when(mockState.getRawKeyspace()).thenReturn("ks1", "ks1", "ks2", "ks2");
+
+        AuditEntry first = cache.getEntryBuilder(QUERY, mockState, mockLoader).build();
+        AuditEntry second = cache.getEntryBuilder(QUERY, mockState, mockLoader).build();
+
+        verify(mockLoader, times(2)).apply(QUERY, mockState);
+        assertThat(first.getResource()).isEqualTo(DataResource.table("ks1", "tbl"));
+        assertThat(second.getResource()).isEqualTo(DataResource.table("ks2", "tbl"));
+    }
+
+    @Test
+    public void testStatementWithoutKeyspaceIsCached()
+    {
+        when(mockLoader.apply(anyString(), any(ClientState.class))).thenReturn(AuditEntry.newBuilder().permissions(Collections.emptySet()));
+
+        cache.getEntryBuilder("LIST ROLES", mockState, mockLoader);
+        cache.getEntryBuilder("LIST ROLES", mockState, mockLoader);
+
+        verify(mockLoader, times(1)).apply("LIST ROLES", mockState);
+    }
+
+    @Test
+    public void testSchemaChangeInvalidatesCache()
+    {
+        when(mockState.getRawKeyspace()).thenReturn("ks");
+
+        cache.getEntryBuilder(QUERY, mockState, mockLoader);
+        cache.getSchemaChangeListener().onDropColumnFamily("ks", "tbl");
+        cache.getEntryBuilder(QUERY, mockState, mockLoader);
+
+        verify(mockLoader, times(2)).apply(QUERY, mockState);
+        verify(mockMetrics, times(2)).miss();
+    }
+
+    @Test
+    public void testFailedLoadIsNotCached()
+    {
+        when(mockState.getRawKeyspace()).thenReturn("ks");
+        when(mockLoader.apply(anyString(), any(ClientState.class)))
+        .thenThrow(new IllegalStateException("Expected failure"))
+        .thenReturn(AuditEntry.newBuilder().permissions(PERMISSIONS));
+
+        assertThatExceptionOfType(IllegalStateException.class)
+        .isThrownBy(() -> cache.getEntryBuilder(QUERY, mockState, mockLoader));
+        cache.getEntryBuilder(QUERY, mockState, mockLoader);
+
+        verify(mockLoader, times(2)).apply(QUERY, mockState);
+    }
+}
@@ -16,7 +16,10 @@
 package com.ericsson.bss.cassandra.ecaudit.facade;
 
 import java.lang.reflect.Field;
+import java.util.Optional;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 import org.junit.After;
 import org.junit.Before;
@@ -27,7 +30,9 @@ import com.ericsson.bss.cassandra.ecaudit.LogTimingStrategy;
 import com.ericsson.bss.cassandra.ecaudit.common.record.Status;
 import com.ericsson.bss.cassandra.ecaudit.entry.AuditEntry;
 import com.ericsson.bss.cassandra.ecaudit.filter.AuditFilter;
+import com.ericsson.bss.cassandra.ecaudit.filter.PreFilterDecision;
 import com.ericsson.bss.cassandra.ecaudit.logger.AuditLogger;
+import com.ericsson.bss.cassandra.ecaudit.logger.BatchSink;
 import com.ericsson.bss.cassandra.ecaudit.metrics.AuditMetrics;
 import com.ericsson.bss.cassandra.ecaudit.obfuscator.AuditObfuscator;
 import org.apache.cassandra.db.ConsistencyLevel;
@@ -41,9 +46,12 @@ import org.mockito.junit.MockitoJUnitRunner;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.verifyZeroInteractions;
@@ -67,6 +75,9 @@ public class TestDefaultAuditor
     @Mock
     private LogTimingStrategy mockLogTimingStrategy;
 
+    @Mock
+    private Supplier<AuditEntry> mockEntrySupplier;
+
     @Captor
     private ArgumentCaptor<Long> timingCaptor;
 
@@ -125,6 +136,178 @@ public class TestDefaultAuditor
         assertThat(timeMeasured).isLessThanOrEqualTo(timeTaken);
     }
 
+    @Test
+    public void testFilterAndObfuscateFiltered()
+    {
+        AuditEntry logEntry = AuditEntry.newBuilder().build();
+        when(mockFilter.isFiltered(logEntry)).thenReturn(true);
+
+        assertThat(auditor.filterAndObfuscate(logEntry)).isEmpty();
+
+        verify(mockFilter).isFiltered(logEntry);
+        verifyZeroInteractions(mockLogger, mockObfuscator);
+    }
+
+    @Test
+    public void testFilterAndObfuscateNotFilteredDoesNotLog()
+    {
+        AuditEntry logEntry = AuditEntry.newBuilder().build();
+        AuditEntry obfuscatedEntry = AuditEntry.newBuilder().build();
+        when(mockFilter.isFiltered(logEntry)).thenReturn(false);
+        when(mockObfuscator.obfuscate(logEntry)).thenReturn(obfuscatedEntry);
+
+        assertThat(auditor.filterAndObfuscate(logEntry)).containsSame(obfuscatedEntry);
+
+        verify(mockFilter).isFiltered(logEntry);
+        verify(mockObfuscator).obfuscate(logEntry);
+        verifyZeroInteractions(mockLogger);
+    }
+
+    @Test
+    public void testPreFilteredEntryIsNeverCreated()
+    {
+        when(mockFilter.preFilter("user")).thenReturn(PreFilterDecision.FILTERED);
+
+        assertThat(auditor.filterAndObfuscate("user", mockEntrySupplier)).isEmpty();
+
+        verify(mockAuditMetrics).filterAuditRequest(anyLong(), eq(TimeUnit.NANOSECONDS));
+        verifyZeroInteractions(mockEntrySupplier, mockLogger, mockObfuscator);
+    }
+
+    @Test
+    public void testPreAcceptedEntryIsNotFiltered()
+    {
+        AuditEntry logEntry = AuditEntry.newBuilder().build();
+        when(mockFilter.preFilter("user")).thenReturn(PreFilterDecision.NOT_FILTERED);
+        when(mockEntrySupplier.get()).thenReturn(logEntry);
+        when(mockObfuscator.obfuscate(logEntry)).thenReturn(logEntry);
+
+        assertThat(auditor.filterAndObfuscate("user", mockEntrySupplier)).containsSame(logEntry);
+
+        verify(mockFilter, never()).isFiltered(any(AuditEntry.class));
+        verifyZeroInteractions(mockLogger);
+    }
+
+    @Test
+    public void testPreFilterNeedsResource()
+    {
+        AuditEntry logEntry = AuditEntry.newBuilder().build();
+        when(mockFilter.preFilter("user")).thenReturn(PreFilterDecision.NEED_RESOURCE);
+        when(mockEntrySupplier.get()).thenReturn(logEntry);
+        when(mockFilter.isFiltered(logEntry)).thenReturn(true);
+
+        assertThat(auditor.filterAndObfuscate("user", mockEntrySupplier)).isEmpty();
+
+        verify(mockAuditMetrics, times(2)).filterAuditRequest(anyLong(), eq(TimeUnit.NANOSECONDS));
+        verifyZeroInteractions(mockLogger, mockObfuscator);
+    }
+
+    @Test
+    public void testBatchAuditorOfPreFilteredUser()
+    {
+        when(mockFilter.preFilter("user")).thenReturn(PreFilterDecision.FILTERED);
+
+        assertThat(auditor.createBatchAuditor("user")).isEmpty();
+
+        verifyZeroInteractions(mockLogger, mockObfuscator);
+    }
+
+    @Test
+    public void testBatchAuditorOfPreAcceptedUser()
+    {
+        AuditEntry logEntry = AuditEntry.newBuilder().build();
+        when(mockFilter.preFilter("user")).thenReturn(PreFilterDecision.NOT_FILTERED);
+        when(mockObfuscator.obfuscate(logEntry)).thenReturn(logEntry);
+
+        Optional<BatchAuditor> batchAuditor = auditor.createBatchAuditor("user");
+        assertThat(batchAuditor).isPresent();
+        batchAuditor.get().audit(logEntry);
+        batchAuditor.get().audit(logEntry);
+
+        verify(mockLogger).createBatchSink();
+        verify(mockLogger, times(2)).log(logEntry);
+        verify(mockObfuscator, times(2)).obfuscate(logEntry);
+
+        batchAuditor.get().commit();
+
+        verify(mockAuditMetrics, times(2)).logAuditRequest(anyLong(), eq(TimeUnit.NANOSECONDS));
+    }
+
+    @Test
+    public void testBatchAuditorCommitsBatchSink()
+    {
+        AuditEntry logEntry = AuditEntry.newBuilder().build();
+        BatchSink mockBatchSink = mock(BatchSink.class);
+        when(mockFilter.preFilter("user")).thenReturn(PreFilterDecision.NOT_FILTERED);
+        when(mockObfuscator.obfuscate(logEntry)).thenReturn(logEntry);
+        when(mockLogger.createBatchSink()).thenReturn(Optional.of(mockBatchSink));
+
+        Optional<BatchAuditor> batchAuditor = auditor.createBatchAuditor("user");
+        assertThat(batchAuditor).isPresent();
+        batchAuditor.get().audit(logEntry);
+        batchAuditor.get().audit(logEntry);
+
+        verify(mockBatchSink, times(2)).add(logEntry);
+        verify(mockBatchSink, never()).commit();
+
+        batchAuditor.get().commit();
+
+        verify(mockBatchSink).commit();
+        verify(mockLogger).createBatchSink();
+        verify(mockObfuscator, times(2)).obfuscate(logEntry);
+        verify(mockAuditMetrics, times(3)).logAuditRequest(anyLong(), eq(TimeUnit.NANOSECONDS));
+    }
+
+    @Test
+    public void testBatchAuditorResolvesUserFilterOnce()
+    {
+        AuditEntry filteredEntry = AuditEntry.newBuilder().build();
+        AuditEntry loggedEntry = AuditEntry.newBuilder().build();
+        Predicate<AuditEntry> userFilter = logEntry -> logEntry == filteredEntry;
+        when(mockFilter.preFilter("user")).thenReturn(PreFilterDecision.NEED_RESOURCE);
+        when(mockFilter.createUserFilter("user")).thenReturn(userFilter);
+        when(mockObfuscator.obfuscate(loggedEntry)).thenReturn(loggedEntry);
+
+        Optional<BatchAuditor> batchAuditor = auditor.createBatchAuditor("user");
+        assertThat(batchAuditor).isPresent();
+        batchAuditor.get().audit(filteredEntry);
+        batchAuditor.get().audit(loggedEntry);
+        batchAuditor.get().commit();
+
+        verify(mockFilter).createUserFilter("user");
+        verify(mockLogger).createBatchSink();
+        verify(mockLogger).log(loggedEntry);
+        verify(mockObfuscator).obfuscate(loggedEntry);
+        verify(mockAuditMetrics, times(4)).filterAuditRequest(anyLong(), eq(TimeUnit.NANOSECONDS));
+    }
+
+    @Test
+    public void testBatchAuditorDoesNotCommitEmptyBatch()
+    {
+        AuditEntry filteredEntry = AuditEntry.newBuilder().build();
+        when(mockFilter.preFilter("user")).thenReturn(PreFilterDecision.NEED_RESOURCE);
+        when(mockFilter.createUserFilter("user")).thenReturn(logEntry -> true);
+
+        Optional<BatchAuditor> batchAuditor = auditor.createBatchAuditor("user");
+        assertThat(batchAuditor).isPresent();
+        batchAuditor.get().audit(filteredEntry);
+        batchAuditor.get().commit();
+
+        verifyZeroInteractions(mockLogger, mockObfuscator);
+    }
+
+    @Test
+    public void testLogDoesNotFilter()
+    {
+        AuditEntry logEntry = AuditEntry.newBuilder().build();
+
+        auditor.log(logEntry);
+
+        verify(mockLogger).log(logEntry);
+        verify(mockAuditMetrics).logAuditRequest(anyLong(), eq(TimeUnit.NANOSECONDS));
+        verifyZeroInteractions(mockFilter, mockObfuscator);
+    }
+
     @Test
     public void testAuditNotFiltered()
     {
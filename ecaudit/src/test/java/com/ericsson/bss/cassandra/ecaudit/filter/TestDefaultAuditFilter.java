@@ -38,6 +38,12 @@ public class TestDefaultAuditFilter
         assertThat(filter.isFiltered(toLogEntry("user2"))).isFalse();
     }
 
+    @Test
+    public void testPreFilterNotFilteredWithDefaultFilter()
+    {
+        assertThat(new DefaultAuditFilter().preFilter("user1")).isEqualTo(PreFilterDecision.NOT_FILTERED);
+    }
+
     private static AuditEntry toLogEntry(String user)
     {
         return AuditEntry.newBuilder()
@@ -20,6 +20,7 @@ import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
 import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 import com.google.common.collect.Maps;
@@ -33,7 +34,9 @@ import com.ericsson.bss.cassandra.ecaudit.auth.AuditWhitelistCache;
 import com.ericsson.bss.cassandra.ecaudit.auth.ConnectionResource;
 import com.ericsson.bss.cassandra.ecaudit.auth.WhitelistDataAccess;
 import com.ericsson.bss.cassandra.ecaudit.entry.AuditEntry;
+import com.ericsson.bss.cassandra.ecaudit.filter.PreFilterDecision;
 import org.apache.cassandra.auth.DataResource;
+import org.apache.cassandra.auth.FunctionResource;
 import org.apache.cassandra.auth.IResource;
 import org.apache.cassandra.auth.Permission;
 import org.apache.cassandra.auth.RoleResource;
@@ -46,6 +49,7 @@ import org.mockito.junit.MockitoJUnitRunner;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -207,6 +211,80 @@ public class TestRoleAuditFilter
         .isThrownBy(() -> filter.isFiltered(auditEntry));
     }
 
+    @Test
+    public void userFilterResolvesRolesOnce()
+    {
+        givenRoleIsWhitelisted("primary", Permission.SELECT, DataResource.fromName("data/ks"));
+        givenRoleIsWhitelisted("inherited", Permission.MODIFY, DataResource.fromName("data/ks/tbl"));
+        givenRolesOfRequest("primary", "inherited");
+
+        Predicate<AuditEntry> userFilter = filter.createUserFilter("primary");
+
+        assertThat(userFilter.test(givenAuditEntry(Collections.singleton(Permission.SELECT), DataResource.fromName("data/ks/tbl")))).isTrue();
+        assertThat(userFilter.test(givenAuditEntry(Sets.newHashSet(Permission.SELECT, Permission.MODIFY), DataResource.fromName("data/ks/tbl")))).isTrue();
+        assertThat(userFilter.test(givenAuditEntry(Collections.singleton(Permission.MODIFY), DataResource.fromName("data/ks/other_tbl")))).isFalse();
+        verify(getRolesFunctionMock, times(1)).apply(eq(RoleResource.role("primary")));
+    }
+
+    @Test
+    public void userFilterUncheckedExceptionIsUnwrapped()
+    {
+        when(getRolesFunctionMock.apply(any(RoleResource.class)))
+        .thenThrow(new UncheckedExecutionException(new RuntimeException(new ReadTimeoutException(ConsistencyLevel.QUORUM, 1, 1, false))));
+
+        assertThatExceptionOfType(CassandraException.class)
+        .isThrownBy(() -> filter.createUserFilter("primary"));
+    }
+
+    @Test
+    public void preFilterRolesWithoutWhitelistIsNotFiltered()
+    {
+        givenRolesOfRequest("primary", "inherited");
+
+        assertThat(filter.preFilter("primary")).isEqualTo(PreFilterDecision.NOT_FILTERED);
+    }
+
+    @Test
+    public void preFilterRolesWithWhitelistedDataRootNeedResource()
+    {
+        givenRoleIsFullyWhitelisted("primary", DataResource.root());
+        givenRolesOfRequest("primary", "inherited");
+
+        assertThat(filter.preFilter("primary")).isEqualTo(PreFilterDecision.NEED_RESOURCE);
+    }
+
+    @Test
+    public void preFilterRolesWithAllRootsWhitelistedIsFiltered()
+    {
+        givenRoleIsFullyWhitelisted("primary", DataResource.root());
+        givenRoleIsFullyWhitelisted("inherited", RoleResource.root());
+        givenRoleIsFullyWhitelisted("inherited", FunctionResource.root());
+        givenRolesOfRequest("primary", "inherited");
+
+        assertThat(filter.preFilter("primary")).isEqualTo(PreFilterDecision.FILTERED);
+    }
+
+    @Test
+    public void preFilterRolesWithPartlyWhitelistedRootNeedResource()
+    {
+        givenRoleIsFullyWhitelisted("primary", DataResource.root());
+        givenRoleIsFullyWhitelisted("primary", RoleResource.root());
+        givenRoleIsWhitelisted("primary", Permission.EXECUTE, FunctionResource.root());
+        givenRolesOfRequest("primary");
+
+        assertThat(filter.preFilter("primary")).isEqualTo(PreFilterDecision.NEED_RESOURCE);
+    }
+
+    @Test
+    public void preFilterUncheckedExceptionIsUnwrapped()
+    {
+        when(getRolesFunctionMock.apply(any(RoleResource.class)))
+        .thenThrow(new UncheckedExecutionException(new RuntimeException(new ReadTimeoutException(ConsistencyLevel.QUORUM, 1, 1, false))));
+
+        assertThatExceptionOfType(CassandraException.class)
+        .isThrownBy(() -> filter.preFilter("primary"));
+    }
+
     private void givenRolesOfRequest(String... roleNames)
     {
         Set<RoleResource> roles = Arrays.stream(roleNames)
@@ -221,6 +299,11 @@ public class TestRoleAuditFilter
         whitelistMap.compute(RoleResource.role(roleName), (name, operWl) -> createOrExtend(operWl, operation, resource));
     }
 
+    private void givenRoleIsFullyWhitelisted(String roleName, IResource resource)
+    {
+        resource.applicablePermissions().forEach(operation -> givenRoleIsWhitelisted(roleName, operation, resource));
+    }
+
     private Map<IResource, Set<Permission>> createOrExtend(Map<IResource, Set<Permission>> operWl, Permission operation, IResource resource)
     {
         Map<IResource, Set<Permission>> newPermissionWhitelist = operWl != null ? operWl : Maps.newHashMap();
@@ -26,6 +26,7 @@ import org.junit.runner.RunWith;
 import com.ericsson.bss.cassandra.ecaudit.auth.ConnectionResource;
 import com.ericsson.bss.cassandra.ecaudit.config.AuditConfig;
 import com.ericsson.bss.cassandra.ecaudit.entry.AuditEntry;
+import com.ericsson.bss.cassandra.ecaudit.filter.PreFilterDecision;
 import org.apache.cassandra.exceptions.ConfigurationException;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
@@ -59,6 +60,19 @@ public class TestYamlAuditFilter
                         .containsExactly(false, true, false, true, false, false);
     }
 
+    @Test
+    public void testPreFilterOnlyFiltersWhitelistedUsers()
+    {
+        YamlAuditFilter filter = givenConfiguredFilter();
+
+        List<String> users = new ArrayList<>(Arrays.asList("foo", "User1", "bar", "User2"));
+
+        assertThat(users.stream().map(filter::preFilter)
+                .collect(Collectors.toList()))
+                        .containsExactly(PreFilterDecision.NOT_FILTERED, PreFilterDecision.FILTERED,
+                                         PreFilterDecision.NOT_FILTERED, PreFilterDecision.FILTERED);
+    }
+
     @Test
     public void testWhitelistDoesntApplyToLoginAttempts()
     {
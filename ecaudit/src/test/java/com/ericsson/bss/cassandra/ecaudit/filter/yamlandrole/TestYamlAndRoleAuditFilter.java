@@ -15,18 +15,24 @@
  */
 package com.ericsson.bss.cassandra.ecaudit.filter.yamlandrole;
 
+import java.util.function.Predicate;
+
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
 import com.ericsson.bss.cassandra.ecaudit.entry.AuditEntry;
+import com.ericsson.bss.cassandra.ecaudit.filter.PreFilterDecision;
 import com.ericsson.bss.cassandra.ecaudit.filter.role.RoleAuditFilter;
 import com.ericsson.bss.cassandra.ecaudit.filter.yaml.YamlAuditFilter;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -92,4 +98,39 @@ public class TestYamlAndRoleAuditFilter
 
         assertThat(combinedFilter.isFiltered(auditEntry)).isEqualTo(false);
     }
+
+    @Test
+    public void testPreFilteredByYamlResultInFiltered()
+    {
+        when(yamlFilter.preFilter(eq("user"))).thenReturn(PreFilterDecision.FILTERED);
+
+        assertThat(combinedFilter.preFilter("user")).isEqualTo(PreFilterDecision.FILTERED);
+        verify(roleFilter, never()).preFilter(anyString());
+    }
+
+    @Test
+    public void testPreFilterNotFilteredByYamlDelegatesToRole()
+    {
+        when(yamlFilter.preFilter(eq("user"))).thenReturn(PreFilterDecision.NOT_FILTERED);
+        when(roleFilter.preFilter(eq("user"))).thenReturn(PreFilterDecision.NEED_RESOURCE);
+
+        assertThat(combinedFilter.preFilter("user")).isEqualTo(PreFilterDecision.NEED_RESOURCE);
+    }
+
+    @Test
+    public void testUserFilterCombinesYamlAndRoleUserFilter()
+    {
+        AuditEntry yamlEntry = AuditEntry.newBuilder().build();
+        AuditEntry roleEntry = AuditEntry.newBuilder().build();
+        AuditEntry otherEntry = AuditEntry.newBuilder().build();
+        when(roleFilter.createUserFilter(eq("user"))).thenReturn(logEntry -> logEntry == roleEntry);
+        when(yamlFilter.isFiltered(any(AuditEntry.class))).thenAnswer(invocation -> invocation.getArgument(0) == yamlEntry);
+
+        Predicate<AuditEntry> userFilter = combinedFilter.createUserFilter("user");
+
+        assertThat(userFilter.test(yamlEntry)).isTrue();
+        assertThat(userFilter.test(roleEntry)).isTrue();
+        assertThat(userFilter.test(otherEntry)).isFalse();
+        verify(roleFilter, times(1)).createUserFilter(eq("user"));
+    }
 }
@@ -28,6 +28,7 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 
 import com.ericsson.bss.cassandra.ecaudit.AuditAdapter;
+import com.ericsson.bss.cassandra.ecaudit.AuditRequestContext;
 import com.ericsson.bss.cassandra.ecaudit.common.record.Status;
 import com.ericsson.bss.cassandra.ecaudit.test.mode.ClientInitializer;
 import org.apache.cassandra.cql3.BatchQueryOptions;
@@ -89,6 +90,9 @@ public class TestAuditQueryHandler
     @Mock
     private AuditAdapter mockAdapter;
 
+    @Mock
+    private AuditRequestContext mockContext;
+
     @Captor
     private ArgumentCaptor<UUID> uuidCaptor;
 
@@ -138,8 +142,8 @@ public class TestAuditQueryHandler
         assertThat(stmt).isSameAs(mockStatement);
 
         verify(mockHandler, times(1)).prepare(eq(query), eq(mockQueryState), eq(customPayload));
-        verify(mockHandler, times(1)).getPrepared(eq(statementId));
-        verify(mockAdapter, times(1)).mapIdToQuery(eq(statementId), eq(query));
+        verify(mockHandler, times(2)).getPrepared(eq(statementId));
+        verify(mockAdapter, times(1)).createPreparedTemplate(eq(query), eq(parsedPrepared));
     }
 
     @Test
@@ -147,9 +151,11 @@ public class TestAuditQueryHandler
     {
         String query = "select * from ks.ts";
 
+        when(mockAdapter.createRegularContext(eq(query), eq(mockClientState), longThat(isCloseToNow()))).thenReturn(mockContext);
+
         queryHandler.process(query, mockQueryState, mockOptions, customPayload);
-        verify(mockAdapter, times(1)).auditRegular(eq(query), eq(mockClientState), eq(Status.ATTEMPT), longThat(isCloseToNow()));
-        verify(mockAdapter, times(1)).auditRegular(eq(query), eq(mockClientState), eq(Status.SUCCEEDED), longThat(isCloseToNow()));
+        verify(mockAdapter, times(1)).audit(eq(mockContext), eq(Status.ATTEMPT));
+        verify(mockAdapter, times(1)).audit(eq(mockContext), eq(Status.SUCCEEDED));
         verify(mockHandler, times(1)).process(eq(query), eq(mockQueryState), eq(mockOptions), eq(customPayload));
     }
 
@@ -158,13 +164,14 @@ public class TestAuditQueryHandler
     {
         String query = "select * from ks.ts";
         whenProcessThrowUnavailable(query);
+        when(mockAdapter.createRegularContext(eq(query), eq(mockClientState), longThat(isCloseToNow()))).thenReturn(mockContext);
 
         assertThatExceptionOfType(RequestExecutionException.class)
                 .isThrownBy(() -> queryHandler.process(query, mockQueryState, mockOptions, customPayload));
 
-        verify(mockAdapter, times(1)).auditRegular(eq(query), eq(mockClientState), eq(Status.ATTEMPT), longThat(isCloseToNow()));
+        verify(mockAdapter, times(1)).audit(eq(mockContext), eq(Status.ATTEMPT));
         verify(mockHandler, times(1)).process(eq(query), eq(mockQueryState), eq(mockOptions), eq(customPayload));
-        verify(mockAdapter, times(1)).auditRegular(eq(query), eq(mockClientState), eq(Status.FAILED), longThat(isCloseToNow()));
+        verify(mockAdapter, times(1)).audit(eq(mockContext), eq(Status.FAILED));
     }
 
     @Test
@@ -175,13 +182,14 @@ public class TestAuditQueryHandler
         ParsedStatement.Prepared parsedPrepared = new ParsedStatement.Prepared(mockStatement);
 
         when(mockHandler.getPrepared(statementId)).thenReturn(parsedPrepared);
+        when(mockAdapter.createPreparedContext(eq(statementId), eq(mockStatement), eq(mockClientState), eq(mockOptions), longThat(isCloseToNow()))).thenReturn(mockContext);
 
         CQLStatement stmt = queryHandler.getPrepared(statementId).statement;
         queryHandler.processPrepared(stmt, mockQueryState, mockOptions, customPayload);
 
         verify(mockHandler, times(1)).getPrepared(eq(statementId));
-        verify(mockAdapter, times(1)).auditPrepared(eq(statementId), eq(mockStatement), eq(mockClientState), eq(mockOptions), eq(Status.ATTEMPT), longThat(isCloseToNow()));
-        verify(mockAdapter, times(1)).auditPrepared(eq(statementId), eq(mockStatement), eq(mockClientState), eq(mockOptions), eq(Status.SUCCEEDED), longThat(isCloseToNow()));
+        verify(mockAdapter, times(1)).audit(eq(mockContext), eq(Status.ATTEMPT));
+        verify(mockAdapter, times(1)).audit(eq(mockContext), eq(Status.SUCCEEDED));
         verify(mockHandler, times(1)).processPrepared(eq(mockStatement), eq(mockQueryState), eq(mockOptions), eq(customPayload));
     }
 
@@ -194,15 +202,16 @@ public class TestAuditQueryHandler
 
         when(mockHandler.getPrepared(statementId)).thenReturn(parsedPrepared);
         whenProcessPreparedThrowUnavailable();
+        when(mockAdapter.createPreparedContext(eq(statementId), eq(mockStatement), eq(mockClientState), eq(mockOptions), longThat(isCloseToNow()))).thenReturn(mockContext);
 
         CQLStatement stmt = queryHandler.getPrepared(statementId).statement;
         assertThatExceptionOfType(UnavailableException.class)
                 .isThrownBy(() -> queryHandler.processPrepared(stmt, mockQueryState, mockOptions, customPayload));
 
         verify(mockHandler, times(1)).getPrepared(eq(statementId));
-        verify(mockAdapter, times(1)).auditPrepared(eq(statementId), eq(mockStatement), eq(mockClientState), eq(mockOptions), eq(Status.ATTEMPT), longThat(isCloseToNow()));
+        verify(mockAdapter, times(1)).audit(eq(mockContext), eq(Status.ATTEMPT));
         verify(mockHandler, times(1)).processPrepared(eq(mockStatement), eq(mockQueryState), eq(mockOptions), eq(customPayload));
-        verify(mockAdapter, times(1)).auditPrepared(eq(statementId), eq(mockStatement), eq(mockClientState), eq(mockOptions), eq(Status.FAILED), longThat(isCloseToNow()));
+        verify(mockAdapter, times(1)).audit(eq(mockContext), eq(Status.FAILED));
     }
 
     @Test
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.logger;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+
+import net.openhft.chronicle.core.time.SetTimeProvider;
+import net.openhft.chronicle.queue.ChronicleQueue;
+import net.openhft.chronicle.queue.ChronicleQueueBuilder;
+import net.openhft.chronicle.queue.ExcerptAppender;
+import net.openhft.chronicle.queue.RollCycles;
+import net.openhft.chronicle.queue.impl.StoreFileListener;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+
+@RunWith(MockitoJUnitRunner.StrictStubs.class)
+public class TestAppenderFileSync
+{
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Mock
+    private StoreFileListener mockListener;
+
+    private final SetTimeProvider clock = new SetTimeProvider(TimeUnit.MINUTES.toNanos(10));
+    private final List<File> forcedFiles = new ArrayList<>();
+
+    private ChronicleQueue chronicle;
+    private ExcerptAppender appender;
+    private AppenderFileSync fileSync;
+
+    @Before
+    public void before()
+    {
+        ReleasedCycleFiles releasedFiles = new ReleasedCycleFiles(mockListener);
+        chronicle = ChronicleQueueBuilder.single(temporaryFolder.getRoot())
+                                         .rollCycle(RollCycles.MINUTELY)
+                                         .timeProvider(clock)
+                                         .storeFileListener(releasedFiles)
+                                         .build();
+        appender = chronicle.acquireAppender();
+        fileSync = new AppenderFileSync(appender, releasedFiles, (file, channel) -> forcedFiles.add(file));
+    }
+
+    @After
+    public void after() throws Exception
+    {
+        fileSync.close();
+        chronicle.close();
+    }
+
+    @Test
+    public void testSyncForcesCurrentCycleFile() throws Exception
+    {
+        write("first");
+        fileSync.sync();
+
+        assertThat(forcedFiles).containsExactly(cycleFiles().get(0));
+    }
+
+    @Test
+    public void testSyncForcesEveryCycleFileRolledWithinGroup() throws Exception
+    {
+        write("first");
+        fileSync.sync();
+        forcedFiles.clear();
+
+        clock.advanceMillis(TimeUnit.MINUTES.toMillis(1));
+        write("second");
+        clock.advanceMillis(TimeUnit.MINUTES.toMillis(1));
+        write("third");
+        fileSync.sync();
+
+        List<File> cycleFiles = cycleFiles();
+        assertThat(cycleFiles).hasSize(3);
+        assertThat(forcedFiles).containsExactlyInAnyOrderElementsOf(cycleFiles);
+        verify(mockListener).onReleased(anyInt(), eq(cycleFiles.get(1)));
+    }
+
+    @Test
+    public void testSyncSkipsDeletedCycleFile() throws Exception
+    {
+        write("first");
+        fileSync.sync();
+        forcedFiles.clear();
+
+        clock.advanceMillis(TimeUnit.MINUTES.toMillis(1));
+        write("second");
+        clock.advanceMillis(TimeUnit.MINUTES.toMillis(1));
+        write("third");
+        List<File> cycleFiles = cycleFiles();
+        assertThat(cycleFiles.get(1).delete()).isTrue();
+        fileSync.sync();
+
+        assertThat(forcedFiles).containsExactlyInAnyOrder(cycleFiles.get(0), cycleFiles.get(2));
+    }
+
+    private void write(String text)
+    {
+        appender.writeDocument(wire -> wire.write("text").text(text));
+    }
+
+    private List<File> cycleFiles()
+    {
+        File[] files = temporaryFolder.getRoot().listFiles((dir, name) -> name.endsWith(".cq4"));
+        Arrays.sort(files);
+        return Arrays.asList(files);
+    }
+}
@@ -0,0 +1,382 @@
+/*
+ * Copyright 2019 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.logger;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+
+import com.ericsson.bss.cassandra.ecaudit.facade.CassandraAuditException;
+import com.ericsson.bss.cassandra.ecaudit.logger.GroupCommit.DurableRecord;
+import com.ericsson.bss.cassandra.ecaudit.logger.GroupCommit.SyncAction;
+import com.ericsson.bss.cassandra.ecaudit.metrics.ChronicleWriterMetrics;
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.queue.ChronicleQueue;
+import net.openhft.chronicle.queue.ChronicleQueueBuilder;
+import net.openhft.chronicle.queue.ExcerptAppender;
+import net.openhft.chronicle.queue.ExcerptTailer;
+import net.openhft.chronicle.queue.impl.StoreFileListener;
+import net.openhft.chronicle.wire.WireType;
+import net.openhft.chronicle.wire.WriteMarshallable;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.StrictStubs.class)
+public class TestAsyncChronicleWriter
+{
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Mock
+    private ChronicleQueue mockChronicleQueue;
+
+    @Mock
+    private ExcerptAppender mockAppender;
+
+    @Mock
+    private WriteMarshallable marshallable;
+
+    @Mock
+    private ChronicleWriterMetrics mockMetrics;
+
+    @Mock
+    private SyncAction mockSyncAction;
+
+    @Mock
+    private StoreFileListener mockStoreFileListener;
+
+    private AsyncChronicleWriter writer;
+
+    @Before
+    public void before()
+    {
+        when(mockChronicleQueue.acquireAppender()).thenReturn(mockAppender);
+        writer = new AsyncChronicleWriter(mockChronicleQueue, 4, WriterWaitStrategy.PARK, null, mockMetrics);
+    }
+
+    @After
+    public void after()
+    {
+        verifyNoMoreInteractions(mockChronicleQueue);
+        verifyNoMoreInteractions(mockAppender);
+    }
+
+    @Test
+    public void putOneAndClose() throws Exception
+    {
+        writer.put(marshallable);
+
+        Thread.sleep(50);
+        writer.close();
+
+        verify(mockAppender).writeDocument(eq(marshallable));
+        verify(mockChronicleQueue).close();
+    }
+
+    @Test
+    public void putManyWithEachWaitStrategy() throws Exception
+    {
+        writer.close();
+        for (WriterWaitStrategy waitStrategy : WriterWaitStrategy.values())
+        {
+            AsyncChronicleWriter strategyWriter = new AsyncChronicleWriter(mockChronicleQueue, 4, waitStrategy, null, mockMetrics);
+            Thread producer = new Thread(() -> putAll(strategyWriter, 50));
+            producer.start();
+            putAll(strategyWriter, 50);
+            producer.join();
+
+            verify(mockAppender, timeout(1000).times(100)).writeDocument(eq(marshallable));
+            strategyWriter.close();
+            reset(mockAppender);
+        }
+
+        verify(mockChronicleQueue, times(WriterWaitStrategy.values().length + 1)).close();
+        verify(mockChronicleQueue, times(WriterWaitStrategy.values().length + 1)).acquireAppender();
+    }
+
+    @Test
+    public void blockedProducerIsCounted() throws Exception
+    {
+        CountDownLatch writeLatch = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            writeLatch.await();
+            return null;
+        }).when(mockAppender).writeDocument(any(WriteMarshallable.class));
+
+        Thread producer = new Thread(() -> putAll(writer, 10));
+        producer.start();
+
+        verify(mockMetrics, timeout(1000).atLeastOnce()).blockProducer();
+        writeLatch.countDown();
+        producer.join();
+        verify(mockAppender, timeout(1000).times(10)).writeDocument(eq(marshallable));
+
+        writer.close();
+        verify(mockChronicleQueue).close();
+    }
+
+    @Test
+    public void spilledRecordsAreWrittenInOrder() throws Exception
+    {
+        writer.close();
+        verify(mockChronicleQueue).close();
+
+        CountDownLatch writeLatch = new CountDownLatch(1);
+        try (ChronicleQueue chronicle = ChronicleQueueBuilder.single(temporaryFolder.newFolder("chronicle")).blockSize(1024).build();
+             AsyncChronicleWriter spillWriter = new AsyncChronicleWriter(chronicle, 1, WriterWaitStrategy.PARK, givenSpillFile(), mockMetrics))
+        {
+            spillWriter.put(wire -> {
+                awaitUninterruptibly(writeLatch);
+                wire.write("seq").int32(0);
+            });
+            for (int i = 1; i < 10; i++)
+            {
+                int seq = i;
+                spillWriter.put(wire -> wire.write("seq").int32(seq));
+            }
+            writeLatch.countDown();
+
+            assertThat(readSequence(chronicle, 10)).containsExactly(0, 1, 2, 3, 4, 5, 6, 7, 8, 9);
+        }
+
+        verify(mockMetrics, atLeastOnce()).spillRecord();
+        verify(mockMetrics, never()).blockProducer();
+    }
+
+    @Test
+    public void spilledRecordsAreReplayedAfterRestart() throws Exception
+    {
+        writer.close();
+        verify(mockChronicleQueue).close();
+
+        SpillFile spillFile = givenSpillFile();
+        spillFile.append(serialize(wire -> wire.write("seq").int32(0)));
+        spillFile.close();
+
+        try (ChronicleQueue chronicle = ChronicleQueueBuilder.single(temporaryFolder.newFolder("chronicle")).blockSize(1024).build();
+             AsyncChronicleWriter spillWriter = new AsyncChronicleWriter(chronicle, 1, WriterWaitStrategy.PARK, givenSpillFile(), mockMetrics))
+        {
+            spillWriter.put(wire -> wire.write("seq").int32(1));
+
+            assertThat(readSequence(chronicle, 2)).containsExactly(0, 1);
+        }
+    }
+
+    @Test
+    public void durableAckReturnsAfterSync() throws Exception
+    {
+        writer.close();
+        verify(mockChronicleQueue).close();
+
+        AsyncChronicleWriter durableWriter = givenDurableWriter();
+        durableWriter.put(marshallable);
+
+        InOrder inOrder = inOrder(mockAppender, mockSyncAction);
+        inOrder.verify(mockAppender).writeDocument(any(DurableRecord.class));
+        inOrder.verify(mockSyncAction).sync();
+        verify(mockMetrics).syncRecords(anyLong(), eq(TimeUnit.NANOSECONDS), eq(1));
+
+        durableWriter.close();
+        verify(mockChronicleQueue, times(2)).close();
+        verify(mockChronicleQueue, times(2)).acquireAppender();
+    }
+
+    @Test
+    public void durableAckFailsOnSyncFailure() throws Exception
+    {
+        writer.close();
+        verify(mockChronicleQueue).close();
+        doThrow(new IOException("Disk full")).when(mockSyncAction).sync();
+
+        AsyncChronicleWriter durableWriter = givenDurableWriter();
+        assertThatExceptionOfType(CassandraAuditException.class)
+        .isThrownBy(() -> durableWriter.put(marshallable))
+        .withMessageContaining("sync");
+
+        verify(mockAppender).writeDocument(any(DurableRecord.class));
+        durableWriter.close();
+        verify(mockChronicleQueue, times(2)).close();
+        verify(mockChronicleQueue, times(2)).acquireAppender();
+    }
+
+    @Test
+    public void recordsAreSyncedToCycleFile() throws Exception
+    {
+        writer.close();
+        verify(mockChronicleQueue).close();
+
+        ReleasedCycleFiles releasedFiles = new ReleasedCycleFiles(mockStoreFileListener);
+        try (ChronicleQueue chronicle = ChronicleQueueBuilder.single(temporaryFolder.newFolder("chronicle")).blockSize(1024)
+                                                             .storeFileListener(releasedFiles).build();
+             AsyncChronicleWriter durableWriter = new AsyncChronicleWriter(chronicle, 4, WriterWaitStrategy.PARK, null, mockMetrics,
+                                                                           appender -> new GroupCommit(SyncPolicy.RECORDS, 2, 0, TimeUnit.MILLISECONDS,
+                                                                                                       new AppenderFileSync(appender, releasedFiles), mockMetrics),
+                                                                           true))
+        {
+            for (int i = 0; i < 3; i++)
+            {
+                int seq = i;
+                durableWriter.put(wire -> wire.write("seq").int32(seq));
+            }
+
+            assertThat(readSequence(chronicle, 3)).containsExactly(0, 1, 2);
+        }
+
+        verify(mockMetrics, atLeastOnce()).syncRecords(anyLong(), eq(TimeUnit.NANOSECONDS), anyInt());
+    }
+
+    @Test
+    public void closeAndPutOne() throws Exception
+    {
+        new Thread(writer::close).start();
+
+        Thread.sleep(100);
+        assertThatIllegalStateException()
+        .isThrownBy(() -> writer.put(marshallable));
+
+        verify(mockChronicleQueue).close();
+    }
+
+    @Test
+    public void putOneAndInterruptOnClose() throws Exception
+    {
+        Thread testThread = Thread.currentThread();
+        doAnswer(invocation -> {
+            try
+            {
+                Thread.sleep(100);
+            }
+            catch (InterruptedException ignored)
+            {
+                testThread.interrupt();
+                Thread.sleep(100);
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        }).when(mockAppender).writeDocument(any(WriteMarshallable.class));
+
+        writer.put(marshallable);
+        Thread.sleep(50);
+
+        writer.close();
+
+        verify(mockAppender).writeDocument(eq(marshallable));
+        verify(mockChronicleQueue).close();
+        assertThat(Thread.currentThread().isInterrupted()).isTrue();
+
+        // Clear interrupt flag
+        Thread.interrupted();
+    }
+
+    @Test
+    public void closeQueueOnceOnly()
+    {
+        writer.close();
+        writer.close();
+
+        verify(mockChronicleQueue, times(1)).close();
+    }
+
+    private void putAll(AsyncChronicleWriter targetWriter, int count)
+    {
+        try
+        {
+            for (int i = 0; i < count; i++)
+            {
+                targetWriter.put(marshallable);
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private AsyncChronicleWriter givenDurableWriter()
+    {
+        return new AsyncChronicleWriter(mockChronicleQueue, 4, WriterWaitStrategy.PARK, null, mockMetrics,
+                                        appender -> new GroupCommit(SyncPolicy.RECORDS, 10, 0, TimeUnit.MILLISECONDS, mockSyncAction, mockMetrics),
+                                        true);
+    }
+
+    private SpillFile givenSpillFile() throws Exception
+    {
+        return new SpillFile(temporaryFolder.getRoot().toPath().resolve("spill"), 1024 * 1024);
+    }
+
+    private static byte[] serialize(WriteMarshallable marshallable)
+    {
+        Bytes<?> bytes = Bytes.elasticHeapByteBuffer(64);
+        marshallable.writeMarshallable(WireType.BINARY_LIGHT.apply(bytes));
+        return bytes.toByteArray();
+    }
+
+    private static List<Integer> readSequence(ChronicleQueue chronicle, int expectedRecords) throws InterruptedException
+    {
+        List<Integer> sequence = new ArrayList<>();
+        ExcerptTailer tailer = chronicle.createTailer();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (sequence.size() < expectedRecords && System.currentTimeMillis() < deadline)
+        {
+            if (!tailer.readDocument(wire -> sequence.add(wire.read("seq").int32())))
+            {
+                Thread.sleep(10);
+            }
+        }
+        return sequence;
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch)
+    {
+        try
+        {
+            latch.await();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -19,18 +19,30 @@ import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
 import java.time.Instant;
+import java.util.Arrays;
 import java.util.UUID;
 
 import org.junit.After;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 
+import com.ericsson.bss.cassandra.ecaudit.common.chronicle.AuditBatchWriteMarshallable;
+import com.ericsson.bss.cassandra.ecaudit.common.chronicle.AuditRecordReadMarshallable;
 import com.ericsson.bss.cassandra.ecaudit.common.chronicle.FieldSelector;
 import com.ericsson.bss.cassandra.ecaudit.common.chronicle.FieldSelector.Field;
+import com.ericsson.bss.cassandra.ecaudit.common.chronicle.ReadDictionary;
+import com.ericsson.bss.cassandra.ecaudit.common.chronicle.WriteDictionary;
 import com.ericsson.bss.cassandra.ecaudit.common.record.SimpleAuditOperation;
 import com.ericsson.bss.cassandra.ecaudit.common.record.Status;
+import com.ericsson.bss.cassandra.ecaudit.common.record.StoredAuditRecord;
 import com.ericsson.bss.cassandra.ecaudit.entry.AuditEntry;
+import net.openhft.chronicle.queue.ChronicleQueue;
+import net.openhft.chronicle.queue.ChronicleQueueBuilder;
+import net.openhft.chronicle.queue.ExcerptAppender;
+import net.openhft.chronicle.queue.ExcerptTailer;
 import net.openhft.chronicle.wire.ValueOut;
 import net.openhft.chronicle.wire.WireOut;
 import net.openhft.chronicle.wire.WriteMarshallable;
@@ -43,13 +55,19 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.StrictStubs.class)
 public class TestChronicleAuditLogger
 {
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     @Mock
     private ChronicleWriter mockWriter;
 
@@ -94,6 +112,106 @@ public class TestChronicleAuditLogger
         assertThatWireMatchRecord(expectedAuditEntry);
     }
 
+    @Test
+    public void batchOfStatementsIsLoggedIndividuallyByDefault()
+    {
+        assertThat(logger.createBatchSink()).isEmpty();
+    }
+
+    @Test
+    public void batchOfStatementsIsCompacted() throws Exception
+    {
+        logger = new ChronicleAuditLogger(mockWriter, FieldSelector.DEFAULT_FIELDS, true);
+        AuditEntry expectedAuditEntry = likeGenericRecord().batch(UUID.fromString("4910e9a6-9d26-40f8-ad8c-5c0436784969")).build();
+
+        BatchSink batchSink = logger.createBatchSink().orElseThrow(AssertionError::new);
+        batchSink.add(expectedAuditEntry);
+        batchSink.add(expectedAuditEntry);
+        verifyZeroInteractions(mockWriter);
+        batchSink.commit();
+
+        ArgumentCaptor<WriteMarshallable> marshallableArgumentCaptor = ArgumentCaptor.forClass(WriteMarshallable.class);
+        verify(mockWriter).put(marshallableArgumentCaptor.capture());
+        assertThat(marshallableArgumentCaptor.getValue()).isInstanceOf(AuditBatchWriteMarshallable.class);
+    }
+
+    @Test
+    public void singleStatementBatchIsNotCompacted() throws Exception
+    {
+        logger = new ChronicleAuditLogger(mockWriter, FieldSelector.DEFAULT_FIELDS, true);
+        AuditEntry expectedAuditEntry = likeGenericRecord().batch(UUID.fromString("4910e9a6-9d26-40f8-ad8c-5c0436784969")).build();
+
+        BatchSink batchSink = logger.createBatchSink().orElseThrow(AssertionError::new);
+        batchSink.add(expectedAuditEntry);
+        batchSink.commit();
+
+        assertThatWireMatchRecord(expectedAuditEntry);
+    }
+
+    @Test
+    public void statementsAreDictionaryEncoded() throws Exception
+    {
+        logger = new ChronicleAuditLogger(mockWriter, FieldSelector.DEFAULT_FIELDS, false, new WriteDictionary());
+        AuditEntry expectedAuditEntry = likeGenericRecord().build();
+
+        logger.log(expectedAuditEntry);
+        logger.log(expectedAuditEntry);
+
+        ArgumentCaptor<WriteMarshallable> marshallableArgumentCaptor = ArgumentCaptor.forClass(WriteMarshallable.class);
+        verify(mockWriter, times(2)).put(marshallableArgumentCaptor.capture());
+        try (ChronicleQueue chronicle = ChronicleQueueBuilder.single(temporaryFolder.getRoot()).blockSize(1024).build())
+        {
+            ExcerptAppender appender = chronicle.acquireAppender();
+            marshallableArgumentCaptor.getAllValues().forEach(appender::writeDocument);
+
+            ExcerptTailer tailer = chronicle.createTailer();
+            ReadDictionary dictionary = new ReadDictionary();
+            for (int i = 0; i < 2; i++)
+            {
+                AuditRecordReadMarshallable readMarshallable = new AuditRecordReadMarshallable(dictionary);
+                assertThat(tailer.readDocument(readMarshallable)).isTrue();
+                StoredAuditRecord actualAuditRecord = readMarshallable.getAuditRecord();
+                assertThat(actualAuditRecord.getUser()).contains(expectedAuditEntry.getUser());
+                assertThat(actualAuditRecord.getClientAddress()).contains(expectedAuditEntry.getClientAddress().getAddress());
+                assertThat(actualAuditRecord.getOperation()).contains(expectedAuditEntry.getOperation().getOperationString());
+            }
+        }
+    }
+
+    @Test
+    public void shardedStatementsAreSequenced() throws Exception
+    {
+        ChronicleWriter otherMockWriter = mock(ChronicleWriter.class);
+        boolean evenThread = Thread.currentThread().getId() % 2 == 0;
+        ChronicleWriter currentShardWriter = evenThread ? mockWriter : otherMockWriter;
+        ChronicleWriter otherShardWriter = evenThread ? otherMockWriter : mockWriter;
+        logger = new ChronicleAuditLogger(Arrays.asList(mockWriter, otherMockWriter), FieldSelector.DEFAULT_FIELDS, false,
+                                          Arrays.asList(new WriteDictionary(), new WriteDictionary()));
+        AuditEntry expectedAuditEntry = likeGenericRecord().build();
+
+        logger.log(expectedAuditEntry);
+        logger.log(expectedAuditEntry);
+
+        ArgumentCaptor<WriteMarshallable> marshallableArgumentCaptor = ArgumentCaptor.forClass(WriteMarshallable.class);
+        verify(currentShardWriter, times(2)).put(marshallableArgumentCaptor.capture());
+        verifyZeroInteractions(otherShardWriter);
+        try (ChronicleQueue chronicle = ChronicleQueueBuilder.single(temporaryFolder.getRoot()).blockSize(1024).build())
+        {
+            ExcerptAppender appender = chronicle.acquireAppender();
+            marshallableArgumentCaptor.getAllValues().forEach(appender::writeDocument);
+
+            ExcerptTailer tailer = chronicle.createTailer();
+            ReadDictionary dictionary = new ReadDictionary();
+            for (long sequence = 0; sequence < 2; sequence++)
+            {
+                AuditRecordReadMarshallable readMarshallable = new AuditRecordReadMarshallable(dictionary);
+                assertThat(tailer.readDocument(readMarshallable)).isTrue();
+                assertThat(readMarshallable.getAuditRecord().getUser()).contains(expectedAuditEntry.getUser());
+                assertThat(readMarshallable.getSequence()).contains(sequence);
+            }
+        }
+    }
+
     @Test
     public void interruptOnPut() throws Exception
     {
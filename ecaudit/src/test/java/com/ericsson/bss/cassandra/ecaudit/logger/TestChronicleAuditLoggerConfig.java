@@ -15,8 +15,10 @@
  */
 package com.ericsson.bss.cassandra.ecaudit.logger;
 
+import java.nio.file.Paths;
 import java.util.Collections;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import com.google.common.collect.ImmutableMap;
 import org.junit.Ignore;
@@ -65,6 +67,39 @@ public class TestChronicleAuditLoggerConfig
         assertThat(config.getRollCycle()).isEqualTo(RollCycles.HOURLY);
     }
 
+    @Test
+    public void testDefaultShards()
+    {
+        Map<String, String> options = ImmutableMap.of("log_dir", "/tmp");
+
+        ChronicleAuditLoggerConfig config = new ChronicleAuditLoggerConfig(options);
+
+        assertThat(config.getShards()).isEqualTo(1);
+    }
+
+    @Test
+    public void testValidShards()
+    {
+        Map<String, String> options = ImmutableMap.of("log_dir", "/tmp",
+                                                      "shards", "8");
+
+        ChronicleAuditLoggerConfig config = new ChronicleAuditLoggerConfig(options);
+
+        assertThat(config.getShards()).isEqualTo(8);
+    }
+
+    @Test
+    public void testInvalidShards()
+    {
+        Map<String, String> options = ImmutableMap.of("log_dir", "/tmp",
+                                                      "shards", "0");
+
+        assertThatExceptionOfType(ConfigurationException.class)
+        .isThrownBy(() -> new ChronicleAuditLoggerConfig(options))
+        .withMessageContaining("Invalid chronicle logger shards")
+        .withMessageContaining("0");
+    }
+
     @Test
     public void testInvalidRollCycle()
     {
@@ -125,6 +160,87 @@ public class TestChronicleAuditLoggerConfig
         assertThat(config.getMaxLogSize()).isEqualTo(1024L);
     }
 
+    @Test
+    public void testDefaultMaxCycleSize()
+    {
+        Map<String, String> options = ImmutableMap.of("log_dir", "/tmp");
+
+        ChronicleAuditLoggerConfig config = new ChronicleAuditLoggerConfig(options);
+
+        assertThat(config.getMaxCycleSize()).isEqualTo(0L);
+    }
+
+    @Test
+    public void testValidMaxCycleSize()
+    {
+        Map<String, String> options = ImmutableMap.of("log_dir", "/tmp",
+                                                      "max_cycle_size", "1048576");
+
+        ChronicleAuditLoggerConfig config = new ChronicleAuditLoggerConfig(options);
+
+        assertThat(config.getMaxCycleSize()).isEqualTo(1048576L);
+    }
+
+    @Test
+    public void testInvalidMaxCycleSizeValue()
+    {
+        Map<String, String> options = ImmutableMap.of("log_dir", "/tmp",
+                                                      "max_cycle_size", "-1");
+
+        assertThatExceptionOfType(ConfigurationException.class)
+        .isThrownBy(() -> new ChronicleAuditLoggerConfig(options))
+        .withMessageContaining("Invalid chronicle logger max cycle size")
+        .withMessageContaining("-1");
+    }
+
+    @Test
+    public void testDefaultRetentionLimits()
+    {
+        Map<String, String> options = ImmutableMap.of("log_dir", "/tmp");
+
+        ChronicleAuditLoggerConfig config = new ChronicleAuditLoggerConfig(options);
+
+        assertThat(config.getMaxLogAgeMillis()).isEqualTo(0L);
+        assertThat(config.getMinFreeSpace()).isEqualTo(0L);
+    }
+
+    @Test
+    public void testValidRetentionLimits()
+    {
+        Map<String, String> options = ImmutableMap.of("log_dir", "/tmp",
+                                                      "max_log_age_hours", "48",
+                                                      "min_free_space", "4096");
+
+        ChronicleAuditLoggerConfig config = new ChronicleAuditLoggerConfig(options);
+
+        assertThat(config.getMaxLogAgeMillis()).isEqualTo(TimeUnit.HOURS.toMillis(48));
+        assertThat(config.getMinFreeSpace()).isEqualTo(4096L);
+    }
+
+    @Test
+    public void testInvalidMaxLogAgeValue()
+    {
+        Map<String, String> options = ImmutableMap.of("log_dir", "/tmp",
+                                                      "max_log_age_hours", "0");
+
+        assertThatExceptionOfType(ConfigurationException.class)
+        .isThrownBy(() -> new ChronicleAuditLoggerConfig(options))
+        .withMessageContaining("Invalid chronicle logger max log age")
+        .withMessageContaining("0");
+    }
+
+    @Test
+    public void testInvalidMinFreeSpaceType()
+    {
+        Map<String, String> options = ImmutableMap.of("log_dir", "/tmp",
+                                                      "min_free_space", "lots");
+
+        assertThatExceptionOfType(ConfigurationException.class)
+        .isThrownBy(() -> new ChronicleAuditLoggerConfig(options))
+        .withMessageContaining("Invalid chronicle logger min free space")
+        .withMessageContaining("lots");
+    }
+
     @Test
     public void testDefaultFieldsConfig()
     {
@@ -164,6 +280,19 @@ public class TestChronicleAuditLoggerConfig
         assertThat(fields.isSelected(Field.TIMESTAMP)).isFalse();
     }
 
+    @Test
+    public void testBoundValuesFieldConfig()
+    {
+        Map<String, String> options = ImmutableMap.of("log_dir", "/tmp",
+                                                      "fields", "OPERATION, BOUND_VALUES");
+
+        ChronicleAuditLoggerConfig config = new ChronicleAuditLoggerConfig(options);
+
+        FieldSelector fields = config.getFields();
+        assertThat(fields.isSelected(Field.OPERATION)).isTrue();
+        assertThat(fields.isSelected(Field.BOUND_VALUES)).isTrue();
+    }
+
     @Test
     public void testInvalidFieldsConfig()
     {
@@ -175,4 +304,451 @@ public class TestChronicleAuditLoggerConfig
         .withMessageContaining("fields")
         .withMessageContaining("ErrorZ");
     }
+
+    @Test
+    public void testDefaultCompactBatch()
+    {
+        Map<String, String> options = ImmutableMap.of("log_dir", "/tmp");
+
+        ChronicleAuditLoggerConfig config = new ChronicleAuditLoggerConfig(options);
+
+        assertThat(config.isCompactBatch()).isFalse();
+    }
+
+    @Test
+    public void testValidCompactBatch()
+    {
+        Map<String, String> options = ImmutableMap.of("log_dir", "/tmp",
+                                                      "compact_batch", "true");
+
+        ChronicleAuditLoggerConfig config = new ChronicleAuditLoggerConfig(options);
+
+        assertThat(config.isCompactBatch()).isTrue();
+    }
+
+    @Test
+    public void testInvalidCompactBatch()
+    {
+        Map<String, String> options = ImmutableMap.of("log_dir", "/tmp",
+                                                      "compact_batch", "yes");
+
+        assertThatExceptionOfType(ConfigurationException.class)
+        .isThrownBy(() -> new ChronicleAuditLoggerConfig(options))
+        .withMessageContaining("compact batch")
+        .withMessageContaining("yes");
+    }
+
+    @Test
+    public void testDefaultCompression()
+    {
+        Map<String, String> options = ImmutableMap.of("log_dir", "/tmp");
+
+        ChronicleAuditLoggerConfig config = new ChronicleAuditLoggerConfig(options);
+
+        assertThat(config.isCompression()).isFalse();
+    }
+
+    @Test
+    public void testCompression()
+    {
+        Map<String, String> options = ImmutableMap.of("log_dir", "/tmp",
+                                                      "compression", "true");
+
+        ChronicleAuditLoggerConfig config = new ChronicleAuditLoggerConfig(options);
+
+        assertThat(config.isCompression()).isTrue();
+    }
+
+    @Test
+    public void testInvalidCompression()
+    {
+        Map<String, String> options = ImmutableMap.of("log_dir", "/tmp",
+                                                      "compression", "gzip");
+
+        assertThatExceptionOfType(ConfigurationException.class)
+        .isThrownBy(() -> new ChronicleAuditLoggerConfig(options))
+        .withMessageContaining("compression")
+        .withMessageContaining("gzip");
+    }
+
+    @Test
+    public void testDefaultIndex()
+    {
+        Map<String, String> options = ImmutableMap.of("log_dir", "/tmp");
+
+        ChronicleAuditLoggerConfig config = new ChronicleAuditLoggerConfig(options);
+
+        assertThat(config.isIndex()).isFalse();
+    }
+
+    @Test
+    public void testIndex()
+    {
+        Map<String, String> options = ImmutableMap.of("log_dir", "/tmp",
+                                                      "index", "true");
+
+        ChronicleAuditLoggerConfig config = new ChronicleAuditLoggerConfig(options);
+
+        assertThat(config.isIndex()).isTrue();
+    }
+
+    @Test
+    public void testInvalidIndex()
+    {
+        Map<String, String> options = ImmutableMap.of("log_dir", "/tmp",
+                                                      "index", "always");
+
+        assertThatExceptionOfType(ConfigurationException.class)
+        .isThrownBy(() -> new ChronicleAuditLoggerConfig(options))
+        .withMessageContaining("index")
+        .withMessageContaining("always");
+    }
+
+    @Test
+    public void testDefaultPretouch()
+    {
+        Map<String, String> options = ImmutableMap.of("log_dir", "/tmp");
+
+        ChronicleAuditLoggerConfig config = new ChronicleAuditLoggerConfig(options);
+
+        assertThat(config.isPretouch()).isFalse();
+    }
+
+    @Test
+    public void testPretouch()
+    {
+        Map<String, String> options = ImmutableMap.of("log_dir", "/tmp",
+                                                      "pretouch", "true");
+
+        ChronicleAuditLoggerConfig config = new ChronicleAuditLoggerConfig(options);
+
+        assertThat(config.isPretouch()).isTrue();
+    }
+
+    @Test
+    public void testInvalidPretouch()
+    {
+        Map<String, String> options = ImmutableMap.of("log_dir", "/tmp",
+                                                      "pretouch", "always");
+
+        assertThatExceptionOfType(ConfigurationException.class)
+        .isThrownBy(() -> new ChronicleAuditLoggerConfig(options))
+        .withMessageContaining("pretouch")
+        .withMessageContaining("always");
+    }
+
+    @Test
+    public void testDefaultDictionaryEncoding()
+    {
+        Map<String, String> options = ImmutableMap.of("log_dir", "/tmp");
+
+        ChronicleAuditLoggerConfig config = new ChronicleAuditLoggerConfig(options);
+
+        assertThat(config.isDictionaryEncoding()).isFalse();
+    }
+
+    @Test
+    public void testDictionaryEncoding()
+    {
+        Map<String, String> options = ImmutableMap.of("log_dir", "/tmp",
+                                                      "dictionary_encoding", "true");
+
+        ChronicleAuditLoggerConfig config = new ChronicleAuditLoggerConfig(options);
+
+        assertThat(config.isDictionaryEncoding()).isTrue();
+    }
+
+    @Test
+    public void testInvalidDictionaryEncoding()
+    {
+        Map<String, String> options = ImmutableMap.of("log_dir", "/tmp",
+                                                      "dictionary_encoding", "maybe");
+
+        assertThatExceptionOfType(ConfigurationException.class)
+        .isThrownBy(() -> new ChronicleAuditLoggerConfig(options))
+        .withMessageContaining("dictionary encoding")
+        .withMessageContaining("maybe");
+    }
+
+    @Test
+    public void testDefaultCompactLayout()
+    {
+        Map<String, String> options = ImmutableMap.of("log_dir", "/tmp");
+
+        ChronicleAuditLoggerConfig config = new ChronicleAuditLoggerConfig(options);
+
+        assertThat(config.isCompactLayout()).isFalse();
+    }
+
+    @Test
+    public void testCompactLayout()
+    {
+        Map<String, String> options = ImmutableMap.of("log_dir", "/tmp",
+                                                      "dictionary_encoding", "true",
+                                                      "compact_layout", "true");
+
+        ChronicleAuditLoggerConfig config = new ChronicleAuditLoggerConfig(options);
+
+        assertThat(config.isCompactLayout()).isTrue();
+    }
+
+    @Test
+    public void testCompactLayoutWithoutDictionaryEncoding()
+    {
+        Map<String, String> options = ImmutableMap.of("log_dir", "/tmp",
+                                                      "compact_layout", "true");
+
+        assertThatExceptionOfType(ConfigurationException.class)
+        .isThrownBy(() -> new ChronicleAuditLoggerConfig(options))
+        .withMessageContaining("compact layout requires dictionary encoding");
+    }
+
+    @Test
+    public void testDefaultWriterQueue()
+    {
+        Map<String, String> options = ImmutableMap.of("log_dir", "/tmp");
+
+        ChronicleAuditLoggerConfig config = new ChronicleAuditLoggerConfig(options);
+
+        assertThat(config.getQueueSize()).isEqualTo(1024);
+        assertThat(config.getWaitStrategy()).isEqualTo(WriterWaitStrategy.PARK);
+    }
+
+    @Test
+    public void testValidWriterQueue()
+    {
+        Map<String, String> options = ImmutableMap.of("log_dir", "/tmp",
+                                                      "writer_queue_size", "4096",
+                                                      "writer_wait_strategy", "BUSY_SPIN");
+
+        ChronicleAuditLoggerConfig config = new ChronicleAuditLoggerConfig(options);
+
+        assertThat(config.getQueueSize()).isEqualTo(4096);
+        assertThat(config.getWaitStrategy()).isEqualTo(WriterWaitStrategy.BUSY_SPIN);
+    }
+
+    @Test
+    public void testInvalidWriterQueueSizeType()
+    {
+        Map<String, String> options = ImmutableMap.of("log_dir", "/tmp",
+                                                      "writer_queue_size", "many");
+
+        assertThatExceptionOfType(ConfigurationException.class)
+        .isThrownBy(() -> new ChronicleAuditLoggerConfig(options))
+        .withMessageContaining("writer queue size")
+        .withMessageContaining("many");
+    }
+
+    @Test
+    public void testInvalidWriterQueueSizeValue()
+    {
+        Map<String, String> options = ImmutableMap.of("log_dir", "/tmp",
+                                                      "writer_queue_size", "0");
+
+        assertThatExceptionOfType(ConfigurationException.class)
+        .isThrownBy(() -> new ChronicleAuditLoggerConfig(options))
+        .withMessageContaining("writer queue size");
+    }
+
+    @Test
+    public void testInvalidWriterWaitStrategy()
+    {
+        Map<String, String> options = ImmutableMap.of("log_dir", "/tmp",
+                                                      "writer_wait_strategy", "SLEEP");
+
+        assertThatExceptionOfType(ConfigurationException.class)
+        .isThrownBy(() -> new ChronicleAuditLoggerConfig(options))
+        .withMessageContaining("writer wait strategy")
+        .withMessageContaining("SLEEP");
+    }
+
+    @Test
+    public void testDefaultWriteMode()
+    {
+        Map<String, String> options = ImmutableMap.of("log_dir", "/tmp");
+
+        ChronicleAuditLoggerConfig config = new ChronicleAuditLoggerConfig(options);
+
+        assertThat(config.getWriteMode()).isEqualTo(WriteMode.async);
+    }
+
+    @Test
+    public void testValidWriteMode()
+    {
+        Map<String, String> options = ImmutableMap.of("log_dir", "/tmp",
+                                                      "write_mode", "direct");
+
+        ChronicleAuditLoggerConfig config = new ChronicleAuditLoggerConfig(options);
+
+        assertThat(config.getWriteMode()).isEqualTo(WriteMode.direct);
+    }
+
+    @Test
+    public void testInvalidWriteMode()
+    {
+        Map<String, String> options = ImmutableMap.of("log_dir", "/tmp",
+                                                      "write_mode", "sync");
+
+        assertThatExceptionOfType(ConfigurationException.class)
+        .isThrownBy(() -> new ChronicleAuditLoggerConfig(options))
+        .withMessageContaining("write mode")
+        .withMessageContaining("sync");
+    }
+
+    @Test
+    public void testDefaultSpill()
+    {
+        Map<String, String> options = ImmutableMap.of("log_dir", "/tmp");
+
+        ChronicleAuditLoggerConfig config = new ChronicleAuditLoggerConfig(options);
+
+        assertThat(config.getSpillPath()).isEmpty();
+        assertThat(config.getMaxSpillSize()).isEqualTo(1024L * 1024L * 1024L);
+    }
+
+    @Test
+    public void testValidSpill()
+    {
+        Map<String, String> options = ImmutableMap.of("log_dir", "/tmp",
+                                                      "spill_dir", "/spill",
+                                                      "max_spill_size", "1048576");
+
+        ChronicleAuditLoggerConfig config = new ChronicleAuditLoggerConfig(options);
+
+        assertThat(config.getSpillPath()).contains(Paths.get("/spill"));
+        assertThat(config.getMaxSpillSize()).isEqualTo(1048576L);
+    }
+
+    @Test
+    public void testInvalidMaxSpillSize()
+    {
+        Map<String, String> options = ImmutableMap.of("log_dir", "/tmp",
+                                                      "spill_dir", "/spill",
+                                                      "max_spill_size", "-1");
+
+        assertThatExceptionOfType(ConfigurationException.class)
+        .isThrownBy(() -> new ChronicleAuditLoggerConfig(options))
+        .withMessageContaining("max spill size")
+        .withMessageContaining("-1");
+    }
+
+    @Test
+    public void testSpillInDirectWriteMode()
+    {
+        Map<String, String> options = ImmutableMap.of("log_dir", "/tmp",
+                                                      "write_mode", "direct",
+                                                      "spill_dir", "/spill");
+
+        assertThatExceptionOfType(ConfigurationException.class)
+        .isThrownBy(() -> new ChronicleAuditLoggerConfig(options))
+        .withMessageContaining("spill")
+        .withMessageContaining("async");
+    }
+
+    @Test
+    public void testDefaultSync()
+    {
+        Map<String, String> options = ImmutableMap.of("log_dir", "/tmp");
+
+        ChronicleAuditLoggerConfig config = new ChronicleAuditLoggerConfig(options);
+
+        assertThat(config.getSyncPolicy()).isEqualTo(SyncPolicy.NONE);
+        assertThat(config.getSyncRecords()).isEqualTo(100);
+        assertThat(config.getSyncInterval()).isEqualTo(100L);
+        assertThat(config.isDurableAck()).isFalse();
+    }
+
+    @Test
+    public void testValidSync()
+    {
+        Map<String, String> options = ImmutableMap.of("log_dir", "/tmp",
+                                                      "sync_policy", "INTERVAL",
+                                                      "sync_records", "10",
+                                                      "sync_interval_ms", "20",
+                                                      "durable_ack", "true");
+
+        ChronicleAuditLoggerConfig config = new ChronicleAuditLoggerConfig(options);
+
+        assertThat(config.getSyncPolicy()).isEqualTo(SyncPolicy.INTERVAL);
+        assertThat(config.getSyncRecords()).isEqualTo(10);
+        assertThat(config.getSyncInterval()).isEqualTo(20L);
+        assertThat(config.isDurableAck()).isTrue();
+    }
+
+    @Test
+    public void testInvalidSyncPolicy()
+    {
+        Map<String, String> options = ImmutableMap.of("log_dir", "/tmp",
+                                                      "sync_policy", "ALWAYS");
+
+        assertThatExceptionOfType(ConfigurationException.class)
+        .isThrownBy(() -> new ChronicleAuditLoggerConfig(options))
+        .withMessageContaining("sync policy")
+        .withMessageContaining("ALWAYS");
+    }
+
+    @Test
+    public void testInvalidSyncRecords()
+    {
+        Map<String, String> options = ImmutableMap.of("log_dir", "/tmp",
+                                                      "sync_policy", "RECORDS",
+                                                      "sync_records", "0");
+
+        assertThatExceptionOfType(ConfigurationException.class)
+        .isThrownBy(() -> new ChronicleAuditLoggerConfig(options))
+        .withMessageContaining("sync records")
+        .withMessageContaining("0");
+    }
+
+    @Test
+    public void testInvalidSyncInterval()
+    {
+        Map<String, String> options = ImmutableMap.of("log_dir", "/tmp",
+                                                      "sync_policy", "INTERVAL",
+                                                      "sync_interval_ms", "-5");
+
+        assertThatExceptionOfType(ConfigurationException.class)
+        .isThrownBy(() -> new ChronicleAuditLoggerConfig(options))
+        .withMessageContaining("sync interval")
+        .withMessageContaining("-5");
+    }
+
+    @Test
+    public void testSyncPolicyInDirectWriteMode()
+    {
+        Map<String, String> options = ImmutableMap.of("log_dir", "/tmp",
+                                                      "write_mode", "direct",
+                                                      "sync_policy", "RECORDS");
+
+        assertThatExceptionOfType(ConfigurationException.class)
+        .isThrownBy(() -> new ChronicleAuditLoggerConfig(options))
+        .withMessageContaining("sync policy")
+        .withMessageContaining("async");
+    }
+
+    @Test
+    public void testDurableAckWithoutSyncPolicy()
+    {
+        Map<String, String> options = ImmutableMap.of("log_dir", "/tmp",
+                                                      "durable_ack", "true");
+
+        assertThatExceptionOfType(ConfigurationException.class)
+        .isThrownBy(() -> new ChronicleAuditLoggerConfig(options))
+        .withMessageContaining("durable ack")
+        .withMessageContaining("sync policy");
+    }
+
+    @Test
+    public void testDurableAckWithSpill()
+    {
+        Map<String, String> options = ImmutableMap.of("log_dir", "/tmp",
+                                                      "sync_policy", "RECORDS",
+                                                      "spill_dir", "/spill",
+                                                      "durable_ack", "true");
+
+        assertThatExceptionOfType(ConfigurationException.class)
+        .isThrownBy(() -> new ChronicleAuditLoggerConfig(options))
+        .withMessageContaining("durable ack")
+        .withMessageContaining("spill");
+    }
 }
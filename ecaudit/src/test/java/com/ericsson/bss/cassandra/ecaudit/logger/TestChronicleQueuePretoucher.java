@@ -0,0 +1,127 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.logger;
+
+import java.io.File;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+
+import net.openhft.chronicle.core.time.SetTimeProvider;
+import net.openhft.chronicle.queue.ChronicleQueueBuilder;
+import net.openhft.chronicle.queue.ExcerptTailer;
+import net.openhft.chronicle.queue.RollCycles;
+import net.openhft.chronicle.queue.impl.single.SingleChronicleQueue;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.StrictStubs.class)
+public class TestChronicleQueuePretoucher
+{
+    private static final long ROLL_NANOS = TimeUnit.MINUTES.toNanos(10);
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Mock
+    private ScheduledExecutorService mockExecutor;
+
+    private SetTimeProvider timeProvider;
+    private SingleChronicleQueue chronicle;
+    private ChronicleQueuePretoucher pretoucher;
+
+    @Before
+    public void before()
+    {
+        timeProvider = new SetTimeProvider(ROLL_NANOS - TimeUnit.MILLISECONDS.toNanos(ChronicleQueuePretoucher.PREROLL_MILLIS * 5));
+        chronicle = ChronicleQueueBuilder.single(temporaryFolder.getRoot())
+                                         .rollCycle(RollCycles.MINUTELY)
+                                         .timeProvider(timeProvider)
+                                         .build();
+        pretoucher = new ChronicleQueuePretoucher(chronicle, ChronicleQueuePretoucher.nextCycleViewOf(chronicle), mockExecutor);
+    }
+
+    @After
+    public void after()
+    {
+        chronicle.close();
+    }
+
+    @Test
+    public void testCurrentCycleIsCreated()
+    {
+        pretoucher.pretouch();
+
+        assertThat(cycleFiles()).hasSize(1);
+    }
+
+    @Test
+    public void testNextCycleIsCreatedBeforeRoll()
+    {
+        chronicle.acquireAppender().writeText("first");
+        pretoucher.pretouch();
+        assertThat(cycleFiles()).hasSize(1);
+
+        timeProvider.advanceMillis(ChronicleQueuePretoucher.PREROLL_MILLIS * 4);
+        pretoucher.pretouch();
+        assertThat(cycleFiles()).hasSize(2);
+    }
+
+    @Test
+    public void testRecordsAreReadInOrderAcrossPrecreatedCycle()
+    {
+        timeProvider.advanceMillis(ChronicleQueuePretoucher.PREROLL_MILLIS * 4);
+        chronicle.acquireAppender().writeText("first");
+        pretoucher.pretouch();
+        ExcerptTailer tailer = chronicle.createTailer();
+        assertThat(tailer.readText()).isEqualTo("first");
+        assertThat(tailer.readText()).isNull();
+
+        chronicle.acquireAppender().writeText("second");
+        timeProvider.advanceMillis(ChronicleQueuePretoucher.PREROLL_MILLIS);
+        chronicle.acquireAppender().writeText("third");
+
+        assertThat(tailer.readText()).isEqualTo("second");
+        assertThat(tailer.readText()).isEqualTo("third");
+    }
+
+    @Test
+    public void testCloseStopsPretoucher() throws Exception
+    {
+        when(mockExecutor.awaitTermination(anyLong(), eq(TimeUnit.MILLISECONDS))).thenReturn(true);
+
+        pretoucher.close();
+
+        verify(mockExecutor).shutdownNow();
+    }
+
+    private File[] cycleFiles()
+    {
+        return temporaryFolder.getRoot().listFiles((dir, name) -> name.endsWith(SingleChronicleQueue.SUFFIX));
+    }
+}
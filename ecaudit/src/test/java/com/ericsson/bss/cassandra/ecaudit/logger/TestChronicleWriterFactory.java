@@ -0,0 +1,102 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.logger;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.List;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.ericsson.bss.cassandra.ecaudit.common.chronicle.QueueShards;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TestChronicleWriterFactory
+{
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private List<ChronicleWriter> writers;
+
+    @After
+    public void after()
+    {
+        writers.forEach(ChronicleWriter::close);
+    }
+
+    @Test
+    public void testSingleShardIsWrittenToLogDirectory() throws Exception
+    {
+        Path logPath = temporaryFolder.getRoot().toPath();
+
+        writers = ChronicleWriterFactory.createShards(new ChronicleAuditLoggerConfig(ImmutableMap.of("log_dir", logPath.toString(),
+                                                                                                     "write_mode", "direct")));
+        writers.get(0).put(wire -> wire.write("text").text("record"));
+
+        assertThat(writers).hasSize(1);
+        assertThat(QueueShards.listShards(logPath)).isEmpty();
+        assertThat(cycleFilesIn(logPath)).hasSize(1);
+    }
+
+    @Test
+    public void testShardsAreWrittenToSubDirectories() throws Exception
+    {
+        Path logPath = temporaryFolder.getRoot().toPath();
+
+        writers = ChronicleWriterFactory.createShards(new ChronicleAuditLoggerConfig(ImmutableMap.of("log_dir", logPath.toString(),
+                                                                                                     "write_mode", "direct",
+                                                                                                     "shards", "3")));
+        for (ChronicleWriter writer : writers)
+        {
+            writer.put(wire -> wire.write("text").text("record"));
+        }
+
+        assertThat(writers).hasSize(3);
+        assertThat(QueueShards.listShards(logPath)).containsExactly(QueueShards.shardPath(logPath, 0),
+                                                                    QueueShards.shardPath(logPath, 1),
+                                                                    QueueShards.shardPath(logPath, 2));
+        assertThat(cycleFilesIn(logPath)).isEmpty();
+        for (Path shardPath : QueueShards.listShards(logPath))
+        {
+            assertThat(cycleFilesIn(shardPath)).hasSize(1);
+        }
+    }
+
+    @Test
+    public void testShardsHaveSpillFilesOfTheirOwn() throws Exception
+    {
+        Path logPath = temporaryFolder.newFolder().toPath();
+        Path spillPath = temporaryFolder.newFolder().toPath();
+
+        writers = ChronicleWriterFactory.createShards(new ChronicleAuditLoggerConfig(ImmutableMap.of("log_dir", logPath.toString(),
+                                                                                                     "spill_dir", spillPath.toString(),
+                                                                                                     "shards", "2")));
+
+        assertThat(writers).hasSize(2).allMatch(AsyncChronicleWriter.class::isInstance);
+        assertThat(QueueShards.listShards(spillPath)).containsExactly(QueueShards.shardPath(spillPath, 0),
+                                                                      QueueShards.shardPath(spillPath, 1));
+    }
+
+    private static File[] cycleFilesIn(Path directory)
+    {
+        return directory.toFile().listFiles((dir, name) -> name.endsWith(".cq4"));
+    }
+}
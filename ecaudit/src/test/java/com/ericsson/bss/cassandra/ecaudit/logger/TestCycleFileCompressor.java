@@ -0,0 +1,81 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.logger;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.function.BiConsumer;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import com.ericsson.bss.cassandra.ecaudit.common.chronicle.CycleArchive;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+@RunWith(MockitoJUnitRunner.StrictStubs.class)
+public class TestCycleFileCompressor
+{
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Mock
+    private BiConsumer<File, File> onCompressed;
+
+    private final CycleFileCompressor compressor = new CycleFileCompressor(Runnable::run);
+
+    @Test
+    public void testCompress() throws Exception
+    {
+        File cycleFile = Files.write(temporaryFolder.getRoot().toPath().resolve("20200101.cq4"), new byte[1000]).toFile();
+
+        compressor.compress(cycleFile, onCompressed);
+
+        File archive = CycleArchive.archiveOf(cycleFile.toPath()).toFile();
+        verify(onCompressed).accept(cycleFile, archive);
+        assertThat(archive).exists();
+        assertThat(cycleFile).exists();
+    }
+
+    @Test
+    public void testMissingFileIsSkipped()
+    {
+        File cycleFile = new File(temporaryFolder.getRoot(), "20200101.cq4");
+
+        compressor.compress(cycleFile, onCompressed);
+
+        verify(onCompressed, never()).accept(any(), any());
+        assertThat(temporaryFolder.getRoot().list()).isEmpty();
+    }
+
+    @Test
+    public void testCompressInBackground() throws Exception
+    {
+        File cycleFile = Files.write(temporaryFolder.getRoot().toPath().resolve("20200101.cq4"), new byte[1000]).toFile();
+
+        new CycleFileCompressor().compress(cycleFile, onCompressed);
+
+        verify(onCompressed, timeout(5000)).accept(cycleFile, CycleArchive.archiveOf(cycleFile.toPath()).toFile());
+    }
+}
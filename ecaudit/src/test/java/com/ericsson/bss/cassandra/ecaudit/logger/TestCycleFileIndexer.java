@@ -0,0 +1,149 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.logger;
+
+import java.io.File;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import com.ericsson.bss.cassandra.ecaudit.common.chronicle.AuditRecordWriteMarshallable;
+import com.ericsson.bss.cassandra.ecaudit.common.chronicle.CycleIndex;
+import com.ericsson.bss.cassandra.ecaudit.common.chronicle.WriteDictionary;
+import com.ericsson.bss.cassandra.ecaudit.common.record.AuditRecord;
+import com.ericsson.bss.cassandra.ecaudit.common.record.SimpleAuditOperation;
+import com.ericsson.bss.cassandra.ecaudit.common.record.Status;
+import net.openhft.chronicle.core.time.SetTimeProvider;
+import net.openhft.chronicle.queue.ChronicleQueue;
+import net.openhft.chronicle.queue.ChronicleQueueBuilder;
+import net.openhft.chronicle.queue.ExcerptAppender;
+import net.openhft.chronicle.queue.RollCycles;
+
+import static com.ericsson.bss.cassandra.ecaudit.common.chronicle.FieldSelector.DEFAULT_FIELDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.StrictStubs.class)
+public class TestCycleFileIndexer
+{
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Mock
+    private Consumer<File> onIndexed;
+
+    private final CycleFileIndexer indexer = new CycleFileIndexer(RollCycles.HOURLY, Runnable::run);
+
+    @Test
+    public void testIndexReleasedCycle() throws Exception
+    {
+        File directory = temporaryFolder.newFolder();
+        List<File> cycleFiles = givenCycles(directory, Arrays.asList(givenRecord("john", 1_000, "SELECT * FROM ks.a"),
+                                                                      givenRecord("jane", 2_000, "SELECT * FROM ks.b"),
+                                                                      givenRecord("john", 3_000, "SELECT * FROM ks.a")),
+                                            Arrays.asList(givenRecord("john", 4_000, "SELECT * FROM ks.c")));
+
+        indexer.index(cycleFiles.get(0), onIndexed);
+
+        verify(onIndexed).accept(cycleFiles.get(0));
+        CycleIndex index = CycleIndex.read(CycleIndex.indexOf(cycleFiles.get(0).toPath()));
+        long firstIndex = RollCycles.HOURLY.toIndex(index.cycle(), 0);
+        assertThat(index.cycle()).isEqualTo(CycleIndex.cycleOf(cycleFiles.get(0), RollCycles.HOURLY));
+        assertThat(index.recordCount()).isEqualTo(3);
+        assertThat(index.lastIndex()).isEqualTo(firstIndex + 2);
+        assertThat(index.recordsOfUser("john")).containsExactly(firstIndex, firstIndex + 2);
+        assertThat(index.recordsOfTable("ks.b")).containsExactly(firstIndex + 1);
+        assertThat(index.recordsOfTable("ks.c")).isEmpty();
+        assertThat(index.recordsWithDefinitions()).containsExactly(firstIndex, firstIndex + 1);
+        assertThat(index.minTimestamp()).isEqualTo(1_000);
+        assertThat(index.maxTimestamp()).isEqualTo(3_000);
+    }
+
+    @Test
+    public void testMissingFileIsSkipped()
+    {
+        File cycleFile = new File(temporaryFolder.getRoot(), "20200101-12.cq4");
+
+        indexer.index(cycleFile, onIndexed);
+
+        verify(onIndexed).accept(cycleFile);
+        assertThat(temporaryFolder.getRoot().list()).isEmpty();
+    }
+
+    @Test
+    public void testIndexInBackground() throws Exception
+    {
+        File directory = temporaryFolder.newFolder();
+        List<File> cycleFiles = givenCycles(directory, Arrays.asList(givenRecord("john", 1_000, "SELECT * FROM ks.a")),
+                                            Arrays.asList(givenRecord("john", 2_000, "SELECT * FROM ks.a")));
+
+        new CycleFileIndexer(RollCycles.HOURLY).index(cycleFiles.get(0), onIndexed);
+
+        verify(onIndexed, timeout(5000)).accept(cycleFiles.get(0));
+        assertThat(CycleIndex.indexOf(cycleFiles.get(0).toPath())).exists();
+    }
+
+    @SafeVarargs
+    private static List<File> givenCycles(File directory, List<AuditRecord>... cycles)
+    {
+        SetTimeProvider timeProvider = new SetTimeProvider(TimeUnit.DAYS.toNanos(18_000));
+        WriteDictionary dictionary = new WriteDictionary();
+        try (ChronicleQueue queue = ChronicleQueueBuilder.single(directory)
+                                                         .rollCycle(RollCycles.HOURLY)
+                                                         .timeProvider(timeProvider)
+                                                         .blockSize(1024)
+                                                         .build())
+        {
+            ExcerptAppender appender = queue.acquireAppender();
+            for (List<AuditRecord> records : cycles)
+            {
+                records.forEach(record -> appender.writeDocument(new AuditRecordWriteMarshallable(record, DEFAULT_FIELDS, dictionary)));
+                timeProvider.advanceMillis(TimeUnit.HOURS.toMillis(1));
+            }
+        }
+
+        File[] cycleFiles = directory.listFiles((dir, name) -> name.endsWith(".cq4"));
+        Arrays.sort(cycleFiles);
+        return Arrays.asList(cycleFiles);
+    }
+
+    private static AuditRecord givenRecord(String user, long timestamp, String operation) throws Exception
+    {
+        AuditRecord auditRecord = mock(AuditRecord.class);
+        when(auditRecord.getTimestamp()).thenReturn(timestamp);
+        when(auditRecord.getClientAddress()).thenReturn(new InetSocketAddress(InetAddress.getByName("1.2.3.4"), 555));
+        when(auditRecord.getCoordinatorAddress()).thenReturn(InetAddress.getByName("5.6.7.8"));
+        when(auditRecord.getUser()).thenReturn(user);
+        when(auditRecord.getBatchId()).thenReturn(Optional.empty());
+        when(auditRecord.getStatus()).thenReturn(Status.ATTEMPT);
+        when(auditRecord.getOperation()).thenReturn(new SimpleAuditOperation(operation));
+        return auditRecord;
+    }
+}
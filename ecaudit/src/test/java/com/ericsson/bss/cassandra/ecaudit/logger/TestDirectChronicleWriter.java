@@ -1,5 +1,5 @@
 /*
- * Copyright 2019 Telefonaktiebolaget LM Ericsson
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -26,18 +26,15 @@ import net.openhft.chronicle.wire.WriteMarshallable;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
-import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
-import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
-import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.StrictStubs.class)
-public class TestChronicleWriter
+public class TestDirectChronicleWriter
 {
     @Mock
     private ChronicleQueue mockChronicleQueue;
@@ -48,13 +45,12 @@ public class TestChronicleWriter
     @Mock
     private WriteMarshallable marshallable;
 
-    private ChronicleWriter writer;
+    private DirectChronicleWriter writer;
 
     @Before
     public void before()
     {
-        when(mockChronicleQueue.acquireAppender()).thenReturn(mockAppender);
-        writer = new ChronicleWriter(mockChronicleQueue);
+        writer = new DirectChronicleWriter(mockChronicleQueue);
     }
 
     @After
@@ -65,60 +61,28 @@ public class TestChronicleWriter
     }
 
     @Test
-    public void putOneAndClose() throws Exception
+    public void putWritesOnCallingThread()
     {
-        writer.put(marshallable);
+        when(mockChronicleQueue.acquireAppender()).thenReturn(mockAppender);
 
-        Thread.sleep(50);
-        writer.close();
+        writer.put(marshallable);
+        writer.put(marshallable);
 
-        verify(mockAppender).writeDocument(eq(marshallable));
-        verify(mockChronicleQueue).close();
+        verify(mockChronicleQueue, times(2)).acquireAppender();
+        verify(mockAppender, times(2)).writeDocument(eq(marshallable));
     }
 
     @Test
-    public void closeAndPutOne() throws Exception
+    public void closeAndPutOne()
     {
-        new Thread(writer::close).start();
+        writer.close();
 
-        Thread.sleep(100);
         assertThatIllegalStateException()
         .isThrownBy(() -> writer.put(marshallable));
 
         verify(mockChronicleQueue).close();
     }
 
-    @Test
-    public void putOneAndInterruptOnClose() throws Exception
-    {
-        Thread testThread = Thread.currentThread();
-        doAnswer(invocation -> {
-            try
-            {
-                Thread.sleep(100);
-            }
-            catch (InterruptedException ignored)
-            {
-                testThread.interrupt();
-                Thread.sleep(100);
-                Thread.currentThread().interrupt();
-            }
-            return null;
-        }).when(mockAppender).writeDocument(any(WriteMarshallable.class));
-
-        writer.put(marshallable);
-        Thread.sleep(50);
-
-        writer.close();
-
-        verify(mockAppender).writeDocument(eq(marshallable));
-        verify(mockChronicleQueue).close();
-        assertThat(Thread.currentThread().isInterrupted()).isTrue();
-
-        // Clear interrupt flag
-        Thread.interrupted();
-    }
-
     @Test
     public void closeQueueOnceOnly()
     {
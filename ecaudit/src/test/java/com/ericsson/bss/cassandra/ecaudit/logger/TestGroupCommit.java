@@ -0,0 +1,192 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.logger;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.ericsson.bss.cassandra.ecaudit.facade.CassandraAuditException;
+import com.ericsson.bss.cassandra.ecaudit.logger.GroupCommit.DurableRecord;
+import com.ericsson.bss.cassandra.ecaudit.logger.GroupCommit.SyncAction;
+import com.ericsson.bss.cassandra.ecaudit.metrics.ChronicleWriterMetrics;
+import net.openhft.chronicle.wire.WireOut;
+import net.openhft.chronicle.wire.WriteMarshallable;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+@RunWith(MockitoJUnitRunner.StrictStubs.class)
+public class TestGroupCommit
+{
+    @Mock
+    private SyncAction mockSyncAction;
+
+    @Mock
+    private ChronicleWriterMetrics mockMetrics;
+
+    @Mock
+    private WriteMarshallable mockRecord;
+
+    @Mock
+    private WireOut mockWire;
+
+    @Test
+    public void testNoneNeverSyncs() throws Exception
+    {
+        GroupCommit groupCommit = givenGroupCommit(SyncPolicy.NONE, 1, 0);
+
+        groupCommit.written();
+        groupCommit.maybeSync(true);
+        groupCommit.sync();
+
+        assertThat(groupCommit.nanosUntilDue()).isEqualTo(Long.MAX_VALUE);
+        verifyZeroInteractions(mockSyncAction);
+        verifyZeroInteractions(mockMetrics);
+    }
+
+    @Test
+    public void testRecordsSyncsFullGroup() throws Exception
+    {
+        GroupCommit groupCommit = givenGroupCommit(SyncPolicy.RECORDS, 3, 0);
+
+        groupCommit.written();
+        groupCommit.written();
+        groupCommit.maybeSync(false);
+        verify(mockSyncAction, never()).sync();
+
+        groupCommit.written();
+        verify(mockSyncAction).sync();
+        verify(mockMetrics).syncRecords(anyLong(), eq(TimeUnit.NANOSECONDS), eq(3));
+    }
+
+    @Test
+    public void testRecordsSyncsPartialGroupWhenIdle() throws Exception
+    {
+        GroupCommit groupCommit = givenGroupCommit(SyncPolicy.RECORDS, 3, 0);
+
+        groupCommit.written();
+        groupCommit.maybeSync(true);
+
+        verify(mockSyncAction).sync();
+        verify(mockMetrics).syncRecords(anyLong(), eq(TimeUnit.NANOSECONDS), eq(1));
+    }
+
+    @Test
+    public void testIntervalSyncsWhenDue() throws Exception
+    {
+        GroupCommit groupCommit = givenGroupCommit(SyncPolicy.INTERVAL, 1, 20);
+
+        groupCommit.written();
+        groupCommit.written();
+        groupCommit.maybeSync(true);
+        verify(mockSyncAction, never()).sync();
+        assertThat(groupCommit.nanosUntilDue()).isPositive().isLessThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(20));
+
+        Thread.sleep(30);
+        assertThat(groupCommit.nanosUntilDue()).isZero();
+        groupCommit.maybeSync(false);
+
+        verify(mockSyncAction).sync();
+        verify(mockMetrics).syncRecords(anyLong(), eq(TimeUnit.NANOSECONDS), eq(2));
+        assertThat(groupCommit.nanosUntilDue()).isEqualTo(Long.MAX_VALUE);
+    }
+
+    @Test
+    public void testNothingToSync()
+    {
+        GroupCommit groupCommit = givenGroupCommit(SyncPolicy.INTERVAL, 1, 0);
+
+        groupCommit.maybeSync(true);
+        groupCommit.sync();
+
+        verifyZeroInteractions(mockSyncAction);
+        verifyZeroInteractions(mockMetrics);
+    }
+
+    @Test
+    public void testDurableRecordIsAcknowledgedOnSync() throws Exception
+    {
+        GroupCommit groupCommit = givenGroupCommit(SyncPolicy.RECORDS, 2, 0);
+        DurableRecord first = new DurableRecord(mockRecord);
+        DurableRecord second = new DurableRecord(mockRecord);
+
+        groupCommit.written(first);
+        assertThat(first.awaitSynced(0, TimeUnit.MILLISECONDS)).isFalse();
+
+        groupCommit.written(second);
+        assertThat(first.awaitSynced(0, TimeUnit.MILLISECONDS)).isTrue();
+        assertThat(second.awaitSynced(0, TimeUnit.MILLISECONDS)).isTrue();
+        verify(mockSyncAction).sync();
+    }
+
+    @Test
+    public void testDurableRecordFailsOnSyncFailure() throws Exception
+    {
+        IOException failure = new IOException("Disk full");
+        doThrow(failure).when(mockSyncAction).sync();
+        GroupCommit groupCommit = givenGroupCommit(SyncPolicy.RECORDS, 1, 0);
+        DurableRecord record = new DurableRecord(mockRecord);
+
+        groupCommit.written(record);
+
+        assertThatExceptionOfType(CassandraAuditException.class)
+        .isThrownBy(() -> record.awaitSynced(0, TimeUnit.MILLISECONDS))
+        .withMessageContaining("sync")
+        .withCause(failure);
+        verify(mockMetrics).syncRecords(anyLong(), eq(TimeUnit.NANOSECONDS), eq(1));
+    }
+
+    @Test
+    public void testDurableRecordDelegatesWrite()
+    {
+        DurableRecord record = new DurableRecord(mockRecord);
+
+        record.writeMarshallable(mockWire);
+
+        verify(mockRecord).writeMarshallable(eq(mockWire));
+    }
+
+    @Test
+    public void testCloseSyncsAndReleases() throws Exception
+    {
+        GroupCommit groupCommit = givenGroupCommit(SyncPolicy.INTERVAL, 1, 1000);
+
+        groupCommit.written();
+        groupCommit.close();
+
+        verify(mockSyncAction, times(1)).sync();
+        verify(mockSyncAction).close();
+        verifyNoMoreInteractions(mockSyncAction);
+    }
+
+    private GroupCommit givenGroupCommit(SyncPolicy policy, int syncRecords, long syncIntervalMillis)
+    {
+        return new GroupCommit(policy, syncRecords, syncIntervalMillis, TimeUnit.MILLISECONDS, mockSyncAction, mockMetrics);
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.logger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import junitparams.JUnitParamsRunner;
+import junitparams.Parameters;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+@RunWith(JUnitParamsRunner.class)
+public class TestMpscRingBuffer
+{
+    @Test
+    @Parameters({ "1, 1", "2, 2", "3, 4", "256, 256", "1000, 1024" })
+    public void testCapacityIsRoundedToPowerOfTwo(int requestedCapacity, int expectedCapacity)
+    {
+        assertThat(new MpscRingBuffer<>(requestedCapacity).capacity()).isEqualTo(expectedCapacity);
+    }
+
+    @Test
+    @Parameters({ "0", "-1", "1073741825" })
+    public void testInvalidCapacity(int requestedCapacity)
+    {
+        assertThatIllegalArgumentException().isThrownBy(() -> new MpscRingBuffer<>(requestedCapacity));
+    }
+
+    @Test
+    public void testOfferFailsWhenFull()
+    {
+        MpscRingBuffer<Integer> ringBuffer = new MpscRingBuffer<>(2);
+
+        assertThat(ringBuffer.offer(1)).isTrue();
+        assertThat(ringBuffer.offer(2)).isTrue();
+        assertThat(ringBuffer.offer(3)).isFalse();
+        assertThat(ringBuffer.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void testNullIsRejected()
+    {
+        MpscRingBuffer<Integer> ringBuffer = new MpscRingBuffer<>(2);
+
+        assertThatIllegalArgumentException().isThrownBy(() -> ringBuffer.offer(null));
+    }
+
+    @Test
+    public void testDrainInOrderUpToLimit()
+    {
+        MpscRingBuffer<Integer> ringBuffer = new MpscRingBuffer<>(4);
+        for (int i = 0; i < 4; i++)
+        {
+            ringBuffer.offer(i);
+        }
+        List<Integer> drained = new ArrayList<>();
+
+        assertThat(ringBuffer.drain(drained::add, 3)).isEqualTo(3);
+        assertThat(drained).containsExactly(0, 1, 2);
+        assertThat(ringBuffer.size()).isEqualTo(1);
+        assertThat(ringBuffer.offer(4)).isTrue();
+
+        assertThat(ringBuffer.drain(drained::add, 10)).isEqualTo(2);
+        assertThat(drained).containsExactly(0, 1, 2, 3, 4);
+        assertThat(ringBuffer.isEmpty()).isTrue();
+        assertThat(ringBuffer.drain(drained::add, 10)).isEqualTo(0);
+    }
+
+    @Test
+    public void testConcurrentProducers() throws Exception
+    {
+        int producers = 4;
+        int perProducer = 10_000;
+        MpscRingBuffer<Integer> ringBuffer = new MpscRingBuffer<>(16);
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        for (int p = 0; p < producers; p++)
+        {
+            int producer = p;
+            executor.execute(() -> {
+                for (int i = 0; i < perProducer; i++)
+                {
+                    while (!ringBuffer.offer(producer * perProducer + i))
+                    {
+                        Thread.yield();
+                    }
+                }
+            });
+        }
+
+        int[] lastSeen = new int[producers];
+        Arrays.fill(lastSeen, -1);
+        int[] count = new int[1];
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (count[0] < producers * perProducer && System.nanoTime() < deadline)
+        {
+            ringBuffer.drain(value -> {
+                int producer = value / perProducer;
+                assertThat(value % perProducer).isGreaterThan(lastSeen[producer]);
+                lastSeen[producer] = value % perProducer;
+                count[0]++;
+            }, 64);
+        }
+        executor.shutdown();
+
+        assertThat(executor.awaitTermination(1, TimeUnit.SECONDS)).isTrue();
+        assertThat(count[0]).isEqualTo(producers * perProducer);
+        assertThat(ringBuffer.isEmpty()).isTrue();
+    }
+}
@@ -0,0 +1,573 @@
+/*
+ * Copyright 2019 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.ericsson.bss.cassandra.ecaudit.common.chronicle.CycleArchive;
+import com.ericsson.bss.cassandra.ecaudit.common.chronicle.CycleIndex;
+import net.openhft.chronicle.queue.RollCycles;
+import net.openhft.chronicle.queue.impl.single.SingleChronicleQueue;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(MockitoJUnitRunner.StrictStubs.class)
+public class TestRetentionManager
+{
+    private File tempDir;
+    private int fileCycle = 0;
+
+    private final List<Runnable> pendingTasks = new ArrayList<>();
+    private long usableSpace = Long.MAX_VALUE;
+    private long now = System.currentTimeMillis();
+
+    private RetentionManager storeFileListener;
+
+    @Before
+    public void before()
+    {
+        tempDir = com.google.common.io.Files.createTempDir();
+        tempDir.deleteOnExit();
+    }
+
+    @Test
+    public void testManySmallAreRotated() throws IOException
+    {
+        givenStoreFileListener(49);
+        List<File> firstFiles = givenRotatedFiles(10, 10);
+        List<File> lastFiles = givenRotatedFiles(10, 4);
+
+        firstFiles.forEach(file -> assertThat(file).doesNotExist());
+        lastFiles.forEach(file -> assertThat(file).exists());
+    }
+
+    @Test
+    public void testOneBigFileIsDeleted() throws IOException
+    {
+        givenStoreFileListener(49);
+        List<File> files = givenRotatedFiles(50, 1);
+
+        assertThat(files.get(0)).doesNotExist();
+    }
+
+    @Test
+    public void testLargeFilePushOutManySmall() throws IOException
+    {
+        givenStoreFileListener(49);
+        List<File> smallFiles = givenRotatedFiles(10, 4);
+        List<File> largeFiles = givenRotatedFiles(40, 1);
+
+        smallFiles.forEach(file -> assertThat(file).doesNotExist());
+        largeFiles.forEach(file -> assertThat(file).exists());
+    }
+
+    @Test
+    public void testManySmallPushOutOneBig() throws IOException
+    {
+        givenStoreFileListener(49);
+        List<File> largeFiles = givenRotatedFiles(40, 1);
+        List<File> smallFiles = givenRotatedFiles(10, 4);
+
+        largeFiles.forEach(file -> assertThat(file).doesNotExist());
+        smallFiles.forEach(file -> assertThat(file).exists());
+    }
+
+    @Test
+    public void testExistingFilesAreRotated() throws IOException
+    {
+        List<File> existingFiles = givenExistingFiles(10, 5);
+        givenStoreFileListener(39);
+        List<File> firstFiles = givenRotatedFiles(10, 10);
+        List<File> lastFiles = givenRotatedFiles(10, 3);
+
+        existingFiles.forEach(file -> assertThat(file).doesNotExist());
+        firstFiles.forEach(file -> assertThat(file).doesNotExist());
+        lastFiles.forEach(file -> assertThat(file).exists());
+    }
+
+    @Test
+    public void testExistingFilesAreRotatedWithReuse() throws IOException
+    {
+        List<File> existingFiles = givenExistingFiles(10, 5);
+        givenStoreFileListener(49);
+        fileCycle--;
+        List<File> firstFiles = givenRotatedFiles(10, 10);
+        List<File> lastFiles = givenRotatedFiles(10, 4);
+
+        existingFiles.forEach(file -> assertThat(file).doesNotExist());
+        firstFiles.forEach(file -> assertThat(file).doesNotExist());
+        lastFiles.forEach(file -> assertThat(file).exists());
+    }
+
+    @Test
+    public void testExistingFilesAreRotatedAndUnknownIsIgnored() throws IOException
+    {
+        List<File> existingFiles = givenExistingFiles(10, 5);
+        Path fileToIgnorePath = Paths.get(tempDir.getPath(), "guck.txt");
+        Files.write(fileToIgnorePath, new byte[10]);
+
+        givenStoreFileListener(49);
+        List<File> firstFiles = givenRotatedFiles(10, 10);
+        List<File> lastFiles = givenRotatedFiles(10, 4);
+
+        existingFiles.forEach(file -> assertThat(file).doesNotExist());
+        assertThat(fileToIgnorePath.toFile()).exists();
+        firstFiles.forEach(file -> assertThat(file).doesNotExist());
+        lastFiles.forEach(file -> assertThat(file).exists());
+    }
+
+    @Test
+    public void testExistingFilesAreRotatedAndDirectoryIsIgnored() throws IOException
+    {
+        List<File> existingFiles = givenExistingFiles(10, 5);
+        Path dirToIgnorePath = Paths.get(tempDir.getPath(), "guck" + SingleChronicleQueue.SUFFIX);
+        Files.createDirectory(dirToIgnorePath);
+
+        givenStoreFileListener(49);
+        List<File> firstFiles = givenRotatedFiles(10, 10);
+        List<File> lastFiles = givenRotatedFiles(10, 4);
+
+        existingFiles.forEach(file -> assertThat(file).doesNotExist());
+        assertThat(dirToIgnorePath.toFile()).exists();
+        firstFiles.forEach(file -> assertThat(file).doesNotExist());
+        lastFiles.forEach(file -> assertThat(file).exists());
+    }
+
+    @Test
+    public void testExistingLaterCycleIsNotRotated() throws IOException
+    {
+        List<File> existingFiles = givenExistingFiles(10, 2);
+        File activeFile = createFile(10);
+        File laterFile = createFile(10);
+        givenStoreFileListener(5);
+
+        storeFileListener.onAcquired(2, activeFile);
+        storeFileListener.enforceRetention();
+
+        existingFiles.forEach(file -> assertThat(file).doesNotExist());
+        assertThat(activeFile).exists();
+        assertThat(laterFile).exists();
+    }
+
+    @Test
+    public void testSurviveMissingFile() throws IOException
+    {
+        givenStoreFileListener(49);
+        List<File> firstFiles = givenRotatedFiles(10, 10);
+        List<File> lostFiles = givenRotatedFiles(10, 2);
+        lostFiles.forEach(file -> assertThat(file.delete()).isTrue());
+        List<File> moreFiles = givenRotatedFiles(10, 10);
+        List<File> lastFiles = givenRotatedFiles(10, 4);
+
+        firstFiles.forEach(file -> assertThat(file).doesNotExist());
+        lostFiles.forEach(file -> assertThat(file).doesNotExist());
+        moreFiles.forEach(file -> assertThat(file).doesNotExist());
+        lastFiles.forEach(file -> assertThat(file).exists());
+    }
+
+    @Test
+    public void testReleasedFileIsCompressedWhenNextCycleIsAcquired() throws IOException
+    {
+        givenCompressingStoreFileListener(100_000);
+        File firstFile = createFile(10_000);
+        File secondFile = createFile(10_000);
+
+        storeFileListener.onAcquired(1, firstFile);
+        storeFileListener.onReleased(1, firstFile);
+
+        assertThat(firstFile).exists();
+        assertThat(archiveOf(firstFile)).doesNotExist();
+
+        storeFileListener.onAcquired(2, secondFile);
+
+        assertThat(firstFile).doesNotExist();
+        assertThat(archiveOf(firstFile)).exists();
+        assertThat(secondFile).exists();
+        assertThat(archiveOf(secondFile)).doesNotExist();
+    }
+
+    @Test
+    public void testReacquiredFileIsNotCompressed() throws IOException
+    {
+        givenCompressingStoreFileListener(100_000);
+        File file = createFile(10_000);
+
+        storeFileListener.onAcquired(1, file);
+        storeFileListener.onReleased(1, file);
+        storeFileListener.onAcquired(1, file);
+        storeFileListener.onAcquired(2, createFile(10_000));
+
+        assertThat(file).exists();
+        assertThat(archiveOf(file)).doesNotExist();
+    }
+
+    @Test
+    public void testCompressedSizeIsUsedForRotation() throws IOException
+    {
+        givenCompressingStoreFileListener(15_000);
+        List<File> files = givenRotatedCycles(10_000, 10);
+
+        files.subList(0, 9).forEach(file -> assertThat(archiveOf(file)).exists());
+        assertThat(files.get(9)).exists();
+    }
+
+    @Test
+    public void testArchivesAreRotated() throws IOException
+    {
+        givenCompressingStoreFileListener(15_000);
+        List<File> firstFiles = givenRotatedCycles(10_000, 2);
+        List<File> lastFiles = givenRotatedCycles(14_990, 1);
+
+        firstFiles.forEach(file -> assertThat(file).doesNotExist());
+        firstFiles.forEach(file -> assertThat(archiveOf(file)).doesNotExist());
+        lastFiles.forEach(file -> assertThat(file).exists());
+    }
+
+    @Test
+    public void testExistingFilesAreCompressed() throws IOException
+    {
+        List<File> existingFiles = givenExistingFiles(10_000, 3);
+        givenCompressingStoreFileListener(100_000);
+
+        storeFileListener.onAcquired(1, createFile(10_000));
+
+        existingFiles.forEach(file -> assertThat(file).doesNotExist());
+        existingFiles.forEach(file -> assertThat(archiveOf(file)).exists());
+    }
+
+    @Test
+    public void testExistingArchivesAreRotated() throws IOException
+    {
+        List<File> existingArchives = givenExistingFiles(10, 5).stream()
+                                                               .map(this::compressExisting)
+                                                               .collect(Collectors.toList());
+        givenStoreFileListener(49);
+        List<File> lastFiles = givenRotatedFiles(10, 4);
+
+        existingArchives.forEach(file -> assertThat(file).doesNotExist());
+        lastFiles.forEach(file -> assertThat(file).exists());
+    }
+
+    @Test
+    public void testReleasedFileIsIndexedBeforeCompression() throws IOException
+    {
+        givenRetentionManager(RetentionPolicy.maxLogSize(100_000), new CycleFileCompressor(Runnable::run), new FakeIndexer(), Runnable::run);
+        File firstFile = createFile(10_000);
+
+        storeFileListener.onAcquired(1, firstFile);
+        storeFileListener.onReleased(1, firstFile);
+
+        assertThat(indexOf(firstFile)).doesNotExist();
+
+        storeFileListener.onAcquired(2, createFile(10_000));
+
+        assertThat(indexOf(firstFile)).exists();
+        assertThat(archiveOf(firstFile)).exists();
+        assertThat(firstFile).doesNotExist();
+    }
+
+    @Test
+    public void testIndexIsDeletedWithFile() throws IOException
+    {
+        givenRetentionManager(RetentionPolicy.maxLogSize(25_000), null, new FakeIndexer(), Runnable::run);
+        List<File> files = givenRotatedCycles(10_000, 4);
+
+        files.subList(0, 2).forEach(file -> assertThat(indexOf(file)).doesNotExist());
+        assertThat(indexOf(files.get(2))).exists();
+        assertThat(indexOf(files.get(3))).doesNotExist();
+    }
+
+    @Test
+    public void testExistingFilesAreIndexed() throws IOException
+    {
+        List<File> existingFiles = givenExistingFiles(10_000, 2);
+        Files.createFile(indexOf(existingFiles.get(0)).toPath());
+        FakeIndexer indexer = new FakeIndexer();
+        givenRetentionManager(RetentionPolicy.maxLogSize(100_000), null, indexer, Runnable::run);
+
+        storeFileListener.onAcquired(1, createFile(10_000));
+
+        assertThat(indexer.indexedFiles).containsExactly(existingFiles.get(1));
+        existingFiles.forEach(file -> assertThat(indexOf(file)).exists());
+    }
+
+    @Test
+    public void testIndexOfRotatedFileIsDeleted() throws IOException
+    {
+        FakeIndexer indexer = new FakeIndexer();
+        indexer.deleteBeforeIndexed = true;
+        givenRetentionManager(RetentionPolicy.maxLogSize(100_000), null, indexer, Runnable::run);
+
+        List<File> files = givenRotatedCycles(10_000, 2);
+
+        assertThat(indexOf(files.get(0))).doesNotExist();
+    }
+
+    @Test
+    public void testFilesAreDeletedOnRetentionThread() throws IOException
+    {
+        givenRetentionManager(RetentionPolicy.maxLogSize(15), null, pendingTasks::add);
+        List<File> files = givenRotatedFiles(10, 2);
+
+        files.forEach(file -> assertThat(file).exists());
+
+        pendingTasks.forEach(Runnable::run);
+
+        assertThat(files.get(0)).doesNotExist();
+        assertThat(files.get(1)).exists();
+    }
+
+    @Test
+    public void testExpiredFilesAreDeleted() throws IOException
+    {
+        long hour = TimeUnit.HOURS.toMillis(1);
+        givenRetentionManager(new RetentionPolicy(100_000, 2 * hour, 0), null, Runnable::run);
+        File oldFile = givenReleasedFile(10, now - 3 * hour);
+        File newFile = givenReleasedFile(10, now - hour);
+
+        assertThat(oldFile).doesNotExist();
+        assertThat(newFile).exists();
+
+        now += 2 * hour;
+        storeFileListener.enforceRetention();
+
+        assertThat(newFile).doesNotExist();
+    }
+
+    @Test
+    public void testFilesAreDeletedWhenBelowMinFreeSpace() throws IOException
+    {
+        givenRetentionManager(new RetentionPolicy(100_000, 0, 1000), null, Runnable::run);
+        List<File> files = givenRotatedFiles(10, 3);
+
+        files.forEach(file -> assertThat(file).exists());
+
+        usableSpace = 999;
+        storeFileListener.enforceRetention();
+
+        files.forEach(file -> assertThat(file).doesNotExist());
+    }
+
+    @Test
+    public void testRetainedBytesAreRecordedAtRelease() throws IOException
+    {
+        givenStoreFileListener(100);
+        List<File> files = givenRotatedFiles(10, 3);
+        assertThat(files.get(0).delete()).isTrue();
+
+        storeFileListener.enforceRetention();
+
+        assertThat(storeFileListener.getRetainedBytes()).isEqualTo(30L);
+    }
+
+    @Test
+    public void testRetentionHorizonIsUnknownWithoutHistory() throws IOException
+    {
+        givenStoreFileListener(100);
+        givenReleasedFile(10, now);
+
+        assertThat(storeFileListener.getRetentionHorizonHours()).isNaN();
+    }
+
+    @Test
+    public void testRetentionHorizonIsEstimatedFromWriteRate() throws IOException
+    {
+        long hour = TimeUnit.HOURS.toMillis(1);
+        givenStoreFileListener(100);
+        givenReleasedFile(10, now - 2 * hour);
+        givenReleasedFile(10, now - hour);
+        givenReleasedFile(10, now);
+
+        // 20 bytes written in 2 hours, 100 bytes retained at most
+        assertThat(storeFileListener.getRetentionHorizonHours()).isEqualTo(10.0);
+    }
+
+    @Test
+    public void testRetentionHorizonIsLimitedByAgeAndFreeSpace() throws IOException
+    {
+        long hour = TimeUnit.HOURS.toMillis(1);
+        givenRetentionManager(new RetentionPolicy(100, 8 * hour, 1000), null, Runnable::run);
+        usableSpace = 1030;
+        givenReleasedFile(10, now - 2 * hour);
+        givenReleasedFile(10, now - hour);
+        givenReleasedFile(10, now);
+
+        // 30 bytes retained and 30 bytes more until min free space, at 10 bytes per hour
+        assertThat(storeFileListener.getRetentionHorizonHours()).isEqualTo(6.0);
+
+        usableSpace = Long.MAX_VALUE;
+        storeFileListener.enforceRetention();
+
+        assertThat(storeFileListener.getRetentionHorizonHours()).isEqualTo(8.0);
+    }
+
+    private void givenStoreFileListener(long maxLogSize)
+    {
+        givenRetentionManager(RetentionPolicy.maxLogSize(maxLogSize), null, Runnable::run);
+    }
+
+    private void givenCompressingStoreFileListener(long maxLogSize)
+    {
+        givenRetentionManager(RetentionPolicy.maxLogSize(maxLogSize), new CycleFileCompressor(Runnable::run), Runnable::run);
+    }
+
+    private void givenRetentionManager(RetentionPolicy policy, CycleFileCompressor compressor, Executor executor)
+    {
+        givenRetentionManager(policy, compressor, null, executor);
+    }
+
+    private void givenRetentionManager(RetentionPolicy policy, CycleFileCompressor compressor, CycleFileIndexer indexer, Executor executor)
+    {
+        storeFileListener = new RetentionManager(tempDir.toPath(), policy, compressor, indexer, executor, () -> usableSpace, () -> now);
+    }
+
+    private File givenReleasedFile(int size, long releasedMillis) throws IOException
+    {
+        File file = createFile(size);
+        assertThat(file.setLastModified(releasedMillis)).isTrue();
+        storeFileListener.onAcquired(1, file);
+        storeFileListener.onReleased(1, file);
+        return file;
+    }
+
+    private List<File> givenRotatedCycles(int size, int count) throws IOException
+    {
+        List<File> files = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++)
+        {
+            File file = createFile(size);
+            storeFileListener.onAcquired(fileCycle, file);
+            storeFileListener.onReleased(fileCycle, file);
+            files.add(file);
+        }
+
+        return files;
+    }
+
+    private File compressExisting(File file)
+    {
+        try
+        {
+            File archive = CycleArchive.compress(file.toPath()).toFile();
+            assertThat(file.delete()).isTrue();
+            return archive;
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static File archiveOf(File file)
+    {
+        return CycleArchive.archiveOf(file.toPath()).toFile();
+    }
+
+    private static File indexOf(File file)
+    {
+        return CycleIndex.indexOf(file.toPath()).toFile();
+    }
+
+    private List<File> givenRotatedFiles(int size, int count) throws IOException
+    {
+        List<File> files = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++)
+        {
+            File file = createFile(size);
+            storeFileListener.onAcquired(1, file);
+            storeFileListener.onReleased(1, file);
+            files.add(file);
+        }
+
+        return files;
+    }
+
+    private List<File> givenExistingFiles(int size, int count) throws IOException
+    {
+        List<File> files = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+        {
+            files.add(createFile(size));
+        }
+
+        return files;
+    }
+
+    private File createFile(int size) throws IOException
+    {
+        Path filePath = Paths.get(tempDir.getPath(), "chronicle_" + fileCycle++ + SingleChronicleQueue.SUFFIX);
+        if (filePath.toFile().exists())
+        {
+            return filePath.toFile();
+        }
+        else
+        {
+            Files.write(filePath, new byte[size]);
+            return filePath.toFile();
+        }
+    }
+
+    /**
+     * Writes an empty index for each cycle file, as the test files are not Chronicle cycle files.
+     */
+    private static class FakeIndexer extends CycleFileIndexer
+    {
+        private final List<File> indexedFiles = new ArrayList<>();
+        private boolean deleteBeforeIndexed;
+
+        FakeIndexer()
+        {
+            super(RollCycles.HOURLY, Runnable::run);
+        }
+
+        @Override
+        void index(File cycleFile, Consumer<File> onIndexed)
+        {
+            indexedFiles.add(cycleFile);
+            try
+            {
+                Files.createFile(indexOf(cycleFile).toPath());
+                if (deleteBeforeIndexed)
+                {
+                    Files.delete(cycleFile.toPath());
+                }
+            }
+            catch (IOException e)
+            {
+                throw new UncheckedIOException(e);
+            }
+            onIndexed.accept(cycleFile);
+        }
+    }
+}
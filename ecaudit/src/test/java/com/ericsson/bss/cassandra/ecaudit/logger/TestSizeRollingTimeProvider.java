@@ -0,0 +1,228 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.logger;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import net.openhft.chronicle.bytes.BytesStore;
+import net.openhft.chronicle.core.time.SetTimeProvider;
+import net.openhft.chronicle.queue.ChronicleQueue;
+import net.openhft.chronicle.queue.ChronicleQueueBuilder;
+import net.openhft.chronicle.queue.ExcerptAppender;
+import net.openhft.chronicle.queue.ExcerptTailer;
+import net.openhft.chronicle.queue.RollCycles;
+import net.openhft.chronicle.queue.impl.single.SingleChronicleQueue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TestSizeRollingTimeProvider
+{
+    private static final long MINUTE_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private SetTimeProvider clock;
+
+    @Before
+    public void before()
+    {
+        clock = new SetTimeProvider(TimeUnit.MINUTES.toNanos(10));
+    }
+
+    @Test
+    public void testFollowsClockBelowMaxSize()
+    {
+        SizeRollingTimeProvider timeProvider = new SizeRollingTimeProvider(clock, RollCycles.MINUTELY, 1024);
+
+        timeProvider.written(10, 1023);
+        clock.advanceMillis(5);
+
+        assertThat(timeProvider.currentTimeMillis()).isEqualTo(10 * MINUTE_MILLIS + 5);
+    }
+
+    @Test
+    public void testMovesToNextCycleAtMaxSize()
+    {
+        SizeRollingTimeProvider timeProvider = new SizeRollingTimeProvider(clock, RollCycles.MINUTELY, 1024);
+
+        timeProvider.written(10, 1024);
+
+        assertThat(timeProvider.currentTimeMillis()).isEqualTo(11 * MINUTE_MILLIS);
+    }
+
+    @Test
+    public void testFollowsClockOnceCaughtUp()
+    {
+        SizeRollingTimeProvider timeProvider = new SizeRollingTimeProvider(clock, RollCycles.MINUTELY, 1024);
+
+        timeProvider.written(10, 2048);
+        clock.advanceMillis(MINUTE_MILLIS + 5);
+
+        assertThat(timeProvider.currentTimeMillis()).isEqualTo(11 * MINUTE_MILLIS + 5);
+    }
+
+    @Test
+    public void testNeverMovesBack()
+    {
+        SizeRollingTimeProvider timeProvider = new SizeRollingTimeProvider(clock, RollCycles.MINUTELY, 1024);
+
+        timeProvider.written(12, 2048);
+        timeProvider.written(10, 2048);
+
+        assertThat(timeProvider.currentTimeMillis()).isEqualTo(13 * MINUTE_MILLIS);
+    }
+
+    @Test
+    public void testQueueRollsOnSize()
+    {
+        SizeRollingTimeProvider timeProvider = new SizeRollingTimeProvider(clock, RollCycles.MINUTELY, 1);
+        try (ChronicleQueue chronicle = givenQueue(timeProvider))
+        {
+            ExcerptAppender appender = chronicle.acquireAppender();
+            timeProvider.write(appender, wire -> wire.write("text").text("first"));
+            timeProvider.write(appender, wire -> wire.write("text").text("second"));
+            timeProvider.write(appender, wire -> wire.write("text").text("third"));
+
+            assertThat(cycleFiles()).hasSize(3);
+            assertThat(readTexts(chronicle)).containsExactly("first", "second", "third");
+        }
+    }
+
+    @Test
+    public void testQueueRollsOnSizeOfBytes()
+    {
+        SizeRollingTimeProvider timeProvider = new SizeRollingTimeProvider(clock, RollCycles.MINUTELY, 1);
+        try (ChronicleQueue chronicle = givenQueue(timeProvider))
+        {
+            ExcerptAppender appender = chronicle.acquireAppender();
+            timeProvider.write(appender, BytesStore.wrap(new byte[]{ 1, 2, 3 }));
+            timeProvider.write(appender, BytesStore.wrap(new byte[]{ 4, 5, 6 }));
+
+            assertThat(cycleFiles()).hasSize(2);
+        }
+    }
+
+    @Test
+    public void testQueueStaysInCycleBelowMaxSize()
+    {
+        SizeRollingTimeProvider timeProvider = new SizeRollingTimeProvider(clock, RollCycles.MINUTELY, Long.MAX_VALUE);
+        try (ChronicleQueue chronicle = givenQueue(timeProvider))
+        {
+            ExcerptAppender appender = chronicle.acquireAppender();
+            timeProvider.write(appender, wire -> wire.write("text").text("first"));
+            timeProvider.write(appender, wire -> wire.write("text").text("second"));
+
+            assertThat(cycleFiles()).hasSize(1);
+            assertThat(readTexts(chronicle)).containsExactly("first", "second");
+        }
+    }
+
+    @Test
+    public void testSeedFollowsClockOnEmptyQueue()
+    {
+        SizeRollingTimeProvider timeProvider = new SizeRollingTimeProvider(clock, RollCycles.MINUTELY, 1);
+        try (SingleChronicleQueue chronicle = givenQueue(timeProvider))
+        {
+            timeProvider.seed(chronicle);
+
+            assertThat(timeProvider.currentTimeMillis()).isEqualTo(10 * MINUTE_MILLIS);
+        }
+    }
+
+    @Test
+    public void testRestartContinuesInWritableLastCycle()
+    {
+        givenRolledAheadQueue();
+
+        SizeRollingTimeProvider timeProvider = new SizeRollingTimeProvider(clock, RollCycles.MINUTELY, Long.MAX_VALUE);
+        try (SingleChronicleQueue chronicle = givenQueue(timeProvider))
+        {
+            timeProvider.seed(chronicle);
+            assertThat(timeProvider.currentTimeMillis()).isEqualTo(11 * MINUTE_MILLIS);
+
+            timeProvider.write(chronicle.acquireAppender(), wire -> wire.write("text").text("third"));
+
+            assertThat(cycleFiles()).hasSize(2);
+            assertThat(readTexts(chronicle)).containsExactly("first", "second", "third");
+        }
+    }
+
+    @Test
+    public void testRestartMovesPastFullLastCycle()
+    {
+        givenRolledAheadQueue();
+
+        SizeRollingTimeProvider timeProvider = new SizeRollingTimeProvider(clock, RollCycles.MINUTELY, 1);
+        try (SingleChronicleQueue chronicle = givenQueue(timeProvider))
+        {
+            timeProvider.seed(chronicle);
+            assertThat(timeProvider.currentTimeMillis()).isEqualTo(12 * MINUTE_MILLIS);
+
+            timeProvider.write(chronicle.acquireAppender(), wire -> wire.write("text").text("third"));
+
+            assertThat(cycleFiles()).hasSize(3);
+            assertThat(readTexts(chronicle)).containsExactly("first", "second", "third");
+        }
+    }
+
+    /**
+     * Write two records which roll the queue one cycle ahead of the clock, into cycles 10 and 11.
+     */
+    private void givenRolledAheadQueue()
+    {
+        SizeRollingTimeProvider timeProvider = new SizeRollingTimeProvider(clock, RollCycles.MINUTELY, 1);
+        try (SingleChronicleQueue chronicle = givenQueue(timeProvider))
+        {
+            ExcerptAppender appender = chronicle.acquireAppender();
+            timeProvider.write(appender, wire -> wire.write("text").text("first"));
+            timeProvider.write(appender, wire -> wire.write("text").text("second"));
+        }
+        assertThat(cycleFiles()).hasSize(2);
+    }
+
+    private SingleChronicleQueue givenQueue(SizeRollingTimeProvider timeProvider)
+    {
+        return ChronicleQueueBuilder.single(temporaryFolder.getRoot())
+                                    .rollCycle(RollCycles.MINUTELY)
+                                    .timeProvider(timeProvider)
+                                    .build();
+    }
+
+    private File[] cycleFiles()
+    {
+        return temporaryFolder.getRoot().listFiles((dir, name) -> name.endsWith(".cq4"));
+    }
+
+    private static List<String> readTexts(ChronicleQueue chronicle)
+    {
+        List<String> texts = new ArrayList<>();
+        ExcerptTailer tailer = chronicle.createTailer();
+        while (tailer.readDocument(wire -> texts.add(wire.read("text").text())))
+        {
+            // Read until the end of the queue
+        }
+        return texts;
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.logger;
+
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TestSpillFile
+{
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private Path spillDir;
+    private SpillFile spillFile;
+
+    @Before
+    public void before() throws Exception
+    {
+        spillDir = temporaryFolder.getRoot().toPath().resolve("spill");
+        spillFile = new SpillFile(spillDir, 1024);
+    }
+
+    @After
+    public void after() throws Exception
+    {
+        spillFile.close();
+    }
+
+    @Test
+    public void testNewFileIsEmpty()
+    {
+        assertThat(spillFile.isEmpty()).isTrue();
+        assertThat(spillFile.size()).isZero();
+        assertThat(spillFile.readBatch(10)).isEmpty();
+    }
+
+    @Test
+    public void testRecordsAreReadInOrder()
+    {
+        spillFile.append(record("one"));
+        spillFile.append(record("two"));
+        spillFile.append(record("three"));
+
+        assertThat(spillFile.readBatch(2)).containsExactly(record("one"), record("two"));
+        spillFile.commitBatch();
+        assertThat(spillFile.readBatch(2)).containsExactly(record("three"));
+        spillFile.commitBatch();
+
+        assertThat(spillFile.isEmpty()).isTrue();
+        assertThat(spillDir.resolve(SpillFile.FILE_NAME).toFile().length()).isEqualTo(Long.BYTES);
+    }
+
+    @Test
+    public void testUncommittedBatchIsReadAgain()
+    {
+        spillFile.append(record("one"));
+
+        assertThat(spillFile.readBatch(10)).containsExactly(record("one"));
+        assertThat(spillFile.readBatch(10)).containsExactly(record("one"));
+    }
+
+    @Test
+    public void testAppendFailsWhenFull()
+    {
+        byte[] largeRecord = new byte[600];
+
+        assertThat(spillFile.append(largeRecord)).isTrue();
+        assertThat(spillFile.append(largeRecord)).isFalse();
+        assertThat(spillFile.size()).isEqualTo(604);
+
+        spillFile.readBatch(10);
+        spillFile.commitBatch();
+
+        assertThat(spillFile.append(largeRecord)).isTrue();
+    }
+
+    @Test
+    public void testFileIsCompactedUnderSustainedBacklog() throws Exception
+    {
+        spillFile.append(record("first"));
+        spillFile.append(record("second"));
+        for (int i = 0; i < 1000; i++)
+        {
+            assertThat(spillFile.append(record("record-" + i))).isTrue();
+            assertThat(spillFile.readBatch(1)).hasSize(1);
+            spillFile.commitBatch();
+
+            assertThat(spillDir.resolve(SpillFile.FILE_NAME).toFile().length()).isLessThanOrEqualTo(Long.BYTES + 1024 + 512 + 64);
+        }
+        assertThat(spillFile.isEmpty()).isFalse();
+
+        spillFile.close();
+        spillFile = new SpillFile(spillDir, 1024);
+
+        assertThat(spillFile.readBatch(10)).containsExactly(record("record-998"), record("record-999"));
+    }
+
+    @Test
+    public void testRecordsSurviveRestart() throws Exception
+    {
+        spillFile.append(record("one"));
+        spillFile.append(record("two"));
+        spillFile.readBatch(1);
+        spillFile.commitBatch();
+        spillFile.close();
+
+        spillFile = new SpillFile(spillDir, 1024);
+
+        assertThat(spillFile.isEmpty()).isFalse();
+        assertThat(spillFile.readBatch(10)).containsExactly(record("two"));
+    }
+
+    @Test
+    public void testPartialRecordIsDroppedOnRestart() throws Exception
+    {
+        spillFile.append(record("one"));
+        spillFile.append(record("two"));
+        spillFile.close();
+        try (RandomAccessFile file = new RandomAccessFile(spillDir.resolve(SpillFile.FILE_NAME).toFile(), "rw"))
+        {
+            file.setLength(file.length() - 1);
+        }
+
+        spillFile = new SpillFile(spillDir, 1024);
+
+        assertThat(spillFile.readBatch(10)).containsExactly(record("one"));
+        assertThat(spillFile.append(record("three"))).isTrue();
+        assertThat(spillFile.readBatch(10)).containsExactly(record("one"), record("three"));
+    }
+
+    private static byte[] record(String value)
+    {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
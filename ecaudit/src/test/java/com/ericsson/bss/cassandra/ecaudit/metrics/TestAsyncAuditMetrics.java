@@ -0,0 +1,85 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Timer;
+import org.apache.cassandra.metrics.CassandraMetricsRegistry;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.StrictStubs.class)
+public class TestAsyncAuditMetrics
+{
+    private static final CassandraMetricsRegistry.MetricName QUEUE_DEPTH = AuditMetrics.createMetricName("AsyncQueueDepth");
+    private static final CassandraMetricsRegistry.MetricName HAND_OFF = AuditMetrics.createMetricName("AsyncHandOff");
+    private static final CassandraMetricsRegistry.MetricName DROPPED = AuditMetrics.createMetricName("AsyncDropped");
+
+    @Mock
+    private CassandraMetricsRegistry mockRegistry;
+    @Mock
+    private Gauge<Integer> mockQueueDepth;
+    @Mock
+    private Timer mockTimer;
+    @Mock
+    private Counter mockCounter;
+
+    @Test
+    public void testQueueDepthGaugeIsRegistered()
+    {
+        givenMetrics();
+
+        verify(mockRegistry).remove(eq(QUEUE_DEPTH));
+        verify(mockRegistry).register(eq(QUEUE_DEPTH), eq(mockQueueDepth));
+    }
+
+    @Test
+    public void testHandOffTiming()
+    {
+        AsyncAuditMetrics metrics = givenMetrics();
+
+        metrics.handOffAuditRequest(999L, TimeUnit.NANOSECONDS);
+
+        verify(mockTimer).update(eq(999L), eq(TimeUnit.NANOSECONDS));
+    }
+
+    @Test
+    public void testDroppedRequestIsCounted()
+    {
+        AsyncAuditMetrics metrics = givenMetrics();
+
+        metrics.dropAuditRequest();
+
+        verify(mockCounter).inc();
+    }
+
+    private AsyncAuditMetrics givenMetrics()
+    {
+        when(mockRegistry.timer(eq(HAND_OFF))).thenReturn(mockTimer);
+        when(mockRegistry.counter(eq(DROPPED))).thenReturn(mockCounter);
+        return new AsyncAuditMetrics(mockRegistry, mockQueueDepth);
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.metrics;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.codahale.metrics.Gauge;
+import org.apache.cassandra.metrics.CassandraMetricsRegistry;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+
+@RunWith(MockitoJUnitRunner.StrictStubs.class)
+public class TestChronicleRetentionMetrics
+{
+    private static final CassandraMetricsRegistry.MetricName RETAINED_SIZE = AuditMetrics.createMetricName("ChronicleRetainedSize");
+    private static final CassandraMetricsRegistry.MetricName RETENTION_HORIZON = AuditMetrics.createMetricName("ChronicleRetentionHorizon");
+
+    @Mock
+    private CassandraMetricsRegistry mockRegistry;
+    @Mock
+    private Gauge<Long> mockRetainedSize;
+    @Mock
+    private Gauge<Double> mockRetentionHorizon;
+
+    @Test
+    public void testRetainedSizeGaugeIsRegistered()
+    {
+        new ChronicleRetentionMetrics(mockRegistry, mockRetainedSize, mockRetentionHorizon);
+
+        verify(mockRegistry).remove(eq(RETAINED_SIZE));
+        verify(mockRegistry).register(eq(RETAINED_SIZE), eq(mockRetainedSize));
+    }
+
+    @Test
+    public void testRetentionHorizonGaugeIsRegistered()
+    {
+        new ChronicleRetentionMetrics(mockRegistry, mockRetainedSize, mockRetentionHorizon);
+
+        verify(mockRegistry).remove(eq(RETENTION_HORIZON));
+        verify(mockRegistry).register(eq(RETENTION_HORIZON), eq(mockRetentionHorizon));
+    }
+}
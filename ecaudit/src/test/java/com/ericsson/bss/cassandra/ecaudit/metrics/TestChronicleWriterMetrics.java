@@ -0,0 +1,118 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Timer;
+import org.apache.cassandra.metrics.CassandraMetricsRegistry;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.StrictStubs.class)
+public class TestChronicleWriterMetrics
+{
+    private static final CassandraMetricsRegistry.MetricName QUEUE_DEPTH = AuditMetrics.createMetricName("ChronicleQueueDepth");
+    private static final CassandraMetricsRegistry.MetricName BLOCKED = AuditMetrics.createMetricName("ChronicleBlockedProducers");
+    private static final CassandraMetricsRegistry.MetricName SPILL_SIZE = AuditMetrics.createMetricName("ChronicleSpillSize");
+    private static final CassandraMetricsRegistry.MetricName SPILLED = AuditMetrics.createMetricName("ChronicleSpilled");
+    private static final CassandraMetricsRegistry.MetricName SYNC_LATENCY = AuditMetrics.createMetricName("ChronicleSyncLatency");
+    private static final CassandraMetricsRegistry.MetricName SYNC_GROUP_SIZE = AuditMetrics.createMetricName("ChronicleSyncGroupSize");
+
+    @Mock
+    private CassandraMetricsRegistry mockRegistry;
+    @Mock
+    private Gauge<Integer> mockQueueDepth;
+    @Mock
+    private Gauge<Long> mockSpillSize;
+    @Mock
+    private Counter mockCounter;
+    @Mock
+    private Counter mockSpilledCounter;
+    @Mock
+    private Timer mockSyncLatency;
+    @Mock
+    private Histogram mockSyncGroupSize;
+
+    @Test
+    public void testQueueDepthGaugeIsRegistered()
+    {
+        givenMetrics();
+
+        verify(mockRegistry).remove(eq(QUEUE_DEPTH));
+        verify(mockRegistry).register(eq(QUEUE_DEPTH), eq(mockQueueDepth));
+    }
+
+    @Test
+    public void testSpillSizeGaugeIsRegistered()
+    {
+        givenMetrics();
+
+        verify(mockRegistry).remove(eq(SPILL_SIZE));
+        verify(mockRegistry).register(eq(SPILL_SIZE), eq(mockSpillSize));
+    }
+
+    @Test
+    public void testSpilledRecordIsCounted()
+    {
+        ChronicleWriterMetrics metrics = givenMetrics();
+
+        metrics.spillRecord();
+
+        verify(mockSpilledCounter).inc();
+    }
+
+    @Test
+    public void testBlockedProducerIsCounted()
+    {
+        ChronicleWriterMetrics metrics = givenMetrics();
+
+        metrics.blockProducer();
+
+        verify(mockCounter).inc();
+    }
+
+    @Test
+    public void testSyncIsRecorded()
+    {
+        ChronicleWriterMetrics metrics = givenMetrics();
+
+        metrics.syncRecords(42, TimeUnit.MICROSECONDS, 7);
+
+        verify(mockSyncLatency).update(eq(42L), eq(TimeUnit.MICROSECONDS));
+        verify(mockSyncGroupSize).update(eq(7));
+    }
+
+    private ChronicleWriterMetrics givenMetrics()
+    {
+        when(mockRegistry.counter(eq(BLOCKED))).thenReturn(mockCounter);
+        when(mockRegistry.counter(eq(SPILLED))).thenReturn(mockSpilledCounter);
+        when(mockRegistry.timer(eq(SYNC_LATENCY))).thenReturn(mockSyncLatency);
+        when(mockRegistry.histogram(eq(SYNC_GROUP_SIZE), anyBoolean())).thenReturn(mockSyncGroupSize);
+        return new ChronicleWriterMetrics(mockRegistry, mockQueueDepth, mockSpillSize);
+    }
+}
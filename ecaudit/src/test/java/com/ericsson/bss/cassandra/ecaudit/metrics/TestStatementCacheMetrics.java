@@ -0,0 +1,72 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.metrics;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.codahale.metrics.Counter;
+import org.apache.cassandra.metrics.CassandraMetricsRegistry;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.StrictStubs.class)
+public class TestStatementCacheMetrics
+{
+    private static final CassandraMetricsRegistry.MetricName HITS = AuditMetrics.createMetricName("UnpreparedStatementCacheHits");
+    private static final CassandraMetricsRegistry.MetricName MISSES = AuditMetrics.createMetricName("UnpreparedStatementCacheMisses");
+
+    @Mock
+    private CassandraMetricsRegistry mockRegistry;
+    @Mock
+    private Counter mockHitCounter;
+    @Mock
+    private Counter mockMissCounter;
+
+    @Test
+    public void testHitIsCounted()
+    {
+        StatementCacheMetrics metrics = givenMetrics();
+
+        metrics.hit();
+
+        verify(mockHitCounter).inc();
+        verifyZeroInteractions(mockMissCounter);
+    }
+
+    @Test
+    public void testMissIsCounted()
+    {
+        StatementCacheMetrics metrics = givenMetrics();
+
+        metrics.miss();
+
+        verify(mockMissCounter).inc();
+        verifyZeroInteractions(mockHitCounter);
+    }
+
+    private StatementCacheMetrics givenMetrics()
+    {
+        when(mockRegistry.counter(eq(HITS))).thenReturn(mockHitCounter);
+        when(mockRegistry.counter(eq(MISSES))).thenReturn(mockMissCounter);
+        return new StatementCacheMetrics(mockRegistry);
+    }
+}
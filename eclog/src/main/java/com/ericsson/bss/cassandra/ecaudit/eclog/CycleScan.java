@@ -0,0 +1,386 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.eclog;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import com.ericsson.bss.cassandra.ecaudit.common.chronicle.AuditRecordReadMarshallable;
+import com.ericsson.bss.cassandra.ecaudit.common.chronicle.CycleArchive;
+import com.ericsson.bss.cassandra.ecaudit.common.chronicle.CycleIndex;
+import com.ericsson.bss.cassandra.ecaudit.common.chronicle.ReadDictionary;
+import com.ericsson.bss.cassandra.ecaudit.common.chronicle.RecordView;
+import com.ericsson.bss.cassandra.ecaudit.common.record.StoredAuditRecord;
+import net.openhft.chronicle.queue.ChronicleQueueBuilder;
+import net.openhft.chronicle.queue.ExcerptTailer;
+import net.openhft.chronicle.queue.RollCycle;
+import net.openhft.chronicle.queue.impl.single.SingleChronicleQueue;
+import net.openhft.chronicle.wire.DocumentContext;
+import net.openhft.chronicle.wire.ReadMarshallable;
+
+/**
+ * Reads the records of one cycle of a Chronicle log on a thread of its own, see {@link ParallelQueueReader}.
+ * <p>
+ * The cycle is read with a tailer, a dictionary and a record view of its own, so that cycles can be read in parallel.
+ * With a time range, reading starts at the first record of the range, otherwise at the start of the cycle. The records
+ * which match the filter are handed over through a bounded buffer in the order they were logged. While the buffer is
+ * full the scan waits, as a managed blocker so that the pool may compensate for it.
+ * <p>
+ * A compressed cycle is extracted into a temporary directory of its own while it is read.
+ */
+final class CycleScan implements Runnable
+{
+    private static final long HANDOVER_POLL_MS = 100;
+    private static final Records END = new Records(Collections.emptyList(), 0L);
+
+    private final SingleChronicleQueue chronicle;
+    private final int cycle;
+    private final Path archive;
+    private final RollCycle rollCycle;
+    private final RecordFilter filter;
+    private final BlockingQueue<Records> buffer;
+
+    private volatile boolean cancelled;
+    private volatile boolean pastTimeRange;
+    private volatile RuntimeException failure;
+
+    private CycleScan(SingleChronicleQueue chronicle, int cycle, Path archive, RollCycle rollCycle, RecordFilter filter, int capacity)
+    {
+        this.chronicle = chronicle;
+        this.cycle = cycle;
+        this.archive = archive;
+        this.rollCycle = rollCycle;
+        this.filter = filter;
+        buffer = new LinkedBlockingQueue<>(capacity);
+    }
+
+    /**
+     * @param chronicle the live queue of the log
+     * @param cycle     the cycle to read
+     * @param filter    the filter of the records to hand over
+     * @param capacity  the number of wire records to buffer at most
+     * @return a scan of a cycle of the live queue
+     */
+    static CycleScan ofCycle(SingleChronicleQueue chronicle, int cycle, RecordFilter filter, int capacity)
+    {
+        return new CycleScan(chronicle, cycle, null, chronicle.rollCycle(), filter, capacity);
+    }
+
+    /**
+     * @param archive   the compressed cycle file to read
+     * @param rollCycle the roll cycle of the log
+     * @param filter    the filter of the records to hand over
+     * @param capacity  the number of wire records to buffer at most
+     * @return a scan of a compressed cycle
+     */
+    static CycleScan ofArchive(Path archive, RollCycle rollCycle, RecordFilter filter, int capacity)
+    {
+        return new CycleScan(null, 0, archive, rollCycle, filter, capacity);
+    }
+
+    @Override
+    public void run()
+    {
+        try
+        {
+            if (archive == null)
+            {
+                scan(chronicle, cycle, CycleIndex.indexOf(chronicle.file().toPath(), rollCycle, cycle));
+            }
+            else
+            {
+                scanArchive();
+            }
+        }
+        catch (RuntimeException e)
+        {
+            failure = e;
+        }
+        finally
+        {
+            handOver(END);
+        }
+    }
+
+    private void scanArchive()
+    {
+        Path directory = createExtractDirectory();
+        try
+        {
+            extract(directory);
+            try (SingleChronicleQueue extracted = ChronicleQueueBuilder.single(directory.toFile()).rollCycle(rollCycle).build())
+            {
+                scan(extracted, extracted.firstCycle(), CycleIndex.indexOf(archive));
+            }
+        }
+        finally
+        {
+            deleteDirectory(directory);
+        }
+    }
+
+    private Path createExtractDirectory()
+    {
+        try
+        {
+            return Files.createTempDirectory("eclog");
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException("Failed to create directory for compressed cycle file " + archive, e);
+        }
+    }
+
+    private void extract(Path directory)
+    {
+        try
+        {
+            CycleArchive.extract(archive, directory);
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException("Failed to extract compressed cycle file " + archive, e);
+        }
+    }
+
+    private static void deleteDirectory(Path directory)
+    {
+        File[] extractedFiles = directory.toFile().listFiles();
+        if (extractedFiles != null)
+        {
+            Arrays.stream(extractedFiles).forEach(File::delete);
+        }
+        directory.toFile().delete();
+    }
+
+    private void scan(SingleChronicleQueue queue, int scannedCycle, Path indexPath)
+    {
+        ExcerptTailer tailer = queue.createTailer();
+        OptionalLong startIndex = startIndexOf(queue, scannedCycle, indexPath);
+        if (!startIndex.isPresent() || !tailer.moveToIndex(startIndex.getAsLong()))
+        {
+            return;
+        }
+
+        ReadDictionary dictionary = new ReadDictionary(() -> scannedCycle,
+                                                       (recovering, recoveredCycle) -> recoverDictionary(queue, tailer, recovering, recoveredCycle));
+        RecordView view = new RecordView();
+        CycleSeek seek = new CycleSeek(filter);
+        boolean indexed = filter.isIndexed() && seek.start(indexPath, tailer.index());
+        while (!cancelled)
+        {
+            AuditRecordReadMarshallable recordMarshallable = new AuditRecordReadMarshallable(dictionary, view, filter::matches);
+            boolean read = indexed
+                           ? seek.readCandidate(tailer, dictionary, recordMarshallable)
+                           : readInCycle(tailer, scannedCycle, recordMarshallable);
+            if (!read)
+            {
+                return;
+            }
+
+            List<StoredAuditRecord> records = recordMarshallable.getAuditRecords();
+            if (records.isEmpty() ? filter.isPast(view) : filter.isPast(records.get(0)))
+            {
+                pastTimeRange = true;
+                return;
+            }
+
+            List<StoredAuditRecord> matching = records.stream().filter(filter).collect(Collectors.toList());
+            if (!matching.isEmpty())
+            {
+                handOver(new Records(matching, recordMarshallable.getSequence().orElse(0L)));
+            }
+        }
+    }
+
+    /**
+     * With a time range, the cycle is read from its first record of the time range, found by a {@link TimeSeek}.
+     *
+     * @return the index of the first record to read, or empty if no record of the cycle is in the time range
+     */
+    private OptionalLong startIndexOf(SingleChronicleQueue queue, int scannedCycle, Path indexPath)
+    {
+        Optional<Long> seekTimestamp = filter.seekTimestamp();
+        return seekTimestamp.isPresent()
+               ? new TimeSeek(queue, anyCycle -> indexPath).firstIndexInCycle(scannedCycle, seekTimestamp.get())
+               : OptionalLong.of(queue.rollCycle().toIndex(scannedCycle, 0));
+    }
+
+    /**
+     * Read the dictionary definitions from the start of the cycle up to the record currently read by the tailer.
+     */
+    private static void recoverDictionary(SingleChronicleQueue queue, ExcerptTailer tailer, ReadDictionary recoveringDictionary, int cycle)
+    {
+        ExcerptTailer recoveryTailer = queue.createTailer();
+        if (!recoveryTailer.moveToIndex(queue.rollCycle().toIndex(cycle, 0)))
+        {
+            return;
+        }
+
+        long currentIndex = tailer.index();
+        ReadMarshallable definitionReader = recoveringDictionary.definitionReader();
+        while (recoveryTailer.index() < currentIndex)
+        {
+            if (!recoveryTailer.readDocument(definitionReader))
+            {
+                return;
+            }
+        }
+    }
+
+    private static boolean readInCycle(ExcerptTailer tailer, int scannedCycle, ReadMarshallable recordMarshallable)
+    {
+        try (DocumentContext context = tailer.readingDocument())
+        {
+            if (!context.isPresent() || tailer.cycle() != scannedCycle)
+            {
+                return false;
+            }
+
+            recordMarshallable.readMarshallable(context.wire());
+            return true;
+        }
+    }
+
+    private void handOver(Records records)
+    {
+        try
+        {
+            ForkJoinPool.managedBlock(new Handover(records));
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            cancelled = true;
+        }
+    }
+
+    /**
+     * Take the next records read from the cycle, waiting for them to be read.
+     * <p>
+     * Once the scan is done, no more records are handed over.
+     *
+     * @return the next records, or empty once the scan is done
+     * @throws RuntimeException if the scan failed
+     */
+    Optional<Records> next()
+    {
+        Records records;
+        try
+        {
+            records = buffer.take();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            cancel();
+            return Optional.empty();
+        }
+
+        if (records == END) // NOPMD
+        {
+            if (failure != null)
+            {
+                throw failure;
+            }
+            return Optional.empty();
+        }
+        return Optional.of(records);
+    }
+
+    /**
+     * @return {@code true} if the scan stopped at a record later than the time range of the filter, otherwise {@code false}
+     */
+    boolean isPastTimeRange()
+    {
+        return pastTimeRange;
+    }
+
+    /**
+     * Stop the scan without handing over any more records.
+     */
+    void cancel()
+    {
+        cancelled = true;
+        buffer.clear();
+    }
+
+    /**
+     * The records of one wire record which match the filter.
+     */
+    static final class Records
+    {
+        private final List<StoredAuditRecord> auditRecords;
+        private final long sequence;
+
+        Records(List<StoredAuditRecord> auditRecords, long sequence)
+        {
+            this.auditRecords = auditRecords;
+            this.sequence = sequence;
+        }
+
+        List<StoredAuditRecord> auditRecords()
+        {
+            return auditRecords;
+        }
+
+        /**
+         * @return the sequence number of the wire record, or zero if it has none
+         */
+        long sequence()
+        {
+            return sequence;
+        }
+    }
+
+    private final class Handover implements ForkJoinPool.ManagedBlocker
+    {
+        private final Records records;
+        private boolean done;
+
+        private Handover(Records records)
+        {
+            this.records = records;
+        }
+
+        @Override
+        public boolean block() throws InterruptedException
+        {
+            done = cancelled || buffer.offer(records, HANDOVER_POLL_MS, TimeUnit.MILLISECONDS);
+            return done;
+        }
+
+        @Override
+        public boolean isReleasable()
+        {
+            done = done || cancelled || buffer.offer(records);
+            return done;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.eclog;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Optional;
+
+import com.ericsson.bss.cassandra.ecaudit.common.chronicle.CycleIndex;
+import com.ericsson.bss.cassandra.ecaudit.common.chronicle.ReadDictionary;
+import net.openhft.chronicle.queue.ExcerptTailer;
+import net.openhft.chronicle.wire.ReadMarshallable;
+
+/**
+ * Reads the records of an indexed cycle which may match a {@link RecordFilter}, skipping the other records.
+ * <p>
+ * The records which define dictionary values are read in order up to each record read, so that the dictionary
+ * holds the same values as if the whole cycle was read.
+ */
+class CycleSeek
+{
+    private final RecordFilter filter;
+
+    private long[] candidates;
+    private long[] definitions;
+    private int nextCandidate;
+    private int nextDefinition;
+    private long lastIndex;
+    private boolean active;
+
+    CycleSeek(RecordFilter filter)
+    {
+        this.filter = filter;
+    }
+
+    /**
+     * Start reading a cycle through its index, if it has one.
+     *
+     * @param indexPath the path of the index of the cycle
+     * @param fromIndex the index of the first record to read
+     * @return {@code true} if the cycle has an index, otherwise {@code false}
+     */
+    boolean start(Path indexPath, long fromIndex)
+    {
+        Optional<CycleIndex> cycleIndex = readIndex(indexPath);
+        if (!cycleIndex.isPresent())
+        {
+            return false;
+        }
+
+        CycleIndex index = cycleIndex.get();
+        candidates = Arrays.stream(filter.candidatesIn(index)).filter(candidate -> candidate >= fromIndex).toArray();
+        definitions = index.recordsWithDefinitions();
+        nextCandidate = 0;
+        nextDefinition = 0;
+        lastIndex = index.lastIndex();
+        active = true;
+        return true;
+    }
+
+    /**
+     * @param indexPath the path of the index of a cycle
+     * @return {@code true} if the cycle has an index without records which may match the filter, otherwise {@code false}
+     */
+    boolean excludesCycle(Path indexPath)
+    {
+        return readIndex(indexPath).filter(filter::excludes).isPresent();
+    }
+
+    /**
+     * @return {@code true} if a cycle is read through its index, otherwise {@code false}
+     */
+    boolean isActive()
+    {
+        return active;
+    }
+
+    /**
+     * Read the next record of the cycle which may match the filter.
+     * <p>
+     * Once all such records are read, the tailer is moved past the last record of the cycle.
+     *
+     * @param tailer             the tailer of the cycle
+     * @param dictionary         the dictionary of the records
+     * @param recordMarshallable the marshallable to read the record with
+     * @return {@code true} if a record was read, {@code false} if there are no more records to read in the cycle
+     */
+    boolean readCandidate(ExcerptTailer tailer, ReadDictionary dictionary, ReadMarshallable recordMarshallable)
+    {
+        while (nextCandidate < candidates.length)
+        {
+            long index = candidates[nextCandidate++];
+            readDefinitionsBefore(tailer, dictionary, index);
+            if (tailer.moveToIndex(index) && tailer.readDocument(recordMarshallable))
+            {
+                return true;
+            }
+        }
+
+        active = false;
+        if (tailer.moveToIndex(lastIndex))
+        {
+            tailer.readingDocument().close(); // Skip the last record of the cycle
+        }
+        return false;
+    }
+
+    private void readDefinitionsBefore(ExcerptTailer tailer, ReadDictionary dictionary, long index)
+    {
+        ReadMarshallable definitionReader = dictionary.definitionReader();
+        while (nextDefinition < definitions.length && definitions[nextDefinition] < index)
+        {
+            long definitionIndex = definitions[nextDefinition];
+            nextDefinition++;
+            if (tailer.moveToIndex(definitionIndex))
+            {
+                tailer.readDocument(definitionReader);
+            }
+        }
+    }
+
+    /**
+     * @param indexPath the path of the index of a cycle
+     * @return the index of the cycle, or empty if the cycle has no index which can be read
+     */
+    static Optional<CycleIndex> readIndex(Path indexPath)
+    {
+        if (!Files.exists(indexPath))
+        {
+            return Optional.empty();
+        }
+
+        try
+        {
+            return Optional.of(CycleIndex.read(indexPath));
+        }
+        catch (IOException e)
+        {
+            System.err.println("Failed to read cycle index, reading the whole cycle: " + e.getMessage()); // NOPMD
+            return Optional.empty();
+        }
+    }
+}
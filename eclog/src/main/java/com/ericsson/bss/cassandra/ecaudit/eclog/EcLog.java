@@ -15,10 +15,21 @@
  */
 package com.ericsson.bss.cassandra.ecaudit.eclog;
 
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import org.apache.commons.cli.ParseException;
 
+import com.ericsson.bss.cassandra.ecaudit.common.chronicle.QueueShards;
 import net.openhft.chronicle.core.Jvm;
 import net.openhft.chronicle.core.onoes.ExceptionHandler;
 import net.openhft.chronicle.core.onoes.ThreadLocalisedExceptionHandler;
@@ -36,10 +47,72 @@ public final class EcLog
 
         muteChronicleProfilingWarnings();
 
-        QueueReader queueReader = new QueueReader(toolOptions);
+        RecordReader recordReader = createRecordReader(toolOptions);
 
-        LogPrinter logPrinter = new LogPrinter(toolOptions);
-        logPrinter.print(queueReader);
+        if (!toolOptions.output().isPresent())
+        {
+            new LogPrinter(toolOptions).print(recordReader);
+            return;
+        }
+
+        Path output = toolOptions.output().get();
+        try (PrintStream out = new PrintStream(new BufferedOutputStream(Files.newOutputStream(output)), false, "UTF-8"))
+        {
+            new LogPrinter(toolOptions, out).print(recordReader);
+            if (out.checkError())
+            {
+                throw new IOException("Failed to write records");
+            }
+        }
+        catch (IOException e)
+        {
+            System.err.println("Failed to write to " + output + ": " + e.getMessage()); // NOPMD
+            System.exit(2); // NOPMD
+        }
+    }
+
+    /**
+     * Create a reader of the log, merging the shards of the log if it is sharded.
+     * <p>
+     * With a number of threads, the cycles of all shards are read in parallel in one pool.
+     *
+     * @param toolOptions the options of the tool
+     * @return a reader of the log
+     */
+    static RecordReader createRecordReader(ToolOptions toolOptions)
+    {
+        Function<ToolOptions, ShardReader> readerFactory = toolOptions.threads()
+                                                                      .map(EcLog::parallelReaderFactory)
+                                                                      .orElse(QueueReader::new);
+
+        List<Path> shardPaths = listShards(toolOptions.path());
+        if (shardPaths.isEmpty())
+        {
+            return readerFactory.apply(toolOptions);
+        }
+
+        List<ShardReader> shardReaders = shardPaths.stream()
+                                                   .map(shardPath -> readerFactory.apply(toolOptions.forShard(shardPath)))
+                                                   .collect(Collectors.toList());
+        return new ShardedQueueReader(shardReaders, toolOptions.tail());
+    }
+
+    private static Function<ToolOptions, ShardReader> parallelReaderFactory(int threads)
+    {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        return options -> new ParallelQueueReader(options, pool);
+    }
+
+    private static List<Path> listShards(Path path)
+    {
+        try
+        {
+            return QueueShards.listShards(path);
+        }
+        catch (IOException e)
+        {
+            return Collections.emptyList(); // Let the queue reader report the problem with the path
+        }
     }
 
     private static ToolOptions getToolOptions(String... argv)
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.eclog;
+
+import java.net.InetAddress;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.StringJoiner;
+import java.util.function.Function;
+
+import com.ericsson.bss.cassandra.ecaudit.common.record.StoredAuditRecord;
+
+/**
+ * Formats records as JSON lines or as CSV rows, for export of logs to other tools.
+ * <p>
+ * All fields of a record are exported by the same names in both formats. Timestamps are given in milliseconds since
+ * epoch regardless of the configured time format. Fields which are not in the record are left out of JSON objects and
+ * empty in CSV rows.
+ */
+final class ExportFormatter
+{
+    private static final Map<String, Function<StoredAuditRecord, Optional<?>>> FIELDS = createFields();
+
+    /**
+     * The header line of CSV output, naming the fields of the rows.
+     */
+    static final String CSV_HEADER = String.join(",", FIELDS.keySet());
+
+    private ExportFormatter()
+    {
+        // Utility class
+    }
+
+    private static Map<String, Function<StoredAuditRecord, Optional<?>>> createFields()
+    {
+        Map<String, Function<StoredAuditRecord, Optional<?>>> fields = new LinkedHashMap<>();
+        fields.put("timestamp", StoredAuditRecord::getTimestamp);
+        fields.put("client_ip", record -> record.getClientAddress().map(InetAddress::getHostAddress));
+        fields.put("client_port", StoredAuditRecord::getClientPort);
+        fields.put("coordinator_ip", record -> record.getCoordinatorAddress().map(InetAddress::getHostAddress));
+        fields.put("user", StoredAuditRecord::getUser);
+        fields.put("batch_id", StoredAuditRecord::getBatchId);
+        fields.put("status", StoredAuditRecord::getStatus);
+        fields.put("operation", StoredAuditRecord::getOperation);
+        fields.put("operation_naked", StoredAuditRecord::getNakedOperation);
+        return Collections.unmodifiableMap(fields);
+    }
+
+    /**
+     * @param record the record to format
+     * @return the record as a JSON object on a single line
+     */
+    static String toJson(StoredAuditRecord record)
+    {
+        StringBuilder json = new StringBuilder(256).append('{');
+        for (Map.Entry<String, Function<StoredAuditRecord, Optional<?>>> field : FIELDS.entrySet())
+        {
+            Optional<?> value = field.getValue().apply(record);
+            if (value.isPresent())
+            {
+                if (json.length() > 1)
+                {
+                    json.append(',');
+                }
+                appendJsonString(json, field.getKey());
+                json.append(':');
+                appendJsonValue(json, value.get());
+            }
+        }
+        return json.append('}').toString();
+    }
+
+    private static void appendJsonValue(StringBuilder json, Object value)
+    {
+        if (value instanceof Number)
+        {
+            json.append(value);
+        }
+        else
+        {
+            appendJsonString(json, value.toString());
+        }
+    }
+
+    private static void appendJsonString(StringBuilder json, String text)
+    {
+        json.append('"');
+        for (int i = 0; i < text.length(); i++)
+        {
+            char c = text.charAt(i);
+            switch (c)
+            {
+                case '"':
+                    json.append("\\\"");
+                    break;
+                case '\\':
+                    json.append("\\\\");
+                    break;
+                case '\n':
+                    json.append("\\n");
+                    break;
+                case '\r':
+                    json.append("\\r");
+                    break;
+                case '\t':
+                    json.append("\\t");
+                    break;
+                default:
+                    appendJsonChar(json, c);
+                    break;
+            }
+        }
+        json.append('"');
+    }
+
+    private static void appendJsonChar(StringBuilder json, char c)
+    {
+        if (c < 0x20)
+        {
+            json.append(String.format("\\u%04x", (int) c));
+        }
+        else
+        {
+            json.append(c);
+        }
+    }
+
+    /**
+     * @param record the record to format
+     * @return the record as a CSV row with the fields of {@link #CSV_HEADER}
+     */
+    static String toCsv(StoredAuditRecord record)
+    {
+        StringJoiner csv = new StringJoiner(",");
+        for (Function<StoredAuditRecord, Optional<?>> field : FIELDS.values())
+        {
+            csv.add(field.apply(record).map(value -> csvValueOf(value.toString())).orElse(""));
+        }
+        return csv.toString();
+    }
+
+    private static String csvValueOf(String text)
+    {
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0)
+        {
+            return text;
+        }
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+}
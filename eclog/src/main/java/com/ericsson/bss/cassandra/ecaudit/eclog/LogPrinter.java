@@ -36,10 +36,20 @@ class LogPrinter
     private final PrintStream out;
     private final long pollIntervalMs;
     private final LogMessageFormatter<StoredAuditRecord> messageFormatter;
+    private final Function<StoredAuditRecord, String> lineFormatter;
 
     LogPrinter(ToolOptions toolOptions)
     {
-        this(toolOptions, System.out, DEFAULT_POLL_INTERVAL_MS, EcLogYamlConfigLoader.load(toolOptions));
+        this(toolOptions, System.out);
+    }
+
+    /**
+     * @param toolOptions the options of the tool
+     * @param out         the stream to print records to
+     */
+    LogPrinter(ToolOptions toolOptions, PrintStream out)
+    {
+        this(toolOptions, out, DEFAULT_POLL_INTERVAL_MS, EcLogYamlConfigLoader.load(toolOptions));
     }
 
     // Visible for testing
@@ -54,6 +64,20 @@ class LogPrinter
                            .escape("%", "%%")
                            .availableFields(getAvailableFieldFunctionMap(config))
                            .build();
+        lineFormatter = getLineFormatter(toolOptions.format());
+    }
+
+    private Function<StoredAuditRecord, String> getLineFormatter(OutputFormat format)
+    {
+        switch (format)
+        {
+            case JSON:
+                return ExportFormatter::toJson;
+            case CSV:
+                return ExportFormatter::toCsv;
+            default:
+                return entry -> String.format(messageFormatter.getLogTemplate(), messageFormatter.getArgumentsForEntry(entry));
+        }
     }
 
     static Map<String, Function<StoredAuditRecord, Object>> getAvailableFieldFunctionMap(EcLogYamlConfig config)
@@ -78,16 +102,20 @@ class LogPrinter
                                   .orElse(String.valueOf(timestamp));
     }
 
-    void print(QueueReader queueReader)
+    void print(RecordReader recordReader)
     {
+        if (toolOptions.format() == OutputFormat.CSV)
+        {
+            out.println(ExportFormatter.CSV_HEADER);
+        }
+
         long printedRecords = 0;
         while (true)
         {
-            while (isEligibleForPrint(queueReader, printedRecords))
+            while (isEligibleForPrint(recordReader, printedRecords))
             {
-                StoredAuditRecord auditEntry = queueReader.nextRecord();
-                String logText = String.format(messageFormatter.getLogTemplate(), messageFormatter.getArgumentsForEntry(auditEntry));
-                out.println(logText);
+                StoredAuditRecord auditEntry = recordReader.nextRecord();
+                out.println(lineFormatter.apply(auditEntry));
 
                 printedRecords++;
             }
@@ -114,9 +142,9 @@ class LogPrinter
         }
     }
 
-    private boolean isEligibleForPrint(QueueReader queueReader, long printedRecords)
+    private boolean isEligibleForPrint(RecordReader recordReader, long printedRecords)
     {
-        return queueReader.hasRecordAvailable() && !isLimitReached(printedRecords);
+        return recordReader.hasRecordAvailable() && !isLimitReached(printedRecords);
     }
 
     private boolean isLimitReached(long printedRecords)
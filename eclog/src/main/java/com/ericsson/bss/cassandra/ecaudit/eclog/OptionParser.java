@@ -15,11 +15,20 @@
  */
 package com.ericsson.bss.cassandra.ecaudit.eclog;
 
+import java.net.InetAddress;
+import java.net.UnknownHostException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
 import java.util.Arrays;
+import java.util.Locale;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.regex.Pattern;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.DefaultParser;
@@ -28,8 +37,10 @@ import org.apache.commons.cli.Option;
 import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
 
+import com.ericsson.bss.cassandra.ecaudit.common.record.Status;
 import net.openhft.chronicle.queue.RollCycles;
 
+@SuppressWarnings("PMD.GodClass")
 class OptionParser
 {
     private static final String TOOL_NAME = "eclog";
@@ -46,6 +57,24 @@ class OptionParser
     private static final String HELP_OPTION = "help";
     private static final String CONFIG_OPTION_SHORT = "c";
     private static final String CONFIG_OPTION = "config";
+    private static final String USER_OPTION_SHORT = "u";
+    private static final String USER_OPTION = "user";
+    private static final String TABLE_OPTION_SHORT = "T";
+    private static final String TABLE_OPTION = "table";
+    private static final String FROM_OPTION = "from";
+    private static final String TO_OPTION = "to";
+    private static final String TIME_SLACK_OPTION = "time-slack";
+    private static final String STATUS_OPTION_SHORT = "s";
+    private static final String STATUS_OPTION = "status";
+    private static final String CLIENT_OPTION = "client";
+    private static final String KEYSPACE_OPTION_SHORT = "k";
+    private static final String KEYSPACE_OPTION = "keyspace";
+    private static final String BATCH_OPTION = "batch";
+    private static final String THREADS_OPTION = "threads";
+    private static final String FORMAT_OPTION = "format";
+    private static final String OUTPUT_OPTION_SHORT = "o";
+    private static final String OUTPUT_OPTION = "output";
+    private static final Pattern OFFSET_PATTERN = Pattern.compile("(Z|[+-]\\d{2}:\\d{2})$");
 
     ToolOptions parse(String... argv) throws ParseException
     {
@@ -65,6 +94,24 @@ class OptionParser
         parseLongOption(cmd, TAIL_OPTION).ifPresent(optionsBuilder::withTail);
         parseRollCycleOption(cmd).ifPresent(optionsBuilder::withRollCycle);
         parseConfigPathOption(cmd).ifPresent(optionsBuilder::withConfig);
+        parseStringOption(cmd, USER_OPTION).ifPresent(optionsBuilder::withUser);
+        parseStringOption(cmd, TABLE_OPTION).ifPresent(optionsBuilder::withTable);
+        Optional<Long> from = parseTimeOption(cmd, FROM_OPTION);
+        Optional<Long> to = parseTimeOption(cmd, TO_OPTION);
+        if (from.isPresent() && to.isPresent() && from.get() > to.get())
+        {
+            throw new ParseException("Option '" + FROM_OPTION + "' must not be later than option '" + TO_OPTION + "'");
+        }
+        from.ifPresent(optionsBuilder::withFromTimestamp);
+        to.ifPresent(optionsBuilder::withToTimestamp);
+        parseLongOption(cmd, TIME_SLACK_OPTION).ifPresent(optionsBuilder::withTimeSlack);
+        parseStatusOption(cmd).ifPresent(optionsBuilder::withStatus);
+        parseClientOption(cmd).ifPresent(optionsBuilder::withClient);
+        parseStringOption(cmd, KEYSPACE_OPTION).ifPresent(optionsBuilder::withKeyspace);
+        parseBatchOption(cmd).ifPresent(optionsBuilder::withBatch);
+        parseThreadsOption(cmd).ifPresent(optionsBuilder::withThreads);
+        parseFormatOption(cmd).ifPresent(optionsBuilder::withFormat);
+        parseStringOption(cmd, OUTPUT_OPTION).map(Paths::get).ifPresent(optionsBuilder::withOutput);
         optionsBuilder.withPath(parsePath(cmd));
 
         if (noFollowOrExplicitLimit(cmd))
@@ -92,7 +139,7 @@ class OptionParser
             }
             catch (NumberFormatException e)
             {
-                throw new ParseException("Option '" + option + "' is used with an invalid value '" + cmd.getOptionValue(option) + "' - specify a number"); // NOPMD
+                throw invalidValue(option, cmd.getOptionValue(option), "specify a number"); // NOPMD
             }
         }
         else
@@ -101,6 +148,150 @@ class OptionParser
         }
     }
 
+    private static ParseException invalidValue(String option, String value, String hint)
+    {
+        return new ParseException("Option '" + option + "' is used with an invalid value '" + value + "' - " + hint);
+    }
+
+    private Optional<String> parseStringOption(CommandLine cmd, String option)
+    {
+        return Optional.ofNullable(cmd.getOptionValue(option));
+    }
+
+    /**
+     * Parse a time given in milliseconds since epoch, as an ISO-8601 date and time with offset, or as an ISO-8601 local
+     * date and time in the default time zone.
+     */
+    private Optional<Long> parseTimeOption(CommandLine cmd, String option) throws ParseException
+    {
+        if (!cmd.hasOption(option))
+        {
+            return Optional.empty();
+        }
+
+        String value = cmd.getOptionValue(option);
+        try
+        {
+            if (value.chars().allMatch(Character::isDigit))
+            {
+                return Optional.of(Long.valueOf(value));
+            }
+            if (OFFSET_PATTERN.matcher(value).find())
+            {
+                return Optional.of(OffsetDateTime.parse(value).toInstant().toEpochMilli());
+            }
+            return Optional.of(LocalDateTime.parse(value).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        }
+        catch (NumberFormatException | DateTimeParseException e)
+        {
+            throw invalidValue(option, value, "specify milliseconds since epoch or a date and time, e.g. 2020-04-01T14:05:00Z"); // NOPMD
+        }
+    }
+
+    private Optional<Status> parseStatusOption(CommandLine cmd) throws ParseException
+    {
+        if (!cmd.hasOption(STATUS_OPTION))
+        {
+            return Optional.empty();
+        }
+
+        try
+        {
+            return Optional.of(Status.valueOf(cmd.getOptionValue(STATUS_OPTION).toUpperCase(Locale.ENGLISH)));
+        }
+        catch (IllegalArgumentException e)
+        {
+            throw new ParseException("Unrecognized status '" + cmd.getOptionValue(STATUS_OPTION) + "' - valid options are " + Arrays.asList(Status.values())); // NOPMD
+        }
+    }
+
+    private Optional<InetAddress> parseClientOption(CommandLine cmd) throws ParseException
+    {
+        if (!cmd.hasOption(CLIENT_OPTION))
+        {
+            return Optional.empty();
+        }
+
+        try
+        {
+            return Optional.of(InetAddress.getByName(cmd.getOptionValue(CLIENT_OPTION)));
+        }
+        catch (UnknownHostException e)
+        {
+            throw invalidValue(CLIENT_OPTION, cmd.getOptionValue(CLIENT_OPTION), "specify an IP address"); // NOPMD
+        }
+    }
+
+    private Optional<UUID> parseBatchOption(CommandLine cmd) throws ParseException
+    {
+        if (!cmd.hasOption(BATCH_OPTION))
+        {
+            return Optional.empty();
+        }
+
+        try
+        {
+            return Optional.of(UUID.fromString(cmd.getOptionValue(BATCH_OPTION)));
+        }
+        catch (IllegalArgumentException e)
+        {
+            throw invalidValue(BATCH_OPTION, cmd.getOptionValue(BATCH_OPTION), "specify a batch id"); // NOPMD
+        }
+    }
+
+    /**
+     * Cycles are read in parallel from the start of the log to its current end, which rules out following and tailing.
+     */
+    private Optional<Integer> parseThreadsOption(CommandLine cmd) throws ParseException
+    {
+        if (!cmd.hasOption(THREADS_OPTION))
+        {
+            return Optional.empty();
+        }
+
+        for (String excludedOption : Arrays.asList(FOLLOW_OPTION, TAIL_OPTION))
+        {
+            if (cmd.hasOption(excludedOption))
+            {
+                throw new ParseException("Option '" + THREADS_OPTION + "' can not be combined with option '" + excludedOption + "'");
+            }
+        }
+
+        String value = cmd.getOptionValue(THREADS_OPTION);
+        int threads;
+        try
+        {
+            threads = Integer.parseInt(value);
+        }
+        catch (NumberFormatException e)
+        {
+            threads = 0;
+        }
+
+        if (threads < 1)
+        {
+            throw invalidValue(THREADS_OPTION, value, "specify a positive number");
+        }
+        return Optional.of(threads);
+    }
+
+    private Optional<OutputFormat> parseFormatOption(CommandLine cmd) throws ParseException
+    {
+        if (!cmd.hasOption(FORMAT_OPTION))
+        {
+            return Optional.empty();
+        }
+
+        try
+        {
+            return Optional.of(OutputFormat.valueOf(cmd.getOptionValue(FORMAT_OPTION).toUpperCase(Locale.ENGLISH)));
+        }
+        catch (IllegalArgumentException e)
+        {
+            throw new ParseException("Unrecognized format '" + cmd.getOptionValue(FORMAT_OPTION) + "' - valid options are " + Arrays.asList(OutputFormat.values())); // NOPMD
+        }
+    }
+
     private Optional<RollCycles> parseRollCycleOption(CommandLine cmd) throws ParseException
     {
         if (cmd.hasOption(ROLL_CYCLE_OPTION))
@@ -171,6 +362,18 @@ class OptionParser
         options.addOption(new Option(ROLL_CYCLE_OPTION_SHORT, ROLL_CYCLE_OPTION, true, "How often the log file was rolled. May be necessary for Chronicle to correctly parse file names. (MINUTELY, HOURLY, DAILY)."));
         options.addOption(new Option(HELP_OPTION_SHORT, HELP_OPTION, false, "Display this help message"));
         options.addOption(new Option(CONFIG_OPTION_SHORT, CONFIG_OPTION, true, "Path to an optional configuration file"));
+        options.addOption(new Option(USER_OPTION_SHORT, USER_OPTION, true, "Only print records of the user <arg>"));
+        options.addOption(new Option(TABLE_OPTION_SHORT, TABLE_OPTION, true, "Only print records with statements on the table <arg>, named as in the statements, e.g. keyspace.table"));
+        options.addOption(new Option(null, FROM_OPTION, true, "Only print records logged at or after <arg>, given in milliseconds since epoch or as a date and time, e.g. 2020-04-01T14:05:00Z or 2020-04-01T14:05:00 in the local time zone. Reading starts at the first record at or after <arg>, assuming records are logged in timestamp order, see time-slack"));
+        options.addOption(new Option(null, TO_OPTION, true, "Only print records logged at or before <arg>, given like the from option, and stop reading at the first record after them, see time-slack"));
+        options.addOption(new Option(null, TIME_SLACK_OPTION, true, "Records may be logged up to <arg> milliseconds out of timestamp order, e.g. by concurrent writers. Reading starts <arg> milliseconds before the from option and stops <arg> milliseconds after the to option. Defaults to 0"));
+        options.addOption(new Option(STATUS_OPTION_SHORT, STATUS_OPTION, true, "Only print records with the status <arg>, e.g. FAILED"));
+        options.addOption(new Option(null, CLIENT_OPTION, true, "Only print records of requests from the client IP address <arg>"));
+        options.addOption(new Option(KEYSPACE_OPTION_SHORT, KEYSPACE_OPTION, true, "Only print records with statements on tables in the keyspace <arg>"));
+        options.addOption(new Option(null, BATCH_OPTION, true, "Only print records of the batch with id <arg>"));
+        options.addOption(new Option(null, THREADS_OPTION, true, "Read the cycle files of the log in parallel with <arg> threads, printing the records in order. Can not be combined with follow or tail"));
+        options.addOption(new Option(null, FORMAT_OPTION, true, "Print records as TEXT in the configured log format, as JSON lines or as CSV with a header line. Defaults to TEXT"));
+        options.addOption(new Option(OUTPUT_OPTION_SHORT, OUTPUT_OPTION, true, "Print records to the file <arg> instead of standard output"));
 
         return options;
     }
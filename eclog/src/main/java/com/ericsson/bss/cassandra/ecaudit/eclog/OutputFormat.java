@@ -0,0 +1,37 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.eclog;
+
+/**
+ * The format of the records printed by the tool.
+ */
+enum OutputFormat
+{
+    /**
+     * One line per record, as defined by the log format of the configuration.
+     */
+    TEXT,
+
+    /**
+     * One JSON object per record and line, also known as JSON Lines.
+     */
+    JSON,
+
+    /**
+     * Comma separated values with a header line, quoted as defined by RFC 4180.
+     */
+    CSV
+}
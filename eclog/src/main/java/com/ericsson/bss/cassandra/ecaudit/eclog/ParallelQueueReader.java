@@ -0,0 +1,221 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.eclog;
+
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+
+import com.ericsson.bss.cassandra.ecaudit.common.chronicle.CycleIndex;
+import com.ericsson.bss.cassandra.ecaudit.common.record.StoredAuditRecord;
+import net.openhft.chronicle.queue.impl.single.SingleChronicleQueue;
+
+/**
+ * Read AuditRecord entries from a Chronicle log, reading its cycles in parallel.
+ *
+ * Each compressed and live cycle of the log is read by a {@link CycleScan} in a fork-join pool, and the records are
+ * returned in cycle order, compressed cycles first. As many cycles as the pool has threads are read at a time, ahead of
+ * the cycle which records are returned from, and each scan buffers a bounded number of records.
+ *
+ * The live queue is read up to the last cycle which exists when the reader is created, so the log can not be tailed or
+ * followed. Cycles with an index which tells that no record matches the filter are not read, so compressed cycles with
+ * an index which ends before the time range are not extracted. With a time range each cycle is read from its first
+ * record of the range, and reading stops at the first cycle with a record after the range.
+ */
+class ParallelQueueReader implements ShardReader
+{
+    private static final int BUFFER_CAPACITY = 1024;
+
+    private final ForkJoinPool pool;
+    private final Deque<CycleScan> pendingScans = new ArrayDeque<>();
+    private final Deque<CycleScan> runningScans = new ArrayDeque<>();
+    private final Deque<StoredAuditRecord> nextRecords = new ArrayDeque<>();
+    private long nextSequence;
+
+    /**
+     * @param toolOptions the options of the tool
+     * @param pool        the pool to read cycles in
+     */
+    ParallelQueueReader(ToolOptions toolOptions, ForkJoinPool pool)
+    {
+        this(toolOptions, QueueReader.getChronicleQueue(toolOptions), QueueReader.getArchives(toolOptions), pool, BUFFER_CAPACITY);
+    }
+
+    // Visible for testing
+    ParallelQueueReader(ToolOptions toolOptions, SingleChronicleQueue chronicle, List<Path> archives, ForkJoinPool pool, int bufferCapacity)
+    {
+        this.pool = pool;
+        RecordFilter filter = new RecordFilter(toolOptions);
+        CycleSeek seek = new CycleSeek(filter);
+        IntFunction<Path> indexPathOf = cycle -> CycleIndex.indexOf(chronicle.file().toPath(), chronicle.rollCycle(), cycle);
+
+        for (Path archive : archives)
+        {
+            if (filter.selectsAll() || !seek.excludesCycle(CycleIndex.indexOf(archive)))
+            {
+                pendingScans.add(CycleScan.ofArchive(archive, chronicle.rollCycle(), filter, bufferCapacity));
+            }
+        }
+
+        for (int cycle : listLiveCycles(toolOptions, chronicle, indexPathOf))
+        {
+            if (filter.selectsAll() || !seek.excludesCycle(indexPathOf.apply(cycle)))
+            {
+                pendingScans.add(CycleScan.ofCycle(chronicle, cycle, filter, bufferCapacity));
+            }
+        }
+    }
+
+    /**
+     * @return the cycles of the live queue, from the cycle of the first record of the time range if there is one
+     */
+    private static List<Integer> listLiveCycles(ToolOptions toolOptions, SingleChronicleQueue chronicle, IntFunction<Path> indexPathOf)
+    {
+        int firstCycle = chronicle.firstCycle();
+        int lastCycle = chronicle.lastCycle();
+        if (firstCycle > lastCycle)
+        {
+            return Collections.emptyList();
+        }
+
+        if (toolOptions.fromTimestamp().isPresent())
+        {
+            OptionalLong startIndex = new TimeSeek(chronicle, indexPathOf).firstIndexFrom(toolOptions.fromTimestamp().get() - toolOptions.timeSlack());
+            if (!startIndex.isPresent())
+            {
+                return Collections.emptyList();
+            }
+            firstCycle = chronicle.rollCycle().toCycle(startIndex.getAsLong());
+        }
+
+        try
+        {
+            return chronicle.listCyclesBetween(firstCycle, lastCycle)
+                            .stream()
+                            .map(Long::intValue)
+                            .collect(Collectors.toList());
+        }
+        catch (ParseException e)
+        {
+            throw new IllegalStateException("Failed to list cycle files", e);
+        }
+    }
+
+    @Override
+    public boolean hasRecordAvailable()
+    {
+        maybeReadNext();
+        return !nextRecords.isEmpty();
+    }
+
+    private void maybeReadNext()
+    {
+        if (nextRecords.isEmpty())
+        {
+            readNext();
+        }
+    }
+
+    private void readNext()
+    {
+        while (nextRecords.isEmpty())
+        {
+            startScans();
+            CycleScan scan = runningScans.peek();
+            if (scan == null)
+            {
+                return;
+            }
+
+            Optional<CycleScan.Records> records = takeFrom(scan);
+            if (records.isPresent())
+            {
+                nextRecords.addAll(records.get().auditRecords());
+                nextSequence = records.get().sequence();
+            }
+            else
+            {
+                runningScans.poll();
+                if (scan.isPastTimeRange())
+                {
+                    cancelScans();
+                }
+            }
+        }
+    }
+
+    /**
+     * Start scans of the next cycles, until as many cycles are read as the pool has threads.
+     */
+    private void startScans()
+    {
+        while (runningScans.size() < pool.getParallelism() && !pendingScans.isEmpty())
+        {
+            CycleScan scan = pendingScans.poll();
+            runningScans.add(scan);
+            pool.execute(scan);
+        }
+    }
+
+    private Optional<CycleScan.Records> takeFrom(CycleScan scan)
+    {
+        try
+        {
+            return scan.next();
+        }
+        catch (RuntimeException e)
+        {
+            cancelScans();
+            throw e;
+        }
+    }
+
+    private void cancelScans()
+    {
+        runningScans.forEach(CycleScan::cancel);
+        runningScans.clear();
+        pendingScans.clear();
+    }
+
+    @Override
+    public StoredAuditRecord nextRecord()
+    {
+        maybeReadNext();
+        return nextRecords.poll();
+    }
+
+    @Override
+    public StoredAuditRecord peekRecord()
+    {
+        maybeReadNext();
+        return nextRecords.peek();
+    }
+
+    @Override
+    public long peekSequence()
+    {
+        maybeReadNext();
+        return nextSequence;
+    }
+}
@@ -15,36 +15,105 @@
  */
 package com.ericsson.bss.cassandra.ecaudit.eclog;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.function.Consumer;
+
 import com.ericsson.bss.cassandra.ecaudit.common.chronicle.AuditRecordReadMarshallable;
+import com.ericsson.bss.cassandra.ecaudit.common.chronicle.CycleArchive;
+import com.ericsson.bss.cassandra.ecaudit.common.chronicle.CycleIndex;
+import com.ericsson.bss.cassandra.ecaudit.common.chronicle.ReadDictionary;
+import com.ericsson.bss.cassandra.ecaudit.common.chronicle.RecordView;
 import com.ericsson.bss.cassandra.ecaudit.common.record.StoredAuditRecord;
 import net.openhft.chronicle.queue.ChronicleQueue;
 import net.openhft.chronicle.queue.ChronicleQueueBuilder;
 import net.openhft.chronicle.queue.ExcerptTailer;
+import net.openhft.chronicle.queue.RollCycle;
+import net.openhft.chronicle.queue.RollCycles;
+import net.openhft.chronicle.queue.impl.single.SingleChronicleQueue;
 import net.openhft.chronicle.queue.impl.single.SingleChronicleQueueBuilder;
+import net.openhft.chronicle.wire.ReadMarshallable;
 
 /**
  * Read AuditRecord entries from a Chronicle queue.
  *
  * The Chronicle queue is opened and scanned as defined by the supplied ToolOptions.
+ * Compact batch records are expanded into one AuditRecord per statement.
+ * Dictionary references are resolved transparently, also when reading starts in the middle of a roll cycle.
+ *
+ * Compressed cycle archives in the queue directory are read before the live queue, as one stream of records.
+ * The archives are extracted one at a time into a temporary directory. Archives are skipped when tailing the queue.
+ *
+ * Records which do not match the filter options are skipped, without decoding their statements unless the filter
+ * depends on them, see {@link RecordFilter}. If a cycle has a {@link CycleIndex}, only the records
+ * which the index lists for the filter are read, along with the records which define dictionary values used by them.
+ * Archives without such records are not extracted at all.
+ *
+ * With a time range, reading starts at the first record of the range, found by a {@link TimeSeek}, and stops at the
+ * first record after the range. Both ends are widened by the time slack, for records logged out of timestamp order.
+ *
+ * The shards of a sharded log are read by one QueueReader each, see {@link ShardedQueueReader}.
  */
-public class QueueReader
+@SuppressWarnings({"PMD.GodClass", "PMD.TooManyFields"})
+public class QueueReader implements ShardReader
 {
-    private final ExcerptTailer tailer;
+    private static final int NO_CYCLE = Integer.MIN_VALUE;
+
+    private final ToolOptions toolOptions;
+    private final ChronicleQueue liveChronicle;
+    private final Deque<Path> archives;
+    private final ReadDictionary dictionary;
+    private final RecordFilter filter;
+    private final RecordView view = new RecordView();
+
+    private final Deque<StoredAuditRecord> nextRecords = new ArrayDeque<>();
+    private final CycleSeek seek;
+    private long nextSequence;
 
-    private StoredAuditRecord nextRecord;
+    private ChronicleQueue chronicle;
+    private ExcerptTailer tailer;
+    private Path extractDirectory;
+    private boolean readingArchive;
+    private Path archive;
+    private int lookedUpCycle = NO_CYCLE;
+    private boolean pastTimeRange;
 
     public QueueReader(ToolOptions toolOptions)
     {
-        this(toolOptions, getChronicleQueue(toolOptions));
+        this(toolOptions, getChronicleQueue(toolOptions), getArchives(toolOptions));
     }
 
     // Visible for testing
     QueueReader(ToolOptions toolOptions, ChronicleQueue chronicleQueue)
     {
-        tailer = getExcerptTailer(toolOptions, chronicleQueue);
+        this(toolOptions, chronicleQueue, Collections.emptyList());
     }
 
-    private static ChronicleQueue getChronicleQueue(ToolOptions toolOptions)
+    // Visible for testing
+    QueueReader(ToolOptions toolOptions, ChronicleQueue chronicleQueue, List<Path> archives)
+    {
+        this.toolOptions = toolOptions;
+        liveChronicle = chronicleQueue;
+        this.archives = new ArrayDeque<>(archives);
+        dictionary = new ReadDictionary(() -> tailer.cycle(), this::recoverDictionary);
+        filter = new RecordFilter(toolOptions);
+        seek = new CycleSeek(filter);
+        openNextSource();
+    }
+
+    /**
+     * Open the live queue of the log for reading, or exit if the log can not be opened.
+     */
+    static SingleChronicleQueue getChronicleQueue(ToolOptions toolOptions)
     {
         SingleChronicleQueueBuilder chronicleBuilder = ChronicleQueueBuilder.single(toolOptions.path().toFile())
                                                                             .readOnly(true);
@@ -62,6 +131,27 @@ public class QueueReader
         }
     }
 
+    /**
+     * @return the compressed cycle files of the log in cycle order, unless tailing the log
+     */
+    static List<Path> getArchives(ToolOptions toolOptions)
+    {
+        if (toolOptions.tail().isPresent())
+        {
+            return Collections.emptyList();
+        }
+
+        try
+        {
+            return CycleArchive.listArchives(toolOptions.path());
+        }
+        catch (IOException e)
+        {
+            System.err.println("Failed to list compressed cycle files: " + e.getMessage()); // NOPMD
+            return Collections.emptyList();
+        }
+    }
+
     private static ExcerptTailer getExcerptTailer(ToolOptions toolOptions, ChronicleQueue chronicle)
     {
         ExcerptTailer tempTailer = chronicle.createTailer();
@@ -81,15 +171,16 @@ public class QueueReader
         return tempTailer;
     }
 
+    @Override
     public boolean hasRecordAvailable()
     {
         maybeReadNext();
-        return nextRecord != null;
+        return !nextRecords.isEmpty();
     }
 
     private void maybeReadNext()
     {
-        if (nextRecord == null)
+        if (nextRecords.isEmpty())
         {
             readNext();
         }
@@ -97,18 +188,227 @@ public class QueueReader
 
     private void readNext()
     {
-        AuditRecordReadMarshallable recordMarshallable = new AuditRecordReadMarshallable();
-        if (tailer.readDocument(recordMarshallable))
+        while (nextRecords.isEmpty() && !pastTimeRange)
+        {
+            AuditRecordReadMarshallable recordMarshallable = new AuditRecordReadMarshallable(dictionary, view, filter::matches);
+            if (!readFromSources(recordMarshallable))
+            {
+                return;
+            }
+
+            // Records which do not match the shared fields of the filter are read, but not decoded
+            List<StoredAuditRecord> records = recordMarshallable.getAuditRecords();
+            pastTimeRange = records.isEmpty() ? filter.isPast(view) : filter.isPast(records.get(0));
+            records.stream().filter(filter).forEach(nextRecords::add);
+            nextSequence = recordMarshallable.getSequence().orElse(0L);
+        }
+    }
+
+    private boolean readFromSources(ReadMarshallable recordMarshallable)
+    {
+        while (!readDocument(recordMarshallable))
+        {
+            if (!readingArchive)
+            {
+                return false;
+            }
+            closeArchive();
+            openNextSource();
+        }
+        return true;
+    }
+
+    /**
+     * Read the next record, through the index of the cycle if the tailer enters a cycle with an index.
+     */
+    private boolean readDocument(ReadMarshallable recordMarshallable)
+    {
+        if (seek.isActive())
+        {
+            // Continue after the cycle once all candidates are read
+            return seek.readCandidate(tailer, dictionary, recordMarshallable) || readDocument(recordMarshallable);
+        }
+
+        if (!filter.isIndexed())
+        {
+            return tailer.readDocument(recordMarshallable);
+        }
+
+        boolean read = tailer.readDocument(wire -> {
+            if (!enteredIndexedCycle())
+            {
+                recordMarshallable.readMarshallable(wire);
+            }
+        });
+        return read && (!seek.isActive() || readDocument(recordMarshallable));
+    }
+
+    private boolean enteredIndexedCycle()
+    {
+        if (!(chronicle instanceof SingleChronicleQueue) || tailer.cycle() == lookedUpCycle)
+        {
+            return false;
+        }
+
+        lookedUpCycle = tailer.cycle();
+        return seek.start(indexPathOf(lookedUpCycle), tailer.index());
+    }
+
+    private Path indexPathOf(int cycle)
+    {
+        if (readingArchive)
+        {
+            return CycleIndex.indexOf(archive);
+        }
+
+        SingleChronicleQueue singleChronicle = (SingleChronicleQueue) chronicle;
+        return CycleIndex.indexOf(singleChronicle.file().toPath(), singleChronicle.rollCycle(), cycle);
+    }
+
+    /**
+     * Open the next archive to read, or the live queue once all archives are read.
+     */
+    private void openNextSource()
+    {
+        archive = nextArchive();
+        lookedUpCycle = NO_CYCLE;
+        readingArchive = archive != null;
+        if (!readingArchive)
+        {
+            chronicle = liveChronicle;
+            tailer = getExcerptTailer(toolOptions, liveChronicle);
+            seekTimeRange();
+            return;
+        }
+
+        try
+        {
+            if (extractDirectory == null)
+            {
+                extractDirectory = Files.createTempDirectory("eclog");
+                extractDirectory.toFile().deleteOnExit();
+            }
+            CycleArchive.extract(archive, extractDirectory);
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException("Failed to extract compressed cycle file " + archive, e);
+        }
+
+        chronicle = ChronicleQueueBuilder.single(extractDirectory.toFile())
+                                         .rollCycle(getRollCycle())
+                                         .build();
+        tailer = chronicle.createTailer();
+        forEachExtractedFile(File::deleteOnExit);
+        seekTimeRange();
+    }
+
+    /**
+     * Move the tailer to the first record of the time range, unless tailing the queue.
+     */
+    private void seekTimeRange()
+    {
+        if (!toolOptions.fromTimestamp().isPresent() || toolOptions.tail().isPresent() || !(chronicle instanceof SingleChronicleQueue))
+        {
+            return;
+        }
+
+        OptionalLong startIndex = new TimeSeek((SingleChronicleQueue) chronicle, this::indexPathOf).firstIndexFrom(toolOptions.fromTimestamp().get() - toolOptions.timeSlack());
+        if (startIndex.isPresent())
+        {
+            tailer.moveToIndex(startIndex.getAsLong());
+        }
+        else
+        {
+            tailer.toEnd();
+        }
+    }
+
+    private Path nextArchive()
+    {
+        Path nextArchive = archives.poll();
+        while (nextArchive != null && isExcluded(nextArchive))
+        {
+            nextArchive = archives.poll();
+        }
+        return nextArchive;
+    }
+
+    private boolean isExcluded(Path archivePath)
+    {
+        return !filter.selectsAll() && seek.excludesCycle(CycleIndex.indexOf(archivePath));
+    }
+
+    private RollCycle getRollCycle()
+    {
+        if (liveChronicle instanceof SingleChronicleQueue)
+        {
+            return ((SingleChronicleQueue) liveChronicle).rollCycle();
+        }
+        return toolOptions.rollCycle().orElse(RollCycles.DAILY);
+    }
+
+    private void closeArchive()
+    {
+        chronicle.close();
+        forEachExtractedFile(File::delete);
+    }
+
+    private void forEachExtractedFile(Consumer<File> action)
+    {
+        File[] extractedFiles = extractDirectory.toFile().listFiles();
+        if (extractedFiles != null)
+        {
+            Arrays.stream(extractedFiles).forEach(action);
+        }
+    }
+
+    /**
+     * Read the dictionary definitions from the start of the cycle up to the record currently read by the tailer.
+     */
+    private void recoverDictionary(ReadDictionary recoveringDictionary, int cycle)
+    {
+        if (!(chronicle instanceof SingleChronicleQueue))
         {
-            nextRecord = recordMarshallable.getAuditRecord();
+            return;
+        }
+
+        RollCycle rollCycle = ((SingleChronicleQueue) chronicle).rollCycle();
+        ExcerptTailer recoveryTailer = chronicle.createTailer();
+        if (!recoveryTailer.moveToIndex(rollCycle.toIndex(cycle, 0)))
+        {
+            return;
+        }
+
+        long currentIndex = tailer.index();
+        ReadMarshallable definitionReader = recoveringDictionary.definitionReader();
+        while (recoveryTailer.index() < currentIndex)
+        {
+            if (!recoveryTailer.readDocument(definitionReader))
+            {
+                return;
+            }
         }
     }
 
+    @Override
     public StoredAuditRecord nextRecord()
     {
         maybeReadNext();
-        StoredAuditRecord entry = nextRecord;
-        nextRecord = null; // NOPMD
-        return entry;
+        return nextRecords.poll();
+    }
+
+    @Override
+    public StoredAuditRecord peekRecord()
+    {
+        maybeReadNext();
+        return nextRecords.peek();
+    }
+
+    @Override
+    public long peekSequence()
+    {
+        maybeReadNext();
+        return nextSequence;
     }
 }
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.eclog;
+
+import java.net.InetAddress;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Predicate;
+
+import com.ericsson.bss.cassandra.ecaudit.common.chronicle.CycleIndex;
+import com.ericsson.bss.cassandra.ecaudit.common.chronicle.RecordView;
+import com.ericsson.bss.cassandra.ecaudit.common.record.Status;
+import com.ericsson.bss.cassandra.ecaudit.common.record.StoredAuditRecord;
+
+/**
+ * Selects the records to print by the filter options of the tool.
+ * <p>
+ * Every record read is matched against the filter. The fields shared by the records of a wire record are matched on
+ * the {@link RecordView} before the record is decoded, so that records which do not match are skipped cheaply. The
+ * keyspace is only known from the decoded statements. Cycles with a {@link CycleIndex} need not be read as a whole,
+ * since the index tells which records may match the filter.
+ */
+class RecordFilter implements Predicate<StoredAuditRecord>
+{
+    private final Optional<String> user;
+    private final Optional<String> table;
+    private final Optional<Long> from;
+    private final Optional<Long> to;
+    private final long timeSlack;
+    private final Optional<Status> status;
+    private final Optional<InetAddress> client;
+    private final Optional<String> keyspace;
+    private final Optional<UUID> batch;
+
+    RecordFilter(ToolOptions toolOptions)
+    {
+        user = toolOptions.user();
+        table = toolOptions.table().map(CycleIndex::tableNameOf);
+        from = toolOptions.fromTimestamp();
+        to = toolOptions.toTimestamp();
+        timeSlack = toolOptions.timeSlack();
+        status = toolOptions.status();
+        client = toolOptions.client();
+        keyspace = toolOptions.keyspace().map(CycleIndex::tableNameOf);
+        batch = toolOptions.batch();
+    }
+
+    /**
+     * @return {@code true} if every record matches the filter, otherwise {@code false}
+     */
+    boolean selectsAll()
+    {
+        return !isIndexed() && !from.isPresent() && !to.isPresent()
+               && !status.isPresent() && !client.isPresent() && !keyspace.isPresent() && !batch.isPresent();
+    }
+
+    /**
+     * @return {@code true} if the filter can be looked up in a cycle index, otherwise {@code false}
+     */
+    boolean isIndexed()
+    {
+        return user.isPresent() || table.isPresent();
+    }
+
+    @Override
+    public boolean test(StoredAuditRecord record)
+    {
+        return user.map(expected -> expected.equals(record.getUser().orElse(null))).orElse(true)
+               && table.map(expected -> CycleIndex.tablesOf(record).contains(expected)).orElse(true)
+               && from.map(earliest -> record.getTimestamp().filter(timestamp -> timestamp >= earliest).isPresent()).orElse(true)
+               && to.map(latest -> record.getTimestamp().filter(timestamp -> timestamp <= latest).isPresent()).orElse(true)
+               && status.map(expected -> record.getStatus().filter(expected::equals).isPresent()).orElse(true)
+               && client.map(expected -> record.getClientAddress().filter(expected::equals).isPresent()).orElse(true)
+               && keyspace.map(expected -> isInKeyspace(record, expected)).orElse(true)
+               && batch.map(expected -> record.getBatchId().filter(expected::equals).isPresent()).orElse(true);
+    }
+
+    private static boolean isInKeyspace(StoredAuditRecord record, String expected)
+    {
+        String prefix = expected + '.';
+        return CycleIndex.tablesOf(record).stream().anyMatch(tableName -> tableName.startsWith(prefix));
+    }
+
+    /**
+     * Match the fields shared by the records of a wire record before the record is decoded.
+     *
+     * @param view the shared fields of the record
+     * @return {@code true} if the records may match the filter, otherwise {@code false}
+     */
+    boolean matches(RecordView view)
+    {
+        return user.map(view::isUser).orElse(true)
+               && status.map(view::isStatus).orElse(true)
+               && client.map(view::isClientAddress).orElse(true)
+               && batch.map(view::isBatch).orElse(true)
+               && (!from.isPresent() || view.hasTimestamp() && view.timestamp() >= from.get())
+               && (!to.isPresent() || view.hasTimestamp() && view.timestamp() <= to.get());
+    }
+
+    /**
+     * Records are logged in timestamp order, within the time slack, so no record after a record which is later than
+     * the time range by more than the slack matches.
+     *
+     * @param record a record which was read
+     * @return {@code true} if the record is later than the time range of the filter, otherwise {@code false}
+     */
+    boolean isPast(StoredAuditRecord record)
+    {
+        return to.isPresent() && record.getTimestamp().filter(timestamp -> timestamp - timeSlack > to.get()).isPresent();
+    }
+
+    /**
+     * @param view the shared fields of a record which was read, but not decoded
+     * @return {@code true} if the record is later than the time range of the filter, otherwise {@code false}
+     * @see #isPast(StoredAuditRecord)
+     */
+    boolean isPast(RecordView view)
+    {
+        return to.isPresent() && view.hasTimestamp() && view.timestamp() - timeSlack > to.get();
+    }
+
+    /**
+     * @return the timestamp to start reading from, ahead of the start of the time range by the time slack, or empty if
+     * the time range has no start
+     */
+    Optional<Long> seekTimestamp()
+    {
+        return from.map(earliest -> earliest - timeSlack);
+    }
+
+    /**
+     * @param index the index of a cycle
+     * @return {@code true} if the index tells that no record of the cycle matches the filter, otherwise {@code false}
+     */
+    boolean excludes(CycleIndex index)
+    {
+        return isIndexed() && candidatesIn(index).length == 0
+               || from.isPresent() && index.maxTimestamp() < from.get()
+               || to.isPresent() && index.minTimestamp() > to.get();
+    }
+
+    /**
+     * @param index the index of a cycle
+     * @return the indices of the records in the cycle which may match the filter in ascending order
+     */
+    long[] candidatesIn(CycleIndex index)
+    {
+        Optional<long[]> userRecords = user.map(index::recordsOfUser);
+        Optional<long[]> tableRecords = table.map(index::recordsOfTable);
+        if (userRecords.isPresent() && tableRecords.isPresent())
+        {
+            long[] tableCandidates = tableRecords.get();
+            return Arrays.stream(userRecords.get())
+                         .filter(candidate -> Arrays.binarySearch(tableCandidates, candidate) >= 0)
+                         .toArray();
+        }
+        return userRecords.orElseGet(() -> tableRecords.orElseThrow(() -> new IllegalStateException("Filter is not indexed")));
+    }
+}
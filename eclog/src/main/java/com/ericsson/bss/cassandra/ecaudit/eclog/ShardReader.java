@@ -0,0 +1,34 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.eclog;
+
+import com.ericsson.bss.cassandra.ecaudit.common.record.StoredAuditRecord;
+
+/**
+ * Reads audit records from one shard of a Chronicle log, see {@link ShardedQueueReader}.
+ */
+interface ShardReader extends RecordReader
+{
+    /**
+     * @return the next record without consuming it, or {@code null} if no record is available
+     */
+    StoredAuditRecord peekRecord();
+
+    /**
+     * @return the sequence number of the next record, or zero if the record was not written to a sharded log
+     */
+    long peekSequence();
+}
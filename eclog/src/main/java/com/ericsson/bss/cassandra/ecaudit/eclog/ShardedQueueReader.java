@@ -0,0 +1,108 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.eclog;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+
+import com.ericsson.bss.cassandra.ecaudit.common.record.StoredAuditRecord;
+
+/**
+ * Read AuditRecord entries from the shards of a sharded Chronicle log, merged in the order they were logged.
+ *
+ * Each shard is read by a {@link ShardReader} of its own. The next record is the earliest of the next records of the shards,
+ * ordered by timestamp, then by the sequence number of the node which logged them, and then by shard number.
+ * When following a live log, a record is returned once it is the earliest of the records available so far.
+ *
+ * With a tail, the last records of each shard are merged and only the last records of the merged log are returned.
+ */
+class ShardedQueueReader implements RecordReader
+{
+    private final List<? extends ShardReader> shardReaders;
+    private final Deque<StoredAuditRecord> tailRecords = new ArrayDeque<>();
+
+    /**
+     * @param shardReaders the readers of the shards, ordered by shard number
+     * @param tail         the number of records to read from the end of the merged log, if any
+     */
+    ShardedQueueReader(List<? extends ShardReader> shardReaders, Optional<Long> tail)
+    {
+        this.shardReaders = shardReaders;
+        tail.ifPresent(this::readTail);
+    }
+
+    private void readTail(long tail)
+    {
+        while (hasShardRecordAvailable())
+        {
+            tailRecords.add(nextShardRecord());
+            if (tailRecords.size() > tail)
+            {
+                tailRecords.poll();
+            }
+        }
+    }
+
+    @Override
+    public boolean hasRecordAvailable()
+    {
+        return !tailRecords.isEmpty() || hasShardRecordAvailable();
+    }
+
+    @Override
+    public StoredAuditRecord nextRecord()
+    {
+        if (!tailRecords.isEmpty())
+        {
+            return tailRecords.poll();
+        }
+
+        return nextShardRecord();
+    }
+
+    private boolean hasShardRecordAvailable()
+    {
+        return shardReaders.stream().anyMatch(ShardReader::hasRecordAvailable);
+    }
+
+    private StoredAuditRecord nextShardRecord()
+    {
+        ShardReader earliest = null;
+        for (ShardReader shardReader : shardReaders)
+        {
+            if (shardReader.hasRecordAvailable() && (earliest == null || isEarlier(shardReader, earliest)))
+            {
+                earliest = shardReader;
+            }
+        }
+
+        return earliest == null ? null : earliest.nextRecord();
+    }
+
+    private static boolean isEarlier(ShardReader reader, ShardReader other)
+    {
+        Optional<Long> timestamp = reader.peekRecord().getTimestamp();
+        Optional<Long> otherTimestamp = other.peekRecord().getTimestamp();
+        if (timestamp.isPresent() && otherTimestamp.isPresent() && !timestamp.get().equals(otherTimestamp.get()))
+        {
+            return timestamp.get() < otherTimestamp.get();
+        }
+
+        return reader.peekSequence() < other.peekSequence();
+    }
+}
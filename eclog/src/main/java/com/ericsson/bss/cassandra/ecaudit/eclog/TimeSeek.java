@@ -0,0 +1,219 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.eclog;
+
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.TreeMap;
+import java.util.function.IntFunction;
+
+import com.ericsson.bss.cassandra.ecaudit.common.chronicle.CycleIndex;
+import com.ericsson.bss.cassandra.ecaudit.common.chronicle.TimestampReadMarshallable;
+import net.openhft.chronicle.queue.ExcerptTailer;
+import net.openhft.chronicle.queue.RollCycle;
+import net.openhft.chronicle.queue.impl.single.SingleChronicleQueue;
+import net.openhft.chronicle.wire.DocumentContext;
+
+/**
+ * Finds the first record at or after a timestamp in a Chronicle queue, without reading the queue from its start.
+ * <p>
+ * The cycle is found by a binary search over the timestamps of the first record of each cycle. Within the cycle the
+ * record is looked up in the {@link CycleIndex} of the cycle, or if the cycle has no index, found by a binary search
+ * over the timestamps of the records of the cycle. Only the timestamps of the records are read, assuming that records
+ * are logged in timestamp order. Records which are out of order may be missed, so callers seek to a timestamp ahead of
+ * the time range by the time slack of the tool.
+ * <p>
+ * Records written with the compact layout hold their timestamps relative to a base timestamp defined at the start of
+ * each dictionary. For such a cycle without an index, the base timestamps are collected by reading the cycle once.
+ */
+class TimeSeek
+{
+    private final SingleChronicleQueue chronicle;
+    private final RollCycle rollCycle;
+    private final IntFunction<Path> indexPathOf;
+    private final ExcerptTailer probe;
+    private final TimestampReadMarshallable timestampReader;
+
+    private long probeIndex;
+    private int baseTimestampCycle;
+    private NavigableMap<Long, Long> baseTimestamps;
+
+    /**
+     * @param chronicle   the Chronicle queue to search
+     * @param indexPathOf gives the path of the index of a cycle
+     */
+    TimeSeek(SingleChronicleQueue chronicle, IntFunction<Path> indexPathOf)
+    {
+        this.chronicle = chronicle;
+        this.indexPathOf = indexPathOf;
+        rollCycle = chronicle.rollCycle();
+        probe = chronicle.createTailer();
+        timestampReader = new TimestampReadMarshallable(() -> baseTimestampOf(probeIndex));
+    }
+
+    /**
+     * @param from the timestamp to search for
+     * @return the index of the first record at or after the timestamp, or empty if there is no such record
+     */
+    OptionalLong firstIndexFrom(long from)
+    {
+        List<Integer> cycles = listCycles();
+
+        // The last cycle which starts at or before the timestamp holds the first record at or after it, if any
+        int low = 0;
+        int high = cycles.size() - 1;
+        int startCycle = 0;
+        while (low <= high)
+        {
+            int middle = (low + high) >>> 1;
+            if (isBefore(rollCycle.toIndex(cycles.get(middle), 0), from, true))
+            {
+                startCycle = middle;
+                low = middle + 1;
+            }
+            else
+            {
+                high = middle - 1;
+            }
+        }
+
+        for (int cycle : cycles.subList(startCycle, cycles.size()))
+        {
+            OptionalLong index = firstIndexInCycle(cycle, from);
+            if (index.isPresent())
+            {
+                return index;
+            }
+        }
+        return OptionalLong.empty();
+    }
+
+    private List<Integer> listCycles()
+    {
+        List<Integer> cycles = new ArrayList<>();
+        try
+        {
+            chronicle.listCyclesBetween(chronicle.firstCycle(), chronicle.lastCycle()).forEach(cycle -> cycles.add(cycle.intValue()));
+        }
+        catch (ParseException e)
+        {
+            System.err.println("Failed to list cycle files, reading from the start: " + e.getMessage()); // NOPMD
+        }
+        return cycles;
+    }
+
+    /**
+     * @param cycle the cycle to search
+     * @param from  the timestamp to search for
+     * @return the index of the first record of the cycle at or after the timestamp, or empty if there is no such record
+     */
+    OptionalLong firstIndexInCycle(int cycle, long from)
+    {
+        Optional<CycleIndex> cycleIndex = CycleSeek.readIndex(indexPathOf.apply(cycle));
+        if (cycleIndex.isPresent())
+        {
+            return cycleIndex.get().maxTimestamp() < from
+                   ? OptionalLong.empty()
+                   : cycleIndex.get().firstIndexFrom(from);
+        }
+
+        long recordCount = chronicle.exceptsPerCycle(cycle);
+        long low = 0;
+        long high = recordCount;
+        while (low < high)
+        {
+            long middle = (low + high) >>> 1;
+            if (isBefore(rollCycle.toIndex(cycle, middle), from, false))
+            {
+                low = middle + 1;
+            }
+            else
+            {
+                high = middle;
+            }
+        }
+        return low < recordCount
+               ? OptionalLong.of(rollCycle.toIndex(cycle, low))
+               : OptionalLong.empty();
+    }
+
+    /**
+     * Records without a timestamp are taken to be before any timestamp.
+     *
+     * @param index     the index of a record
+     * @param timestamp the timestamp to compare with
+     * @param inclusive {@code true} if a record at the timestamp counts as before it
+     * @return {@code true} if the record is before the timestamp, otherwise {@code false}
+     */
+    private boolean isBefore(long index, long timestamp, boolean inclusive)
+    {
+        probeIndex = index;
+        if (!probe.moveToIndex(index) || !probe.readDocument(timestampReader))
+        {
+            return false;
+        }
+
+        OptionalLong recordTimestamp = timestampReader.getTimestamp();
+        return !recordTimestamp.isPresent()
+               || recordTimestamp.getAsLong() < timestamp
+               || inclusive && recordTimestamp.getAsLong() == timestamp;
+    }
+
+    private long baseTimestampOf(long index)
+    {
+        int cycle = rollCycle.toCycle(index);
+        if (baseTimestamps == null || baseTimestampCycle != cycle)
+        {
+            baseTimestamps = readBaseTimestamps(cycle);
+            baseTimestampCycle = cycle;
+        }
+
+        Map.Entry<Long, Long> baseTimestamp = baseTimestamps.floorEntry(index);
+        return baseTimestamp == null ? 0L : baseTimestamp.getValue();
+    }
+
+    private NavigableMap<Long, Long> readBaseTimestamps(int cycle)
+    {
+        NavigableMap<Long, Long> result = new TreeMap<>();
+        ExcerptTailer scanner = chronicle.createTailer();
+        if (!scanner.moveToIndex(rollCycle.toIndex(cycle, 0)))
+        {
+            return result;
+        }
+
+        TimestampReadMarshallable baseReader = new TimestampReadMarshallable(() -> 0L);
+        while (true)
+        {
+            try (DocumentContext documentContext = scanner.readingDocument())
+            {
+                if (!documentContext.isPresent() || rollCycle.toCycle(documentContext.index()) != cycle)
+                {
+                    return result;
+                }
+
+                baseReader.readMarshallable(documentContext.wire());
+                long index = documentContext.index();
+                baseReader.getDefinedBaseTimestamp().ifPresent(base -> result.put(index, base));
+            }
+        }
+    }
+}
@@ -15,11 +15,15 @@
  */
 package com.ericsson.bss.cassandra.ecaudit.eclog;
 
+import java.net.InetAddress;
 import java.nio.file.Path;
 import java.util.Optional;
+import java.util.UUID;
 
+import com.ericsson.bss.cassandra.ecaudit.common.record.Status;
 import net.openhft.chronicle.queue.RollCycles;
 
+@SuppressWarnings("PMD.TooManyFields")
 public class ToolOptions
 {
     private final Path path;
@@ -29,6 +33,18 @@ public class ToolOptions
     private final boolean follow;
     private final RollCycles rollCycle;
     private final boolean help;
+    private final String user;
+    private final String table;
+    private final Long from;
+    private final Long to;
+    private final long timeSlack;
+    private final Status status;
+    private final InetAddress client;
+    private final String keyspace;
+    private final UUID batch;
+    private final Integer threads;
+    private final OutputFormat format;
+    private final Path output;
 
     private ToolOptions(Builder builder)
     {
@@ -39,6 +55,18 @@ public class ToolOptions
         this.follow = builder.follow;
         this.rollCycle = builder.rollCycle;
         this.help = builder.help;
+        this.user = builder.user;
+        this.table = builder.table;
+        this.from = builder.from;
+        this.to = builder.to;
+        this.timeSlack = builder.timeSlack;
+        this.status = builder.status;
+        this.client = builder.client;
+        this.keyspace = builder.keyspace;
+        this.batch = builder.batch;
+        this.threads = builder.threads;
+        this.format = builder.format;
+        this.output = builder.output;
     }
 
     public Path path()
@@ -76,11 +104,119 @@ public class ToolOptions
         return help;
     }
 
+    public Optional<String> user()
+    {
+        return Optional.ofNullable(user);
+    }
+
+    public Optional<String> table()
+    {
+        return Optional.ofNullable(table);
+    }
+
+    /**
+     * @return the earliest timestamp of the records to print, in milliseconds since epoch
+     */
+    public Optional<Long> fromTimestamp()
+    {
+        return Optional.ofNullable(from);
+    }
+
+    /**
+     * @return the latest timestamp of the records to print, in milliseconds since epoch
+     */
+    public Optional<Long> toTimestamp()
+    {
+        return Optional.ofNullable(to);
+    }
+
+    /**
+     * Records may be logged slightly out of timestamp order, e.g. by concurrent writers. The slack widens the part of
+     * the log which is read for a time range by this margin in both directions.
+     *
+     * @return the time in milliseconds by which records may be out of timestamp order
+     */
+    public long timeSlack()
+    {
+        return timeSlack;
+    }
+
+    public Optional<Status> status()
+    {
+        return Optional.ofNullable(status);
+    }
+
+    public Optional<InetAddress> client()
+    {
+        return Optional.ofNullable(client);
+    }
+
+    public Optional<String> keyspace()
+    {
+        return Optional.ofNullable(keyspace);
+    }
+
+    public Optional<UUID> batch()
+    {
+        return Optional.ofNullable(batch);
+    }
+
+    /**
+     * @return the number of threads to read cycles in parallel with, if cycles are read in parallel
+     */
+    public Optional<Integer> threads()
+    {
+        return Optional.ofNullable(threads);
+    }
+
+    public OutputFormat format()
+    {
+        return format;
+    }
+
+    /**
+     * @return the file to print records to, instead of standard output
+     */
+    public Optional<Path> output()
+    {
+        return Optional.ofNullable(output);
+    }
+
+    /**
+     * @param shardPath the directory of a shard of the log
+     * @return the options for reading the shard, with the path of the shard
+     */
+    public ToolOptions forShard(Path shardPath)
+    {
+        Builder builder = new Builder();
+        builder.path = shardPath;
+        builder.config = config;
+        builder.limit = limit;
+        builder.tail = tail;
+        builder.follow = follow;
+        builder.rollCycle = rollCycle;
+        builder.help = help;
+        builder.user = user;
+        builder.table = table;
+        builder.from = from;
+        builder.to = to;
+        builder.timeSlack = timeSlack;
+        builder.status = status;
+        builder.client = client;
+        builder.keyspace = keyspace;
+        builder.batch = batch;
+        builder.threads = threads;
+        builder.format = format;
+        builder.output = output;
+        return builder.build();
+    }
+
     public static Builder builder()
     {
         return new Builder();
     }
 
+    @SuppressWarnings("PMD.TooManyFields")
     public static class Builder
     {
         private Path path;
@@ -90,6 +226,18 @@ public class ToolOptions
         private boolean follow = false;
         private RollCycles rollCycle;
         private boolean help = false;
+        private String user;
+        private String table;
+        private Long from;
+        private Long to;
+        private long timeSlack = 0L;
+        private Status status;
+        private InetAddress client;
+        private String keyspace;
+        private UUID batch;
+        private Integer threads;
+        private OutputFormat format = OutputFormat.TEXT;
+        private Path output;
 
         public Builder withPath(Path path)
         {
@@ -133,6 +281,78 @@ public class ToolOptions
             return this;
         }
 
+        public Builder withUser(String user)
+        {
+            this.user = user;
+            return this;
+        }
+
+        public Builder withTable(String table)
+        {
+            this.table = table;
+            return this;
+        }
+
+        public Builder withFromTimestamp(long from)
+        {
+            this.from = from;
+            return this;
+        }
+
+        public Builder withToTimestamp(long to)
+        {
+            this.to = to;
+            return this;
+        }
+
+        public Builder withTimeSlack(long timeSlack)
+        {
+            this.timeSlack = timeSlack;
+            return this;
+        }
+
+        public Builder withStatus(Status status)
+        {
+            this.status = status;
+            return this;
+        }
+
+        public Builder withClient(InetAddress client)
+        {
+            this.client = client;
+            return this;
+        }
+
+        public Builder withKeyspace(String keyspace)
+        {
+            this.keyspace = keyspace;
+            return this;
+        }
+
+        public Builder withBatch(UUID batch)
+        {
+            this.batch = batch;
+            return this;
+        }
+
+        public Builder withThreads(int threads)
+        {
+            this.threads = threads;
+            return this;
+        }
+
+        public Builder withFormat(OutputFormat format)
+        {
+            this.format = format;
+            return this;
+        }
+
+        public Builder withOutput(Path output)
+        {
+            this.output = output;
+            return this;
+        }
+
         public ToolOptions build()
         {
             return new ToolOptions(this);
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.eclog;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import com.ericsson.bss.cassandra.ecaudit.common.record.Status;
+import com.ericsson.bss.cassandra.ecaudit.common.record.StoredAuditRecord;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TestExportFormatter
+{
+    @Test
+    public void testCsvHeader()
+    {
+        assertThat(ExportFormatter.CSV_HEADER).isEqualTo("timestamp,client_ip,client_port,coordinator_ip,user,batch_id,status,operation,operation_naked");
+    }
+
+    @Test
+    public void testJsonWithAllFields() throws UnknownHostException
+    {
+        StoredAuditRecord record = givenFullRecord("SELECT * FROM ks.tbl");
+
+        assertThat(ExportFormatter.toJson(record))
+        .isEqualTo("{\"timestamp\":123,\"client_ip\":\"1.2.3.4\",\"client_port\":42,\"coordinator_ip\":\"5.6.7.8\",\"user\":\"king\","
+                   + "\"batch_id\":\"12345678-aaaa-bbbb-cccc-123456789abc\",\"status\":\"ATTEMPT\","
+                   + "\"operation\":\"SELECT * FROM ks.tbl\",\"operation_naked\":\"SELECT * FROM ks.tbl\"}");
+    }
+
+    @Test
+    public void testJsonLeavesOutMissingFields()
+    {
+        StoredAuditRecord record = StoredAuditRecord.builder().withUser("king").withOperation("Authentication operation").build();
+
+        assertThat(ExportFormatter.toJson(record)).isEqualTo("{\"user\":\"king\",\"operation\":\"Authentication operation\"}");
+    }
+
+    @Test
+    public void testJsonIsEscaped()
+    {
+        StoredAuditRecord record = StoredAuditRecord.builder().withOperation("SELECT \"a\\b\"\n\tFROM t\u0001").build();
+
+        assertThat(ExportFormatter.toJson(record)).isEqualTo("{\"operation\":\"SELECT \\\"a\\\\b\\\"\\n\\tFROM t\\u0001\"}");
+    }
+
+    @Test
+    public void testCsvWithAllFields() throws UnknownHostException
+    {
+        StoredAuditRecord record = givenFullRecord("SELECT a FROM ks.tbl");
+
+        assertThat(ExportFormatter.toCsv(record))
+        .isEqualTo("123,1.2.3.4,42,5.6.7.8,king,12345678-aaaa-bbbb-cccc-123456789abc,ATTEMPT,SELECT a FROM ks.tbl,SELECT a FROM ks.tbl");
+    }
+
+    @Test
+    public void testCsvLeavesMissingFieldsEmpty()
+    {
+        StoredAuditRecord record = StoredAuditRecord.builder().withUser("king").build();
+
+        assertThat(ExportFormatter.toCsv(record)).isEqualTo(",,,,king,,,,");
+    }
+
+    @Test
+    public void testCsvIsQuoted()
+    {
+        StoredAuditRecord record = StoredAuditRecord.builder().withOperation("SELECT a, b FROM t WHERE c = \"x\"").withNakedOperation("SELECT\nd").build();
+
+        assertThat(ExportFormatter.toCsv(record)).isEqualTo(",,,,,,,\"SELECT a, b FROM t WHERE c = \"\"x\"\"\",\"SELECT\nd\"");
+    }
+
+    private static StoredAuditRecord givenFullRecord(String operation) throws UnknownHostException
+    {
+        return StoredAuditRecord.builder()
+                                .withTimestamp(123L)
+                                .withClientAddress(InetAddress.getByName("1.2.3.4"))
+                                .withClientPort(42)
+                                .withCoordinatorAddress(InetAddress.getByName("5.6.7.8"))
+                                .withUser("king")
+                                .withBatchId(UUID.fromString("12345678-aaaa-bbbb-cccc-123456789abc"))
+                                .withStatus(Status.ATTEMPT)
+                                .withOperation(operation)
+                                .withNakedOperation(operation)
+                                .build();
+    }
+}
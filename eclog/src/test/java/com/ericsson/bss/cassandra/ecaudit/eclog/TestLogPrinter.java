@@ -203,6 +203,33 @@ public class TestLogPrinter
         verify(stream).println(eq("|user:king"));
     }
 
+    @Test(timeout = 5000)
+    public void testCsvFormatPrintsHeader()
+    {
+        ToolOptions options = ToolOptions.builder().withPath(DEFAULT_PATH).withFormat(OutputFormat.CSV).build();
+        LogPrinter printer = givenPrinter(options, 10);
+        QueueReader reader = givenReaderWithSingleRecord(FULL_RECORD);
+
+        printer.print(reader);
+
+        verify(stream).println(eq(ExportFormatter.CSV_HEADER));
+        verify(stream).println(eq("123,1.2.3.4,42,5.6.7.8,king,12345678-aaaa-bbbb-cccc-123456789abc,ATTEMPT,select something,select something - naked"));
+    }
+
+    @Test(timeout = 5000)
+    public void testJsonFormat()
+    {
+        ToolOptions options = ToolOptions.builder().withPath(DEFAULT_PATH).withFormat(OutputFormat.JSON).build();
+        LogPrinter printer = givenPrinter(options, 10);
+        StoredAuditRecord authRecord = mockRecord(0L, "1.2.3.4", null, "5.6.7.8", "king", Status.ATTEMPT, null, "Authentication operation");
+        QueueReader reader = givenReaderWithSingleRecord(authRecord);
+
+        printer.print(reader);
+
+        verify(stream).println(eq("{\"timestamp\":0,\"client_ip\":\"1.2.3.4\",\"coordinator_ip\":\"5.6.7.8\",\"user\":\"king\",\"status\":\"ATTEMPT\","
+                                  + "\"operation\":\"Authentication operation\",\"operation_naked\":\"Authentication operation - naked\"}"));
+    }
+
     @Test
     public void testAvailableFieldFunctions()
     {
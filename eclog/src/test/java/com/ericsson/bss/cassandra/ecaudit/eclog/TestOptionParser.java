@@ -19,11 +19,17 @@ import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
 import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.UUID;
 
 import org.apache.commons.cli.ParseException;
 import org.junit.Test;
 
+import com.ericsson.bss.cassandra.ecaudit.common.record.Status;
 import net.openhft.chronicle.queue.RollCycles;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -341,6 +347,185 @@ public class TestOptionParser
         assertThat(testOut.toString()).contains("help");
     }
 
+    @Test
+    public void withUserAndDirectory() throws ParseException
+    {
+        String[] argv = givenInputOptions("-u", "john", "./dir");
+
+        ToolOptions options = parser.parse(argv);
+
+        assertEqualOptions(options, expected()
+                                    .withPath(Paths.get("./dir"))
+                                    .withUser("john"));
+    }
+
+    @Test
+    public void withLongTableAndDirectory() throws ParseException
+    {
+        String[] argv = givenInputOptions("--table", "ks.tbl", "./dir");
+
+        ToolOptions options = parser.parse(argv);
+
+        assertEqualOptions(options, expected()
+                                    .withPath(Paths.get("./dir"))
+                                    .withTable("ks.tbl"));
+    }
+
+    @Test
+    public void withFromAndToAndDirectory() throws ParseException
+    {
+        String[] argv = givenInputOptions("--from", "1585749900000", "--to", "2020-04-01T14:10:00Z", "./dir");
+
+        ToolOptions options = parser.parse(argv);
+
+        assertEqualOptions(options, expected()
+                                    .withPath(Paths.get("./dir"))
+                                    .withFromTimestamp(1585749900000L)
+                                    .withToTimestamp(1585750200000L));
+    }
+
+    @Test
+    public void withTimeSlack() throws ParseException
+    {
+        String[] argv = givenInputOptions("--from", "1000", "--time-slack", "500", "./dir");
+
+        ToolOptions options = parser.parse(argv);
+
+        assertEqualOptions(options, expected()
+                                    .withPath(Paths.get("./dir"))
+                                    .withFromTimestamp(1000L)
+                                    .withTimeSlack(500L));
+    }
+
+    @Test
+    public void withFromWithOffset() throws ParseException
+    {
+        String[] argv = givenInputOptions("--from", "2020-04-01T16:05:00+02:00", "./dir");
+
+        ToolOptions options = parser.parse(argv);
+
+        assertThat(options.fromTimestamp()).contains(1585749900000L);
+    }
+
+    @Test
+    public void withFromInLocalTime() throws ParseException
+    {
+        String[] argv = givenInputOptions("--from", "2020-04-01T14:05:00", "./dir");
+
+        ToolOptions options = parser.parse(argv);
+
+        assertThat(options.fromTimestamp()).contains(LocalDateTime.of(2020, 4, 1, 14, 5).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+    }
+
+    @Test
+    public void withInvalidFrom()
+    {
+        String[] argv = givenInputOptions("--from", "yesterday", "./dir");
+
+        assertThatExceptionOfType(ParseException.class)
+        .isThrownBy(() -> parser.parse(argv))
+        .withMessageContaining("invalid value 'yesterday'");
+    }
+
+    @Test
+    public void withFromAfterTo()
+    {
+        String[] argv = givenInputOptions("--from", "2000", "--to", "1000", "./dir");
+
+        assertThatExceptionOfType(ParseException.class)
+        .isThrownBy(() -> parser.parse(argv))
+        .withMessageContaining("must not be later than");
+    }
+
+    @Test
+    public void withStatusClientKeyspaceAndBatch() throws ParseException, UnknownHostException
+    {
+        String[] argv = givenInputOptions("-s", "failed", "--client", "1.2.3.4", "--keyspace", "ks", "--batch", "bd92aeb1-3373-4d6a-b65a-0d60295f66c9", "./dir");
+
+        ToolOptions options = parser.parse(argv);
+
+        assertEqualOptions(options, expected()
+                                    .withPath(Paths.get("./dir"))
+                                    .withStatus(Status.FAILED)
+                                    .withClient(InetAddress.getByName("1.2.3.4"))
+                                    .withKeyspace("ks")
+                                    .withBatch(UUID.fromString("bd92aeb1-3373-4d6a-b65a-0d60295f66c9")));
+    }
+
+    @Test
+    public void withInvalidStatus()
+    {
+        String[] argv = givenInputOptions("--status", "LOST", "./dir");
+
+        assertThatExceptionOfType(ParseException.class)
+        .isThrownBy(() -> parser.parse(argv))
+        .withMessageContaining("Unrecognized status 'LOST'");
+    }
+
+    @Test
+    public void withInvalidBatch()
+    {
+        String[] argv = givenInputOptions("--batch", "42", "./dir");
+
+        assertThatExceptionOfType(ParseException.class)
+        .isThrownBy(() -> parser.parse(argv))
+        .withMessageContaining("invalid value '42'");
+    }
+
+    @Test
+    public void withThreadsFormatAndOutput() throws ParseException
+    {
+        String[] argv = givenInputOptions("--threads", "4", "--format", "json", "-o", "records.jsonl", "./dir");
+
+        ToolOptions options = parser.parse(argv);
+
+        assertEqualOptions(options, expected()
+                                    .withPath(Paths.get("./dir"))
+                                    .withThreads(4)
+                                    .withFormat(OutputFormat.JSON)
+                                    .withOutput(Paths.get("records.jsonl")));
+    }
+
+    @Test
+    public void withInvalidThreads()
+    {
+        String[] argv = givenInputOptions("--threads", "0", "./dir");
+
+        assertThatExceptionOfType(ParseException.class)
+        .isThrownBy(() -> parser.parse(argv))
+        .withMessageContaining("invalid value '0'");
+    }
+
+    @Test
+    public void withThreadsAndFollow()
+    {
+        String[] argv = givenInputOptions("--threads", "2", "-f", "./dir");
+
+        assertThatExceptionOfType(ParseException.class)
+        .isThrownBy(() -> parser.parse(argv))
+        .withMessageContaining("can not be combined with option 'follow'");
+    }
+
+    @Test
+    public void withThreadsAndTail()
+    {
+        String[] argv = givenInputOptions("--threads", "2", "-t", "5", "./dir");
+
+        assertThatExceptionOfType(ParseException.class)
+        .isThrownBy(() -> parser.parse(argv))
+        .withMessageContaining("can not be combined with option 'tail'");
+    }
+
+    @Test
+    public void withInvalidFormat()
+    {
+        String[] argv = givenInputOptions("--format", "xml", "./dir");
+
+        assertThatExceptionOfType(ParseException.class)
+        .isThrownBy(() -> parser.parse(argv))
+        .withMessageContaining("Unrecognized format 'xml'");
+    }
+
     @Test
     public void withHelp() throws ParseException
     {
@@ -398,5 +583,17 @@ public class TestOptionParser
         assertThat(actualOptions.tail()).isEqualTo(expectedOptions.tail());
         assertThat(actualOptions.help()).isEqualTo(expectedOptions.help());
         assertThat(actualOptions.config()).isEqualTo(expectedOptions.config());
+        assertThat(actualOptions.user()).isEqualTo(expectedOptions.user());
+        assertThat(actualOptions.table()).isEqualTo(expectedOptions.table());
+        assertThat(actualOptions.fromTimestamp()).isEqualTo(expectedOptions.fromTimestamp());
+        assertThat(actualOptions.toTimestamp()).isEqualTo(expectedOptions.toTimestamp());
+        assertThat(actualOptions.timeSlack()).isEqualTo(expectedOptions.timeSlack());
+        assertThat(actualOptions.status()).isEqualTo(expectedOptions.status());
+        assertThat(actualOptions.client()).isEqualTo(expectedOptions.client());
+        assertThat(actualOptions.keyspace()).isEqualTo(expectedOptions.keyspace());
+        assertThat(actualOptions.batch()).isEqualTo(expectedOptions.batch());
+        assertThat(actualOptions.threads()).isEqualTo(expectedOptions.threads());
+        assertThat(actualOptions.format()).isEqualTo(expectedOptions.format());
+        assertThat(actualOptions.output()).isEqualTo(expectedOptions.output());
     }
 }
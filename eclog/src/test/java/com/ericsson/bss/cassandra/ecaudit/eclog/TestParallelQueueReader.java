@@ -0,0 +1,321 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.eclog;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.ericsson.bss.cassandra.ecaudit.common.chronicle.AuditRecordReadMarshallable;
+import com.ericsson.bss.cassandra.ecaudit.common.chronicle.AuditRecordWriteMarshallable;
+import com.ericsson.bss.cassandra.ecaudit.common.chronicle.CycleArchive;
+import com.ericsson.bss.cassandra.ecaudit.common.chronicle.CycleIndex;
+import com.ericsson.bss.cassandra.ecaudit.common.chronicle.ReadDictionary;
+import com.ericsson.bss.cassandra.ecaudit.common.chronicle.WriteDictionary;
+import com.ericsson.bss.cassandra.ecaudit.common.record.AuditRecord;
+import com.ericsson.bss.cassandra.ecaudit.common.record.SimpleAuditOperation;
+import com.ericsson.bss.cassandra.ecaudit.common.record.Status;
+import com.ericsson.bss.cassandra.ecaudit.common.record.StoredAuditRecord;
+import net.openhft.chronicle.core.time.SetTimeProvider;
+import net.openhft.chronicle.queue.ChronicleQueue;
+import net.openhft.chronicle.queue.ChronicleQueueBuilder;
+import net.openhft.chronicle.queue.ExcerptAppender;
+import net.openhft.chronicle.queue.ExcerptTailer;
+import net.openhft.chronicle.queue.RollCycles;
+import net.openhft.chronicle.queue.impl.single.SingleChronicleQueue;
+
+import static com.ericsson.bss.cassandra.ecaudit.common.chronicle.FieldSelector.DEFAULT_FIELDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TestParallelQueueReader
+{
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final ForkJoinPool pool = new ForkJoinPool(2);
+
+    @After
+    public void after()
+    {
+        pool.shutdownNow();
+    }
+
+    @Test
+    public void testNothingToRead() throws Exception
+    {
+        File queueFolder = temporaryFolder.newFolder();
+
+        try (SingleChronicleQueue chronicle = buildQueue(queueFolder))
+        {
+            ParallelQueueReader reader = new ParallelQueueReader(ToolOptions.builder().build(), chronicle, Collections.emptyList(), pool, 1);
+
+            assertThat(reader.hasRecordAvailable()).isFalse();
+            assertThat(reader.nextRecord()).isNull();
+        }
+    }
+
+    @Test
+    public void testCyclesAreReadInOrder() throws Exception
+    {
+        File queueFolder = temporaryFolder.newFolder();
+        for (int day = 0; day < 5; day++)
+        {
+            givenRecordsInCycle(queueFolder, day, new WriteDictionary(),
+                                givenAuditRecord(day * 10L, "john", "SELECT " + day + "a"),
+                                givenAuditRecord(day * 10L + 1, "kate", "SELECT " + day + "b"));
+        }
+
+        try (SingleChronicleQueue chronicle = buildQueue(queueFolder))
+        {
+            ParallelQueueReader reader = new ParallelQueueReader(ToolOptions.builder().build(), chronicle, Collections.emptyList(), pool, 1);
+
+            assertThat(readOperations(reader)).containsExactly("SELECT 0a", "SELECT 0b", "SELECT 1a", "SELECT 1b", "SELECT 2a",
+                                                               "SELECT 2b", "SELECT 3a", "SELECT 3b", "SELECT 4a", "SELECT 4b");
+        }
+    }
+
+    @Test
+    public void testArchivesAreReadBeforeLiveQueue() throws Exception
+    {
+        File queueFolder = temporaryFolder.newFolder();
+        givenRecordsInCycle(queueFolder, 0, null, givenAuditRecord(10L, "john", "SELECT 1"));
+        givenRecordsInCycle(queueFolder, 1, null, givenAuditRecord(20L, "john", "SELECT 2"));
+        givenRecordsInCycle(queueFolder, 2, null, givenAuditRecord(30L, "john", "SELECT 3"));
+        givenArchivedFirstCycle(queueFolder);
+        givenArchivedFirstCycle(queueFolder);
+
+        ParallelQueueReader reader = new ParallelQueueReader(givenOptions(queueFolder).build(), pool);
+
+        assertThat(readOperations(reader)).containsExactly("SELECT 1", "SELECT 2", "SELECT 3");
+    }
+
+    @Test
+    public void testIndexedCyclesAreFiltered() throws Exception
+    {
+        File queueFolder = temporaryFolder.newFolder();
+        givenRecordsInCycle(queueFolder, 0, new WriteDictionary(),
+                            givenAuditRecord(10L, "john", "SELECT 1"),
+                            givenAuditRecord(11L, "kate", "SELECT 2"));
+        givenRecordsInCycle(queueFolder, 1, new WriteDictionary(), givenAuditRecord(20L, "john", "SELECT 3"));
+        givenRecordsInCycle(queueFolder, 2, new WriteDictionary(),
+                            givenAuditRecord(30L, "kate", "SELECT 4"),
+                            givenAuditRecord(31L, "john", "SELECT 5"));
+        givenIndexedCycle(queueFolder, 0);
+        givenIndexedCycle(queueFolder, 1);
+        givenIndexedCycle(queueFolder, 2);
+        givenArchivedFirstCycle(queueFolder);
+
+        ParallelQueueReader reader = new ParallelQueueReader(givenOptions(queueFolder).withUser("kate").build(), pool);
+
+        assertThat(readOperations(reader)).containsExactly("SELECT 2", "SELECT 4");
+    }
+
+    @Test
+    public void testReadingStopsAfterTimeRange() throws Exception
+    {
+        File queueFolder = temporaryFolder.newFolder();
+        givenRecordsInCycle(queueFolder, 0, null, givenAuditRecord(1000L, "john", "SELECT 1"));
+        givenRecordsInCycle(queueFolder, 1, null,
+                            givenAuditRecord(2000L, "john", "SELECT 2"),
+                            givenAuditRecord(3000L, "john", "SELECT 3"));
+        givenRecordsInCycle(queueFolder, 2, null, givenAuditRecord(4000L, "john", "SELECT 4"));
+        givenRecordsInCycle(queueFolder, 3, null, givenAuditRecord(5000L, "john", "SELECT 5"));
+
+        ParallelQueueReader reader = new ParallelQueueReader(givenOptions(queueFolder).withFromTimestamp(1500L).withToTimestamp(2500L).build(), pool);
+
+        assertThat(readOperations(reader)).containsExactly("SELECT 2");
+    }
+
+    @Test
+    public void testTimeSlackReadsRecordsOutOfTimestampOrder() throws Exception
+    {
+        File queueFolder = temporaryFolder.newFolder();
+        givenRecordsInCycle(queueFolder, 0, null, givenAuditRecord(1000L, "john", "SELECT 1"));
+        givenRecordsInCycle(queueFolder, 1, null,
+                            givenAuditRecord(2600L, "john", "SELECT 2"),
+                            givenAuditRecord(2000L, "john", "SELECT 3"));
+        givenRecordsInCycle(queueFolder, 2, null, givenAuditRecord(2400L, "john", "SELECT 4"));
+        givenRecordsInCycle(queueFolder, 3, null, givenAuditRecord(5000L, "john", "SELECT 5"));
+
+        ParallelQueueReader reader = new ParallelQueueReader(givenOptions(queueFolder).withFromTimestamp(1500L).withToTimestamp(2500L).withTimeSlack(500L).build(), pool);
+
+        assertThat(readOperations(reader)).containsExactly("SELECT 3", "SELECT 4");
+    }
+
+    @Test
+    public void testArchivesBeforeTimeRangeAreNotExtracted() throws Exception
+    {
+        File queueFolder = temporaryFolder.newFolder();
+        givenRecordsInCycle(queueFolder, 0, null, givenAuditRecord(1000L, "john", "SELECT 1"));
+        givenRecordsInCycle(queueFolder, 1, null, givenAuditRecord(2000L, "john", "SELECT 2"));
+        givenIndexedCycle(queueFolder, 0);
+        givenArchivedFirstCycle(queueFolder);
+        givenCorruptArchives(queueFolder);
+
+        ParallelQueueReader reader = new ParallelQueueReader(givenOptions(queueFolder).withFromTimestamp(1500L).build(), pool);
+
+        assertThat(readOperations(reader)).containsExactly("SELECT 2");
+    }
+
+    @Test
+    public void testArchiveIsReadFromTimeRange() throws Exception
+    {
+        File queueFolder = temporaryFolder.newFolder();
+        givenRecordsInCycle(queueFolder, 0, new WriteDictionary(),
+                            givenAuditRecord(1000L, "john", "SELECT 1"),
+                            givenAuditRecord(2000L, "john", "SELECT 1"),
+                            givenAuditRecord(3000L, "kate", "SELECT 2"));
+        givenRecordsInCycle(queueFolder, 1, new WriteDictionary(), givenAuditRecord(4000L, "john", "SELECT 3"));
+        givenArchivedFirstCycle(queueFolder);
+
+        ParallelQueueReader reader = new ParallelQueueReader(givenOptions(queueFolder).withFromTimestamp(1500L).build(), pool);
+
+        assertThat(readRecords(reader)).extracting(record -> record.getTimestamp().orElse(null), record -> record.getUser().orElse(null))
+                                       .containsExactly(tuple(2000L, "john"), tuple(3000L, "kate"), tuple(4000L, "john"));
+    }
+
+    @Test
+    public void testFailedScanIsReported() throws Exception
+    {
+        File queueFolder = temporaryFolder.newFolder();
+        Path missingArchive = queueFolder.toPath().resolve("20200101" + CycleArchive.SUFFIX);
+
+        try (SingleChronicleQueue chronicle = buildQueue(queueFolder))
+        {
+            ParallelQueueReader reader = new ParallelQueueReader(ToolOptions.builder().build(), chronicle, Collections.singletonList(missingArchive), pool, 1);
+
+            assertThatExceptionOfType(UncheckedIOException.class)
+            .isThrownBy(reader::hasRecordAvailable)
+            .withMessageContaining(missingArchive.toString());
+        }
+    }
+
+    private static SingleChronicleQueue buildQueue(File queueFolder)
+    {
+        return ChronicleQueueBuilder.single(queueFolder).rollCycle(RollCycles.DAILY).build();
+    }
+
+    private static ToolOptions.Builder givenOptions(File queueFolder)
+    {
+        return ToolOptions.builder().withPath(queueFolder.toPath()).withRollCycle(RollCycles.DAILY);
+    }
+
+    private static void givenRecordsInCycle(File queueFolder, int day, WriteDictionary dictionary, AuditRecord... auditRecords)
+    {
+        try (ChronicleQueue realQueue = ChronicleQueueBuilder.single(queueFolder)
+                                                             .rollCycle(RollCycles.DAILY)
+                                                             .timeProvider(new SetTimeProvider(TimeUnit.DAYS.toNanos(day)))
+                                                             .blockSize(1024)
+                                                             .build())
+        {
+            ExcerptAppender appender = realQueue.acquireAppender();
+            for (AuditRecord auditRecord : auditRecords)
+            {
+                appender.writeDocument(new AuditRecordWriteMarshallable(auditRecord, DEFAULT_FIELDS, dictionary));
+            }
+        }
+    }
+
+    private static void givenIndexedCycle(File queueFolder, int day) throws IOException
+    {
+        CycleIndex.Builder builder = CycleIndex.builder(day);
+        try (ChronicleQueue realQueue = ChronicleQueueBuilder.single(queueFolder).rollCycle(RollCycles.DAILY).readOnly(true).build())
+        {
+            ExcerptTailer realTailer = realQueue.createTailer();
+            ReadDictionary dictionary = new ReadDictionary();
+            for (long index = RollCycles.DAILY.toIndex(day, 0); realTailer.moveToIndex(index); index++)
+            {
+                long definitionCount = dictionary.definitionCount();
+                AuditRecordReadMarshallable marshallable = new AuditRecordReadMarshallable(dictionary);
+                realTailer.readDocument(marshallable);
+                builder.add(index, marshallable.getAuditRecords(), dictionary.definitionCount() != definitionCount);
+            }
+        }
+        builder.build().write(CycleIndex.indexOf(queueFolder.toPath(), RollCycles.DAILY, day));
+    }
+
+    private static void givenArchivedFirstCycle(File queueFolder) throws IOException
+    {
+        try (Stream<Path> files = Files.list(queueFolder.toPath()))
+        {
+            Path cycleFile = files.filter(file -> file.toString().endsWith(SingleChronicleQueue.SUFFIX)).sorted().findFirst().get();
+            CycleArchive.compress(cycleFile);
+            Files.delete(cycleFile);
+        }
+    }
+
+    private static void givenCorruptArchives(File queueFolder) throws IOException
+    {
+        for (Path archive : CycleArchive.listArchives(queueFolder.toPath()))
+        {
+            Files.write(archive, new byte[]{ 1, 2, 3 });
+        }
+    }
+
+    private static AuditRecord givenAuditRecord(long timestamp, String user, String operation) throws UnknownHostException
+    {
+        AuditRecord auditRecord = mock(AuditRecord.class);
+        when(auditRecord.getTimestamp()).thenReturn(timestamp);
+        when(auditRecord.getClientAddress()).thenReturn(new InetSocketAddress(InetAddress.getByName("1.2.3.4"), 555));
+        when(auditRecord.getCoordinatorAddress()).thenReturn(InetAddress.getByName("5.6.7.8"));
+        when(auditRecord.getUser()).thenReturn(user);
+        when(auditRecord.getBatchId()).thenReturn(Optional.empty());
+        when(auditRecord.getStatus()).thenReturn(Status.ATTEMPT);
+        when(auditRecord.getOperation()).thenReturn(new SimpleAuditOperation(operation));
+        return auditRecord;
+    }
+
+    private static List<String> readOperations(RecordReader reader)
+    {
+        List<String> operations = new ArrayList<>();
+        for (StoredAuditRecord record : readRecords(reader))
+        {
+            operations.add(record.getOperation().orElse(null));
+        }
+        return operations;
+    }
+
+    private static List<StoredAuditRecord> readRecords(RecordReader reader)
+    {
+        List<StoredAuditRecord> records = new ArrayList<>();
+        while (reader.hasRecordAvailable())
+        {
+            records.add(reader.nextRecord());
+        }
+        return records;
+    }
+}
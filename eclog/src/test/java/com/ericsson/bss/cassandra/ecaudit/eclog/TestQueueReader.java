@@ -15,21 +15,52 @@
  */
 package com.ericsson.bss.cassandra.ecaudit.eclog;
 
+import java.io.File;
+import java.io.IOException;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 
 import com.ericsson.bss.cassandra.ecaudit.common.chronicle.AuditRecordReadMarshallable;
+import com.ericsson.bss.cassandra.ecaudit.common.chronicle.AuditRecordWriteMarshallable;
+import com.ericsson.bss.cassandra.ecaudit.common.chronicle.CycleArchive;
+import com.ericsson.bss.cassandra.ecaudit.common.chronicle.CycleIndex;
 import com.ericsson.bss.cassandra.ecaudit.common.chronicle.FieldSelector.Field;
+import com.ericsson.bss.cassandra.ecaudit.common.chronicle.ReadDictionary;
+import com.ericsson.bss.cassandra.ecaudit.common.chronicle.WriteDictionary;
+import com.ericsson.bss.cassandra.ecaudit.common.record.AuditOperation;
+import com.ericsson.bss.cassandra.ecaudit.common.record.AuditRecord;
+import com.ericsson.bss.cassandra.ecaudit.common.record.BoundValue;
+import com.ericsson.bss.cassandra.ecaudit.common.record.BoundValueType;
+import com.ericsson.bss.cassandra.ecaudit.common.record.SimpleAuditOperation;
+import com.ericsson.bss.cassandra.ecaudit.common.record.Status;
 import com.ericsson.bss.cassandra.ecaudit.common.record.StoredAuditRecord;
 import com.ericsson.bss.cassandra.ecaudit.test.chronicle.RecordValues;
+import net.openhft.chronicle.bytes.BytesOut;
 import net.openhft.chronicle.core.io.IORuntimeException;
+import net.openhft.chronicle.core.time.SetTimeProvider;
 import net.openhft.chronicle.queue.ChronicleQueue;
+import net.openhft.chronicle.queue.ChronicleQueueBuilder;
+import net.openhft.chronicle.queue.ExcerptAppender;
 import net.openhft.chronicle.queue.ExcerptTailer;
+import net.openhft.chronicle.queue.RollCycles;
+import net.openhft.chronicle.queue.impl.single.SingleChronicleQueue;
 import net.openhft.chronicle.wire.ReadMarshallable;
 import net.openhft.chronicle.wire.ValueIn;
 import net.openhft.chronicle.wire.WireIn;
@@ -49,6 +80,9 @@ import static org.mockito.Mockito.when;
 @RunWith(MockitoJUnitRunner.StrictStubs.class)
 public class TestQueueReader
 {
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     @Mock
     private ChronicleQueue queue;
 
@@ -129,6 +163,391 @@ public class TestQueueReader
         assertRecordMatchesWire(auditRecord, defaultValues);
     }
 
+    @Test
+    public void testCompactBatchRecordIsExpanded() throws Exception
+    {
+        UUID batchId = UUID.fromString("b23534c7-93af-497f-b00c-1edaaa335caa");
+        try (ChronicleQueue realQueue = ChronicleQueueBuilder.single(temporaryFolder.getRoot()).blockSize(1024).build())
+        {
+            realQueue.acquireAppender().writeDocument(wire -> {
+                wire.write("version").int16(defaultValues.getVersion());
+                wire.write("type").text("ecaudit-compact-batch");
+                wire.write("fields").int32(DEFAULT_FIELDS.getBitmap());
+                wire.write("batch_size").int32(2);
+                wire.write("timestamp").int64(defaultValues.getTimestamp());
+                wire.write("client_ip").bytes(defaultValues.getClientAddress());
+                wire.write("client_port").int32(defaultValues.getClientPort());
+                wire.write("coordinator_ip").bytes(defaultValues.getCoordinatorAddress());
+                wire.write("user").text(defaultValues.gethUser());
+                wire.write("batchId").uuid(batchId);
+                wire.write("status").text(defaultValues.getStatus());
+                wire.write("operation").sequence(this, (self, out) -> {
+                    out.text("INSERT 1");
+                    out.text("INSERT 2");
+                });
+            });
+
+            QueueReader reader = new QueueReader(ToolOptions.builder().build(), realQueue);
+
+            assertThat(reader.hasRecordAvailable()).isTrue();
+            assertRecordMatchesWire(reader.nextRecord(), defaultValues.butWithBatchId(batchId).butWithOperation("INSERT 1"));
+            assertThat(reader.hasRecordAvailable()).isTrue();
+            assertRecordMatchesWire(reader.nextRecord(), defaultValues.butWithBatchId(batchId).butWithOperation("INSERT 2"));
+            assertThat(reader.hasRecordAvailable()).isFalse();
+        }
+    }
+
+    @Test
+    public void testDictionaryReferencesAreResolvedWhenTailing() throws Exception
+    {
+        try (ChronicleQueue realQueue = ChronicleQueueBuilder.single(temporaryFolder.getRoot()).blockSize(1024).build())
+        {
+            WriteDictionary dictionary = new WriteDictionary();
+            ExcerptAppender appender = realQueue.acquireAppender();
+            appender.writeDocument(new AuditRecordWriteMarshallable(givenAuditRecord("SELECT 1"), DEFAULT_FIELDS, dictionary));
+            appender.writeDocument(new AuditRecordWriteMarshallable(givenAuditRecord("SELECT 2"), DEFAULT_FIELDS, dictionary));
+            appender.writeDocument(new AuditRecordWriteMarshallable(givenAuditRecord("SELECT 1"), DEFAULT_FIELDS, dictionary));
+
+            QueueReader reader = new QueueReader(ToolOptions.builder().withTail(2).build(), realQueue);
+
+            assertThat(reader.hasRecordAvailable()).isTrue();
+            assertRecordMatchesWire(reader.nextRecord(), defaultValues.butWithOperation("SELECT 2"));
+            assertThat(reader.hasRecordAvailable()).isTrue();
+            assertRecordMatchesWire(reader.nextRecord(), defaultValues.butWithOperation("SELECT 1"));
+            assertThat(reader.hasRecordAvailable()).isFalse();
+        }
+    }
+
+    @Test
+    public void testCompactLayoutIsResolvedWhenTailing() throws Exception
+    {
+        try (ChronicleQueue realQueue = ChronicleQueueBuilder.single(temporaryFolder.getRoot()).blockSize(1024).build())
+        {
+            WriteDictionary dictionary = new WriteDictionary(WriteDictionary.DEFAULT_MAX_SIZE, true);
+            ExcerptAppender appender = realQueue.acquireAppender();
+            appender.writeDocument(new AuditRecordWriteMarshallable(givenAuditRecord("SELECT 1"), DEFAULT_FIELDS, dictionary));
+            appender.writeDocument(new AuditRecordWriteMarshallable(givenAuditRecord("SELECT 2"), DEFAULT_FIELDS, dictionary));
+
+            QueueReader reader = new QueueReader(ToolOptions.builder().withTail(1).build(), realQueue);
+
+            assertThat(reader.hasRecordAvailable()).isTrue();
+            assertRecordMatchesWire(reader.nextRecord(), defaultValues.butWithOperation("SELECT 2"));
+            assertThat(reader.hasRecordAvailable()).isFalse();
+        }
+    }
+
+    @Test
+    public void testArchivesAreReadBeforeLiveQueue() throws Exception
+    {
+        File queueFolder = temporaryFolder.newFolder();
+        givenRecordsInCycle(queueFolder, 0, "SELECT 1", "SELECT 2");
+        givenRecordsInCycle(queueFolder, 1, "SELECT 3");
+        givenArchivedFirstCycle(queueFolder);
+
+        QueueReader reader = new QueueReader(ToolOptions.builder().withPath(queueFolder.toPath()).withRollCycle(RollCycles.DAILY).build());
+
+        for (String operation : Arrays.asList("SELECT 1", "SELECT 2", "SELECT 3"))
+        {
+            assertThat(reader.hasRecordAvailable()).isTrue();
+            assertRecordMatchesWire(reader.nextRecord(), defaultValues.butWithOperation(operation));
+        }
+        assertThat(reader.hasRecordAvailable()).isFalse();
+    }
+
+    @Test
+    public void testArchivesAreSkippedWhenTailing() throws Exception
+    {
+        File queueFolder = temporaryFolder.newFolder();
+        givenRecordsInCycle(queueFolder, 0, "SELECT 1");
+        givenRecordsInCycle(queueFolder, 1, "SELECT 2");
+        givenArchivedFirstCycle(queueFolder);
+
+        QueueReader reader = new QueueReader(ToolOptions.builder().withPath(queueFolder.toPath()).withRollCycle(RollCycles.DAILY).withTail(1).build());
+
+        assertThat(reader.hasRecordAvailable()).isTrue();
+        assertRecordMatchesWire(reader.nextRecord(), defaultValues.butWithOperation("SELECT 2"));
+        assertThat(reader.hasRecordAvailable()).isFalse();
+    }
+
+    @Test
+    public void testRecordsAreFilteredByUserAndTable() throws Exception
+    {
+        File queueFolder = temporaryFolder.newFolder();
+        givenRecordsInCycle(queueFolder, 0, null,
+                            givenAuditRecord("john", "SELECT * FROM ks.tbl"),
+                            givenAuditRecord("kate", "SELECT * FROM ks.tbl"),
+                            givenAuditRecord("john", "SELECT * FROM ks.other"),
+                            givenAuditRecord("john", "INSERT INTO ks.tbl (key) VALUES (1)"));
+
+        QueueReader reader = new QueueReader(givenFilterOptions(queueFolder).withUser("john").withTable("KS.TBL").build());
+
+        assertNextRecord(reader, "john", "SELECT * FROM ks.tbl");
+        assertNextRecord(reader, "john", "INSERT INTO ks.tbl (key) VALUES (1)");
+        assertThat(reader.hasRecordAvailable()).isFalse();
+    }
+
+    @Test
+    public void testRecordsAreFilteredByStatusAndClient() throws Exception
+    {
+        File queueFolder = temporaryFolder.newFolder();
+        InetAddress otherClient = InetAddress.getByName("9.8.7.6");
+        givenRecordsInCycle(queueFolder, 0, null,
+                            givenAuditRecord("john", "SELECT 1"),
+                            givenAuditRecord("kate", "SELECT 2", Status.FAILED, otherClient),
+                            givenAuditRecord("john", "SELECT 3", Status.FAILED, InetAddress.getByAddress(defaultValues.getClientAddress())),
+                            givenAuditRecord("kate", "SELECT 4"));
+
+        QueueReader statusReader = new QueueReader(givenFilterOptions(queueFolder).withStatus(Status.FAILED).build());
+        assertNextRecord(statusReader, "kate", "SELECT 2");
+        assertNextRecord(statusReader, "john", "SELECT 3");
+        assertThat(statusReader.hasRecordAvailable()).isFalse();
+
+        QueueReader clientReader = new QueueReader(givenFilterOptions(queueFolder).withClient(otherClient).build());
+        assertNextRecord(clientReader, "kate", "SELECT 2");
+        assertThat(clientReader.hasRecordAvailable()).isFalse();
+    }
+
+    @Test
+    public void testCompactRecordsAreFilteredByKeyspaceAndBatch() throws Exception
+    {
+        File queueFolder = temporaryFolder.newFolder();
+        UUID batchId = UUID.randomUUID();
+        AuditRecord batchRecord = givenAuditRecord("kate", "INSERT INTO ks.tbl (key) VALUES (1)");
+        when(batchRecord.getBatchId()).thenReturn(Optional.of(batchId));
+        // The values of later records are defined by the records which are skipped
+        givenRecordsInCycle(queueFolder, 0, new WriteDictionary(WriteDictionary.DEFAULT_MAX_SIZE, true),
+                            givenAuditRecord("kate", "SELECT * FROM other.tbl"),
+                            batchRecord,
+                            givenAuditRecord("kate", "SELECT * FROM \"KS\".tbl"),
+                            givenAuditRecord("kate", "SELECT * FROM ks2.tbl"));
+
+        QueueReader keyspaceReader = new QueueReader(givenFilterOptions(queueFolder).withKeyspace("ks").build());
+        assertNextRecord(keyspaceReader, "kate", "INSERT INTO ks.tbl (key) VALUES (1)");
+        assertThat(keyspaceReader.hasRecordAvailable()).isFalse();
+
+        QueueReader batchReader = new QueueReader(givenFilterOptions(queueFolder).withBatch(batchId).build());
+        assertNextRecord(batchReader, "kate", "INSERT INTO ks.tbl (key) VALUES (1)");
+        assertThat(batchReader.hasRecordAvailable()).isFalse();
+    }
+
+    @Test
+    public void testOnlyCandidatesOfCycleIndexAreRead() throws Exception
+    {
+        File queueFolder = temporaryFolder.newFolder();
+        givenRecordsInCycle(queueFolder, 0, null,
+                            givenAuditRecord("john", "SELECT 1"),
+                            givenAuditRecord("kate", "SELECT 2"),
+                            givenAuditRecord("john", "SELECT 3"));
+        // An index which only lists the last record of john
+        CycleIndex.builder(0)
+                  .add(RollCycles.DAILY.toIndex(0, 2), Collections.singletonList(givenStoredRecord("john")), false)
+                  .build()
+                  .write(CycleIndex.indexOf(queueFolder.toPath(), RollCycles.DAILY, 0));
+        givenRecordsInCycle(queueFolder, 1, null, givenAuditRecord("john", "SELECT 4"));
+
+        QueueReader reader = new QueueReader(givenFilterOptions(queueFolder).withUser("john").build());
+
+        assertNextRecord(reader, "john", "SELECT 3");
+        assertNextRecord(reader, "john", "SELECT 4");
+        assertThat(reader.hasRecordAvailable()).isFalse();
+    }
+
+    @Test
+    public void testDictionaryDefinitionsAreReadForIndexedRecords() throws Exception
+    {
+        File queueFolder = temporaryFolder.newFolder();
+        givenRecordsInCycle(queueFolder, 0, new WriteDictionary(),
+                            givenAuditRecord("john", "SELECT * FROM ks.tbl"),
+                            givenAuditRecord("kate", "SELECT * FROM ks.other"),
+                            givenAuditRecord("kate", "SELECT * FROM ks.tbl"),
+                            givenAuditRecord("john", "SELECT * FROM ks.other"));
+        givenIndexedCycle(queueFolder, 0);
+
+        QueueReader reader = new QueueReader(givenFilterOptions(queueFolder).withUser("kate").withTable("ks.tbl").build());
+
+        assertNextRecord(reader, "kate", "SELECT * FROM ks.tbl");
+        assertThat(reader.hasRecordAvailable()).isFalse();
+    }
+
+    @Test
+    public void testIndexedArchivesAreFiltered() throws Exception
+    {
+        File queueFolder = temporaryFolder.newFolder();
+        givenRecordsInCycle(queueFolder, 0, new WriteDictionary(),
+                            givenAuditRecord("john", "SELECT 1"),
+                            givenAuditRecord("kate", "SELECT 2"));
+        givenRecordsInCycle(queueFolder, 1, new WriteDictionary(), givenAuditRecord("john", "SELECT 3"));
+        givenRecordsInCycle(queueFolder, 2, new WriteDictionary(),
+                            givenAuditRecord("kate", "SELECT 4"),
+                            givenAuditRecord("john", "SELECT 5"));
+        givenIndexedCycle(queueFolder, 0);
+        givenIndexedCycle(queueFolder, 1);
+        givenArchivedFirstCycle(queueFolder);
+        givenArchivedFirstCycle(queueFolder);
+
+        QueueReader reader = new QueueReader(givenFilterOptions(queueFolder).withUser("kate").build());
+
+        assertNextRecord(reader, "kate", "SELECT 2");
+        assertNextRecord(reader, "kate", "SELECT 4");
+        assertThat(reader.hasRecordAvailable()).isFalse();
+    }
+
+    @Test
+    public void testReadingStartsAndStopsAtTimeRange() throws Exception
+    {
+        File queueFolder = temporaryFolder.newFolder();
+        givenRecordsInCycle(queueFolder, 0, null,
+                            givenAuditRecord(1000L, "SELECT 1"),
+                            givenAuditRecord(2000L, "SELECT 2"),
+                            givenAuditRecord(3000L, "SELECT 3"));
+        givenRecordsInCycle(queueFolder, 1, null,
+                            givenAuditRecord(4000L, "SELECT 4"),
+                            givenAuditRecord(5000L, "SELECT 5"),
+                            givenAuditRecord(6000L, "SELECT 6"));
+        // A record in the time range after a record past it is not read
+        givenRecordsInCycle(queueFolder, 2, null,
+                            givenAuditRecord(7000L, "SELECT 7"),
+                            givenAuditRecord(4500L, "SELECT 8"));
+
+        QueueReader reader = new QueueReader(givenFilterOptions(queueFolder).withFromTimestamp(2500L).withToTimestamp(5000L).build());
+
+        assertNextRecord(reader, "john", "SELECT 3");
+        assertNextRecord(reader, "john", "SELECT 4");
+        assertNextRecord(reader, "john", "SELECT 5");
+        assertThat(reader.hasRecordAvailable()).isFalse();
+    }
+
+    @Test
+    public void testTimeSlackReadsRecordsOutOfTimestampOrder() throws Exception
+    {
+        File queueFolder = temporaryFolder.newFolder();
+        givenRecordsInCycle(queueFolder, 0, null,
+                            givenAuditRecord(1000L, "SELECT 1"),
+                            givenAuditRecord(2600L, "SELECT 2"),
+                            givenAuditRecord(2400L, "SELECT 3"),
+                            givenAuditRecord(3000L, "SELECT 4"));
+        givenRecordsInCycle(queueFolder, 1, null,
+                            givenAuditRecord(5500L, "SELECT 5"),
+                            givenAuditRecord(4000L, "SELECT 6"));
+
+        QueueReader strictReader = new QueueReader(givenFilterOptions(queueFolder).withFromTimestamp(2500L).withToTimestamp(5000L).build());
+        assertNextRecord(strictReader, "john", "SELECT 4");
+        assertThat(strictReader.hasRecordAvailable()).isFalse();
+
+        QueueReader reader = new QueueReader(givenFilterOptions(queueFolder).withFromTimestamp(2500L).withToTimestamp(5000L).withTimeSlack(600L).build());
+        assertNextRecord(reader, "john", "SELECT 2");
+        assertNextRecord(reader, "john", "SELECT 4");
+        assertNextRecord(reader, "john", "SELECT 6");
+        assertThat(reader.hasRecordAvailable()).isFalse();
+    }
+
+    @Test
+    public void testNothingToReadAfterTimeRange() throws Exception
+    {
+        File queueFolder = temporaryFolder.newFolder();
+        givenRecordsInCycle(queueFolder, 0, null, givenAuditRecord(1000L, "SELECT 1"));
+        givenRecordsInCycle(queueFolder, 1, null, givenAuditRecord(2000L, "SELECT 2"));
+
+        QueueReader reader = new QueueReader(givenFilterOptions(queueFolder).withFromTimestamp(2001L).build());
+
+        assertThat(reader.hasRecordAvailable()).isFalse();
+    }
+
+    @Test
+    public void testTimeRangeInCompactLayout() throws Exception
+    {
+        File queueFolder = temporaryFolder.newFolder();
+        // A small dictionary starts over, with a new base timestamp, every few records
+        WriteDictionary dictionary = new WriteDictionary(4, true);
+        AuditRecord[] auditRecords = new AuditRecord[20];
+        for (int i = 0; i < auditRecords.length; i++)
+        {
+            auditRecords[i] = givenAuditRecord(1000L * (i + 1), "SELECT " + (i + 1));
+        }
+        givenRecordsInCycle(queueFolder, 0, dictionary, auditRecords);
+
+        QueueReader reader = new QueueReader(givenFilterOptions(queueFolder).withFromTimestamp(12500L).withToTimestamp(14000L).build());
+
+        assertNextRecord(reader, "john", "SELECT 13");
+        assertNextRecord(reader, "john", "SELECT 14");
+        assertThat(reader.hasRecordAvailable()).isFalse();
+    }
+
+    @Test
+    public void testTimeRangeIsLookedUpInCycleIndex() throws Exception
+    {
+        File queueFolder = temporaryFolder.newFolder();
+        givenRecordsInCycle(queueFolder, 0, null,
+                            givenAuditRecord(1000L, "SELECT 1"),
+                            givenAuditRecord(2000L, "SELECT 2"),
+                            givenAuditRecord(3000L, "SELECT 3"));
+        // An index where the minute of the time range starts at the last record
+        CycleIndex.builder(0)
+                  .add(RollCycles.DAILY.toIndex(0, 2), Collections.singletonList(StoredAuditRecord.builder().withTimestamp(3000L).build()), false)
+                  .build()
+                  .write(CycleIndex.indexOf(queueFolder.toPath(), RollCycles.DAILY, 0));
+
+        QueueReader reader = new QueueReader(givenFilterOptions(queueFolder).withFromTimestamp(1500L).build());
+
+        assertNextRecord(reader, "john", "SELECT 3");
+        assertThat(reader.hasRecordAvailable()).isFalse();
+    }
+
+    @Test
+    public void testArchivesBeforeTimeRangeAreSkipped() throws Exception
+    {
+        File queueFolder = temporaryFolder.newFolder();
+        givenRecordsInCycle(queueFolder, 0, null, givenAuditRecord(1000L, "SELECT 1"));
+        givenRecordsInCycle(queueFolder, 1, null,
+                            givenAuditRecord(2000L, "SELECT 2"),
+                            givenAuditRecord(3000L, "SELECT 3"));
+        givenRecordsInCycle(queueFolder, 2, null, givenAuditRecord(4000L, "SELECT 4"));
+        givenIndexedCycle(queueFolder, 0);
+        givenArchivedFirstCycle(queueFolder);
+        givenArchivedFirstCycle(queueFolder);
+
+        QueueReader reader = new QueueReader(givenFilterOptions(queueFolder).withFromTimestamp(2500L).build());
+
+        assertNextRecord(reader, "john", "SELECT 3");
+        assertNextRecord(reader, "john", "SELECT 4");
+        assertThat(reader.hasRecordAvailable()).isFalse();
+    }
+
+    @Test
+    public void testBoundValuesAreRendered() throws Exception
+    {
+        try (ChronicleQueue realQueue = ChronicleQueueBuilder.single(temporaryFolder.getRoot()).blockSize(1024).build())
+        {
+            AuditRecord auditRecord = givenAuditRecord(new AuditOperation()
+            {
+                @Override
+                public String getOperationString()
+                {
+                    return "SELECT * FROM ks.tbl WHERE key = ? AND ck = ?[42, <text>]";
+                }
+
+                @Override
+                public String getNakedOperationString()
+                {
+                    return "SELECT * FROM ks.tbl WHERE key = ? AND ck = ?";
+                }
+
+                @Override
+                public List<BoundValue> getBoundValues()
+                {
+                    return Arrays.asList(BoundValue.serialized(BoundValueType.INT, ByteBuffer.allocate(4).putInt(0, 42)),
+                                         BoundValue.literal("<text>"));
+                }
+            });
+            realQueue.acquireAppender().writeDocument(new AuditRecordWriteMarshallable(auditRecord, DEFAULT_FIELDS.withField(Field.BOUND_VALUES)));
+
+            QueueReader reader = new QueueReader(ToolOptions.builder().build(), realQueue);
+
+            assertThat(reader.hasRecordAvailable()).isTrue();
+            assertRecordMatchesWire(reader.nextRecord(), defaultValues.butWithOperation("SELECT * FROM ks.tbl WHERE key = ? AND ck = ?[42, <text>]"));
+        }
+    }
+
     @Test
     public void testFailOnCorruptRecord()
     {
@@ -162,7 +581,7 @@ public class TestQueueReader
         when(wireMock.read(eq("timestamp"))).thenReturn(timestampValueMock);
 
         ValueIn clientIpValueMock = mock(ValueIn.class);
-        when(clientIpValueMock.bytes()).thenReturn(recordValues.getClientAddress());
+        givenBytes(clientIpValueMock, recordValues.getClientAddress());
         when(wireMock.read(eq("client_ip"))).thenReturn(clientIpValueMock);
 
         ValueIn clientPortValueMock = mock(ValueIn.class);
@@ -170,11 +589,11 @@ public class TestQueueReader
         when(wireMock.read(eq("client_port"))).thenReturn(clientPortValueMock);
 
         ValueIn coordinatorIpValueMock = mock(ValueIn.class);
-        when(coordinatorIpValueMock.bytes()).thenReturn(recordValues.getCoordinatorAddress());
+        givenBytes(coordinatorIpValueMock, recordValues.getCoordinatorAddress());
         when(wireMock.read(eq("coordinator_ip"))).thenReturn(coordinatorIpValueMock);
 
         ValueIn userValueMock = mock(ValueIn.class);
-        when(userValueMock.text()).thenReturn(recordValues.gethUser());
+        givenText(userValueMock, recordValues.gethUser());
         when(wireMock.read(eq("user"))).thenReturn(userValueMock);
 
         if (recordValues.getBatchId() != null)
@@ -185,7 +604,7 @@ public class TestQueueReader
         }
 
         ValueIn statusValueMock = mock(ValueIn.class);
-        when(statusValueMock.text()).thenReturn(recordValues.getStatus());
+        givenText(statusValueMock, recordValues.getStatus());
         when(wireMock.read(eq("status"))).thenReturn(statusValueMock);
 
         ValueIn operationValueMock = mock(ValueIn.class);
@@ -201,6 +620,135 @@ public class TestQueueReader
         );
     }
 
+    private static void givenBytes(ValueIn valueMock, byte[] bytes)
+    {
+        when(valueMock.bytes(any(BytesOut.class))).thenAnswer(invocation -> {
+            invocation.<BytesOut<?>>getArgument(0).write(bytes);
+            return null;
+        });
+    }
+
+    private static void givenText(ValueIn valueMock, String text)
+    {
+        when(valueMock.textTo(any(StringBuilder.class))).thenAnswer(invocation -> invocation.<StringBuilder>getArgument(0).append(text));
+    }
+
+    private void givenRecordsInCycle(File queueFolder, int day, String... operations) throws UnknownHostException
+    {
+        try (ChronicleQueue realQueue = ChronicleQueueBuilder.single(queueFolder)
+                                                             .rollCycle(RollCycles.DAILY)
+                                                             .timeProvider(new SetTimeProvider(TimeUnit.DAYS.toNanos(day)))
+                                                             .blockSize(1024)
+                                                             .build())
+        {
+            ExcerptAppender appender = realQueue.acquireAppender();
+            for (String operation : operations)
+            {
+                appender.writeDocument(new AuditRecordWriteMarshallable(givenAuditRecord(operation), DEFAULT_FIELDS));
+            }
+        }
+    }
+
+    private void givenRecordsInCycle(File queueFolder, int day, WriteDictionary dictionary, AuditRecord... auditRecords)
+    {
+        try (ChronicleQueue realQueue = ChronicleQueueBuilder.single(queueFolder)
+                                                             .rollCycle(RollCycles.DAILY)
+                                                             .timeProvider(new SetTimeProvider(TimeUnit.DAYS.toNanos(day)))
+                                                             .blockSize(1024)
+                                                             .build())
+        {
+            ExcerptAppender appender = realQueue.acquireAppender();
+            for (AuditRecord auditRecord : auditRecords)
+            {
+                appender.writeDocument(new AuditRecordWriteMarshallable(auditRecord, DEFAULT_FIELDS, dictionary));
+            }
+        }
+    }
+
+    private void givenIndexedCycle(File queueFolder, int day) throws IOException
+    {
+        CycleIndex.Builder builder = CycleIndex.builder(day);
+        try (ChronicleQueue realQueue = ChronicleQueueBuilder.single(queueFolder).rollCycle(RollCycles.DAILY).readOnly(true).build())
+        {
+            ExcerptTailer realTailer = realQueue.createTailer();
+            ReadDictionary dictionary = new ReadDictionary();
+            for (long index = RollCycles.DAILY.toIndex(day, 0); realTailer.moveToIndex(index); index++)
+            {
+                long definitionCount = dictionary.definitionCount();
+                AuditRecordReadMarshallable marshallable = new AuditRecordReadMarshallable(dictionary);
+                realTailer.readDocument(marshallable);
+                builder.add(index, marshallable.getAuditRecords(), dictionary.definitionCount() != definitionCount);
+            }
+        }
+        builder.build().write(CycleIndex.indexOf(queueFolder.toPath(), RollCycles.DAILY, day));
+    }
+
+    private void givenArchivedFirstCycle(File queueFolder) throws IOException
+    {
+        try (Stream<Path> files = Files.list(queueFolder.toPath()))
+        {
+            Path cycleFile = files.filter(file -> file.toString().endsWith(SingleChronicleQueue.SUFFIX)).sorted().findFirst().get();
+            CycleArchive.compress(cycleFile);
+            Files.delete(cycleFile);
+        }
+    }
+
+    private AuditRecord givenAuditRecord(String operation) throws UnknownHostException
+    {
+        return givenAuditRecord(new SimpleAuditOperation(operation));
+    }
+
+    private AuditRecord givenAuditRecord(AuditOperation operation) throws UnknownHostException
+    {
+        return givenAuditRecord(defaultValues.gethUser(), operation);
+    }
+
+    private AuditRecord givenAuditRecord(String user, String operation) throws UnknownHostException
+    {
+        return givenAuditRecord(user, new SimpleAuditOperation(operation));
+    }
+
+    private AuditRecord givenAuditRecord(String user, AuditOperation operation) throws UnknownHostException
+    {
+        return givenAuditRecord(defaultValues.getTimestamp(), user, operation);
+    }
+
+    private AuditRecord givenAuditRecord(long timestamp, String operation) throws UnknownHostException
+    {
+        return givenAuditRecord(timestamp, defaultValues.gethUser(), new SimpleAuditOperation(operation));
+    }
+
+    private AuditRecord givenAuditRecord(long timestamp, String user, AuditOperation operation) throws UnknownHostException
+    {
+        AuditRecord auditRecord = mock(AuditRecord.class);
+        when(auditRecord.getTimestamp()).thenReturn(timestamp);
+        when(auditRecord.getClientAddress()).thenReturn(new InetSocketAddress(InetAddress.getByAddress(defaultValues.getClientAddress()), defaultValues.getClientPort()));
+        when(auditRecord.getCoordinatorAddress()).thenReturn(InetAddress.getByAddress(defaultValues.getCoordinatorAddress()));
+        when(auditRecord.getUser()).thenReturn(user);
+        when(auditRecord.getBatchId()).thenReturn(Optional.empty());
+        when(auditRecord.getStatus()).thenReturn(Status.valueOf(defaultValues.getStatus()));
+        when(auditRecord.getOperation()).thenReturn(operation);
+        return auditRecord;
+    }
+
+    private AuditRecord givenAuditRecord(String user, String operation, Status status, InetAddress clientAddress) throws UnknownHostException
+    {
+        AuditRecord auditRecord = givenAuditRecord(user, operation);
+        when(auditRecord.getStatus()).thenReturn(status);
+        when(auditRecord.getClientAddress()).thenReturn(new InetSocketAddress(clientAddress, defaultValues.getClientPort()));
+        return auditRecord;
+    }
+
+    private StoredAuditRecord givenStoredRecord(String user)
+    {
+        return StoredAuditRecord.builder().withUser(user).build();
+    }
+
+    private ToolOptions.Builder givenFilterOptions(File queueFolder)
+    {
+        return ToolOptions.builder().withPath(queueFolder.toPath()).withRollCycle(RollCycles.DAILY);
+    }
+
     private QueueReader givenReader()
     {
         return givenReader(ToolOptions.builder().build());
@@ -211,6 +759,14 @@ public class TestQueueReader
         return new QueueReader(toolOptions, queue);
     }
 
+    private void assertNextRecord(QueueReader reader, String expectedUser, String expectedOperation)
+    {
+        assertThat(reader.hasRecordAvailable()).isTrue();
+        StoredAuditRecord record = reader.nextRecord();
+        assertThat(record.getUser()).contains(expectedUser);
+        assertThat(record.getOperation()).contains(expectedOperation);
+    }
+
     private void assertRecordMatchesWire(StoredAuditRecord actualAuditRecord, RecordValues expectedValues) throws UnknownHostException
     {
         assertThat(actualAuditRecord.getTimestamp()).contains(expectedValues.getTimestamp());
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2020 Telefonaktiebolaget LM Ericsson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ericsson.bss.cassandra.ecaudit.eclog;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.ericsson.bss.cassandra.ecaudit.common.chronicle.AuditRecordWriteMarshallable;
+import com.ericsson.bss.cassandra.ecaudit.common.chronicle.QueueShards;
+import com.ericsson.bss.cassandra.ecaudit.common.chronicle.SequencedWriteMarshallable;
+import com.ericsson.bss.cassandra.ecaudit.common.record.AuditRecord;
+import com.ericsson.bss.cassandra.ecaudit.common.record.SimpleAuditOperation;
+import com.ericsson.bss.cassandra.ecaudit.common.record.Status;
+import com.ericsson.bss.cassandra.ecaudit.common.record.StoredAuditRecord;
+import net.openhft.chronicle.queue.ChronicleQueue;
+import net.openhft.chronicle.queue.ChronicleQueueBuilder;
+import net.openhft.chronicle.queue.ExcerptAppender;
+import net.openhft.chronicle.queue.RollCycles;
+
+import static com.ericsson.bss.cassandra.ecaudit.common.chronicle.FieldSelector.DEFAULT_FIELDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TestShardedQueueReader
+{
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final List<ChronicleQueue> queues = new ArrayList<>();
+
+    @After
+    public void after()
+    {
+        queues.forEach(ChronicleQueue::close);
+    }
+
+    @Test
+    public void testNothingToRead()
+    {
+        RecordReader reader = new ShardedQueueReader(Arrays.asList(givenShardReader(), givenShardReader()), Optional.empty());
+
+        assertThat(reader.hasRecordAvailable()).isFalse();
+        assertThat(reader.nextRecord()).isNull();
+    }
+
+    @Test
+    public void testRecordsAreMergedByTimestamp() throws Exception
+    {
+        QueueReader firstShard = givenShardReader(givenRecord(10, 0, "a"), givenRecord(30, 2, "c"));
+        QueueReader secondShard = givenShardReader(givenRecord(20, 1, "b"), givenRecord(40, 3, "d"));
+
+        RecordReader reader = new ShardedQueueReader(Arrays.asList(firstShard, secondShard), Optional.empty());
+
+        assertThat(readOperations(reader)).containsExactly("a", "b", "c", "d");
+    }
+
+    @Test
+    public void testSameTimestampIsOrderedBySequence() throws Exception
+    {
+        QueueReader firstShard = givenShardReader(givenRecord(10, 1, "b"), givenRecord(10, 4, "e"));
+        QueueReader secondShard = givenShardReader(givenRecord(10, 0, "a"), givenRecord(10, 2, "c"));
+        QueueReader thirdShard = givenShardReader(givenRecord(10, 3, "d"));
+
+        RecordReader reader = new ShardedQueueReader(Arrays.asList(firstShard, secondShard, thirdShard), Optional.empty());
+
+        assertThat(readOperations(reader)).containsExactly("a", "b", "c", "d", "e");
+    }
+
+    @Test
+    public void testTailOfMergedLog() throws Exception
+    {
+        ToolOptions tailOptions = ToolOptions.builder().withTail(3).build();
+        QueueReader firstShard = new QueueReader(tailOptions, givenShard(givenRecord(10, 0, "a"), givenRecord(30, 2, "c"), givenRecord(50, 4, "e")));
+        QueueReader secondShard = new QueueReader(tailOptions, givenShard(givenRecord(20, 1, "b"), givenRecord(40, 3, "d")));
+
+        RecordReader reader = new ShardedQueueReader(Arrays.asList(firstShard, secondShard), tailOptions.tail());
+
+        assertThat(readOperations(reader)).containsExactly("c", "d", "e");
+    }
+
+    @Test
+    public void testShardedLogIsMerged() throws Exception
+    {
+        Path logPath = temporaryFolder.getRoot().toPath();
+        writeRecords(QueueShards.shardPath(logPath, 0).toFile(), givenRecord(10, 0, "a"), givenRecord(30, 2, "c"));
+        writeRecords(QueueShards.shardPath(logPath, 1).toFile(), givenRecord(20, 1, "b"));
+
+        RecordReader reader = EcLog.createRecordReader(ToolOptions.builder().withPath(logPath).withRollCycle(RollCycles.DAILY).build());
+
+        assertThat(reader).isInstanceOf(ShardedQueueReader.class);
+        assertThat(readOperations(reader)).containsExactly("a", "b", "c");
+    }
+
+    @Test
+    public void testUnshardedLogIsReadDirectly() throws Exception
+    {
+        Path logPath = temporaryFolder.getRoot().toPath();
+        writeRecords(logPath.toFile(), givenRecord(10, 0, "a"));
+
+        RecordReader reader = EcLog.createRecordReader(ToolOptions.builder().withPath(logPath).withRollCycle(RollCycles.DAILY).build());
+
+        assertThat(reader).isInstanceOf(QueueReader.class);
+        assertThat(readOperations(reader)).containsExactly("a");
+    }
+
+    private QueueReader givenShardReader(SequencedWriteMarshallable... records)
+    {
+        return new QueueReader(ToolOptions.builder().build(), givenShard(records));
+    }
+
+    private ChronicleQueue givenShard(SequencedWriteMarshallable... records)
+    {
+        try
+        {
+            ChronicleQueue queue = buildQueue(temporaryFolder.newFolder());
+            queues.add(queue);
+            ExcerptAppender appender = queue.acquireAppender();
+            Arrays.stream(records).forEach(appender::writeDocument);
+            return queue;
+        }
+        catch (IOException e)
+        {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static void writeRecords(File directory, SequencedWriteMarshallable... records)
+    {
+        try (ChronicleQueue queue = buildQueue(directory))
+        {
+            ExcerptAppender appender = queue.acquireAppender();
+            Arrays.stream(records).forEach(appender::writeDocument);
+        }
+    }
+
+    private static ChronicleQueue buildQueue(File directory)
+    {
+        return ChronicleQueueBuilder.single(directory)
+                                    .rollCycle(RollCycles.DAILY)
+                                    .blockSize(1024)
+                                    .build();
+    }
+
+    private static SequencedWriteMarshallable givenRecord(long timestamp, long sequence, String operation) throws UnknownHostException
+    {
+        AuditRecord auditRecord = mock(AuditRecord.class);
+        when(auditRecord.getTimestamp()).thenReturn(timestamp);
+        when(auditRecord.getClientAddress()).thenReturn(new InetSocketAddress(InetAddress.getByName("1.2.3.4"), 555));
+        when(auditRecord.getCoordinatorAddress()).thenReturn(InetAddress.getByName("5.6.7.8"));
+        when(auditRecord.getUser()).thenReturn("john");
+        when(auditRecord.getBatchId()).thenReturn(Optional.empty());
+        when(auditRecord.getStatus()).thenReturn(Status.ATTEMPT);
+        when(auditRecord.getOperation()).thenReturn(new SimpleAuditOperation(operation));
+        return new SequencedWriteMarshallable(new AuditRecordWriteMarshallable(auditRecord, DEFAULT_FIELDS), sequence);
+    }
+
+    private static List<String> readOperations(RecordReader reader)
+    {
+        List<String> operations = new ArrayList<>();
+        while (reader.hasRecordAvailable())
+        {
+            StoredAuditRecord record = reader.nextRecord();
+            operations.add(record.getOperation().orElse(null));
+        }
+        return operations;
+    }
+}
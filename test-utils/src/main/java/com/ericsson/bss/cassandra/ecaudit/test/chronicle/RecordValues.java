@@ -80,6 +80,12 @@ public class RecordValues
         return this;
     }
 
+    public RecordValues butWithOperation(String operation)
+    {
+        this.operation = operation;
+        return this;
+    }
+
     public short getVersion()
     {
         return version;